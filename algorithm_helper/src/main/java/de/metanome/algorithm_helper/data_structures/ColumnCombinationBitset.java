@@ -16,19 +16,25 @@
 package de.metanome.algorithm_helper.data_structures;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.IntConsumer;
 
 import de.metanome.algorithm_integration.ColumnCombination;
 import de.metanome.algorithm_integration.ColumnIdentifier;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 
 /**
- * A representation for column combinations (attribute sets) using {@link java.util.BitSet}s.
+ * A representation for column combinations (attribute sets) using bit sets. Column combinations of
+ * the first 64 columns are stored in a single long word; larger column indices switch to an array
+ * of long words. The number of columns and the hash code are cached and updated with every
+ * modification.
  *
  * @author Jakob Zwiener
  * @author Jens Ehrlich
@@ -37,14 +43,19 @@ import de.metanome.algorithm_integration.ColumnIdentifier;
  */
 public class ColumnCombinationBitset implements Comparable<ColumnCombinationBitset> {
 
-  protected BitSet bitset;
-  protected long size = 0;
+  protected static final int WORD_SIZE = Long.SIZE;
 
-  public ColumnCombinationBitset(int... columnIndeces) {
-    bitset = new BitSet();
+  // The columns 0 to 63 if words is null
+  protected long word = 0L;
+  // All columns if a column index greater than 63 is set; the last word is never 0
+  protected long[] words = null;
+  protected int size = 0;
+  protected int hash = hashWords();
+  // The set column indices, created lazily by toArray() and reset on modification
+  protected int[] setBitsArray = null;
 
+  public ColumnCombinationBitset(int... columnIndeces) {
     for (int columnIndex : columnIndeces) {
-      // If the bit was not yet set, increase the size.
       addColumn(columnIndex);
     }
   }
@@ -59,7 +70,12 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @param columnCombination that is cloned to the new instance
    */
   public ColumnCombinationBitset(ColumnCombinationBitset columnCombination) {
-    setColumns((BitSet) columnCombination.bitset.clone());
+    this.word = columnCombination.word;
+    this.words = columnCombination.words == null ? null : columnCombination.words.clone();
+    this.size = columnCombination.size;
+    this.hash = columnCombination.hash;
+    // The cached array is never modified, so it can be shared until one of both changes
+    this.setBitsArray = columnCombination.setBitsArray;
   }
 
   /**
@@ -69,8 +85,43 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the instance
    */
   protected ColumnCombinationBitset setColumns(BitSet bitset) {
-    this.bitset = bitset;
-    size = bitset.cardinality();
+    return setWords(bitset.toLongArray());
+  }
+
+  /**
+   * Sets the given long words, the previous state is overwritten! The array is not copied.
+   *
+   * @param words the columns as long words
+   * @return the instance
+   */
+  protected ColumnCombinationBitset setWords(long[] words) {
+    int numberOfWords = words.length;
+    while (numberOfWords > 0 && words[numberOfWords - 1] == 0) {
+      numberOfWords--;
+    }
+
+    if (numberOfWords <= 1) {
+      this.word = numberOfWords == 0 ? 0L : words[0];
+      this.words = null;
+    } else {
+      this.word = 0L;
+      this.words = numberOfWords == words.length ? words : Arrays.copyOf(words, numberOfWords);
+    }
+    updateCachedValues();
+
+    return this;
+  }
+
+  /**
+   * Sets the columns 0 to 63, the previous state is overwritten!
+   *
+   * @param word the columns as long word
+   * @return the instance
+   */
+  protected ColumnCombinationBitset setWord(long word) {
+    this.word = word;
+    this.words = null;
+    updateCachedValues();
 
     return this;
   }
@@ -82,11 +133,20 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the column combination
    */
   public ColumnCombinationBitset addColumn(int columnIndex) {
-    if (!bitset.get(columnIndex)) {
-      size++;
+    if (words == null && columnIndex < WORD_SIZE) {
+      word |= 1L << columnIndex;
+    } else {
+      int wordIndex = columnIndex / WORD_SIZE;
+      if (words == null) {
+        words = new long[wordIndex + 1];
+        words[0] = word;
+        word = 0L;
+      } else if (words.length <= wordIndex) {
+        words = Arrays.copyOf(words, wordIndex + 1);
+      }
+      words[wordIndex] |= 1L << columnIndex;
     }
-
-    bitset.set(columnIndex);
+    updateCachedValues();
 
     return this;
   }
@@ -98,22 +158,69 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the column combination
    */
   public ColumnCombinationBitset removeColumn(int columnIndex) {
-    if (bitset.get(columnIndex)) {
-      size--;
+    if (words == null) {
+      if (columnIndex < WORD_SIZE) {
+        word &= ~(1L << columnIndex);
+        updateCachedValues();
+      }
+    } else if (columnIndex / WORD_SIZE < words.length) {
+      words[columnIndex / WORD_SIZE] &= ~(1L << columnIndex);
+      setWords(words);
     }
 
-    bitset.clear(columnIndex);
-
     return this;
   }
 
+  /**
+   * @return the number of long words storing the columns
+   */
+  protected int numberOfWords() {
+    return words == null ? 1 : words.length;
+  }
+
+  /**
+   * @param wordIndex index of the long word
+   * @return the long word with the given index, 0 beyond the stored words
+   */
+  protected long getWord(int wordIndex) {
+    if (words == null) {
+      return wordIndex == 0 ? word : 0L;
+    }
+    return wordIndex < words.length ? words[wordIndex] : 0L;
+  }
+
+  protected void updateCachedValues() {
+    if (words == null) {
+      size = Long.bitCount(word);
+    } else {
+      size = 0;
+      for (long currentWord : words) {
+        size += Long.bitCount(currentWord);
+      }
+    }
+    hash = hashWords();
+    setBitsArray = null;
+  }
+
+  protected int hashWords() {
+    long hashValue = 1234;
+    for (int wordIndex = numberOfWords() - 1; wordIndex >= 0; wordIndex--) {
+      hashValue ^= getWord(wordIndex) * (wordIndex + 1);
+    }
+    return (int) ((hashValue >> 32) ^ hashValue);
+  }
+
+  /**
+   * @return the columns as {@link BitSet}
+   */
+  public BitSet toBitSet() {
+    return BitSet.valueOf(words == null ? new long[]{word} : words);
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
-    int result = 1;
-    result = prime * result + ((bitset == null) ? 0 : bitset.hashCode());
-    result = prime * result + (int) (size ^ (size >>> 32));
-    return result;
+    return prime * hash + size;
   }
 
   @Override
@@ -128,14 +235,10 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
       return false;
     }
     ColumnCombinationBitset other = (ColumnCombinationBitset) obj;
-    if (bitset == null) {
-      if (other.bitset != null) {
-        return false;
-      }
-    } else if (!bitset.equals(other.bitset)) {
+    if (size != other.size || hash != other.hash) {
       return false;
     }
-    return size == other.size;
+    return word == other.word && Arrays.equals(words, other.words);
   }
 
   @Override
@@ -144,10 +247,12 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
 
     stringBuilder.append("ColumnCombinationBitset ");
 
-    int lastSetBitIndex = bitset.previousSetBit(bitset.length());
+    long lastWord = getWord(numberOfWords() - 1);
+    int lastSetBitIndex = (numberOfWords() - 1) * WORD_SIZE
+      + WORD_SIZE - 1 - Long.numberOfLeadingZeros(lastWord);
 
     for (int i = 0; i <= lastSetBitIndex; i++) {
-      stringBuilder.append(bitset.get(i) ? 1 : 0);
+      stringBuilder.append(containsColumn(i) ? 1 : 0);
     }
 
     return stringBuilder.toString();
@@ -183,9 +288,15 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return potentialSubset is a sub set
    */
   public boolean containsSubset(ColumnCombinationBitset potentialSubset) {
-    BitSet ored = (BitSet) potentialSubset.bitset.clone();
-    ored.or(bitset);
-    return bitset.equals(ored);
+    if (words == null && potentialSubset.words == null) {
+      return (potentialSubset.word & ~word) == 0;
+    }
+    for (int wordIndex = 0; wordIndex < potentialSubset.numberOfWords(); wordIndex++) {
+      if ((potentialSubset.getWord(wordIndex) & ~getWord(wordIndex)) != 0) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
@@ -325,19 +436,87 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
   public List<Integer> getSetBits() {
     List<Integer> setBits = new ArrayList<>(size());
 
-    int setBitIndex = 0;
-    while (true) {
-      setBitIndex = bitset.nextSetBit(setBitIndex);
+    for (int setBit : toArray()) {
+      setBits.add(Integer.valueOf(setBit));
+    }
 
-      if (setBitIndex == -1) {
-        break;
+    return setBits;
+  }
+
+  /**
+   * Returns the set column indices in ascending order. The array is cached until the column
+   * combination is modified and must not be changed by the caller.
+   *
+   * @return the indices with set bits
+   */
+  public int[] toArray() {
+    if (setBitsArray == null) {
+      int[] setBits = new int[size];
+      int position = 0;
+      for (int wordIndex = 0; wordIndex < numberOfWords(); wordIndex++) {
+        long currentWord = getWord(wordIndex);
+        while (currentWord != 0) {
+          setBits[position++] = wordIndex * WORD_SIZE + Long.numberOfTrailingZeros(currentWord);
+          // Clear the lowest set bit
+          currentWord &= currentWord - 1;
+        }
       }
-	  setBits.add(Integer.valueOf(setBitIndex));
+      setBitsArray = setBits;
+    }
 
-      setBitIndex++;
+    return setBitsArray;
+  }
+
+  /**
+   * Calls the action for every set column index in ascending order without boxing.
+   *
+   * @param action the action to perform on the column indices
+   */
+  public void forEachSetBit(IntConsumer action) {
+    for (int wordIndex = 0; wordIndex < numberOfWords(); wordIndex++) {
+      long currentWord = getWord(wordIndex);
+      while (currentWord != 0) {
+        action.accept(wordIndex * WORD_SIZE + Long.numberOfTrailingZeros(currentWord));
+        currentWord &= currentWord - 1;
+      }
     }
+  }
 
-    return setBits;
+  /**
+   * Returns an iterator over the set column indices in ascending order. The column combination
+   * must not be modified during the iteration.
+   *
+   * @return an iterator over the indices with set bits
+   */
+  public IntIterator setBitIterator() {
+    return new SetBitIterator();
+  }
+
+  /**
+   * Iterates the set bits word by word, clearing the returned bits in a copy of the current word.
+   */
+  protected class SetBitIterator implements IntIterator {
+
+    protected int wordIndex = 0;
+    protected long currentWord = getWord(0);
+
+    @Override
+    public boolean hasNext() {
+      while (currentWord == 0 && wordIndex < numberOfWords() - 1) {
+        currentWord = getWord(++wordIndex);
+      }
+      return currentWord != 0;
+    }
+
+    @Override
+    public int nextInt() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      int setBit = wordIndex * WORD_SIZE + Long.numberOfTrailingZeros(currentWord);
+      currentWord &= currentWord - 1;
+      return setBit;
+    }
   }
 
   /**
@@ -350,7 +529,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
     List<Integer> clearedBits = new LinkedList<>();
 
     for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
-      if (!bitset.get(columnIndex)) {
+      if (!containsColumn(columnIndex)) {
         clearedBits.add(Integer.valueOf(columnIndex));
       }
     }
@@ -368,10 +547,15 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
   public ColumnCombinationBitset minus(
     ColumnCombinationBitset otherColumnCombination) {
 
-    BitSet temporaryBitset = (BitSet) bitset.clone();
-    temporaryBitset.andNot(otherColumnCombination.bitset);
+    if (words == null) {
+      return new ColumnCombinationBitset().setWord(word & ~otherColumnCombination.getWord(0));
+    }
+    long[] difference = new long[words.length];
+    for (int wordIndex = 0; wordIndex < difference.length; wordIndex++) {
+      difference[wordIndex] = words[wordIndex] & ~otherColumnCombination.getWord(wordIndex);
+    }
 
-    return new ColumnCombinationBitset().setColumns(temporaryBitset);
+    return new ColumnCombinationBitset().setWords(difference);
   }
 
   /**
@@ -382,7 +566,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
   public List<ColumnCombinationBitset> getContainedOneColumnCombinations() {
     List<ColumnCombinationBitset> oneColumnCombinations = new LinkedList<>();
 
-    for (int columnIndex : getSetBits()) {
+    for (int columnIndex : toArray()) {
       oneColumnCombinations.add(new ColumnCombinationBitset(columnIndex));
     }
 
@@ -398,9 +582,14 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the union of the two column combinations
    */
   public ColumnCombinationBitset union(ColumnCombinationBitset other) {
-    BitSet unionBitSet = (BitSet) bitset.clone();
-    unionBitSet.or(other.bitset);
-    return new ColumnCombinationBitset().setColumns(unionBitSet);
+    if (words == null && other.words == null) {
+      return new ColumnCombinationBitset().setWord(word | other.word);
+    }
+    long[] union = new long[Math.max(numberOfWords(), other.numberOfWords())];
+    for (int wordIndex = 0; wordIndex < union.length; wordIndex++) {
+      union[wordIndex] = getWord(wordIndex) | other.getWord(wordIndex);
+    }
+    return new ColumnCombinationBitset().setWords(union);
   }
 
   /**
@@ -412,9 +601,14 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the intersection of the two column combinations
    */
   public ColumnCombinationBitset intersect(ColumnCombinationBitset other) {
-    BitSet intersectionBitSet = (BitSet) bitset.clone();
-    intersectionBitSet.and(other.bitset);
-    return new ColumnCombinationBitset().setColumns(intersectionBitSet);
+    if (words == null || other.words == null) {
+      return new ColumnCombinationBitset().setWord(getWord(0) & other.getWord(0));
+    }
+    long[] intersection = new long[Math.min(words.length, other.words.length)];
+    for (int wordIndex = 0; wordIndex < intersection.length; wordIndex++) {
+      intersection[wordIndex] = words[wordIndex] & other.words[wordIndex];
+    }
+    return new ColumnCombinationBitset().setWords(intersection);
   }
 
   /**
@@ -437,8 +631,8 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
     List<ColumnCombinationBitset> supersets = new ArrayList<>();
 
     ColumnCombinationBitset superset;
-    for (int columnIndex : maximalSuperset.getSetBits()) {
-      if (!bitset.get(columnIndex)) {
+    for (int columnIndex : maximalSuperset.toArray()) {
+      if (!containsColumn(columnIndex)) {
         superset = new ColumnCombinationBitset(this);
         superset.addColumn(columnIndex);
         supersets.add(superset);
@@ -491,7 +685,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
     List<ColumnCombinationBitset> subsets = new ArrayList<>(size());
 
     ColumnCombinationBitset generatedSubset;
-    for (int columnIndex : columnsToRemove.getSetBits()) {
+    for (int columnIndex : columnsToRemove.toArray()) {
       generatedSubset = new ColumnCombinationBitset(this);
       generatedSubset.removeColumn(columnIndex);
       subsets.add(generatedSubset);
@@ -506,7 +700,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the number of columns in the combination.
    */
   public int size() {
-    return (int) size;
+    return size;
   }
 
   /**
@@ -528,8 +722,8 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
                                                    List<String> columnNames) {
     ColumnIdentifier[] identifierList = new ColumnIdentifier[size()];
     int i = 0;
-    for (Integer columnIndex : getSetBits()) {
-      identifierList[i] = new ColumnIdentifier(relationName, columnNames.get(columnIndex.intValue()));
+    for (int columnIndex : toArray()) {
+      identifierList[i] = new ColumnIdentifier(relationName, columnNames.get(columnIndex));
       i++;
     }
 
@@ -544,13 +738,20 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the {@link ColumnCombinationBitset}
    */
   public ColumnCombinationBitset setAllBits(int dimension) {
-    size = 0;
-    bitset = new BitSet();
-    for (int i = 0; i < dimension; i++) {
-      addColumn(i);
-    }
+    return setWords(lowerBits(dimension));
+  }
 
-    return this;
+  /**
+   * @param dimension number of bits to set
+   * @return long words with all bits with indices smaller than dimension set
+   */
+  protected static long[] lowerBits(int dimension) {
+    long[] lowerBits = new long[(dimension + WORD_SIZE - 1) / WORD_SIZE];
+    Arrays.fill(lowerBits, -1L);
+    if (dimension % WORD_SIZE != 0) {
+      lowerBits[lowerBits.length - 1] = (1L << dimension) - 1;
+    }
+    return lowerBits;
   }
 
   /**
@@ -558,7 +759,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return true iff the bit at columnIndex is set
    */
   public boolean containsColumn(int columnIndex) {
-    return bitset.get(columnIndex);
+    return (getWord(columnIndex / WORD_SIZE) & (1L << columnIndex)) != 0;
   }
 
   /**
@@ -567,7 +768,7 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    */
   public boolean containsColumn(int... columnIndices) {
     for (int columnIndex : columnIndices) {
-      if (!bitset.get(columnIndex)) {
+      if (!containsColumn(columnIndex)) {
         return false;
       }
     }
@@ -581,25 +782,28 @@ public class ColumnCombinationBitset implements Comparable<ColumnCombinationBits
    * @return the inverted {@link de.metanome.algorithm_helper.data_structures.ColumnCombinationBitset}
    */
   public ColumnCombinationBitset invert(int size) {
-    BitSet invertedBitset = (BitSet) this.bitset.clone();
-    invertedBitset.flip(0, size);
-    return new ColumnCombinationBitset().setColumns(invertedBitset);
+    long[] mask = lowerBits(size);
+    long[] inverted = new long[Math.max(numberOfWords(), mask.length)];
+    for (int wordIndex = 0; wordIndex < inverted.length; wordIndex++) {
+      long maskWord = wordIndex < mask.length ? mask[wordIndex] : 0L;
+      inverted[wordIndex] = getWord(wordIndex) ^ maskWord;
+    }
+    return new ColumnCombinationBitset().setWords(inverted);
   }
 
   @Override
   public int compareTo(ColumnCombinationBitset other) {
-    long sizeComparator = this.bitset.cardinality() - other.bitset.cardinality();
+    int sizeComparator = this.size - other.size;
     if (sizeComparator != 0) {
-      return (int) sizeComparator;
-    }
-	Iterator<Integer> iterator = this.getSetBits().iterator();
-    Iterator<Integer> iterator2 = other.getSetBits().iterator();
-    while (iterator.hasNext()) {
-      int thisBit = iterator.next().intValue();
-      int otherBit = iterator2.next().intValue();
-      int bitComparator = thisBit - otherBit;
-      if (bitComparator != 0) {
-        return bitComparator;
+      return sizeComparator;
+    }
+    // The column combination containing the lowest differing column is smaller
+    int numberOfWords = Math.max(numberOfWords(), other.numberOfWords());
+    for (int wordIndex = 0; wordIndex < numberOfWords; wordIndex++) {
+      long difference = getWord(wordIndex) ^ other.getWord(wordIndex);
+      if (difference != 0) {
+        long lowestDifferentBit = difference & -difference;
+        return (getWord(wordIndex) & lowestDifferentBit) != 0 ? -1 : 1;
       }
     }
     return 0;
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A compact binary encoding of {@link ColumnCombinationBitset} streams. Each column combination is
+ * stored as the number of its columns followed by the delta encoded indices of its set bits, i.e.
+ * the first column index and then the gaps to the previous index minus one. All numbers are
+ * written as unsigned varints of 7 bits per byte, so most column combinations need one byte per
+ * column. The end of a stream is the end of the encoded column combinations.
+ */
+public class ColumnCombinationCodec {
+
+  protected static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Encodes the column combinations into a byte array.
+   *
+   * @param columnCombinations the column combinations to encode
+   * @return the encoded column combinations
+   */
+  public static byte[] encode(Collection<ColumnCombinationBitset> columnCombinations) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (Writer writer = new Writer(output)) {
+      writer.writeAll(columnCombinations);
+    } catch (IOException e) {
+      // Byte array streams do not throw
+      throw new IllegalStateException(e);
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Decodes all column combinations of the byte array.
+   *
+   * @param bytes the encoded column combinations
+   * @return the column combinations in encoding order
+   * @throws IOException if the bytes are truncated
+   */
+  public static List<ColumnCombinationBitset> decode(byte[] bytes) throws IOException {
+    try (Reader reader = new Reader(new ByteArrayInputStream(bytes))) {
+      return reader.readAll();
+    }
+  }
+
+  /**
+   * Writes encoded column combinations to a stream. The writer is buffered, the stream is closed
+   * together with the writer.
+   */
+  public static class Writer implements Closeable {
+
+    protected OutputStream output;
+    protected byte[] buffer = new byte[BUFFER_SIZE];
+    protected int position = 0;
+    protected long numberOfColumnCombinations = 0;
+
+    public Writer(OutputStream output) {
+      this.output = output;
+    }
+
+    /**
+     * @param columnCombination the column combination to write
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(ColumnCombinationBitset columnCombination) throws IOException {
+      int[] columnIndices = columnCombination.toArray();
+      write(columnIndices, columnIndices.length);
+    }
+
+    /**
+     * @param columnCombinations the column combinations to write in iteration order
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeAll(Collection<ColumnCombinationBitset> columnCombinations)
+      throws IOException {
+      for (ColumnCombinationBitset columnCombination : columnCombinations) {
+        write(columnCombination);
+      }
+    }
+
+    /**
+     * Writes a column combination given by the first length entries of the ascending column
+     * indices.
+     */
+    protected void write(int[] columnIndices, int length) throws IOException {
+      writeVarInt(length);
+      int previousColumnIndex = -1;
+      for (int i = 0; i < length; i++) {
+        writeVarInt(columnIndices[i] - previousColumnIndex - 1);
+        previousColumnIndex = columnIndices[i];
+      }
+      numberOfColumnCombinations++;
+    }
+
+    protected void writeVarInt(int value) throws IOException {
+      if (position + 5 > buffer.length) {
+        flushBuffer();
+      }
+      while ((value & ~0x7F) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    /**
+     * @return the number of column combinations written so far
+     */
+    public long getNumberOfColumnCombinations() {
+      return numberOfColumnCombinations;
+    }
+
+    protected void flushBuffer() throws IOException {
+      output.write(buffer, 0, position);
+      position = 0;
+    }
+
+    /**
+     * Writes the buffered column combinations to the stream.
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    public void flush() throws IOException {
+      flushBuffer();
+      output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        flush();
+      } finally {
+        output.close();
+      }
+    }
+  }
+
+  /**
+   * Reads encoded column combinations from a stream. The reader is buffered, the stream is closed
+   * together with the reader.
+   */
+  public static class Reader implements Closeable {
+
+    protected InputStream input;
+    protected byte[] buffer = new byte[BUFFER_SIZE];
+    protected int position = 0;
+    protected int limit = 0;
+
+    public Reader(InputStream input) {
+      this.input = input;
+    }
+
+    /**
+     * @return the next column combination or null at the end of the stream
+     * @throws IOException if the stream cannot be read or ends within a column combination
+     */
+    public ColumnCombinationBitset read() throws IOException {
+      if (position == limit && !fillBuffer()) {
+        return null;
+      }
+      int length = readVarInt();
+      int[] columnIndices = new int[length];
+      int previousColumnIndex = -1;
+      for (int i = 0; i < length; i++) {
+        columnIndices[i] = previousColumnIndex + readVarInt() + 1;
+        previousColumnIndex = columnIndices[i];
+      }
+      return new ColumnCombinationBitset(columnIndices);
+    }
+
+    /**
+     * @return all remaining column combinations of the stream
+     * @throws IOException if the stream cannot be read or ends within a column combination
+     */
+    public List<ColumnCombinationBitset> readAll() throws IOException {
+      List<ColumnCombinationBitset> columnCombinations = new ArrayList<>();
+      ColumnCombinationBitset columnCombination;
+      while ((columnCombination = read()) != null) {
+        columnCombinations.add(columnCombination);
+      }
+      return columnCombinations;
+    }
+
+    protected int readVarInt() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+        if (position == limit && !fillBuffer()) {
+          throw new EOFException("The column combination stream is truncated.");
+        }
+        byte nextByte = buffer[position++];
+        value |= (nextByte & 0x7F) << shift;
+        if (nextByte >= 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed varint in the column combination stream.");
+    }
+
+    /**
+     * @return false iff the end of the stream has been reached
+     */
+    protected boolean fillBuffer() throws IOException {
+      int read;
+      do {
+        read = input.read(buffer, 0, buffer.length);
+      } while (read == 0);
+      position = 0;
+      limit = Math.max(read, 0);
+      return read > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+      input.close();
+    }
+  }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Extracts the minimal or maximal column combinations of a collection. The column combinations are
+ * processed level by level in order of their cardinality, so a column combination can only be
+ * dominated by one of the already accepted column combinations. For every column a bitmap posting
+ * stores which accepted column combinations contain the column; the dominance check combines the
+ * postings word by word and stops at the first dominating column combination. As accepted column
+ * combinations never dominate each other within a level, a level's column combinations are checked
+ * in parallel.
+ */
+public class ColumnCombinationMinimizer {
+
+  /**
+   * Levels with fewer column combinations are checked sequentially.
+   */
+  protected static final int PARALLELISM_THRESHOLD = 1024;
+
+  protected boolean minimize;
+  protected int numberOfColumns;
+  // Bit i of postings[column] is set iff the i-th accepted column combination contains the column
+  protected long[][] postings;
+  protected int numberOfAccepted = 0;
+
+  protected ColumnCombinationMinimizer(boolean minimize, int numberOfColumns) {
+    this.minimize = minimize;
+    this.numberOfColumns = numberOfColumns;
+    this.postings = new long[numberOfColumns][];
+  }
+
+  /**
+   * Returns all column combinations that have no proper subset in the collection.
+   *
+   * @param columnCombinations the column combinations, may contain duplicates
+   * @return the minimal column combinations ordered by ascending cardinality
+   */
+  public static List<ColumnCombinationBitset> minimize(
+    Collection<ColumnCombinationBitset> columnCombinations) {
+    return new ColumnCombinationMinimizer(true, getNumberOfColumns(columnCombinations))
+      .extract(columnCombinations);
+  }
+
+  /**
+   * Returns all column combinations that have no proper superset in the collection.
+   *
+   * @param columnCombinations the column combinations, may contain duplicates
+   * @return the maximal column combinations ordered by descending cardinality
+   */
+  public static List<ColumnCombinationBitset> maximize(
+    Collection<ColumnCombinationBitset> columnCombinations) {
+    return new ColumnCombinationMinimizer(false, getNumberOfColumns(columnCombinations))
+      .extract(columnCombinations);
+  }
+
+  protected static int getNumberOfColumns(Collection<ColumnCombinationBitset> columnCombinations) {
+    int numberOfColumns = 0;
+    for (ColumnCombinationBitset columnCombination : columnCombinations) {
+      int[] columnIndices = columnCombination.toArray();
+      if (columnIndices.length > 0) {
+        numberOfColumns = Math.max(numberOfColumns, columnIndices[columnIndices.length - 1] + 1);
+      }
+    }
+    return numberOfColumns;
+  }
+
+  protected List<ColumnCombinationBitset> extract(
+    Collection<ColumnCombinationBitset> columnCombinations) {
+    List<ColumnCombinationBitset> sorted = new ArrayList<>(new HashSet<>(columnCombinations));
+    Collections.sort(sorted);
+    if (!minimize) {
+      Collections.reverse(sorted);
+    }
+
+    List<ColumnCombinationBitset> result = new ArrayList<>();
+    int levelStart = 0;
+    while (levelStart < sorted.size()) {
+      int levelSize = sorted.get(levelStart).size();
+      int levelEnd = levelStart + 1;
+      while (levelEnd < sorted.size() && sorted.get(levelEnd).size() == levelSize) {
+        levelEnd++;
+      }
+
+      List<ColumnCombinationBitset> level = sorted.subList(levelStart, levelEnd);
+      boolean[] dominated = new boolean[level.size()];
+      IntStream indices = IntStream.range(0, level.size());
+      if (level.size() >= PARALLELISM_THRESHOLD) {
+        indices = indices.parallel();
+      }
+      indices.forEach(index -> dominated[index] = isDominated(level.get(index)));
+
+      for (int index = 0; index < level.size(); index++) {
+        if (!dominated[index]) {
+          accept(level.get(index));
+          result.add(level.get(index));
+        }
+      }
+      levelStart = levelEnd;
+    }
+    return result;
+  }
+
+  /**
+   * @param columnCombination the column combination to check
+   * @return true iff an accepted column combination is a subset (when minimizing) or a superset
+   * (when maximizing) of the column combination
+   */
+  protected boolean isDominated(ColumnCombinationBitset columnCombination) {
+    if (numberOfAccepted == 0) {
+      return false;
+    }
+
+    // A subset must not contain any other column, a superset must contain all columns
+    long[][] relevantPostings;
+    if (minimize) {
+      List<long[]> otherColumnPostings = new ArrayList<>();
+      for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+        if (postings[columnIndex] != null && !columnCombination.containsColumn(columnIndex)) {
+          otherColumnPostings.add(postings[columnIndex]);
+        }
+      }
+      relevantPostings = otherColumnPostings.toArray(new long[otherColumnPostings.size()][]);
+    } else {
+      int[] columnIndices = columnCombination.toArray();
+      relevantPostings = new long[columnIndices.length][];
+      for (int i = 0; i < columnIndices.length; i++) {
+        relevantPostings[i] = postings[columnIndices[i]];
+        if (relevantPostings[i] == null) {
+          return false;
+        }
+      }
+    }
+
+    int numberOfWords = ((numberOfAccepted - 1) >>> 6) + 1;
+    for (int wordIndex = 0; wordIndex < numberOfWords; wordIndex++) {
+      long candidates = wordIndex == numberOfWords - 1
+        ? -1L >>> (Long.SIZE - 1 - ((numberOfAccepted - 1) & 63)) : -1L;
+      for (long[] posting : relevantPostings) {
+        long word = wordIndex < posting.length ? posting[wordIndex] : 0L;
+        candidates &= minimize ? ~word : word;
+        if (candidates == 0) {
+          break;
+        }
+      }
+      if (candidates != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  protected void accept(ColumnCombinationBitset columnCombination) {
+    int index = numberOfAccepted++;
+    int wordIndex = index >>> 6;
+    for (int columnIndex : columnCombination.toArray()) {
+      long[] posting = postings[columnIndex];
+      if (posting == null) {
+        posting = new long[Math.max(4, wordIndex + 1)];
+      } else if (posting.length <= wordIndex) {
+        long[] grown = new long[Math.max(posting.length * 2, wordIndex + 1)];
+        System.arraycopy(posting, 0, grown, 0, posting.length);
+        posting = grown;
+      }
+      posting[wordIndex] |= 1L << index;
+      postings[columnIndex] = posting;
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * An in-memory, dictionary encoded copy of a {@link RelationalInput}. Every column is stored as an
+ * array of value ids together with a dictionary mapping the ids back to the values, see {@link
+ * ParallelPLIBuilder}. The input is read once; {@link PositionListIndex}es, the distinct sorted
+ * values, histograms and null counts are derived from the encoded columns.
+ */
+public class ColumnarDataset {
+
+  protected String relationName;
+  protected List<String> columnNames;
+  protected int numberOfRows;
+  protected int[][] columns;
+  protected List<List<String>> dictionaries;
+  // Id of the null value per column, ParallelPLIBuilder.NULL_ID if the column has no nulls
+  protected int[] nullIds;
+
+  /**
+   * Reads and encodes the input using all available processors.
+   *
+   * @param input the input to encode
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  public ColumnarDataset(RelationalInput input) throws InputIterationException {
+    this(input, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param input           the input to encode
+   * @param numberOfThreads the maximum number of threads encoding the input
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  public ColumnarDataset(RelationalInput input, int numberOfThreads)
+    throws InputIterationException {
+    ParallelPLIBuilder builder = new ParallelPLIBuilder(input, true, numberOfThreads);
+    this.columns = builder.getEncodedColumns();
+    this.dictionaries = builder.getDictionaries();
+    this.numberOfRows = (int) builder.getNumberOfTuples();
+    this.relationName = input.relationName();
+    this.columnNames = input.columnNames();
+
+    this.nullIds = new int[columns.length];
+    for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
+      this.nullIds[columnIndex] = dictionaries.get(columnIndex).indexOf(null);
+    }
+  }
+
+  public String getRelationName() {
+    return relationName;
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  public int getNumberOfRows() {
+    return numberOfRows;
+  }
+
+  public int getNumberOfColumns() {
+    return columns.length;
+  }
+
+  /**
+   * @param columnIndex the index of the column
+   * @return the value id of every row
+   */
+  public int[] getEncodedColumn(int columnIndex) {
+    return columns[columnIndex];
+  }
+
+  /**
+   * @param columnIndex the index of the column
+   * @return the column's values ordered by their id
+   */
+  public List<String> getDictionary(int columnIndex) {
+    return dictionaries.get(columnIndex);
+  }
+
+  /**
+   * @param rowIndex    the index of the row
+   * @param columnIndex the index of the column
+   * @return the decoded cell value
+   */
+  public String getValue(int rowIndex, int columnIndex) {
+    return dictionaries.get(columnIndex).get(columns[columnIndex][rowIndex]);
+  }
+
+  /**
+   * Builds a {@link CompactPositionListIndex} for every column.
+   *
+   * @param nullEqualsNull true iff null values should share a cluster
+   * @return list of plis for all columns
+   */
+  public List<CompactPositionListIndex> getPLIList(boolean nullEqualsNull) {
+    List<CompactPositionListIndex> plis = new ArrayList<>(columns.length);
+    for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
+      plis.add(getPLI(columnIndex, nullEqualsNull));
+    }
+    return plis;
+  }
+
+  /**
+   * @param columnIndex    the index of the column
+   * @param nullEqualsNull true iff null values should share a cluster
+   * @return the column's {@link CompactPositionListIndex}
+   */
+  public CompactPositionListIndex getPLI(int columnIndex, boolean nullEqualsNull) {
+    int ignoredId = nullEqualsNull ? ParallelPLIBuilder.NULL_ID : nullIds[columnIndex];
+    return ParallelPLIBuilder.buildPLI(columns[columnIndex],
+      dictionaries.get(columnIndex).size(), ignoredId);
+  }
+
+  /**
+   * Builds a row bitmap for every value of the column, i.e. a column to row bitmap index.
+   *
+   * @param columnIndex the index of the column
+   * @return the run optimized bitmap of the rows of every value id
+   */
+  public RoaringBitmap[] getBitmapIndex(int columnIndex) {
+    RoaringBitmap[] bitmaps = new RoaringBitmap[dictionaries.get(columnIndex).size()];
+    for (int id = 0; id < bitmaps.length; id++) {
+      bitmaps[id] = new RoaringBitmap();
+    }
+    int[] column = columns[columnIndex];
+    for (int row = 0; row < column.length; row++) {
+      bitmaps[column[row]].add(row);
+    }
+    for (RoaringBitmap bitmap : bitmaps) {
+      bitmap.runOptimize();
+    }
+    return bitmaps;
+  }
+
+  /**
+   * Builds a {@link TreeSet} of the values of every column. "null" values are filtered.
+   *
+   * @return all columns' sorted distinct values
+   */
+  public List<TreeSet<String>> getDistinctSortedColumns() {
+    return ParallelPLIBuilder.getDistinctSortedColumns(dictionaries);
+  }
+
+  /**
+   * @param columnIndex the index of the column
+   * @return the number of occurrences of every value id
+   */
+  public int[] getValueCounts(int columnIndex) {
+    int[] counts = new int[dictionaries.get(columnIndex).size()];
+    for (int id : columns[columnIndex]) {
+      counts[id]++;
+    }
+    return counts;
+  }
+
+  /**
+   * Returns the number of occurrences of every value of the column. The null value is a key of the
+   * returned map if the column contains nulls.
+   *
+   * @param columnIndex the index of the column
+   * @return the column's histogram
+   */
+  public Map<String, Long> getHistogram(int columnIndex) {
+    List<String> dictionary = dictionaries.get(columnIndex);
+    int[] counts = getValueCounts(columnIndex);
+    Map<String, Long> histogram = new HashMap<>(dictionary.size() * 2);
+    for (int id = 0; id < counts.length; id++) {
+      histogram.put(dictionary.get(id), (long) counts[id]);
+    }
+    return histogram;
+  }
+
+  /**
+   * @param columnIndex the index of the column
+   * @return the number of distinct values including null
+   */
+  public int getDistinctValuesCount(int columnIndex) {
+    return dictionaries.get(columnIndex).size();
+  }
+
+  /**
+   * @param columnIndex the index of the column
+   * @return the number of null values in the column
+   */
+  public int getNullCount(int columnIndex) {
+    int nullId = nullIds[columnIndex];
+    if (nullId == ParallelPLIBuilder.NULL_ID) {
+      return 0;
+    }
+    int nullCount = 0;
+    for (int id : columns[columnIndex]) {
+      if (id == nullId) {
+        nullCount++;
+      }
+    }
+    return nullCount;
+  }
+}
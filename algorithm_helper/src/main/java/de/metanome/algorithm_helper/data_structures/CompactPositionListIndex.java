@@ -0,0 +1,306 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A {@link PositionListIndex} that stores all row indices in a single flat array. The clusters are
+ * stored consecutively and an offset array marks where each cluster starts: the position list
+ * index ((0, 1), (2, 4), (3, 5)) is stored as rows [0, 1, 2, 4, 3, 5] and offsets [0, 2, 4, 6].
+ * Row indices are stored as ints and only fall back to longs if a row index exceeds {@link
+ * Integer#MAX_VALUE}. This avoids the per cluster object overhead of {@link LongArrayList}s.
+ *
+ * A compact position list index can be created using {@link PLIBuilder#getCompactPLIList()} or
+ * from any existing {@link PositionListIndex}.
+ */
+public class CompactPositionListIndex extends PositionListIndex {
+
+  protected int[] clusterOffsets;
+  protected int[] rows;
+  protected long[] longRows;
+
+  /**
+   * Creates a compact copy of the given clusters.
+   *
+   * @param clusters the clusters of the position list index
+   */
+  public CompactPositionListIndex(List<LongArrayList> clusters) {
+    super(null);
+
+    Builder builder = new Builder();
+    for (LongArrayList cluster : clusters) {
+      for (int i = 0; i < cluster.size(); i++) {
+        builder.addRow(cluster.getLong(i));
+      }
+      builder.finishCluster();
+    }
+    builder.copyTo(this);
+  }
+
+  /**
+   * Creates a compact copy of the given {@link PositionListIndex}.
+   *
+   * @param pli the {@link PositionListIndex} to copy
+   */
+  public CompactPositionListIndex(PositionListIndex pli) {
+    super(null);
+
+    Builder builder = new Builder();
+    builder.addClusters(pli);
+    builder.copyTo(this);
+    copyCachedValues(pli);
+  }
+
+  /**
+   * Constructs an empty {@link CompactPositionListIndex}.
+   */
+  public CompactPositionListIndex() {
+    this(new ArrayList<LongArrayList>());
+  }
+
+  protected CompactPositionListIndex(int[] clusterOffsets, int[] rows, long[] longRows) {
+    super(null);
+    this.clusterOffsets = clusterOffsets;
+    this.rows = rows;
+    this.longRows = longRows;
+  }
+
+  /**
+   * Returns the clusters as newly allocated {@link LongArrayList}s. The lists are not cached, so
+   * changing them does not change the {@link CompactPositionListIndex}.
+   *
+   * @return the clusters
+   */
+  @Override
+  public List<LongArrayList> getClusters() {
+    List<LongArrayList> clusters = new ArrayList<>(numberOfClusters());
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters(); clusterIndex++) {
+      LongArrayList cluster = new LongArrayList(clusterSize(clusterIndex));
+      for (int position = 0; position < clusterSize(clusterIndex); position++) {
+        cluster.add(getRow(clusterIndex, position));
+      }
+      clusters.add(cluster);
+    }
+    return clusters;
+  }
+
+  /**
+   * @return true iff the row indices are stored as longs
+   */
+  public boolean hasLongRows() {
+    return longRows != null;
+  }
+
+  @Override
+  public CompactPositionListIndex clone() {
+    CompactPositionListIndex clone = new CompactPositionListIndex(
+      clusterOffsets.clone(),
+      rows == null ? null : rows.clone(),
+      longRows == null ? null : longRows.clone());
+    clone.copyCachedValues(this);
+    return clone;
+  }
+
+  /**
+   * Intersects the two given {@link PositionListIndex} and returns the outcome as new {@link
+   * CompactPositionListIndex}.
+   *
+   * @param otherPLI    the other {@link PositionListIndex} to intersect
+   * @param intersector the intersector providing the working memory
+   * @return the intersected {@link CompactPositionListIndex}
+   */
+  @Override
+  protected PositionListIndex calculateIntersection(PositionListIndex otherPLI,
+                                                    PLIIntersector intersector) {
+    return intersector.intersectCompact(this, otherPLI);
+  }
+
+  @Override
+  protected PositionListIndex calculateParallelIntersection(PositionListIndex otherPLI,
+                                                            ForkJoinPool pool) {
+    return INTERSECTORS.get().intersectCompactParallel(this, otherPLI, pool);
+  }
+
+  @Override
+  public Long2LongOpenHashMap asHashMap() {
+    Long2LongOpenHashMap hashedPLI = new Long2LongOpenHashMap(numberOfRows());
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters(); clusterIndex++) {
+      for (int position = 0; position < clusterSize(clusterIndex); position++) {
+        hashedPLI.put(getRow(clusterIndex, position), clusterIndex);
+      }
+    }
+    return hashedPLI;
+  }
+
+  @Override
+  public long size() {
+    return numberOfClusters();
+  }
+
+  @Override
+  public long getMemoryUsage() {
+    long bytes = 40 + 16 + 4L * clusterOffsets.length;
+    if (longRows == null) {
+      bytes += 16 + 4L * rows.length;
+    } else {
+      bytes += 16 + 8L * longRows.length;
+    }
+    return bytes;
+  }
+
+  @Override
+  protected long calculateRawKeyError() {
+    return numberOfRows() - numberOfClusters();
+  }
+
+  @Override
+  protected int clusterSize(int clusterIndex) {
+    return clusterOffsets[clusterIndex + 1] - clusterOffsets[clusterIndex];
+  }
+
+  @Override
+  protected long getRow(int clusterIndex, int position) {
+    int index = clusterOffsets[clusterIndex] + position;
+    return longRows == null ? rows[index] : longRows[index];
+  }
+
+  protected int numberOfClusters() {
+    return clusterOffsets.length - 1;
+  }
+
+  /**
+   * @return the number of rows in non unary clusters
+   */
+  protected int numberOfRows() {
+    return clusterOffsets[clusterOffsets.length - 1];
+  }
+
+  /**
+   * Collects clusters row by row and builds a {@link CompactPositionListIndex}. Rows are collected
+   * as ints until the first row index that does not fit into an int is added.
+   */
+  protected static class Builder {
+
+    protected IntArrayList clusterOffsets = new IntArrayList();
+    protected IntArrayList rows = new IntArrayList();
+    protected LongArrayList longRows = null;
+
+    public Builder() {
+      clusterOffsets.add(0);
+    }
+
+    public void addRow(long row) {
+      if (longRows == null && row > Integer.MAX_VALUE) {
+        longRows = new LongArrayList(rows.size() * 2);
+        for (int i = 0; i < rows.size(); i++) {
+          longRows.add(rows.getInt(i));
+        }
+        rows = null;
+      }
+      if (longRows == null) {
+        rows.add((int) row);
+      } else {
+        longRows.add(row);
+      }
+    }
+
+    /**
+     * Closes the current cluster. Clusters without rows are dropped.
+     */
+    public void finishCluster() {
+      if (numberOfRows() > clusterOffsets.getInt(clusterOffsets.size() - 1)) {
+        clusterOffsets.add(numberOfRows());
+      }
+    }
+
+    public void addClusters(PositionListIndex pli) {
+      for (int clusterIndex = 0; clusterIndex < pli.size(); clusterIndex++) {
+        for (int position = 0; position < pli.clusterSize(clusterIndex); position++) {
+          addRow(pli.getRow(clusterIndex, position));
+        }
+        finishCluster();
+      }
+    }
+
+    /**
+     * Appends all clusters of the other builder.
+     *
+     * @param other the builder whose clusters are appended
+     */
+    public void append(Builder other) {
+      int offset = numberOfRows();
+      if (other.longRows != null || longRows != null) {
+        for (int i = 0; i < other.numberOfRows(); i++) {
+          addRow(other.getRow(i));
+        }
+      } else {
+        rows.addAll(other.rows);
+      }
+      for (int i = 1; i < other.clusterOffsets.size(); i++) {
+        clusterOffsets.add(offset + other.clusterOffsets.getInt(i));
+      }
+    }
+
+    /**
+     * Adds all clusters collected so far as {@link LongArrayList}s to the given list.
+     *
+     * @param clusters the list the clusters are added to
+     */
+    public void addClustersTo(List<LongArrayList> clusters) {
+      for (int clusterIndex = 1; clusterIndex < clusterOffsets.size(); clusterIndex++) {
+        int start = clusterOffsets.getInt(clusterIndex - 1);
+        int end = clusterOffsets.getInt(clusterIndex);
+        LongArrayList cluster = new LongArrayList(end - start);
+        for (int i = start; i < end; i++) {
+          cluster.add(getRow(i));
+        }
+        clusters.add(cluster);
+      }
+    }
+
+    protected int numberOfRows() {
+      return longRows == null ? rows.size() : longRows.size();
+    }
+
+    protected long getRow(int index) {
+      return longRows == null ? rows.getInt(index) : longRows.getLong(index);
+    }
+
+    public CompactPositionListIndex build() {
+      CompactPositionListIndex pli = new CompactPositionListIndex(null, null, null);
+      copyTo(pli);
+      return pli;
+    }
+
+    protected void copyTo(CompactPositionListIndex pli) {
+      pli.clusterOffsets = clusterOffsets.toIntArray();
+      if (longRows == null) {
+        pli.rows = rows.toIntArray();
+        pli.longRows = null;
+      } else {
+        pli.rows = null;
+        pli.longRows = longRows.toLongArray();
+      }
+    }
+  }
+}
@@ -0,0 +1,331 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A set trie of {@link ColumnCombinationBitset}s answering the queries of both {@link SubSetGraph}
+ * and {@link SuperSetGraph}. Instead of one object with a hash map per node, all nodes live in a
+ * pool of primitive arrays: node i stores its column index, its parent, its first child and its
+ * next sibling. Siblings are ordered by column index, so traversals can stop early and merge the
+ * children with the sorted columns of the query. A node needs 16 bytes plus one bit.
+ */
+public class CompactSubSetGraph {
+
+  protected static final int ROOT = 0;
+  protected static final int NO_NODE = -1;
+
+  protected IntArrayList columns = new IntArrayList();
+  protected IntArrayList parents = new IntArrayList();
+  protected IntArrayList firstChildren = new IntArrayList();
+  protected IntArrayList nextSiblings = new IntArrayList();
+  // Nodes at which a stored column combination ends
+  protected BitSet ends = new BitSet();
+  protected int size = 0;
+
+  public CompactSubSetGraph() {
+    newNode(NO_NODE, NO_NODE);
+  }
+
+  /**
+   * Adds a column combination to the graph. Returns the graph after adding.
+   *
+   * @param columnCombination a column combination to add
+   * @return the graph
+   */
+  public CompactSubSetGraph add(ColumnCombinationBitset columnCombination) {
+    int node = ROOT;
+    for (int columnIndex : columnCombination.toArray()) {
+      node = lazyChildGeneration(node, columnIndex);
+    }
+    if (!ends.get(node)) {
+      ends.set(node);
+      size++;
+    }
+    return this;
+  }
+
+  /**
+   * Adds all columnCombinations in the {@link java.util.Collection} to the graph.
+   *
+   * @param columnCombinations the column combinations to add to the graph
+   * @return the graph
+   */
+  public CompactSubSetGraph addAll(Collection<ColumnCombinationBitset> columnCombinations) {
+    for (ColumnCombinationBitset columnCombination : columnCombinations) {
+      add(columnCombination);
+    }
+
+    return this;
+  }
+
+  /**
+   * Returns all subsets of the given column combination that are in the graph.
+   *
+   * @param columnCombinationToQuery given superset to search for subsets
+   * @return a list containing all found subsets
+   */
+  public ArrayList<ColumnCombinationBitset> getExistingSubsets(
+    ColumnCombinationBitset columnCombinationToQuery) {
+    ArrayList<ColumnCombinationBitset> subsets = new ArrayList<>();
+    int[] queryColumns = columnCombinationToQuery.toArray();
+    // Pairs of node and number of checked query columns
+    IntArrayList openTasks = new IntArrayList();
+    openTasks.add(ROOT);
+    openTasks.add(0);
+
+    while (!openTasks.isEmpty()) {
+      int checkedColumns = openTasks.popInt();
+      int node = openTasks.popInt();
+      if (ends.get(node)) {
+        subsets.add(getPath(node));
+      }
+      pushSubsetChildren(node, queryColumns, checkedColumns, openTasks);
+    }
+
+    return subsets;
+  }
+
+  /**
+   * The method returns when the first subset is found in the graph.
+   *
+   * @param superset the super set
+   * @return whether at least a single subset is contained in the graph
+   */
+  public boolean containsSubset(ColumnCombinationBitset superset) {
+    int[] queryColumns = superset.toArray();
+    IntArrayList openTasks = new IntArrayList();
+    openTasks.add(ROOT);
+    openTasks.add(0);
+
+    while (!openTasks.isEmpty()) {
+      int checkedColumns = openTasks.popInt();
+      int node = openTasks.popInt();
+      if (ends.get(node)) {
+        return true;
+      }
+      pushSubsetChildren(node, queryColumns, checkedColumns, openTasks);
+    }
+
+    return false;
+  }
+
+  /**
+   * Pushes the children of the node whose columns are contained in the unchecked query columns.
+   */
+  protected void pushSubsetChildren(int node, int[] queryColumns, int checkedColumns,
+                                    IntArrayList openTasks) {
+    int queryPosition = checkedColumns;
+    for (int child = firstChildren.getInt(node); child != NO_NODE;
+         child = nextSiblings.getInt(child)) {
+      int column = columns.getInt(child);
+      while (queryPosition < queryColumns.length && queryColumns[queryPosition] < column) {
+        queryPosition++;
+      }
+      if (queryPosition == queryColumns.length) {
+        return;
+      }
+      if (queryColumns[queryPosition] == column) {
+        openTasks.add(child);
+        openTasks.add(queryPosition + 1);
+      }
+    }
+  }
+
+  /**
+   * Returns all supersets of the given column combination that are in the graph.
+   *
+   * @param subset given subset to search for supersets
+   * @return a list containing all found supersets
+   */
+  public ArrayList<ColumnCombinationBitset> getExistingSupersets(ColumnCombinationBitset subset) {
+    ArrayList<ColumnCombinationBitset> supersets = new ArrayList<>();
+    int[] queryColumns = subset.toArray();
+    IntArrayList openTasks = new IntArrayList();
+    openTasks.add(ROOT);
+    openTasks.add(0);
+
+    while (!openTasks.isEmpty()) {
+      int foundColumns = openTasks.popInt();
+      int node = openTasks.popInt();
+      if (foundColumns == queryColumns.length && ends.get(node)) {
+        supersets.add(getPath(node));
+      }
+      pushSupersetChildren(node, queryColumns, foundColumns, openTasks);
+    }
+
+    return supersets;
+  }
+
+  /**
+   * The method returns when the first superset is found in the graph.
+   *
+   * @param subset the sub set
+   * @return whether at least a single superset is contained in the graph
+   */
+  public boolean containsSuperset(ColumnCombinationBitset subset) {
+    int[] queryColumns = subset.toArray();
+    IntArrayList openTasks = new IntArrayList();
+    openTasks.add(ROOT);
+    openTasks.add(0);
+
+    while (!openTasks.isEmpty()) {
+      int foundColumns = openTasks.popInt();
+      int node = openTasks.popInt();
+      if (foundColumns == queryColumns.length && ends.get(node)) {
+        return true;
+      }
+      pushSupersetChildren(node, queryColumns, foundColumns, openTasks);
+    }
+
+    return false;
+  }
+
+  /**
+   * Pushes the children of the node that do not skip the next query column. Paths are sorted, so a
+   * path that passed the next query column can never contain it.
+   */
+  protected void pushSupersetChildren(int node, int[] queryColumns, int foundColumns,
+                                      IntArrayList openTasks) {
+    for (int child = firstChildren.getInt(node); child != NO_NODE;
+         child = nextSiblings.getInt(child)) {
+      int column = columns.getInt(child);
+      if (foundColumns < queryColumns.length) {
+        if (column > queryColumns[foundColumns]) {
+          return;
+        }
+        openTasks.add(child);
+        openTasks.add(column == queryColumns[foundColumns] ? foundColumns + 1 : foundColumns);
+      } else {
+        openTasks.add(child);
+        openTasks.add(foundColumns);
+      }
+    }
+  }
+
+  /**
+   * Returns all minimal column combinations contained in the graph. Paths below a stored column
+   * combination are not traversed.
+   *
+   * @return a set containing all minimal subsets
+   */
+  public Set<ColumnCombinationBitset> getMinimalSubsets() {
+    List<ColumnCombinationBitset> candidates = new ArrayList<>();
+    IntArrayList openTasks = new IntArrayList();
+    openTasks.add(ROOT);
+    while (!openTasks.isEmpty()) {
+      int node = openTasks.popInt();
+      if (ends.get(node)) {
+        candidates.add(getPath(node));
+        continue;
+      }
+      for (int child = firstChildren.getInt(node); child != NO_NODE;
+           child = nextSiblings.getInt(child)) {
+        openTasks.add(child);
+      }
+    }
+
+    // Smaller candidates first, so that every candidate is only compared to minimal ones
+    Collections.sort(candidates);
+    CompactSubSetGraph minimalGraph = new CompactSubSetGraph();
+    TreeSet<ColumnCombinationBitset> minimalSubsets = new TreeSet<>();
+    for (ColumnCombinationBitset candidate : candidates) {
+      if (!minimalGraph.containsSubset(candidate)) {
+        minimalGraph.add(candidate);
+        minimalSubsets.add(candidate);
+      }
+    }
+    return minimalSubsets;
+  }
+
+  /**
+   * @return the number of column combinations in the graph
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return whether the graph is empty
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return the number of trie nodes including the root
+   */
+  public int getNumberOfNodes() {
+    return columns.size();
+  }
+
+  /**
+   * Looks for the child with the given column index or inserts a new one in column order.
+   *
+   * @param node        the parent node
+   * @param columnIndex the column index to perform the lookup on
+   * @return the child node behind the column index
+   */
+  protected int lazyChildGeneration(int node, int columnIndex) {
+    int previous = NO_NODE;
+    int child = firstChildren.getInt(node);
+    while (child != NO_NODE && columns.getInt(child) < columnIndex) {
+      previous = child;
+      child = nextSiblings.getInt(child);
+    }
+    if (child != NO_NODE && columns.getInt(child) == columnIndex) {
+      return child;
+    }
+
+    int newChild = newNode(node, columnIndex);
+    nextSiblings.set(newChild, child);
+    if (previous == NO_NODE) {
+      firstChildren.set(node, newChild);
+    } else {
+      nextSiblings.set(previous, newChild);
+    }
+    return newChild;
+  }
+
+  protected int newNode(int parent, int columnIndex) {
+    columns.add(columnIndex);
+    parents.add(parent);
+    firstChildren.add(NO_NODE);
+    nextSiblings.add(NO_NODE);
+    return columns.size() - 1;
+  }
+
+  /**
+   * @param node the node
+   * @return the column combination on the path from the root to the node
+   */
+  protected ColumnCombinationBitset getPath(int node) {
+    ColumnCombinationBitset path = new ColumnCombinationBitset();
+    for (int current = node; current != ROOT; current = parents.getInt(current)) {
+      path.addColumn(columns.getInt(current));
+    }
+    return path;
+  }
+}
@@ -0,0 +1,332 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A thread safe set trie of {@link ColumnCombinationBitset}s answering the queries of {@link
+ * SubSetGraph} and {@link SuperSetGraph}, so that parallel lattice traversals can prune against
+ * a shared set of discovered column combinations.
+ *
+ * The children of a node are an immutable array sorted by column index. Inserts are lock free:
+ * they copy the child array and publish the copy with a compare and set, retrying if another
+ * thread changed the node in between. Queries only read the published arrays and never wait or
+ * retry. A query running concurrently to inserts sees a consistent subset of the inserted column
+ * combinations.
+ */
+public class ConcurrentSubSetGraph {
+
+  protected final Node root = new Node(-1);
+  protected final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * Adds a column combination to the graph. Returns the graph after adding.
+   *
+   * @param columnCombination a column combination to add
+   * @return the graph
+   */
+  public ConcurrentSubSetGraph add(ColumnCombinationBitset columnCombination) {
+    Node node = root;
+    for (int columnIndex : columnCombination.toArray()) {
+      node = node.lazyChildGeneration(columnIndex);
+    }
+    if (node.markSubSetEnd()) {
+      size.incrementAndGet();
+    }
+    return this;
+  }
+
+  /**
+   * Adds all columnCombinations in the {@link java.util.Collection} to the graph.
+   *
+   * @param columnCombinations the column combinations to add to the graph
+   * @return the graph
+   */
+  public ConcurrentSubSetGraph addAll(Collection<ColumnCombinationBitset> columnCombinations) {
+    for (ColumnCombinationBitset columnCombination : columnCombinations) {
+      add(columnCombination);
+    }
+
+    return this;
+  }
+
+  /**
+   * Returns all subsets of the given column combination that are in the graph.
+   *
+   * @param columnCombinationToQuery given superset to search for subsets
+   * @return a list containing all found subsets
+   */
+  public ArrayList<ColumnCombinationBitset> getExistingSubsets(
+    ColumnCombinationBitset columnCombinationToQuery) {
+    ArrayList<ColumnCombinationBitset> subsets = new ArrayList<>();
+    findSubsets(columnCombinationToQuery.toArray(), subsets);
+    return subsets;
+  }
+
+  /**
+   * The method returns when the first subset is found in the graph.
+   *
+   * @param superset the super set
+   * @return whether at least a single subset is contained in the graph
+   */
+  public boolean containsSubset(ColumnCombinationBitset superset) {
+    return findSubsets(superset.toArray(), null);
+  }
+
+  /**
+   * Searches the subsets of the query columns. If no result list is given, the search stops at the
+   * first subset.
+   *
+   * @param queryColumns the sorted columns of the query
+   * @param subsets      the list collecting the subsets or null
+   * @return whether at least one subset was found
+   */
+  protected boolean findSubsets(int[] queryColumns, ArrayList<ColumnCombinationBitset> subsets) {
+    boolean found = false;
+    ArrayList<Node> openNodes = new ArrayList<>();
+    IntArrayList openCheckedColumns = new IntArrayList();
+    // The paths are only tracked if the found column combinations are collected
+    ArrayList<ColumnCombinationBitset> openPaths = subsets == null ? null : new ArrayList<>();
+    openNodes.add(root);
+    openCheckedColumns.add(0);
+    if (openPaths != null) {
+      openPaths.add(new ColumnCombinationBitset());
+    }
+
+    while (!openNodes.isEmpty()) {
+      Node node = openNodes.remove(openNodes.size() - 1);
+      int checkedColumns = openCheckedColumns.popInt();
+      ColumnCombinationBitset path =
+        openPaths == null ? null : openPaths.remove(openPaths.size() - 1);
+      if (node.isSubSetEnd()) {
+        if (subsets == null) {
+          return true;
+        }
+        found = true;
+        subsets.add(path);
+      }
+
+      Children children = node.children;
+      int queryPosition = checkedColumns;
+      for (int i = 0; i < children.columns.length; i++) {
+        int column = children.columns[i];
+        while (queryPosition < queryColumns.length && queryColumns[queryPosition] < column) {
+          queryPosition++;
+        }
+        if (queryPosition == queryColumns.length) {
+          break;
+        }
+        if (queryColumns[queryPosition] == column) {
+          openNodes.add(children.nodes[i]);
+          openCheckedColumns.add(queryPosition + 1);
+          if (openPaths != null) {
+            openPaths.add(new ColumnCombinationBitset(path).addColumn(column));
+          }
+        }
+      }
+    }
+
+    return found;
+  }
+
+  /**
+   * Returns all supersets of the given column combination that are in the graph.
+   *
+   * @param subset given subset to search for supersets
+   * @return a list containing all found supersets
+   */
+  public ArrayList<ColumnCombinationBitset> getExistingSupersets(ColumnCombinationBitset subset) {
+    ArrayList<ColumnCombinationBitset> supersets = new ArrayList<>();
+    findSupersets(subset.toArray(), supersets);
+    return supersets;
+  }
+
+  /**
+   * The method returns when the first superset is found in the graph.
+   *
+   * @param subset the sub set
+   * @return whether at least a single superset is contained in the graph
+   */
+  public boolean containsSuperset(ColumnCombinationBitset subset) {
+    return findSupersets(subset.toArray(), null);
+  }
+
+  /**
+   * Searches the supersets of the query columns. If no result list is given, the search stops at
+   * the first superset. Paths are sorted, so a path that passed the next query column can never
+   * contain it.
+   *
+   * @param queryColumns the sorted columns of the query
+   * @param supersets    the list collecting the supersets or null
+   * @return whether at least one superset was found
+   */
+  protected boolean findSupersets(int[] queryColumns,
+                                  ArrayList<ColumnCombinationBitset> supersets) {
+    boolean found = false;
+    ArrayList<Node> openNodes = new ArrayList<>();
+    IntArrayList openFoundColumns = new IntArrayList();
+    ArrayList<ColumnCombinationBitset> openPaths = supersets == null ? null : new ArrayList<>();
+    openNodes.add(root);
+    openFoundColumns.add(0);
+    if (openPaths != null) {
+      openPaths.add(new ColumnCombinationBitset());
+    }
+
+    while (!openNodes.isEmpty()) {
+      Node node = openNodes.remove(openNodes.size() - 1);
+      int foundColumns = openFoundColumns.popInt();
+      ColumnCombinationBitset path =
+        openPaths == null ? null : openPaths.remove(openPaths.size() - 1);
+      if (foundColumns == queryColumns.length && node.isSubSetEnd()) {
+        if (supersets == null) {
+          return true;
+        }
+        found = true;
+        supersets.add(path);
+      }
+
+      Children children = node.children;
+      for (int i = 0; i < children.columns.length; i++) {
+        int column = children.columns[i];
+        int childFoundColumns = foundColumns;
+        if (foundColumns < queryColumns.length) {
+          if (column > queryColumns[foundColumns]) {
+            break;
+          }
+          if (column == queryColumns[foundColumns]) {
+            childFoundColumns++;
+          }
+        }
+        openNodes.add(children.nodes[i]);
+        openFoundColumns.add(childFoundColumns);
+        if (openPaths != null) {
+          openPaths.add(new ColumnCombinationBitset(path).addColumn(column));
+        }
+      }
+    }
+
+    return found;
+  }
+
+  /**
+   * @return the number of column combinations in the graph
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * @return whether the graph is empty
+   */
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * The immutable children of a node, sorted by column index.
+   */
+  protected static class Children {
+
+    protected static final Children EMPTY = new Children(new int[0], new Node[0]);
+
+    protected final int[] columns;
+    protected final Node[] nodes;
+
+    protected Children(int[] columns, Node[] nodes) {
+      this.columns = columns;
+      this.nodes = nodes;
+    }
+
+    /**
+     * @param insertionPoint the position of the new child
+     * @param child          the new child
+     * @return a copy of the children including the new child
+     */
+    protected Children insert(int insertionPoint, Node child) {
+      int[] newColumns = new int[columns.length + 1];
+      Node[] newNodes = new Node[nodes.length + 1];
+      System.arraycopy(columns, 0, newColumns, 0, insertionPoint);
+      System.arraycopy(nodes, 0, newNodes, 0, insertionPoint);
+      newColumns[insertionPoint] = child.column;
+      newNodes[insertionPoint] = child;
+      System.arraycopy(columns, insertionPoint, newColumns, insertionPoint + 1,
+        columns.length - insertionPoint);
+      System.arraycopy(nodes, insertionPoint, newNodes, insertionPoint + 1,
+        nodes.length - insertionPoint);
+      return new Children(newColumns, newNodes);
+    }
+  }
+
+  protected static class Node {
+
+    protected static final AtomicReferenceFieldUpdater<Node, Children> CHILDREN =
+      AtomicReferenceFieldUpdater.newUpdater(Node.class, Children.class, "children");
+
+    protected static final AtomicIntegerFieldUpdater<Node> SUB_SET_ENDS =
+      AtomicIntegerFieldUpdater.newUpdater(Node.class, "subSetEnds");
+
+    protected final int column;
+    protected volatile Children children = Children.EMPTY;
+    // 1 iff a column combination ends at this node
+    protected volatile int subSetEnds = 0;
+
+    protected Node(int column) {
+      this.column = column;
+    }
+
+    protected boolean isSubSetEnd() {
+      return subSetEnds == 1;
+    }
+
+    /**
+     * @return true iff this call marked the node, false if it was marked before
+     */
+    protected boolean markSubSetEnd() {
+      return subSetEnds == 0 && SUB_SET_ENDS.compareAndSet(this, 0, 1);
+    }
+
+    /**
+     * Looks for the child with the given column index or inserts a new one.
+     *
+     * @param columnIndex the column index to perform the lookup on
+     * @return the child behind the column index
+     */
+    protected Node lazyChildGeneration(int columnIndex) {
+      Node child = null;
+      while (true) {
+        Children current = children;
+        int position = Arrays.binarySearch(current.columns, columnIndex);
+        if (position >= 0) {
+          return current.nodes[position];
+        }
+        if (child == null) {
+          child = new Node(columnIndex);
+        }
+        if (CHILDREN.compareAndSet(this, current, current.insert(-position - 1, child))) {
+          return child;
+        }
+      }
+    }
+  }
+}
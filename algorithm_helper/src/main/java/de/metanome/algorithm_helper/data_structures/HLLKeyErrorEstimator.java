@@ -0,0 +1,138 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates distinct counts and raw key errors of column combinations with {@link HyperLogLog}
+ * sketches instead of intersecting {@link PositionListIndex}es. Every row of a column combination
+ * is hashed from the value ids of its columns in the {@link ColumnarDataset}. The rows are split
+ * into chunks that are sketched in parallel; the chunk sketches are merged afterwards. Null values
+ * are equal to each other, like in {@link ColumnarDataset#getPLIList(boolean)} with true.
+ *
+ * The estimates are cached per column combination. The estimator is not thread safe.
+ */
+public class HLLKeyErrorEstimator {
+
+  public static final double DEFAULT_RELATIVE_ERROR = 0.01;
+
+  /**
+   * Number of rows sketched by one task.
+   */
+  protected static final int CHUNK_SIZE = 1 << 16;
+
+  protected ColumnarDataset dataset;
+  protected int precision;
+  protected int chunkSize = CHUNK_SIZE;
+  protected Map<ColumnCombinationBitset, Long> distinctCounts = new HashMap<>();
+
+  public HLLKeyErrorEstimator(ColumnarDataset dataset) {
+    this(dataset, DEFAULT_RELATIVE_ERROR);
+  }
+
+  /**
+   * @param dataset       the encoded data
+   * @param relativeError the relative standard error of the distinct count estimates
+   */
+  public HLLKeyErrorEstimator(ColumnarDataset dataset, double relativeError) {
+    this.dataset = dataset;
+    this.precision = HyperLogLog.precisionFor(relativeError);
+  }
+
+  /**
+   * Estimates the number of distinct value combinations. Single columns are counted exactly.
+   *
+   * @param columnCombination the column combination
+   * @return the estimated distinct count, 0 for the empty column combination
+   */
+  public long estimateDistinctCount(ColumnCombinationBitset columnCombination) {
+    if (columnCombination.isEmpty()) {
+      return 0L;
+    }
+    int[] columnIndices = columnCombination.toArray();
+    if (columnIndices.length == 1) {
+      return dataset.getDistinctValuesCount(columnIndices[0]);
+    }
+
+    Long distinctCount = distinctCounts.get(columnCombination);
+    if (distinctCount == null) {
+      // Never estimate more distinct combinations than rows
+      distinctCount = Math.min(sketch(columnIndices).estimate(), dataset.getNumberOfRows());
+      distinctCounts.put(columnCombination, distinctCount);
+    }
+    return distinctCount;
+  }
+
+  /**
+   * Estimates the raw key error, see {@link PositionListIndex#getRawKeyError()}.
+   *
+   * @param columnCombination the column combination
+   * @return the estimated raw key error, 0 for the empty column combination
+   */
+  public long estimateRawKeyError(ColumnCombinationBitset columnCombination) {
+    if (columnCombination.isEmpty()) {
+      return 0L;
+    }
+    return dataset.getNumberOfRows() - estimateDistinctCount(columnCombination);
+  }
+
+  /**
+   * Sketches the rows of the given columns.
+   *
+   * @param columnIndices the indices of the columns
+   * @return the sketch of all rows
+   */
+  protected HyperLogLog sketch(int[] columnIndices) {
+    int[][] columns = new int[columnIndices.length][];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = dataset.getEncodedColumn(columnIndices[i]);
+    }
+
+    return sketch(columns, dataset.getNumberOfRows());
+  }
+
+  /**
+   * Sketches the chunks of the rows in parallel. Every chunk is added to its own sketch, the
+   * chunk sketches are merged into a fresh sketch per worker, so no sketch is shared between
+   * threads.
+   *
+   * @param columns      the encoded columns
+   * @param numberOfRows the number of rows
+   * @return the sketch of all rows
+   */
+  protected HyperLogLog sketch(int[][] columns, int numberOfRows) {
+    int numberOfChunks = (numberOfRows + chunkSize - 1) / chunkSize;
+    return IntStream.range(0, numberOfChunks).parallel()
+      .mapToObj(chunk -> sketch(columns, chunk * chunkSize,
+        Math.min(numberOfRows, (chunk + 1) * chunkSize)))
+      .collect(() -> new HyperLogLog(precision), HyperLogLog::merge, HyperLogLog::merge);
+  }
+
+  protected HyperLogLog sketch(int[][] columns, int fromRow, int toRow) {
+    HyperLogLog sketch = new HyperLogLog(precision);
+    for (int row = fromRow; row < toRow; row++) {
+      long hash = 0;
+      for (int[] column : columns) {
+        hash = HyperLogLog.hash(hash + column[row] + 1);
+      }
+      sketch.add(hash);
+    }
+    return sketch;
+  }
+}
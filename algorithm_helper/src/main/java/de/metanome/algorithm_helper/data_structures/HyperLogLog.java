@@ -0,0 +1,138 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct 64 bit hash values added to it. The
+ * sketch uses 2^precision one byte registers; the relative standard error of the estimate is about
+ * 1.04 / sqrt(2^precision). Sketches with the same precision can be merged, the merged sketch
+ * estimates the distinct count of the union of both inputs.
+ *
+ * The added values have to be well distributed hashes, see {@link #hash(long)}.
+ */
+public class HyperLogLog {
+
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 18;
+
+  protected int precision;
+  protected byte[] registers;
+
+  /**
+   * @param precision the number of index bits, between {@link #MIN_PRECISION} and {@link
+   *                  #MAX_PRECISION}
+   */
+  public HyperLogLog(int precision) {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION
+        + " and " + MAX_PRECISION + ".");
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  /**
+   * Returns the smallest precision whose relative standard error does not exceed the given bound.
+   *
+   * @param relativeError the relative standard error, e.g. 0.01
+   * @return the precision
+   */
+  public static int precisionFor(double relativeError) {
+    double numberOfRegisters = Math.pow(1.04 / relativeError, 2);
+    int precision = (int) Math.ceil(Math.log(numberOfRegisters) / Math.log(2));
+    return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+  }
+
+  /**
+   * Mixes the bits of the given value (the finalizer of the SplitMix64 generator).
+   *
+   * @param value the value
+   * @return a well distributed hash of the value
+   */
+  public static long hash(long value) {
+    value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+    value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+    return value ^ (value >>> 31);
+  }
+
+  /**
+   * @param hash the hash of the value to add
+   */
+  public void add(long hash) {
+    int index = (int) (hash >>> (Long.SIZE - precision));
+    // Position of the first set bit after the index bits; the sentinel bit bounds the rank
+    long remaining = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (rank > registers[index]) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * Adds all values of the other sketch to this sketch.
+   *
+   * @param other a sketch with the same precision
+   */
+  public void merge(HyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException("Only sketches with the same precision can be merged.");
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * @return the estimated number of distinct values added to the sketch
+   */
+  public long estimate() {
+    int numberOfRegisters = registers.length;
+    double sum = 0;
+    int emptyRegisters = 0;
+    for (byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        emptyRegisters++;
+      }
+    }
+
+    double estimate = alpha(numberOfRegisters) * numberOfRegisters * numberOfRegisters / sum;
+    // Small range correction: linear counting
+    if (estimate <= 2.5 * numberOfRegisters && emptyRegisters > 0) {
+      estimate = numberOfRegisters * Math.log((double) numberOfRegisters / emptyRegisters);
+    }
+    return Math.round(estimate);
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  protected static double alpha(int numberOfRegisters) {
+    switch (numberOfRegisters) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / (1 + 1.079 / numberOfRegisters);
+    }
+  }
+}
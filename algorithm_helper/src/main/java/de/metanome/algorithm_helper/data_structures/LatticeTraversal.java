@@ -0,0 +1,332 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.AlgorithmExecutionException;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Level-wise bottom-up traversal of the column combination lattice that finds all minimal valid
+ * column combinations, e.g. the minimal unique column combinations. What is valid is decided by a
+ * {@link CandidateValidator}; validity has to be inherited by all supersets.
+ *
+ * Level k + 1 is generated from the invalid column combinations of level k with the apriori-gen
+ * prefix join: two column combinations that share their first k - 1 columns are joined, and the
+ * result is dropped unless all its direct subsets are invalid. Candidates with a subset in the
+ * known valid {@link SubSetGraph} are dropped and candidates with a superset in the known invalid
+ * {@link SuperSetGraph} are invalid without validation. The remaining candidates of a level are
+ * validated in parallel on a {@link ForkJoinPool}. Statistics are collected per level.
+ */
+public class LatticeTraversal {
+
+  /**
+   * Decides whether a candidate is valid. Called concurrently by the threads of the pool.
+   */
+  public interface CandidateValidator {
+
+    boolean isValid(ColumnCombinationBitset candidate);
+  }
+
+  protected int numberOfColumns;
+  protected CandidateValidator validator;
+  protected ForkJoinPool pool;
+  protected int maximumLevel;
+  protected SubSetGraph knownValid = new SubSetGraph();
+  protected SuperSetGraph knownInvalid;
+  protected List<LevelStatistics> levelStatistics = new ArrayList<>();
+
+  public LatticeTraversal(int numberOfColumns, CandidateValidator validator) {
+    this(numberOfColumns, validator, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * @param numberOfColumns the number of columns of the relation
+   * @param validator       decides whether a candidate is valid
+   * @param pool            the pool validating the candidates
+   */
+  public LatticeTraversal(int numberOfColumns, CandidateValidator validator, ForkJoinPool pool) {
+    this.numberOfColumns = numberOfColumns;
+    this.validator = validator;
+    this.pool = pool;
+    this.maximumLevel = numberOfColumns;
+    this.knownInvalid = new SuperSetGraph(numberOfColumns);
+  }
+
+  /**
+   * Marks a column combination as valid, so that its supersets are not validated.
+   *
+   * @param columnCombination a valid column combination
+   * @return the traversal
+   */
+  public LatticeTraversal addKnownValid(ColumnCombinationBitset columnCombination) {
+    knownValid.add(columnCombination);
+    return this;
+  }
+
+  /**
+   * Marks a column combination as invalid, so that its subsets are not validated.
+   *
+   * @param columnCombination an invalid column combination
+   * @return the traversal
+   */
+  public LatticeTraversal addKnownInvalid(ColumnCombinationBitset columnCombination) {
+    knownInvalid.add(columnCombination);
+    return this;
+  }
+
+  /**
+   * @param maximumLevel the size of the largest candidates to validate
+   * @return the traversal
+   */
+  public LatticeTraversal setMaximumLevel(int maximumLevel) {
+    this.maximumLevel = maximumLevel;
+    return this;
+  }
+
+  /**
+   * Traverses the lattice level by level.
+   *
+   * @return the minimal valid column combinations not already known to be valid
+   * @throws AlgorithmExecutionException if a validation fails
+   */
+  public List<ColumnCombinationBitset> traverse() throws AlgorithmExecutionException {
+    levelStatistics.clear();
+    List<ColumnCombinationBitset> minimalValid = new ArrayList<>();
+
+    List<ColumnCombinationBitset> candidates = new ArrayList<>(numberOfColumns);
+    for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+      candidates.add(new ColumnCombinationBitset(columnIndex));
+    }
+    long generatedCandidates = numberOfColumns;
+
+    for (int level = 1; level <= maximumLevel && !candidates.isEmpty(); level++) {
+      LevelStatistics statistics = new LevelStatistics(level);
+      statistics.candidates = generatedCandidates;
+      statistics.prunedCandidates = generatedCandidates - candidates.size();
+
+      // Prune against the known column combinations
+      BitSet hasValidSubset = knownValid.containsSubsets(candidates);
+      BitSet hasInvalidSuperset = knownInvalid.containsSupersets(candidates);
+      List<ColumnCombinationBitset> invalid = new ArrayList<>();
+      List<ColumnCombinationBitset> toValidate = new ArrayList<>();
+      for (int i = 0; i < candidates.size(); i++) {
+        if (hasValidSubset.get(i)) {
+          statistics.prunedCandidates++;
+        } else if (hasInvalidSuperset.get(i)) {
+          statistics.prunedCandidates++;
+          invalid.add(candidates.get(i));
+        } else {
+          toValidate.add(candidates.get(i));
+        }
+      }
+
+      long validationStart = System.nanoTime();
+      boolean[] valid = validate(toValidate);
+      statistics.validationTime = System.nanoTime() - validationStart;
+
+      for (int i = 0; i < toValidate.size(); i++) {
+        if (valid[i]) {
+          minimalValid.add(toValidate.get(i));
+          statistics.validCandidates++;
+        } else {
+          invalid.add(toValidate.get(i));
+        }
+      }
+      levelStatistics.add(statistics);
+
+      List<ColumnCombinationBitset> nextLevel = new ArrayList<>();
+      generatedCandidates = generateNextLevel(invalid, nextLevel);
+      candidates = nextLevel;
+    }
+
+    return minimalValid;
+  }
+
+  /**
+   * Joins all pairs of column combinations that only differ in their last column (apriori-gen).
+   * Joined candidates with a direct subset that is not in the level are dropped.
+   *
+   * @param level     the invalid column combinations of one level
+   * @param nextLevel the list receiving the remaining candidates of the next level
+   * @return the number of joined candidates before pruning
+   */
+  protected long generateNextLevel(List<ColumnCombinationBitset> level,
+                                   List<ColumnCombinationBitset> nextLevel) {
+    // Column combinations with a common prefix are adjacent in lexicographic order
+    Collections.sort(level);
+    Set<ColumnCombinationBitset> levelSet = new HashSet<>(level);
+    long joinedCandidates = 0;
+
+    for (int first = 0; first < level.size(); first++) {
+      int[] firstColumns = level.get(first).toArray();
+      for (int second = first + 1; second < level.size(); second++) {
+        int[] secondColumns = level.get(second).toArray();
+        if (!haveSamePrefix(firstColumns, secondColumns)) {
+          break;
+        }
+        joinedCandidates++;
+        ColumnCombinationBitset candidate = level.get(first).union(level.get(second));
+        if (allDirectSubsetsContained(candidate, levelSet)) {
+          nextLevel.add(candidate);
+        }
+      }
+    }
+    return joinedCandidates;
+  }
+
+  protected boolean haveSamePrefix(int[] firstColumns, int[] secondColumns) {
+    for (int i = 0; i < firstColumns.length - 1; i++) {
+      if (firstColumns[i] != secondColumns[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  protected boolean allDirectSubsetsContained(ColumnCombinationBitset candidate,
+                                              Set<ColumnCombinationBitset> level) {
+    for (int columnIndex : candidate.toArray()) {
+      ColumnCombinationBitset subset = new ColumnCombinationBitset(candidate)
+        .removeColumn(columnIndex);
+      if (!level.contains(subset)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Validates the candidates in parallel.
+   *
+   * @param candidates the candidates to validate
+   * @return the validation result per candidate
+   * @throws AlgorithmExecutionException if a validation fails
+   */
+  protected boolean[] validate(List<ColumnCombinationBitset> candidates)
+    throws AlgorithmExecutionException {
+    boolean[] results = new boolean[candidates.size()];
+    if (candidates.isEmpty()) {
+      return results;
+    }
+    try {
+      pool.invoke(new ValidationTask(candidates, results, 0, candidates.size()));
+    } catch (RuntimeException e) {
+      throw new AlgorithmExecutionException("The validation of a candidate failed.", e);
+    }
+    return results;
+  }
+
+  /**
+   * @return the statistics of all levels of the last traversal
+   */
+  public List<LevelStatistics> getLevelStatistics() {
+    return levelStatistics;
+  }
+
+  /**
+   * Splits a range of candidates until single candidates are validated.
+   */
+  protected class ValidationTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final List<ColumnCombinationBitset> candidates;
+    protected final boolean[] results;
+    protected final int fromIndex;
+    protected final int toIndex;
+
+    public ValidationTask(List<ColumnCombinationBitset> candidates, boolean[] results,
+                          int fromIndex, int toIndex) {
+      this.candidates = candidates;
+      this.results = results;
+      this.fromIndex = fromIndex;
+      this.toIndex = toIndex;
+    }
+
+    @Override
+    protected void compute() {
+      if (toIndex - fromIndex == 1) {
+        results[fromIndex] = validator.isValid(candidates.get(fromIndex));
+        return;
+      }
+      int middle = (fromIndex + toIndex) >>> 1;
+      invokeAll(new ValidationTask(candidates, results, fromIndex, middle),
+        new ValidationTask(candidates, results, middle, toIndex));
+    }
+  }
+
+  /**
+   * The numbers of candidates of one level and the time needed for their validation.
+   */
+  public static class LevelStatistics {
+
+    protected int level;
+    protected long candidates = 0;
+    protected long prunedCandidates = 0;
+    protected long validCandidates = 0;
+    protected long validationTime = 0;
+
+    public LevelStatistics(int level) {
+      this.level = level;
+    }
+
+    public int getLevel() {
+      return level;
+    }
+
+    /**
+     * @return the number of generated candidates including the pruned ones
+     */
+    public long getCandidates() {
+      return candidates;
+    }
+
+    /**
+     * @return the number of candidates decided without validation
+     */
+    public long getPrunedCandidates() {
+      return prunedCandidates;
+    }
+
+    /**
+     * @return the number of valid candidates
+     */
+    public long getValidCandidates() {
+      return validCandidates;
+    }
+
+    /**
+     * @return the wall clock time of the level's validation in nanoseconds
+     */
+    public long getValidationTime() {
+      return validationTime;
+    }
+
+    @Override
+    public String toString() {
+      return "Level " + level + ": " + candidates + " candidates, " + prunedCandidates
+        + " pruned, " + validCandidates + " valid, " + (validationTime / 1000000) + " ms";
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.algorithm_execution.FileCreationException;
+import de.metanome.algorithm_integration.algorithm_execution.FileGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves {@link PositionListIndex}es out of the heap. Every {@link PositionListIndex} is written to
+ * a temporary file of the algorithm's {@link FileGenerator} and replaced by a {@link
+ * MappedPositionListIndex} reading the memory mapped file. The files are deleted when the {@link
+ * FileGenerator} is closed, so the mapped {@link PositionListIndex}es must not be used afterwards.
+ */
+public class MappedPLIStore {
+
+  protected FileGenerator fileGenerator;
+  protected long storedBytes = 0;
+
+  /**
+   * @param fileGenerator the generator providing the temporary files
+   */
+  public MappedPLIStore(FileGenerator fileGenerator) {
+    this.fileGenerator = fileGenerator;
+  }
+
+  /**
+   * Writes the {@link PositionListIndex} to a new temporary file and maps it into memory.
+   *
+   * @param pli the {@link PositionListIndex} to store
+   * @return the mapped {@link PositionListIndex}
+   * @throws FileCreationException if the file cannot be created, written or mapped, or if the
+   *                               {@link PositionListIndex} does not fit into a single mapping
+   */
+  public MappedPositionListIndex store(PositionListIndex pli) throws FileCreationException {
+    int numberOfClusters = (int) pli.size();
+    long numberOfRows = 0;
+    boolean hasLongRows = false;
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      for (int position = 0; position < pli.clusterSize(clusterIndex); position++) {
+        hasLongRows |= pli.getRow(clusterIndex, position) > Integer.MAX_VALUE;
+      }
+      numberOfRows += pli.clusterSize(clusterIndex);
+    }
+
+    int rowWidth = hasLongRows ? Long.BYTES : Integer.BYTES;
+    long fileSize = MappedPositionListIndex.HEADER_SIZE + (numberOfClusters + 1L) * Integer.BYTES
+      + Long.BYTES + numberOfRows * rowWidth;
+    if (fileSize > Integer.MAX_VALUE) {
+      throw new FileCreationException("The position list index is too large to be mapped.");
+    }
+
+    File file = fileGenerator.getTemporaryFile();
+    MappedByteBuffer buffer;
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+         FileChannel channel = randomAccessFile.getChannel()) {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+    } catch (IOException e) {
+      throw new FileCreationException("Could not map the position list index file.", e);
+    }
+    buffer.order(ByteOrder.nativeOrder());
+
+    // Header
+    buffer.putInt(0, numberOfClusters);
+    buffer.putInt(4, (int) numberOfRows);
+    buffer.putInt(8, rowWidth);
+
+    // Cluster offsets and rows
+    int offsetPosition = MappedPositionListIndex.HEADER_SIZE;
+    int rowPosition = MappedPositionListIndex.rowsStart(numberOfClusters);
+    int offset = 0;
+    buffer.putInt(offsetPosition, offset);
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      for (int position = 0; position < pli.clusterSize(clusterIndex); position++) {
+        long row = pli.getRow(clusterIndex, position);
+        if (hasLongRows) {
+          buffer.putLong(rowPosition, row);
+        } else {
+          buffer.putInt(rowPosition, (int) row);
+        }
+        rowPosition += rowWidth;
+      }
+      offset += pli.clusterSize(clusterIndex);
+      offsetPosition += Integer.BYTES;
+      buffer.putInt(offsetPosition, offset);
+    }
+
+    storedBytes += fileSize;
+    MappedPositionListIndex mappedPLI = new MappedPositionListIndex(file, buffer);
+    mappedPLI.rawKeyError = pli.rawKeyError;
+    return mappedPLI;
+  }
+
+  /**
+   * Stores all given {@link PositionListIndex}es, see {@link #store(PositionListIndex)}.
+   *
+   * @param plis the {@link PositionListIndex}es to store
+   * @return the mapped {@link PositionListIndex}es in the same order
+   * @throws FileCreationException if a {@link PositionListIndex} cannot be stored
+   */
+  public List<MappedPositionListIndex> storeAll(List<? extends PositionListIndex> plis)
+    throws FileCreationException {
+    List<MappedPositionListIndex> mappedPLIs = new ArrayList<>(plis.size());
+    for (PositionListIndex pli : plis) {
+      mappedPLIs.add(store(pli));
+    }
+    return mappedPLIs;
+  }
+
+  /**
+   * @return the size of all files written by this store in bytes
+   */
+  public long getStoredBytes() {
+    return storedBytes;
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A read only {@link PositionListIndex} that lives in a memory mapped file outside of the heap. The
+ * file uses the layout of the {@link CompactPositionListIndex}: a header, the cluster offsets and
+ * the row indices as ints or longs. The operating system pages the file in on demand, so only
+ * the parts touched by an intersection occupy physical memory. Intersections read the mapped
+ * buffers directly; their results are regular heap based {@link CompactPositionListIndex}es.
+ *
+ * A mapped position list index should be created using the {@link MappedPLIStore}.
+ */
+public class MappedPositionListIndex extends PositionListIndex {
+
+  /**
+   * Number of bytes of the file header: number of clusters, number of rows, row width and padding.
+   */
+  protected static final int HEADER_SIZE = 16;
+
+  protected File file;
+  protected IntBuffer clusterOffsets;
+  protected IntBuffer rows;
+  protected LongBuffer longRows;
+  protected int numberOfClusters;
+
+  /**
+   * @param file   the file the buffer is mapped from
+   * @param buffer the mapped file content
+   */
+  protected MappedPositionListIndex(File file, ByteBuffer buffer) {
+    super(null);
+    this.file = file;
+
+    this.numberOfClusters = buffer.getInt(0);
+    boolean hasLongRows = buffer.getInt(8) == Long.BYTES;
+
+    buffer.position(HEADER_SIZE);
+    ByteBuffer offsetBuffer = buffer.slice().order(buffer.order());
+    offsetBuffer.limit((numberOfClusters + 1) * Integer.BYTES);
+    this.clusterOffsets = offsetBuffer.asIntBuffer();
+
+    buffer.position(rowsStart(numberOfClusters));
+    ByteBuffer rowBuffer = buffer.slice().order(buffer.order());
+    if (hasLongRows) {
+      this.longRows = rowBuffer.asLongBuffer();
+    } else {
+      this.rows = rowBuffer.asIntBuffer();
+    }
+  }
+
+  /**
+   * Returns the clusters as newly allocated {@link LongArrayList}s on the heap.
+   *
+   * @return the clusters
+   */
+  @Override
+  public List<LongArrayList> getClusters() {
+    List<LongArrayList> clusters = new ArrayList<>(numberOfClusters);
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      LongArrayList cluster = new LongArrayList(clusterSize(clusterIndex));
+      for (int position = 0; position < clusterSize(clusterIndex); position++) {
+        cluster.add(getRow(clusterIndex, position));
+      }
+      clusters.add(cluster);
+    }
+    return clusters;
+  }
+
+  /**
+   * @return the file the {@link MappedPositionListIndex} is mapped from
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Creates a copy of the {@link MappedPositionListIndex} on the heap.
+   *
+   * @return the copy as {@link CompactPositionListIndex}
+   */
+  @Override
+  public CompactPositionListIndex clone() {
+    return new CompactPositionListIndex(this);
+  }
+
+  @Override
+  protected PositionListIndex calculateIntersection(PositionListIndex otherPLI,
+                                                    PLIIntersector intersector) {
+    return intersector.intersectCompact(this, otherPLI);
+  }
+
+  @Override
+  protected PositionListIndex calculateParallelIntersection(PositionListIndex otherPLI,
+                                                            ForkJoinPool pool) {
+    return INTERSECTORS.get().intersectCompactParallel(this, otherPLI, pool);
+  }
+
+  @Override
+  public Long2LongOpenHashMap asHashMap() {
+    Long2LongOpenHashMap hashedPLI = new Long2LongOpenHashMap(numberOfRows());
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      for (int position = 0; position < clusterSize(clusterIndex); position++) {
+        hashedPLI.put(getRow(clusterIndex, position), clusterIndex);
+      }
+    }
+    return hashedPLI;
+  }
+
+  @Override
+  public long size() {
+    return numberOfClusters;
+  }
+
+  /**
+   * Only the buffer views are located on the heap, the mapped file content is not counted.
+   *
+   * @return the estimated heap memory usage in bytes
+   */
+  @Override
+  public long getMemoryUsage() {
+    return 48 + 3 * 64;
+  }
+
+  @Override
+  protected long calculateRawKeyError() {
+    return numberOfRows() - numberOfClusters;
+  }
+
+  @Override
+  protected int clusterSize(int clusterIndex) {
+    return clusterOffsets.get(clusterIndex + 1) - clusterOffsets.get(clusterIndex);
+  }
+
+  @Override
+  protected long getRow(int clusterIndex, int position) {
+    int index = clusterOffsets.get(clusterIndex) + position;
+    return longRows == null ? rows.get(index) : longRows.get(index);
+  }
+
+  /**
+   * @return the number of rows in non unary clusters
+   */
+  protected int numberOfRows() {
+    return clusterOffsets.get(numberOfClusters);
+  }
+
+  /**
+   * @param numberOfClusters the number of clusters
+   * @return the byte position of the first row index, aligned to 8 bytes
+   */
+  protected static int rowsStart(int numberOfClusters) {
+    int offsetsEnd = HEADER_SIZE + (numberOfClusters + 1) * Integer.BYTES;
+    return (offsetsEnd + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+  }
+}
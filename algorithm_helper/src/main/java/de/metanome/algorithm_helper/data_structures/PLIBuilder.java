@@ -15,9 +15,11 @@
  */
 package de.metanome.algorithm_helper.data_structures;
 
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
 import de.metanome.algorithm_integration.input.InputIterationException;
 import de.metanome.algorithm_integration.input.RelationalInput;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 
 import java.util.*;
 
@@ -25,13 +27,23 @@ import java.util.*;
  * Constructs a list of {@link PositionListIndex}es from the given {@link
  * de.metanome.algorithm_integration.input.RelationalInput}. A list of all columns' sorted distinct
  * values can be constructed as a byproduct.
+ *
+ * If the dictionaries are retained, rows appended to the relation can be added to the built {@link
+ * PositionListIndex}es in place with {@link #appendRows(RelationalInput)}; the costs depend only on
+ * the number of appended rows.
  */
 public class PLIBuilder {
 
+  protected static final long UNKNOWN_VALUE = Long.MAX_VALUE;
+
   protected long numberOfTuples = -1;
   protected List<HashMap<String, LongArrayList>> columns = null;
   protected RelationalInput input;
   protected boolean nullEqualsNull;
+  protected boolean retainDictionaries = false;
+  // Per column: value -> index of its cluster, or -(row + 1) for values occurring in a single row
+  protected List<Object2LongOpenHashMap<String>> dictionaries = null;
+  protected List<PositionListIndex> plis = null;
 
   public PLIBuilder(RelationalInput input) {
     this.input = input;
@@ -43,6 +55,17 @@ public class PLIBuilder {
     this.nullEqualsNull = nullEqualsNull;
   }
 
+  /**
+   * @param input              the input to build the plis from
+   * @param nullEqualsNull     true iff null values should share a cluster
+   * @param retainDictionaries true iff the value to cluster dictionaries should be kept to support
+   *                           {@link #appendRows(RelationalInput)}
+   */
+  public PLIBuilder(RelationalInput input, boolean nullEqualsNull, boolean retainDictionaries) {
+    this(input, nullEqualsNull);
+    this.retainDictionaries = retainDictionaries;
+  }
+
   /**
    * Builds a {@link PositionListIndex} for every column in the input.
    *
@@ -50,11 +73,95 @@ public class PLIBuilder {
    * @throws InputIterationException if the input cannot be iterated
    */
   public List<PositionListIndex> getPLIList() throws InputIterationException {
+    if (plis != null) {
+      return plis;
+    }
+
     List<List<LongArrayList>> rawPLIs = getRawPLIs();
     List<PositionListIndex> result = new ArrayList<>();
     for (List<LongArrayList> rawPLI : rawPLIs) {
       result.add(new PositionListIndex(rawPLI));
     }
+    if (retainDictionaries) {
+      plis = result;
+    }
+    return result;
+  }
+
+  /**
+   * Adds the rows of the given input, which were appended to the relation, to the {@link
+   * PositionListIndex}es returned by {@link #getPLIList()}. The plis are updated in place: rows
+   * join the cluster of their value and values that occurred in a single row so far form new
+   * clusters. The dictionaries have to be retained and {@link #getPLIList()} has to be called
+   * before. Missing values of rows shorter than the relation are treated as null.
+   *
+   * Only the plis of {@link #getPLIList()} can be updated: {@link CompactPositionListIndex}es and
+   * {@link MappedPositionListIndex}es cannot be modified in place, so plis converted into these
+   * representations have to be rebuilt instead.
+   *
+   * @param appendedRows the appended rows
+   * @return the updated plis
+   * @throws InputIterationException if the input cannot be iterated or a row has more values than
+   *                                 the relation has columns; the rows before it are appended
+   */
+  public List<PositionListIndex> appendRows(RelationalInput appendedRows)
+    throws InputIterationException {
+    if (plis == null) {
+      throw new IllegalStateException(
+        "Rows can only be appended to plis built with retained dictionaries.");
+    }
+
+    int numberOfColumns = plis.size();
+    while (appendedRows.hasNext()) {
+      List<String> row = appendedRows.next();
+      if (row.size() > numberOfColumns) {
+        throw new InputIterationException(
+          "Appended row " + this.numberOfTuples + " has " + row.size()
+            + " values, but the relation has " + numberOfColumns + " columns.");
+      }
+      for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+        String cellValue = columnIndex < row.size() ? row.get(columnIndex) : null;
+        appendValue(this.numberOfTuples, columnIndex, cellValue);
+      }
+      this.numberOfTuples++;
+    }
+    return plis;
+  }
+
+  protected void appendValue(long row, int columnIndex, String attributeCell) {
+    if (!this.nullEqualsNull && attributeCell == null) {
+      return;
+    }
+
+    Object2LongOpenHashMap<String> dictionary = dictionaries.get(columnIndex);
+    PositionListIndex pli = plis.get(columnIndex);
+    long entry = dictionary.getLong(attributeCell);
+    if (entry == UNKNOWN_VALUE) {
+      dictionary.put(attributeCell, -(row + 1));
+    } else if (entry < 0) {
+      // The value occurred in a single row so far
+      LongArrayList cluster = new LongArrayList();
+      cluster.add(-entry - 1);
+      cluster.add(row);
+      dictionary.put(attributeCell, pli.addCluster(cluster));
+    } else {
+      pli.addRow((int) entry, row);
+    }
+  }
+
+  /**
+   * Builds a {@link CompactPositionListIndex} for every column in the input. The compact
+   * representation needs considerably less memory than {@link #getPLIList()} on large inputs.
+   *
+   * @return list of compact plis for all columns
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  public List<CompactPositionListIndex> getCompactPLIList() throws InputIterationException {
+    List<List<LongArrayList>> rawPLIs = getRawPLIs();
+    List<CompactPositionListIndex> result = new ArrayList<>();
+    for (List<LongArrayList> rawPLI : rawPLIs) {
+      result.add(new CompactPositionListIndex(rawPLI));
+    }
     return result;
   }
 
@@ -113,6 +220,11 @@ public class PLIBuilder {
   }
 
   protected void calculateUnpurgedPLI() throws InputIterationException {
+    if (input instanceof BatchRelationalInput) {
+      calculateUnpurgedPLI((BatchRelationalInput) input);
+      return;
+    }
+
     long rowCount = 0;
     this.numberOfTuples = 0;
     while (input.hasNext()) {
@@ -127,6 +239,42 @@ public class PLIBuilder {
     }
   }
 
+  /**
+   * Reads the input in column-major batches and adds the values column by column.
+   *
+   * @param batchInput the input to read
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  protected void calculateUnpurgedPLI(BatchRelationalInput batchInput)
+    throws InputIterationException {
+    this.numberOfTuples = 0;
+    int numberOfColumns = batchInput.numberOfColumns();
+    for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+      columns.add(new HashMap<String, LongArrayList>());
+    }
+
+    String[][] batch = new String[numberOfColumns][BatchRelationalInput.DEFAULT_BATCH_SIZE];
+    int numberOfRows;
+    while ((numberOfRows = batchInput.nextBatch(batch)) > 0) {
+      for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+        HashMap<String, LongArrayList> column = columns.get(columnIndex);
+        String[] values = batch[columnIndex];
+        for (int row = 0; row < numberOfRows; row++) {
+          if (!this.nullEqualsNull && values[row] == null) {
+            continue;
+          }
+          LongArrayList cluster = column.get(values[row]);
+          if (cluster == null) {
+            cluster = new LongArrayList();
+            column.put(values[row], cluster);
+          }
+          cluster.add(this.numberOfTuples + row);
+        }
+      }
+      this.numberOfTuples += numberOfRows;
+    }
+  }
+
   protected void addValue(long rowCount, int columnCount, String attributeCell) {
     if (columns.size() <= columnCount) {
       columns.add(new HashMap<String, LongArrayList>());
@@ -148,12 +296,28 @@ public class PLIBuilder {
   protected List<List<LongArrayList>> purgePLIEntries() {
     List<List<LongArrayList>> rawPLIList = new ArrayList<>();
     Iterator<HashMap<String, LongArrayList>> columnsIterator = columns.iterator();
+    if (retainDictionaries) {
+      dictionaries = new ArrayList<>(columns.size());
+    }
     while (columnsIterator.hasNext()) {
       List<LongArrayList> clusters = new ArrayList<>();
-      for (LongArrayList cluster : columnsIterator.next().values()) {
+      Object2LongOpenHashMap<String> dictionary = null;
+      if (retainDictionaries) {
+        dictionary = new Object2LongOpenHashMap<>();
+        dictionary.defaultReturnValue(UNKNOWN_VALUE);
+        dictionaries.add(dictionary);
+      }
+      for (Map.Entry<String, LongArrayList> entry : columnsIterator.next().entrySet()) {
+        LongArrayList cluster = entry.getValue();
         if (cluster.size() < 2) {
+          if (dictionary != null) {
+            dictionary.put(entry.getKey(), -(cluster.getLong(0) + 1));
+          }
           continue;
         }
+        if (dictionary != null) {
+          dictionary.put(entry.getKey(), clusters.size());
+        }
         clusters.add(cluster);
       }
       rawPLIList.add(clusters);
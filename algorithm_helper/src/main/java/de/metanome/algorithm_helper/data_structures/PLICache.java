@@ -0,0 +1,308 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.algorithm_execution.FileCreationException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A memory bounded cache of {@link PositionListIndex}es for column combinations. The {@link
+ * PositionListIndex}es of the single columns are always kept. A {@link PositionListIndex} for a
+ * column combination that is not cached is calculated starting from the largest cached subset of
+ * the column combination; only the missing columns are intersected.
+ *
+ * If the estimated size of all cached {@link PositionListIndex}es exceeds the byte budget, entries
+ * are evicted among the least recently used ones: of the {@link #EVICTION_CANDIDATES} least
+ * recently used entries the one that is cheapest to recalculate per byte is removed first. If a
+ * {@link MappedPLIStore} is set, evicted entries are moved to memory mapped files instead of being
+ * dropped and {@link #spillColumnPLIs()} moves the single column {@link PositionListIndex}es out of
+ * the heap. If an entry cannot be spilled, spilling is disabled, see {@link #getSpillFailure()}.
+ *
+ * The cached and spilled column combinations are indexed in a {@link SubSetGraph}, so finding the
+ * largest cached subset does not scan all entries.
+ *
+ * The cache is not thread safe.
+ */
+public class PLICache {
+
+  /**
+   * Number of least recently used entries considered for eviction.
+   */
+  protected static final int EVICTION_CANDIDATES = 8;
+
+  protected List<? extends PositionListIndex> columnPLIs;
+  protected long byteBudget;
+  protected long usedBytes = 0;
+  // Access ordered: least recently used entries come first
+  protected LinkedHashMap<ColumnCombinationBitset, PositionListIndex> cache =
+    new LinkedHashMap<>(16, 0.75f, true);
+  protected MappedPLIStore spillStore = null;
+  protected Map<ColumnCombinationBitset, MappedPositionListIndex> spilledPLIs = new HashMap<>();
+  protected FileCreationException spillFailure = null;
+  // All column combinations of the cache and the spilled entries
+  protected SubSetGraph availableColumnCombinations = new SubSetGraph();
+
+  /**
+   * Creates a cache that may use a quarter of the maximum heap size.
+   *
+   * @param columnPLIs the {@link PositionListIndex}es of all columns, ordered by column index
+   */
+  public PLICache(List<? extends PositionListIndex> columnPLIs) {
+    this(columnPLIs, Runtime.getRuntime().maxMemory() / 4);
+  }
+
+  /**
+   * @param columnPLIs the {@link PositionListIndex}es of all columns, ordered by column index
+   * @param byteBudget the maximum estimated size of the cached multi column {@link
+   *                   PositionListIndex}es in bytes
+   */
+  public PLICache(List<? extends PositionListIndex> columnPLIs, long byteBudget) {
+    this.columnPLIs = columnPLIs;
+    this.byteBudget = byteBudget;
+  }
+
+  /**
+   * Returns the {@link PositionListIndex} of the column combination. If it is not cached it is
+   * calculated from the largest cached subset and cached afterwards.
+   *
+   * @param columnCombination the non empty column combination
+   * @return the {@link PositionListIndex} of the column combination
+   */
+  public PositionListIndex get(ColumnCombinationBitset columnCombination) {
+    if (columnCombination.size() == 1) {
+      return columnPLIs.get(columnCombination.toArray()[0]);
+    }
+
+    PositionListIndex pli = lookup(columnCombination);
+    if (pli != null) {
+      return pli;
+    }
+
+    // Start from the largest cached subset
+    ColumnCombinationBitset baseColumns = largestSubset(columnCombination);
+
+    int[] missingColumns;
+    int firstMissingColumn = 0;
+    if (baseColumns == null) {
+      missingColumns = columnCombination.toArray();
+      pli = columnPLIs.get(missingColumns[0]);
+      firstMissingColumn = 1;
+    } else {
+      pli = lookup(baseColumns);
+      missingColumns = columnCombination.minus(baseColumns).toArray();
+    }
+    for (int i = firstMissingColumn; i < missingColumns.length; i++) {
+      pli = pli.intersect(columnPLIs.get(missingColumns[i]));
+    }
+
+    put(columnCombination, pli);
+    return pli;
+  }
+
+  /**
+   * Returns the raw key error of the column combination, see {@link
+   * PositionListIndex#getRawKeyError()}.
+   *
+   * @param columnCombination the column combination
+   * @return the raw key error, 0 for the empty column combination
+   */
+  public long getRawKeyError(ColumnCombinationBitset columnCombination) {
+    if (columnCombination.isEmpty()) {
+      return 0L;
+    }
+    return get(columnCombination).getRawKeyError();
+  }
+
+  /**
+   * Adds the {@link PositionListIndex} of a multi column combination. {@link PositionListIndex}es
+   * larger than the byte budget are not kept on the heap; they are spilled if a spill store is
+   * set.
+   *
+   * @param columnCombination the column combination
+   * @param pli               the column combination's {@link PositionListIndex}
+   */
+  public void put(ColumnCombinationBitset columnCombination, PositionListIndex pli) {
+    if (columnCombination.size() < 2) {
+      return;
+    }
+    long bytes = pli.getMemoryUsage();
+    if (bytes > byteBudget) {
+      spill(columnCombination, pli);
+      return;
+    }
+
+    spilledPLIs.remove(columnCombination);
+    availableColumnCombinations.add(columnCombination);
+    PositionListIndex previous = cache.put(columnCombination, pli);
+    if (previous != null) {
+      usedBytes -= previous.getMemoryUsage();
+    }
+    usedBytes += bytes;
+    evict();
+  }
+
+  /**
+   * @param columnCombination the column combination
+   * @return true iff the {@link PositionListIndex} is available without intersecting
+   */
+  public boolean containsKey(ColumnCombinationBitset columnCombination) {
+    return columnCombination.size() == 1 || cache.containsKey(columnCombination)
+      || spilledPLIs.containsKey(columnCombination);
+  }
+
+  /**
+   * @return the number of available {@link PositionListIndex}es including the single columns
+   */
+  public int size() {
+    return columnPLIs.size() + cache.size() + spilledPLIs.size();
+  }
+
+  /**
+   * Sets the store evicted {@link PositionListIndex}es are moved to. Without a store evicted
+   * {@link PositionListIndex}es are dropped.
+   *
+   * @param spillStore the store for evicted {@link PositionListIndex}es
+   */
+  public void setSpillStore(MappedPLIStore spillStore) {
+    this.spillStore = spillStore;
+    this.spillFailure = null;
+  }
+
+  /**
+   * @return the exception that disabled spilling or null if spilling did not fail
+   */
+  public FileCreationException getSpillFailure() {
+    return spillFailure;
+  }
+
+  /**
+   * Replaces the single column {@link PositionListIndex}es with memory mapped copies of the spill
+   * store.
+   *
+   * @throws FileCreationException if a {@link PositionListIndex} cannot be stored
+   */
+  public void spillColumnPLIs() throws FileCreationException {
+    if (spillStore == null) {
+      throw new IllegalStateException("No spill store set.");
+    }
+    columnPLIs = spillStore.storeAll(columnPLIs);
+  }
+
+  /**
+   * @param columnCombination the column combination
+   * @return true iff the column combination's {@link PositionListIndex} has been moved to a memory
+   * mapped file
+   */
+  public boolean isSpilled(ColumnCombinationBitset columnCombination) {
+    return spilledPLIs.containsKey(columnCombination);
+  }
+
+  /**
+   * @return the estimated size of the cached multi column {@link PositionListIndex}es in bytes
+   */
+  public long getUsedBytes() {
+    return usedBytes;
+  }
+
+  public long getByteBudget() {
+    return byteBudget;
+  }
+
+  public List<? extends PositionListIndex> getColumnPLIs() {
+    return columnPLIs;
+  }
+
+  protected void evict() {
+    while (usedBytes > byteBudget && !cache.isEmpty()) {
+      // Find the cheapest of the least recently used entries
+      Map.Entry<ColumnCombinationBitset, PositionListIndex> victim = null;
+      double victimValue = Double.MAX_VALUE;
+      Iterator<Map.Entry<ColumnCombinationBitset, PositionListIndex>> iterator =
+        cache.entrySet().iterator();
+      for (int i = 0; i < EVICTION_CANDIDATES && iterator.hasNext(); i++) {
+        Map.Entry<ColumnCombinationBitset, PositionListIndex> entry = iterator.next();
+        // The number of intersections needed to rebuild the entry per byte
+        double value = (entry.getKey().size() - 1) / (double) entry.getValue().getMemoryUsage();
+        if (value < victimValue) {
+          victim = entry;
+          victimValue = value;
+        }
+      }
+
+      ColumnCombinationBitset victimColumns = victim.getKey();
+      PositionListIndex victimPLI = victim.getValue();
+      usedBytes -= victimPLI.getMemoryUsage();
+      cache.remove(victimColumns);
+      spill(victimColumns, victimPLI);
+      if (!spilledPLIs.containsKey(victimColumns)) {
+        availableColumnCombinations.remove(victimColumns);
+      }
+    }
+  }
+
+  protected void spill(ColumnCombinationBitset columnCombination, PositionListIndex pli) {
+    if (spillStore == null) {
+      return;
+    }
+    try {
+      MappedPositionListIndex mappedPLI = pli instanceof MappedPositionListIndex
+        ? (MappedPositionListIndex) pli : spillStore.store(pli);
+      spilledPLIs.put(columnCombination, mappedPLI);
+      availableColumnCombinations.add(columnCombination);
+    } catch (FileCreationException e) {
+      // The position list index is dropped and recalculated if needed. Later spills would most
+      // likely fail the same way, so spilling is disabled.
+      spillFailure = e;
+      spillStore = null;
+    }
+  }
+
+  protected PositionListIndex lookup(ColumnCombinationBitset columnCombination) {
+    PositionListIndex pli = cache.get(columnCombination);
+    if (pli == null) {
+      pli = spilledPLIs.get(columnCombination);
+    }
+    return pli;
+  }
+
+  /**
+   * @param columnCombination the column combination
+   * @return the largest cached or spilled strict subset or null if there is none
+   */
+  protected ColumnCombinationBitset largestSubset(ColumnCombinationBitset columnCombination) {
+    ColumnCombinationBitset largestSubset = null;
+    for (ColumnCombinationBitset candidate :
+      availableColumnCombinations.getExistingSubsets(columnCombination)) {
+      if (largestSubset == null || candidate.size() > largestSubset.size()) {
+        largestSubset = candidate;
+      }
+    }
+    return largestSubset;
+  }
+
+  /**
+   * @return the cached multi column combinations from least to most recently used
+   */
+  protected List<ColumnCombinationBitset> getCachedColumnCombinations() {
+    return new ArrayList<>(cache.keySet());
+  }
+}
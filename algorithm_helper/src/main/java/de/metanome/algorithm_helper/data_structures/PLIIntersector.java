@@ -0,0 +1,488 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Intersects {@link PositionListIndex}es using a probing table as described for TANE. The probing
+ * table maps every row of the left {@link PositionListIndex} to its cluster. Every cluster of the
+ * right {@link PositionListIndex} is then split by the left clusters of its rows.
+ *
+ * The working memory (the probing table and the per cluster scratch buffers) is kept between
+ * calls, so after warm up an intersection only allocates its result. Buffers larger than {@link
+ * #RETAINED_BUFFER_SIZE} entries are released after every intersection, which bounds the memory an
+ * idle intersector holds. If an intersection fails, all buffers are released, as they may still
+ * hold its state. An intersector is not thread safe; {@link
+ * PositionListIndex#intersect(PositionListIndex)} uses one intersector per thread.
+ * Large {@link PositionListIndex}es can be intersected on a {@link ForkJoinPool}, see {@link
+ * #intersectParallel(PositionListIndex, PositionListIndex, ForkJoinPool)}.
+ */
+public class PLIIntersector {
+
+  /**
+   * Left {@link PositionListIndex}es with larger row indices are intersected using a hash map
+   * instead of the dense probing table.
+   */
+  protected static final long MAX_PROBING_TABLE_SIZE = Integer.MAX_VALUE - 8;
+
+  /**
+   * Right {@link PositionListIndex}es with fewer rows are never intersected in parallel.
+   */
+  public static final long PARALLEL_THRESHOLD = 100000;
+
+  /**
+   * Maximum number of entries of a buffer kept between intersections.
+   */
+  public static final int RETAINED_BUFFER_SIZE = 1 << 20;
+
+  // Maps row index to left cluster index + 1, 0 for rows that are unique in the left pli
+  protected int[] probingTable = new int[0];
+  // Number of rows of the current right cluster per left cluster
+  protected int[] clusterCounts = new int[0];
+  // Write position of each left cluster in the scratch buffer
+  protected int[] clusterStarts = new int[0];
+  // The left clusters that have been hit by the current right cluster
+  protected IntArrayList touchedClusters = new IntArrayList();
+  protected long[] scratch = new long[0];
+
+  /**
+   * Intersects the two {@link PositionListIndex}es.
+   *
+   * @param left  the {@link PositionListIndex} the probing table is built from
+   * @param right the {@link PositionListIndex} whose clusters are probed
+   * @return the intersected {@link PositionListIndex}
+   */
+  public PositionListIndex intersect(PositionListIndex left, PositionListIndex right) {
+    final List<LongArrayList> clusters = new ArrayList<>();
+    intersect(left, right, new ClusterCollector() {
+      @Override
+      public void addCluster(long[] rows, int offset, int length) {
+        LongArrayList cluster = new LongArrayList(length);
+        cluster.addElements(0, rows, offset, length);
+        clusters.add(cluster);
+      }
+    });
+    return new PositionListIndex(clusters);
+  }
+
+  /**
+   * Intersects the two {@link PositionListIndex}es and stores the result as {@link
+   * CompactPositionListIndex}.
+   *
+   * @param left  the {@link PositionListIndex} the probing table is built from
+   * @param right the {@link PositionListIndex} whose clusters are probed
+   * @return the intersected {@link CompactPositionListIndex}
+   */
+  public CompactPositionListIndex intersectCompact(PositionListIndex left,
+                                                   PositionListIndex right) {
+    final CompactPositionListIndex.Builder builder = new CompactPositionListIndex.Builder();
+    intersect(left, right, new ClusterCollector() {
+      @Override
+      public void addCluster(long[] rows, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+          builder.addRow(rows[i]);
+        }
+        builder.finishCluster();
+      }
+    });
+    return builder.build();
+  }
+
+  /**
+   * Intersects two {@link PositionListIndex}es given by their cluster bitmaps, see {@link
+   * PositionListIndex#getClusterBitmaps()}. Every pair of clusters is intersected with {@link
+   * RoaringBitmap#and(RoaringBitmap)}, which ANDs dense containers word by word instead of probing
+   * row by row. As the number of bitmap intersections is the product of the numbers of clusters,
+   * this pays off for low cardinality columns with few large clusters.
+   *
+   * @param leftClusters  the cluster bitmaps of the left {@link PositionListIndex}
+   * @param rightClusters the cluster bitmaps of the right {@link PositionListIndex}
+   * @return the intersected {@link PositionListIndex}
+   */
+  public PositionListIndex intersectBitmaps(List<RoaringBitmap> leftClusters,
+                                            List<RoaringBitmap> rightClusters) {
+    List<LongArrayList> clusters = new ArrayList<>();
+    for (RoaringBitmap leftCluster : leftClusters) {
+      for (RoaringBitmap rightCluster : rightClusters) {
+        RoaringBitmap cluster = leftCluster.and(rightCluster);
+        if (cluster.getCardinality() > 1) {
+          clusters.add(cluster.toRows());
+        }
+      }
+    }
+    return new PositionListIndex(clusters);
+  }
+
+  /**
+   * Intersects the two {@link PositionListIndex}es using the given {@link ForkJoinPool}. The
+   * clusters of the right {@link PositionListIndex} are partitioned into chunks of roughly equal row
+   * count, which are split against the shared probing table in parallel. The partial results are
+   * concatenated in chunk order, so the result is identical to {@link #intersect(PositionListIndex,
+   * PositionListIndex)}. Right {@link PositionListIndex}es with less than {@link
+   * #PARALLEL_THRESHOLD} rows are intersected sequentially.
+   *
+   * @param left  the {@link PositionListIndex} the probing table is built from
+   * @param right the {@link PositionListIndex} whose clusters are probed
+   * @param pool  the pool executing the partial intersections
+   * @return the intersected {@link PositionListIndex}
+   */
+  public PositionListIndex intersectParallel(PositionListIndex left, PositionListIndex right,
+                                             ForkJoinPool pool) {
+    List<CompactPositionListIndex.Builder> partialResults =
+      intersectParallelPartial(left, right, pool);
+    if (partialResults == null) {
+      return intersect(left, right);
+    }
+
+    List<LongArrayList> clusters = new ArrayList<>();
+    for (CompactPositionListIndex.Builder partialResult : partialResults) {
+      partialResult.addClustersTo(clusters);
+    }
+    return new PositionListIndex(clusters);
+  }
+
+  /**
+   * Parallel version of {@link #intersectCompact(PositionListIndex, PositionListIndex)}, see {@link
+   * #intersectParallel(PositionListIndex, PositionListIndex, ForkJoinPool)}.
+   *
+   * @param left  the {@link PositionListIndex} the probing table is built from
+   * @param right the {@link PositionListIndex} whose clusters are probed
+   * @param pool  the pool executing the partial intersections
+   * @return the intersected {@link CompactPositionListIndex}
+   */
+  public CompactPositionListIndex intersectCompactParallel(PositionListIndex left,
+                                                           PositionListIndex right,
+                                                           ForkJoinPool pool) {
+    List<CompactPositionListIndex.Builder> partialResults =
+      intersectParallelPartial(left, right, pool);
+    if (partialResults == null) {
+      return intersectCompact(left, right);
+    }
+
+    CompactPositionListIndex.Builder builder = partialResults.get(0);
+    for (int i = 1; i < partialResults.size(); i++) {
+      builder.append(partialResults.get(i));
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return the partial results in cluster order or null if the intersection should be calculated
+   * sequentially
+   */
+  protected List<CompactPositionListIndex.Builder> intersectParallelPartial(
+    PositionListIndex left, PositionListIndex right, ForkJoinPool pool) {
+
+    long numberOfRightRows = 0;
+    for (int clusterIndex = 0; clusterIndex < right.size(); clusterIndex++) {
+      numberOfRightRows += right.clusterSize(clusterIndex);
+    }
+    if (numberOfRightRows < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+      return null;
+    }
+
+    Long2LongOpenHashMap hashedPLI = null;
+    boolean succeeded = false;
+    try {
+      if (!fillProbingTable(left)) {
+        hashedPLI = left.asHashMap();
+      }
+      int[] sharedProbingTable = this.probingTable;
+      int numberOfLeftClusters = (int) left.size();
+
+      // Cut the right clusters into chunks
+      long rowsPerChunk = Math.max(1, numberOfRightRows / (pool.getParallelism() * 4L));
+      List<PartialIntersection> chunks = new ArrayList<>();
+      int chunkStart = 0;
+      long chunkRows = 0;
+      for (int clusterIndex = 0; clusterIndex < right.size(); clusterIndex++) {
+        chunkRows += right.clusterSize(clusterIndex);
+        if (chunkRows >= rowsPerChunk || clusterIndex == right.size() - 1) {
+          chunks.add(new PartialIntersection(sharedProbingTable, hashedPLI, numberOfLeftClusters,
+            right, chunkStart, clusterIndex + 1));
+          chunkStart = clusterIndex + 1;
+          chunkRows = 0;
+        }
+      }
+
+      List<CompactPositionListIndex.Builder> partialResults = new ArrayList<>(chunks.size());
+      for (PartialIntersection chunk : chunks) {
+        pool.execute(chunk);
+      }
+      for (PartialIntersection chunk : chunks) {
+        partialResults.add(chunk.join());
+      }
+      succeeded = true;
+      return partialResults;
+    } finally {
+      finishIntersection(left, hashedPLI, succeeded);
+    }
+  }
+
+  protected void intersect(PositionListIndex left, PositionListIndex right,
+                           ClusterCollector collector) {
+    Long2LongOpenHashMap hashedPLI = null;
+    boolean succeeded = false;
+    try {
+      if (!fillProbingTable(left)) {
+        hashedPLI = left.asHashMap();
+      }
+      splitClusters(probingTable, hashedPLI, (int) left.size(), right, 0, (int) right.size(),
+        collector);
+      succeeded = true;
+    } finally {
+      finishIntersection(left, hashedPLI, succeeded);
+    }
+  }
+
+  /**
+   * Clears the probing table after a successful intersection and releases large buffers. After a
+   * failed intersection the probing table and the scratch buffers may be partially written, so
+   * they are released instead.
+   */
+  protected void finishIntersection(PositionListIndex left, Long2LongOpenHashMap hashedPLI,
+                                    boolean succeeded) {
+    if (!succeeded) {
+      release();
+      return;
+    }
+    if (hashedPLI == null) {
+      clearProbingTable(left);
+    }
+    releaseLargeBuffers();
+  }
+
+  /**
+   * Releases all buffers of the intersector.
+   */
+  public void release() {
+    probingTable = new int[0];
+    releaseScratchBuffers();
+  }
+
+  /**
+   * Releases the buffers with more than {@link #RETAINED_BUFFER_SIZE} entries.
+   */
+  protected void releaseLargeBuffers() {
+    if (probingTable.length > RETAINED_BUFFER_SIZE) {
+      probingTable = new int[0];
+    }
+    if (clusterCounts.length > RETAINED_BUFFER_SIZE || scratch.length > RETAINED_BUFFER_SIZE) {
+      releaseScratchBuffers();
+    }
+  }
+
+  protected void releaseScratchBuffers() {
+    clusterCounts = new int[0];
+    clusterStarts = new int[0];
+    scratch = new long[0];
+    touchedClusters = new IntArrayList();
+  }
+
+  /**
+   * Splits the right clusters in the given range by the left clusters of their rows and passes all
+   * non unary parts to the collector. Only the scratch buffers of this intersector are written, so
+   * several intersectors can split clusters against the same probing table concurrently.
+   *
+   * @param leftProbingTable     the probing table of the left {@link PositionListIndex}
+   * @param hashedPLI            the left {@link PositionListIndex} as map if there is no probing
+   *                             table, null otherwise
+   * @param numberOfLeftClusters the number of clusters of the left {@link PositionListIndex}
+   * @param right                the {@link PositionListIndex} whose clusters are split
+   * @param fromCluster          the first right cluster to split (inclusive)
+   * @param toCluster            the last right cluster to split (exclusive)
+   * @param collector            receives the clusters of the intersection
+   */
+  protected void splitClusters(int[] leftProbingTable, Long2LongOpenHashMap hashedPLI,
+                               int numberOfLeftClusters, PositionListIndex right,
+                               int fromCluster, int toCluster, ClusterCollector collector) {
+    if (clusterCounts.length < numberOfLeftClusters) {
+      clusterCounts = new int[numberOfLeftClusters];
+      clusterStarts = new int[numberOfLeftClusters];
+    }
+
+    for (int clusterIndex = fromCluster; clusterIndex < toCluster; clusterIndex++) {
+      int clusterSize = right.clusterSize(clusterIndex);
+
+      // Count the rows per left cluster
+      for (int position = 0; position < clusterSize; position++) {
+        int leftCluster =
+          leftClusterOf(leftProbingTable, hashedPLI, right.getRow(clusterIndex, position));
+        if (leftCluster < 0) {
+          continue;
+        }
+        if (clusterCounts[leftCluster]++ == 0) {
+          touchedClusters.add(leftCluster);
+        }
+      }
+
+      // Reserve space in the scratch buffer for all non unary groups
+      int scratchSize = 0;
+      for (int i = 0; i < touchedClusters.size(); i++) {
+        int leftCluster = touchedClusters.getInt(i);
+        if (clusterCounts[leftCluster] > 1) {
+          clusterStarts[leftCluster] = scratchSize;
+          scratchSize += clusterCounts[leftCluster];
+        }
+      }
+
+      if (scratchSize > 0) {
+        if (scratch.length < scratchSize) {
+          scratch = new long[Math.max(scratchSize, scratch.length * 2)];
+        }
+        // Distribute the rows into their groups
+        for (int position = 0; position < clusterSize; position++) {
+          long row = right.getRow(clusterIndex, position);
+          int leftCluster = leftClusterOf(leftProbingTable, hashedPLI, row);
+          if (leftCluster >= 0 && clusterCounts[leftCluster] > 1) {
+            scratch[clusterStarts[leftCluster]++] = row;
+          }
+        }
+      }
+
+      for (int i = 0; i < touchedClusters.size(); i++) {
+        int leftCluster = touchedClusters.getInt(i);
+        int count = clusterCounts[leftCluster];
+        if (count > 1) {
+          collector.addCluster(scratch, clusterStarts[leftCluster] - count, count);
+        }
+        clusterCounts[leftCluster] = 0;
+      }
+      touchedClusters.clear();
+    }
+  }
+
+  /**
+   * Writes the clusters of the {@link PositionListIndex} into the probing table.
+   *
+   * @param pli the {@link PositionListIndex} to write into the probing table
+   * @return false iff the row indices are too large for a probing table
+   */
+  protected boolean fillProbingTable(PositionListIndex pli) {
+    long maxRow = -1;
+    for (int clusterIndex = 0; clusterIndex < pli.size(); clusterIndex++) {
+      for (int position = 0; position < pli.clusterSize(clusterIndex); position++) {
+        maxRow = Math.max(maxRow, pli.getRow(clusterIndex, position));
+      }
+    }
+    if (maxRow >= MAX_PROBING_TABLE_SIZE) {
+      return false;
+    }
+    if (probingTable.length <= maxRow) {
+      probingTable = new int[(int) maxRow + 1];
+    }
+
+    for (int clusterIndex = 0; clusterIndex < pli.size(); clusterIndex++) {
+      for (int position = 0; position < pli.clusterSize(clusterIndex); position++) {
+        probingTable[(int) pli.getRow(clusterIndex, position)] = clusterIndex + 1;
+      }
+    }
+    return true;
+  }
+
+  protected void clearProbingTable(PositionListIndex pli) {
+    for (int clusterIndex = 0; clusterIndex < pli.size(); clusterIndex++) {
+      for (int position = 0; position < pli.clusterSize(clusterIndex); position++) {
+        probingTable[(int) pli.getRow(clusterIndex, position)] = 0;
+      }
+    }
+  }
+
+  /**
+   * @return the index of the left cluster containing the row or -1 if the row is unique
+   */
+  protected static int leftClusterOf(int[] leftProbingTable, Long2LongOpenHashMap hashedPLI,
+                                     long row) {
+    if (hashedPLI != null) {
+      return hashedPLI.containsKey(row) ? (int) hashedPLI.get(row) : -1;
+    }
+    if (row >= leftProbingTable.length) {
+      return -1;
+    }
+    return leftProbingTable[(int) row] - 1;
+  }
+
+  /**
+   * Splits a range of right clusters on a worker thread of a {@link ForkJoinPool}. The scratch
+   * buffers are taken from the worker thread's {@link PLIIntersector}.
+   */
+  protected static class PartialIntersection
+    extends RecursiveTask<CompactPositionListIndex.Builder> {
+
+    private static final long serialVersionUID = 1L;
+
+    protected final int[] leftProbingTable;
+    protected final Long2LongOpenHashMap hashedPLI;
+    protected final int numberOfLeftClusters;
+    protected final PositionListIndex right;
+    protected final int fromCluster;
+    protected final int toCluster;
+
+    public PartialIntersection(int[] leftProbingTable, Long2LongOpenHashMap hashedPLI,
+                               int numberOfLeftClusters, PositionListIndex right,
+                               int fromCluster, int toCluster) {
+      this.leftProbingTable = leftProbingTable;
+      this.hashedPLI = hashedPLI;
+      this.numberOfLeftClusters = numberOfLeftClusters;
+      this.right = right;
+      this.fromCluster = fromCluster;
+      this.toCluster = toCluster;
+    }
+
+    @Override
+    protected CompactPositionListIndex.Builder compute() {
+      final CompactPositionListIndex.Builder builder = new CompactPositionListIndex.Builder();
+      PLIIntersector intersector = PositionListIndex.INTERSECTORS.get();
+      boolean succeeded = false;
+      try {
+        intersector.splitClusters(leftProbingTable, hashedPLI, numberOfLeftClusters, right,
+          fromCluster, toCluster, new ClusterCollector() {
+            @Override
+            public void addCluster(long[] rows, int offset, int length) {
+              for (int i = offset; i < offset + length; i++) {
+                builder.addRow(rows[i]);
+              }
+              builder.finishCluster();
+            }
+          });
+        succeeded = true;
+      } finally {
+        // The worker's probing table may be shared by a running intersection, so it is kept
+        if (!succeeded || intersector.clusterCounts.length > RETAINED_BUFFER_SIZE
+          || intersector.scratch.length > RETAINED_BUFFER_SIZE) {
+          intersector.releaseScratchBuffers();
+        }
+      }
+      return builder;
+    }
+  }
+
+  /**
+   * Receives the clusters of an intersection.
+   */
+  protected interface ClusterCollector {
+
+    void addCluster(long[] rows, int offset, int length);
+  }
+}
@@ -0,0 +1,418 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Constructs {@link CompactPositionListIndex}es and dictionary encoded columns from the given
+ * {@link RelationalInput} using multiple threads. The calling thread reads the input and hands
+ * batches of rows to one worker per column stripe; worker i encodes the columns i, i + t, i + 2t,
+ * ... for t workers. Every worker maps the values of its columns to dense ids in the order of their
+ * first occurrence, so the encoded column of a, b, a, c is [0, 1, 0, 2]. The {@link
+ * PositionListIndex}es are derived from the encoded columns by counting the ids.
+ *
+ * If null values are not equal to each other, nulls are encoded as {@link #NULL_ID} and never
+ * share a cluster. The number of rows is limited to {@link Integer#MAX_VALUE}.
+ *
+ * The number of columns is taken from the first row. Missing cells of shorter rows are null
+ * values, additional cells of longer rows are ignored.
+ */
+public class ParallelPLIBuilder {
+
+  /**
+   * The id of null values if null values are not equal to each other.
+   */
+  public static final int NULL_ID = -1;
+
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  /**
+   * Number of batches a worker may lag behind the reading thread.
+   */
+  protected static final int QUEUE_CAPACITY = 16;
+
+  // Signals the end of the input to the workers
+  protected static final List<List<String>> END_OF_INPUT = new ArrayList<>();
+
+  protected RelationalInput input;
+  protected boolean nullEqualsNull;
+  protected int numberOfThreads;
+  protected int batchSize = DEFAULT_BATCH_SIZE;
+
+  protected long numberOfTuples = -1;
+  protected int[][] encodedColumns = null;
+  protected List<List<String>> dictionaries = null;
+
+  public ParallelPLIBuilder(RelationalInput input) {
+    this(input, true);
+  }
+
+  public ParallelPLIBuilder(RelationalInput input, boolean nullEqualsNull) {
+    this(input, nullEqualsNull, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param input           the input to build the {@link PositionListIndex}es of
+   * @param nullEqualsNull  true iff null values are equal to each other
+   * @param numberOfThreads the maximum number of worker threads
+   */
+  public ParallelPLIBuilder(RelationalInput input, boolean nullEqualsNull, int numberOfThreads) {
+    this.input = input;
+    this.nullEqualsNull = nullEqualsNull;
+    this.numberOfThreads = Math.max(1, numberOfThreads);
+  }
+
+  /**
+   * @param batchSize the number of rows handed to the workers at once
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+  /**
+   * Builds a {@link CompactPositionListIndex} for every column in the input.
+   *
+   * @return list of plis for all columns
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  public List<CompactPositionListIndex> getPLIList() throws InputIterationException {
+    List<CompactPositionListIndex> plis = new ArrayList<>(getEncodedColumns().length);
+    for (int columnIndex = 0; columnIndex < encodedColumns.length; columnIndex++) {
+      plis.add(buildPLI(encodedColumns[columnIndex], dictionaries.get(columnIndex).size()));
+    }
+    return plis;
+  }
+
+  /**
+   * Returns the dictionary encoded columns. The value of a cell can be looked up in the column's
+   * dictionary, see {@link #getDictionaries()}.
+   *
+   * @return one array of value ids per column
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  public int[][] getEncodedColumns() throws InputIterationException {
+    if (encodedColumns == null) {
+      encodeColumns();
+    }
+    return encodedColumns;
+  }
+
+  /**
+   * @return the values of every column ordered by their id
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  public List<List<String>> getDictionaries() throws InputIterationException {
+    getEncodedColumns();
+    return dictionaries;
+  }
+
+  /**
+   * Builds a {@link TreeSet} of the values of every column in the input. "null" values are
+   * filtered.
+   *
+   * @return all columns' sorted distinct values
+   * @throws InputIterationException if the input cannot be iterated
+   */
+  public List<TreeSet<String>> getDistinctSortedColumns() throws InputIterationException {
+    return getDistinctSortedColumns(getDictionaries());
+  }
+
+  /**
+   * @param dictionaries the values of every column ordered by their id
+   * @return all columns' sorted distinct values without "null" values
+   */
+  protected static List<TreeSet<String>> getDistinctSortedColumns(
+    List<List<String>> dictionaries) {
+    List<TreeSet<String>> distinctSortedColumns = new ArrayList<>(dictionaries.size());
+    for (List<String> dictionary : dictionaries) {
+      TreeSet<String> distinctValues = new TreeSet<>();
+      for (String value : dictionary) {
+        if (value != null) {
+          distinctValues.add(value);
+        }
+      }
+      distinctSortedColumns.add(distinctValues);
+    }
+    return distinctSortedColumns;
+  }
+
+  /**
+   * Returns the number of tuples in the input after calculating the plis.
+   *
+   * @return number of tuples in dataset
+   * @throws InputIterationException if the plis have not been calculated yet
+   */
+  public long getNumberOfTuples() throws InputIterationException {
+    if (this.numberOfTuples == -1) {
+      throw new InputIterationException();
+    }
+    return this.numberOfTuples;
+  }
+
+  protected void encodeColumns() throws InputIterationException {
+    // The first row determines the number of columns like in the PLIBuilder
+    List<List<String>> batch = new ArrayList<>(batchSize);
+    int numberOfColumns = input.numberOfColumns();
+    if (input.hasNext()) {
+      batch.add(input.next());
+      numberOfColumns = batch.get(0).size();
+    }
+    int numberOfWorkers = Math.max(1, Math.min(numberOfThreads, numberOfColumns));
+
+    List<ColumnStripeEncoder> encoders = new ArrayList<>(numberOfWorkers);
+    for (int stripe = 0; stripe < numberOfWorkers; stripe++) {
+      encoders.add(new ColumnStripeEncoder(stripe, numberOfWorkers, numberOfColumns));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfWorkers);
+    List<Future<?>> futures = new ArrayList<>(numberOfWorkers);
+    long rowCount = batch.size();
+    try {
+      for (ColumnStripeEncoder encoder : encoders) {
+        futures.add(executor.submit(encoder));
+      }
+
+      while (input.hasNext()) {
+        batch.add(input.next());
+        rowCount++;
+        if (batch.size() >= batchSize) {
+          handOver(encoders, batch);
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+      if (!batch.isEmpty()) {
+        handOver(encoders, batch);
+      }
+    } finally {
+      if (signalEndOfInput(encoders)) {
+        executor.shutdown();
+      } else {
+        executor.shutdownNow();
+      }
+    }
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InputIterationException("Interrupted while encoding the input.", e);
+      } catch (ExecutionException e) {
+        throw new InputIterationException("Could not encode the input.", e.getCause());
+      }
+    }
+
+    this.encodedColumns = new int[numberOfColumns][];
+    this.dictionaries = new ArrayList<>(numberOfColumns);
+    for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+      ColumnStripeEncoder encoder = encoders.get(columnIndex % numberOfWorkers);
+      int stripeIndex = columnIndex / numberOfWorkers;
+      this.encodedColumns[columnIndex] = encoder.encodedColumns.get(stripeIndex).toIntArray();
+      this.dictionaries.add(encoder.dictionaryValues.get(stripeIndex));
+    }
+    this.numberOfTuples = rowCount;
+  }
+
+  protected void handOver(List<ColumnStripeEncoder> encoders, List<List<String>> batch)
+    throws InputIterationException {
+    for (ColumnStripeEncoder encoder : encoders) {
+      handOver(encoder, batch);
+    }
+  }
+
+  protected void handOver(ColumnStripeEncoder encoder, List<List<String>> batch)
+    throws InputIterationException {
+    try {
+      encoder.batches.put(batch);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InputIterationException("Interrupted while reading the input.", e);
+    }
+  }
+
+  /**
+   * @param encoders the workers
+   * @return false iff the thread was interrupted before all workers have been signaled
+   */
+  protected boolean signalEndOfInput(List<ColumnStripeEncoder> encoders) {
+    try {
+      for (ColumnStripeEncoder encoder : encoders) {
+        encoder.batches.put(END_OF_INPUT);
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Builds the {@link CompactPositionListIndex} of an encoded column with a counting sort over the
+   * value ids. Clusters are ordered by value id.
+   *
+   * @param encodedColumn  the value ids of the column
+   * @param numberOfValues the number of distinct value ids
+   * @return the column's {@link CompactPositionListIndex}
+   */
+  protected static CompactPositionListIndex buildPLI(int[] encodedColumn, int numberOfValues) {
+    return buildPLI(encodedColumn, numberOfValues, NULL_ID);
+  }
+
+  /**
+   * Builds the {@link CompactPositionListIndex} of an encoded column, see {@link #buildPLI(int[],
+   * int)}. Rows with the ignored id or {@link #NULL_ID} do not belong to any cluster.
+   *
+   * @param encodedColumn  the value ids of the column
+   * @param numberOfValues the number of distinct value ids
+   * @param ignoredId      the id of the value that never shares a cluster
+   * @return the column's {@link CompactPositionListIndex}
+   */
+  protected static CompactPositionListIndex buildPLI(int[] encodedColumn, int numberOfValues,
+                                                     int ignoredId) {
+    int[] counts = new int[numberOfValues];
+    for (int id : encodedColumn) {
+      if (id != NULL_ID) {
+        counts[id]++;
+      }
+    }
+    if (ignoredId != NULL_ID) {
+      counts[ignoredId] = 0;
+    }
+
+    // Only values occurring at least twice get a cluster
+    int[] clusterStarts = new int[numberOfValues];
+    IntArrayList clusterOffsets = new IntArrayList();
+    clusterOffsets.add(0);
+    int numberOfRows = 0;
+    for (int id = 0; id < numberOfValues; id++) {
+      clusterStarts[id] = numberOfRows;
+      if (counts[id] > 1) {
+        numberOfRows += counts[id];
+        clusterOffsets.add(numberOfRows);
+      }
+    }
+
+    int[] rows = new int[numberOfRows];
+    for (int row = 0; row < encodedColumn.length; row++) {
+      int id = encodedColumn[row];
+      if (id != NULL_ID && counts[id] > 1) {
+        rows[clusterStarts[id]++] = row;
+      }
+    }
+
+    return new CompactPositionListIndex(clusterOffsets.toIntArray(), rows, null);
+  }
+
+  /**
+   * Dictionary encodes every numberOfStripes-th column starting with the given stripe.
+   */
+  protected class ColumnStripeEncoder implements Runnable {
+
+    protected BlockingQueue<List<List<String>>> batches = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    protected int firstColumn;
+    protected int numberOfStripes;
+    protected List<Object2IntOpenHashMap<String>> dictionaryIds = new ArrayList<>();
+    protected List<List<String>> dictionaryValues = new ArrayList<>();
+    protected List<IntArrayList> encodedColumns = new ArrayList<>();
+
+    public ColumnStripeEncoder(int firstColumn, int numberOfStripes, int numberOfColumns) {
+      this.firstColumn = firstColumn;
+      this.numberOfStripes = numberOfStripes;
+      for (int column = firstColumn; column < numberOfColumns; column += numberOfStripes) {
+        Object2IntOpenHashMap<String> ids = new Object2IntOpenHashMap<>();
+        ids.defaultReturnValue(NULL_ID);
+        dictionaryIds.add(ids);
+        dictionaryValues.add(new ArrayList<String>());
+        encodedColumns.add(new IntArrayList());
+      }
+    }
+
+    @Override
+    public void run() {
+      // Errors like an OutOfMemoryError of a growing dictionary are kept as well, a dead worker
+      // would block the reading thread once its queue is full
+      Throwable failure = null;
+      while (true) {
+        List<List<String>> batch;
+        try {
+          batch = batches.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        if (batch == END_OF_INPUT) {
+          break;
+        }
+        // Keep draining after a failure, so that the reading thread does not block
+        if (failure == null) {
+          try {
+            encode(batch);
+          } catch (Throwable e) {
+            failure = e;
+            // Release the partial encoding, the result is discarded anyway
+            dictionaryIds = null;
+            dictionaryValues = null;
+            encodedColumns = null;
+          }
+        }
+      }
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      }
+      if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+    }
+
+    protected void encode(List<List<String>> batch) {
+      for (int stripeIndex = 0; stripeIndex < encodedColumns.size(); stripeIndex++) {
+        int columnIndex = firstColumn + stripeIndex * numberOfStripes;
+        Object2IntOpenHashMap<String> ids = dictionaryIds.get(stripeIndex);
+        List<String> values = dictionaryValues.get(stripeIndex);
+        IntArrayList encodedColumn = encodedColumns.get(stripeIndex);
+
+        for (List<String> row : batch) {
+          String value = columnIndex < row.size() ? row.get(columnIndex) : null;
+          if (value == null && !nullEqualsNull) {
+            encodedColumn.add(NULL_ID);
+            continue;
+          }
+          int id = ids.getInt(value);
+          if (id == NULL_ID) {
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+          }
+          encodedColumn.add(id);
+        }
+      }
+    }
+  }
+}
@@ -18,6 +18,7 @@ package de.metanome.algorithm_helper.data_structures;
 import it.unimi.dsi.fastutil.longs.*;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Position list indices (or stripped partitions) are an index structure that stores the positions
@@ -27,8 +28,18 @@ import java.util.*;
  */
 public class PositionListIndex {
 
+  /**
+   * One {@link PLIIntersector} per thread, so that the intersection buffers are reused.
+   */
+  protected static final ThreadLocal<PLIIntersector> INTERSECTORS =
+    ThreadLocal.withInitial(PLIIntersector::new);
+
   protected List<LongArrayList> clusters;
   protected long rawKeyError = -1;
+  protected long fingerprint;
+  protected boolean hasFingerprint = false;
+  // The canonical form, this if the position list index is canonical, null if not yet determined
+  protected PositionListIndex canonicalForm;
 
   public PositionListIndex(List<LongArrayList> clusters) {
     this.clusters = clusters;
@@ -43,17 +54,42 @@ public class PositionListIndex {
 
   /**
    * Intersects the given PositionListIndex with this PositionListIndex returning a new
-   * PositionListIndex. For the intersection the smaller PositionListIndex is converted into a
-   * HashMap.
+   * PositionListIndex. For the intersection this PositionListIndex is written into a probing
+   * table, see {@link PLIIntersector}.
    *
    * @param otherPLI the other {@link PositionListIndex} to intersect
    * @return the intersected {@link PositionListIndex}
    */
   public PositionListIndex intersect(PositionListIndex otherPLI) {
-    //TODO Optimize Smaller PLI as Hashmap?
     return calculateIntersection(otherPLI);
   }
 
+  /**
+   * Intersects the given PositionListIndex with this PositionListIndex using the working memory of
+   * the given {@link PLIIntersector}. Callers that intersect many {@link PositionListIndex}es can
+   * use this to control the lifetime of the intersector's buffers.
+   *
+   * @param otherPLI    the other {@link PositionListIndex} to intersect
+   * @param intersector the intersector to use
+   * @return the intersected {@link PositionListIndex}
+   */
+  public PositionListIndex intersect(PositionListIndex otherPLI, PLIIntersector intersector) {
+    return calculateIntersection(otherPLI, intersector);
+  }
+
+  /**
+   * Intersects the given PositionListIndex with this PositionListIndex on the given {@link
+   * ForkJoinPool}. Small {@link PositionListIndex}es are intersected sequentially. The result is
+   * identical to {@link #intersect(PositionListIndex)}.
+   *
+   * @param otherPLI the other {@link PositionListIndex} to intersect
+   * @param pool     the pool running the parallel intersection
+   * @return the intersected {@link PositionListIndex}
+   */
+  public PositionListIndex intersect(PositionListIndex otherPLI, ForkJoinPool pool) {
+    return calculateParallelIntersection(otherPLI, pool);
+  }
+
   public List<LongArrayList> getClusters() {
     return clusters;
   }
@@ -71,120 +107,269 @@ public class PositionListIndex {
     }
 
     PositionListIndex clone = new PositionListIndex(newClusters);
-    clone.rawKeyError = this.rawKeyError;
+    clone.copyCachedValues(this);
     return clone;
   }
 
+  /**
+   * Takes over the cached raw key error, fingerprint and canonicity of a position list index with
+   * the same clusters in the same order.
+   *
+   * @param source the {@link PositionListIndex} this is a copy of
+   */
+  protected void copyCachedValues(PositionListIndex source) {
+    this.rawKeyError = source.rawKeyError;
+    this.fingerprint = source.fingerprint;
+    this.hasFingerprint = source.hasFingerprint;
+    if (source.canonicalForm == source) {
+      this.canonicalForm = this;
+    }
+  }
+
   @Override
   public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-
-    List<LongOpenHashSet> setCluster = convertClustersToSets(clusters);
-
-    Collections.sort(setCluster, new Comparator<LongSet>() {
-
-      @Override
-      public int compare(LongSet o1, LongSet o2) {
-        return o1.hashCode() - o2.hashCode();
-      }
-    });
-    result = prime * result + (setCluster.hashCode());
-    return result;
+    long fingerprint = getFingerprint();
+    return (int) (fingerprint ^ (fingerprint >>> 32));
   }
 
+  /**
+   * Two position list indices are equal iff they partition the rows into the same clusters,
+   * regardless of the order of the clusters and of the rows within the clusters. The fingerprints
+   * are compared first; only if they match both canonical forms are compared in one scan.
+   */
   @Override
   public boolean equals(Object obj) {
-
     if (this == obj) {
       return true;
     }
-    if (obj == null) {
+    if (!(obj instanceof PositionListIndex)) {
       return false;
     }
-    if (getClass() != obj.getClass()) {
+    PositionListIndex other = (PositionListIndex) obj;
+    if (getFingerprint() != other.getFingerprint()) {
       return false;
     }
-    PositionListIndex other = (PositionListIndex) obj;
-    if (clusters == null) {
-      if (other.clusters != null) {
-        return false;
+
+    return canonical().hasSameClusters(other.canonical());
+  }
+
+  /**
+   * Returns a 64 bit fingerprint of the canonical form, see {@link #getCanonicalForm()}. Equal
+   * position list indices have the same fingerprint. The fingerprint is calculated once and
+   * cached.
+   *
+   * @return the fingerprint
+   */
+  public long getFingerprint() {
+    if (!hasFingerprint) {
+      fingerprint = calculateFingerprint();
+      hasFingerprint = true;
+    }
+
+    return fingerprint;
+  }
+
+  protected long calculateFingerprint() {
+    PositionListIndex canonicalForm = canonical();
+    long fingerprint = canonicalForm.size();
+    for (int clusterIndex = 0; clusterIndex < canonicalForm.size(); clusterIndex++) {
+      int clusterSize = canonicalForm.clusterSize(clusterIndex);
+      fingerprint = HyperLogLog.hash(fingerprint + clusterSize);
+      for (int position = 0; position < clusterSize; position++) {
+        fingerprint = HyperLogLog.hash(fingerprint ^ canonicalForm.getRow(clusterIndex, position));
       }
-    } else {
-      List<LongOpenHashSet> setCluster = convertClustersToSets(clusters);
-      List<LongOpenHashSet> otherSetCluster = convertClustersToSets(other.clusters);
+    }
+    return fingerprint;
+  }
 
-      for (LongOpenHashSet cluster : setCluster) {
-        if (!otherSetCluster.contains(cluster)) {
-          return false;
-        }
+  /**
+   * @return true iff the rows of every cluster are sorted ascending and the clusters are ordered by
+   * their first row
+   */
+  public boolean isCanonical() {
+    long previousFirstRow = -1;
+    for (int clusterIndex = 0; clusterIndex < size(); clusterIndex++) {
+      if (clusterSize(clusterIndex) == 0 || getRow(clusterIndex, 0) <= previousFirstRow) {
+        return false;
       }
-      for (LongOpenHashSet cluster : otherSetCluster) {
-        if (!setCluster.contains(cluster)) {
+      previousFirstRow = getRow(clusterIndex, 0);
+      for (int position = 1; position < clusterSize(clusterIndex); position++) {
+        if (getRow(clusterIndex, position) <= getRow(clusterIndex, position - 1)) {
           return false;
         }
       }
     }
-
     return true;
   }
 
-  protected List<LongOpenHashSet> convertClustersToSets(List<LongArrayList> listCluster) {
-    List<LongOpenHashSet> setClusters = new LinkedList<>();
-    for (LongList cluster : listCluster) {
-      setClusters.add(new LongOpenHashSet(cluster));
+  /**
+   * Returns the canonical form of the position list index: the rows of every cluster are sorted
+   * ascending without duplicates and the clusters are ordered by their first row. Equal position
+   * list indices have identical canonical forms. A canonical {@link CompactPositionListIndex}
+   * returns itself.
+   *
+   * @return the canonical form
+   */
+  public CompactPositionListIndex getCanonicalForm() {
+    PositionListIndex canonicalForm = canonical();
+    if (canonicalForm instanceof CompactPositionListIndex) {
+      return (CompactPositionListIndex) canonicalForm;
     }
-
-    return setClusters;
+    return createCanonicalForm();
   }
 
   /**
-   * Intersects the two given {@link PositionListIndex} and returns the outcome as new
-   * PositionListIndex.
+   * Returns this position list index if it is canonical and its canonical form otherwise. Both the
+   * canonicity check and the canonical form are computed once and kept until the position list
+   * index is modified.
    *
-   * @param otherPLI the other {@link PositionListIndex} to intersect
-   * @return the intersected {@link PositionListIndex}
+   * @return this position list index if it is canonical, its canonical form otherwise
    */
-  protected PositionListIndex calculateIntersection(PositionListIndex otherPLI) {
-    Long2LongOpenHashMap hashedPLI = this.asHashMap();
-    Map<LongPair, LongArrayList> map = new HashMap<>();
-    buildMap(otherPLI, hashedPLI, map);
-
-    List<LongArrayList> clusters = new ArrayList<>();
-    for (LongArrayList cluster : map.values()) {
-      if (cluster.size() < 2) {
-        continue;
+  protected PositionListIndex canonical() {
+    if (canonicalForm == null) {
+      canonicalForm = isCanonical() ? this : createCanonicalForm();
+    }
+    return canonicalForm;
+  }
+
+  protected CompactPositionListIndex createCanonicalForm() {
+    List<long[]> sortedClusters = new ArrayList<>((int) size());
+    for (int clusterIndex = 0; clusterIndex < size(); clusterIndex++) {
+      long[] cluster = new long[clusterSize(clusterIndex)];
+      for (int position = 0; position < cluster.length; position++) {
+        cluster[position] = getRow(clusterIndex, position);
       }
-      clusters.add(cluster);
+      if (cluster.length > 0) {
+        Arrays.sort(cluster);
+        sortedClusters.add(removeDuplicates(cluster));
+      }
+    }
+    sortedClusters.sort((cluster1, cluster2) -> Long.compare(cluster1[0], cluster2[0]));
+
+    CompactPositionListIndex.Builder builder = new CompactPositionListIndex.Builder();
+    for (long[] cluster : sortedClusters) {
+      for (long row : cluster) {
+        builder.addRow(row);
+      }
+      builder.finishCluster();
     }
-    return new PositionListIndex(clusters);
+    CompactPositionListIndex canonicalForm = builder.build();
+    canonicalForm.rawKeyError = this.rawKeyError;
+    canonicalForm.fingerprint = this.fingerprint;
+    canonicalForm.hasFingerprint = this.hasFingerprint;
+    canonicalForm.canonicalForm = canonicalForm;
+    return canonicalForm;
   }
 
-  protected void buildMap(PositionListIndex otherPLI, Long2LongOpenHashMap hashedPLI,
-                          Map<LongPair, LongArrayList> map) {
-    long uniqueValueCount = 0;
-    for (LongArrayList sameValues : otherPLI.clusters) {
-      for (long rowCount : sameValues) {
-        if (hashedPLI.containsKey(rowCount)) {
-          LongPair pair = new LongPair(uniqueValueCount, hashedPLI.get(rowCount));
-          updateMap(map, rowCount, pair);
+  protected static long[] removeDuplicates(long[] sortedCluster) {
+    int size = 1;
+    for (int i = 1; i < sortedCluster.length; i++) {
+      if (sortedCluster[i] != sortedCluster[size - 1]) {
+        sortedCluster[size++] = sortedCluster[i];
+      }
+    }
+    return size == sortedCluster.length ? sortedCluster : Arrays.copyOf(sortedCluster, size);
+  }
+
+  /**
+   * Compares the clusters row by row in their stored order.
+   *
+   * @param other the other {@link PositionListIndex}
+   * @return true iff both position list indices store the same clusters in the same order
+   */
+  protected boolean hasSameClusters(PositionListIndex other) {
+    if (size() != other.size()) {
+      return false;
+    }
+    for (int clusterIndex = 0; clusterIndex < size(); clusterIndex++) {
+      if (clusterSize(clusterIndex) != other.clusterSize(clusterIndex)) {
+        return false;
+      }
+      for (int position = 0; position < clusterSize(clusterIndex); position++) {
+        if (getRow(clusterIndex, position) != other.getRow(clusterIndex, position)) {
+          return false;
         }
       }
-      uniqueValueCount++;
     }
+    return true;
   }
 
-  protected void updateMap(Map<LongPair, LongArrayList> map, long rowCount, LongPair pair) {
-    if (map.containsKey(pair)) {
-      LongArrayList currentList = map.get(pair);
-      currentList.add(rowCount);
-    } else {
-      LongArrayList newList = new LongArrayList();
-      newList.add(rowCount);
-      map.put(pair, newList);
+  /**
+   * Intersects the two given {@link PositionListIndex} and returns the outcome as new
+   * PositionListIndex. The intersection uses the {@link PLIIntersector} of the current thread.
+   *
+   * @param otherPLI the other {@link PositionListIndex} to intersect
+   * @return the intersected {@link PositionListIndex}
+   */
+  protected PositionListIndex calculateIntersection(PositionListIndex otherPLI) {
+    return calculateIntersection(otherPLI, INTERSECTORS.get());
+  }
+
+  /**
+   * Intersects the two given {@link PositionListIndex} using the given {@link PLIIntersector}.
+   *
+   * @param otherPLI    the other {@link PositionListIndex} to intersect
+   * @param intersector the intersector providing the working memory
+   * @return the intersected {@link PositionListIndex}
+   */
+  protected PositionListIndex calculateIntersection(PositionListIndex otherPLI,
+                                                    PLIIntersector intersector) {
+    return intersector.intersect(this, otherPLI);
+  }
+
+  /**
+   * Intersects the two given {@link PositionListIndex} in parallel, see {@link
+   * PLIIntersector#intersectParallel(PositionListIndex, PositionListIndex, ForkJoinPool)}.
+   *
+   * @param otherPLI the other {@link PositionListIndex} to intersect
+   * @param pool     the pool running the parallel intersection
+   * @return the intersected {@link PositionListIndex}
+   */
+  protected PositionListIndex calculateParallelIntersection(PositionListIndex otherPLI,
+                                                            ForkJoinPool pool) {
+    return INTERSECTORS.get().intersectParallel(this, otherPLI, pool);
+  }
+
+  /**
+   * Adds a row appended to the relation to an existing cluster in place. The cached raw key error,
+   * fingerprint and canonical form are reset.
+   *
+   * @param clusterIndex index of the cluster
+   * @param row          the appended row
+   */
+  public void addRow(int clusterIndex, long row) {
+    checkModifiable();
+    clusters.get(clusterIndex).add(row);
+    resetCachedValues();
+  }
+
+  /**
+   * Adds a new cluster in place, e.g. when an appended row has the same value as a formerly unique
+   * row. The cached raw key error, fingerprint and canonical form are reset.
+   *
+   * @param cluster the new cluster with at least two rows
+   * @return the index of the new cluster
+   */
+  public int addCluster(LongArrayList cluster) {
+    checkModifiable();
+    clusters.add(cluster);
+    resetCachedValues();
+    return clusters.size() - 1;
+  }
+
+  protected void checkModifiable() {
+    if (clusters == null) {
+      throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " cannot be modified in place.");
     }
   }
 
+  protected void resetCachedValues() {
+    rawKeyError = -1;
+    hasFingerprint = false;
+    canonicalForm = null;
+  }
+
   /**
    * Returns the position list index in a map representation. Every row index maps to a value
    * reconstruction. As the original values are unknown they are represented by a counter. The
@@ -205,6 +390,47 @@ public class PositionListIndex {
     return hashedPLI;
   }
 
+  /**
+   * Converts every cluster to a {@link RoaringBitmap}, the alternative cluster representation used
+   * by {@link PLIIntersector#intersectBitmaps(List, List)}.
+   *
+   * @return the run optimized bitmap of every cluster
+   */
+  public List<RoaringBitmap> getClusterBitmaps() {
+    int numberOfClusters = (int) size();
+    List<RoaringBitmap> bitmaps = new ArrayList<>(numberOfClusters);
+    for (int clusterIndex = 0; clusterIndex < numberOfClusters; clusterIndex++) {
+      RoaringBitmap bitmap = new RoaringBitmap();
+      for (int position = 0; position < clusterSize(clusterIndex); position++) {
+        bitmap.add(RoaringBitmap.toValue(getRow(clusterIndex, position)));
+      }
+      bitmaps.add(bitmap.runOptimize());
+    }
+    return bitmaps;
+  }
+
+  /**
+   * Returns the number of rows in the cluster with the given index. Subclasses with a different
+   * cluster representation override this together with {@link #getRow(int, int)}, so that
+   * intersections can run over any kind of {@link PositionListIndex} without materializing
+   * {@link LongArrayList}s.
+   *
+   * @param clusterIndex index of the cluster
+   * @return the cluster's size
+   */
+  protected int clusterSize(int clusterIndex) {
+    return clusters.get(clusterIndex).size();
+  }
+
+  /**
+   * @param clusterIndex index of the cluster
+   * @param position     position of the row within the cluster
+   * @return the row index stored at the given position of the cluster
+   */
+  protected long getRow(int clusterIndex, int position) {
+    return clusters.get(clusterIndex).getLong(position);
+  }
+
   /**
    * Returns the number of non unary clusters.
    *
@@ -228,6 +454,22 @@ public class PositionListIndex {
     return isEmpty();
   }
 
+  /**
+   * Estimates the heap memory occupied by the {@link PositionListIndex} in bytes (object headers,
+   * references and the row arrays including their growth slack).
+   *
+   * @return the estimated memory usage in bytes
+   */
+  public long getMemoryUsage() {
+    // PositionListIndex object, cluster list and its backing array
+    long bytes = 32 + 24 + 16 + 8L * clusters.size();
+    for (LongArrayList cluster : clusters) {
+      // LongArrayList object and backing array
+      bytes += 24 + 16 + 8L * cluster.elements().length;
+    }
+    return bytes;
+  }
+
   /**
    * Returns the number of columns to remove in order to make column unique. (raw key error)
    *
@@ -0,0 +1,766 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed bitmap of non-negative int values, e.g. the rows of a {@link PositionListIndex}
+ * cluster, in the layout of Roaring bitmaps. The values are partitioned by their upper 16 bits;
+ * the lower 16 bits of each partition are stored in a container of one of three kinds:
+ *
+ * <ul> <li>an array container holding at most {@link #MAX_ARRAY_CARDINALITY} sorted values,</li>
+ * <li>a bitmap container of 2^16 bits for dense partitions and</li> <li>a run container of
+ * (start, length) pairs for consecutive values, created by {@link #runOptimize()}.</li> </ul>
+ *
+ * Dense partitions are intersected with word-level ANDs, sparse ones by merging or probing their
+ * sorted values. The bitmap is not thread safe.
+ */
+public class RoaringBitmap {
+
+  /**
+   * Array containers with more values are converted to bitmap containers.
+   */
+  protected static final int MAX_ARRAY_CARDINALITY = 4096;
+
+  protected static final int BITMAP_WORDS = (1 << 16) / Long.SIZE;
+
+  protected char[] keys = new char[4];
+  protected Container[] containers = new Container[4];
+  protected int numberOfContainers = 0;
+
+  /**
+   * Builds a bitmap of the given rows, e.g. of a {@link PositionListIndex} cluster.
+   *
+   * @param rows the rows, each between 0 and {@link Integer#MAX_VALUE}
+   * @return the bitmap
+   */
+  public static RoaringBitmap fromRows(LongArrayList rows) {
+    RoaringBitmap bitmap = new RoaringBitmap();
+    for (int i = 0; i < rows.size(); i++) {
+      bitmap.add(toValue(rows.getLong(i)));
+    }
+    return bitmap;
+  }
+
+  protected static int toValue(long row) {
+    if (row < 0 || row > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Row " + row + " cannot be stored in a bitmap.");
+    }
+    return (int) row;
+  }
+
+  /**
+   * @param value the non-negative value to add
+   * @return the bitmap
+   */
+  public RoaringBitmap add(int value) {
+    char key = (char) (value >>> 16);
+    int index = findContainer(key);
+    if (index >= 0) {
+      containers[index] = containers[index].add((char) value);
+    } else {
+      insertContainer(-index - 1, key, new ArrayContainer().add((char) value));
+    }
+    return this;
+  }
+
+  /**
+   * @param value the value to look up
+   * @return true iff the value is contained in the bitmap
+   */
+  public boolean contains(int value) {
+    int index = findContainer((char) (value >>> 16));
+    return index >= 0 && containers[index].contains((char) value);
+  }
+
+  /**
+   * @return the number of values in the bitmap
+   */
+  public int getCardinality() {
+    int cardinality = 0;
+    for (int i = 0; i < numberOfContainers; i++) {
+      cardinality += containers[i].cardinality();
+    }
+    return cardinality;
+  }
+
+  public boolean isEmpty() {
+    return numberOfContainers == 0;
+  }
+
+  /**
+   * Intersects the two bitmaps.
+   *
+   * @param other the other bitmap
+   * @return a new bitmap of the values contained in both bitmaps
+   */
+  public RoaringBitmap and(RoaringBitmap other) {
+    RoaringBitmap result = new RoaringBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < numberOfContainers && j < other.numberOfContainers) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        Container intersection = containers[i].and(other.containers[j]);
+        if (intersection.cardinality() > 0) {
+          result.appendContainer(keys[i], intersection);
+        }
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Counts the values contained in both bitmaps without materializing the intersection.
+   *
+   * @param other the other bitmap
+   * @return the cardinality of the intersection
+   */
+  public int andCardinality(RoaringBitmap other) {
+    int cardinality = 0;
+    int i = 0;
+    int j = 0;
+    while (i < numberOfContainers && j < other.numberOfContainers) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        cardinality += containers[i].andCardinality(other.containers[j]);
+        i++;
+        j++;
+      }
+    }
+    return cardinality;
+  }
+
+  /**
+   * Unites the two bitmaps.
+   *
+   * @param other the other bitmap
+   * @return a new bitmap of the values contained in any of the bitmaps
+   */
+  public RoaringBitmap or(RoaringBitmap other) {
+    RoaringBitmap result = new RoaringBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < numberOfContainers || j < other.numberOfContainers) {
+      if (j == other.numberOfContainers
+        || (i < numberOfContainers && keys[i] < other.keys[j])) {
+        result.appendContainer(keys[i], containers[i].copy());
+        i++;
+      } else if (i == numberOfContainers || keys[i] > other.keys[j]) {
+        result.appendContainer(other.keys[j], other.containers[j].copy());
+        j++;
+      } else {
+        result.appendContainer(keys[i], containers[i].or(other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Converts every container to its smallest representation; consecutive values are stored as
+   * runs.
+   *
+   * @return the bitmap
+   */
+  public RoaringBitmap runOptimize() {
+    for (int i = 0; i < numberOfContainers; i++) {
+      containers[i] = containers[i].runOptimize();
+    }
+    return this;
+  }
+
+  /**
+   * Passes all values in ascending order to the consumer.
+   *
+   * @param consumer the consumer of the values
+   */
+  public void forEach(IntConsumer consumer) {
+    for (int i = 0; i < numberOfContainers; i++) {
+      containers[i].forEach(keys[i] << 16, consumer);
+    }
+  }
+
+  /**
+   * @return all values in ascending order
+   */
+  public int[] toArray() {
+    final int[] values = new int[getCardinality()];
+    forEach(new IntConsumer() {
+      int position = 0;
+
+      @Override
+      public void accept(int value) {
+        values[position++] = value;
+      }
+    });
+    return values;
+  }
+
+  /**
+   * @return all values in ascending order as cluster of a {@link PositionListIndex}
+   */
+  public LongArrayList toRows() {
+    final LongArrayList rows = new LongArrayList(getCardinality());
+    forEach(rows::add);
+    return rows;
+  }
+
+  /**
+   * Estimates the heap memory occupied by the bitmap in bytes.
+   *
+   * @return the estimated memory usage in bytes
+   */
+  public long getMemoryUsage() {
+    long bytes = 24 + 16 + 2L * keys.length + 16 + 8L * containers.length;
+    for (int i = 0; i < numberOfContainers; i++) {
+      bytes += containers[i].getMemoryUsage();
+    }
+    return bytes;
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(toArray());
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof RoaringBitmap)) {
+      return false;
+    }
+    return Arrays.equals(toArray(), ((RoaringBitmap) obj).toArray());
+  }
+
+  @Override
+  public String toString() {
+    return "RoaringBitmap" + Arrays.toString(toArray());
+  }
+
+  /**
+   * @param key the upper 16 bits
+   * @return the index of the container or (-(insertion point) - 1)
+   */
+  protected int findContainer(char key) {
+    // Values are usually added in ascending order
+    if (numberOfContainers > 0 && keys[numberOfContainers - 1] == key) {
+      return numberOfContainers - 1;
+    }
+    return Arrays.binarySearch(keys, 0, numberOfContainers, key);
+  }
+
+  protected void insertContainer(int index, char key, Container container) {
+    if (numberOfContainers == keys.length) {
+      keys = Arrays.copyOf(keys, keys.length * 2);
+      containers = Arrays.copyOf(containers, containers.length * 2);
+    }
+    System.arraycopy(keys, index, keys, index + 1, numberOfContainers - index);
+    System.arraycopy(containers, index, containers, index + 1, numberOfContainers - index);
+    keys[index] = key;
+    containers[index] = container;
+    numberOfContainers++;
+  }
+
+  protected void appendContainer(char key, Container container) {
+    insertContainer(numberOfContainers, key, container);
+  }
+
+  /**
+   * Stores the lower 16 bits of the values of one partition. Operations that change the kind of
+   * container return the new container.
+   */
+  protected abstract static class Container {
+
+    public abstract Container add(char value);
+
+    public abstract boolean contains(char value);
+
+    public abstract int cardinality();
+
+    public abstract Container and(Container other);
+
+    public abstract int andCardinality(Container other);
+
+    public abstract BitmapContainer toBitmap();
+
+    public abstract Container runOptimize();
+
+    public abstract Container copy();
+
+    public abstract void forEach(int high, IntConsumer consumer);
+
+    public abstract long getMemoryUsage();
+
+    public Container or(Container other) {
+      BitmapContainer union = toBitmap();
+      union.orInPlace(other);
+      return union.shrink();
+    }
+
+    /**
+     * @return a run container if it is smaller than this container, this container otherwise
+     */
+    protected Container toRunsIfSmaller(int numberOfRuns, long memoryUsage) {
+      if (RunContainer.getMemoryUsage(numberOfRuns) >= memoryUsage) {
+        return this;
+      }
+      RunContainer runs = new RunContainer(numberOfRuns);
+      forEach(0, runs::append);
+      return runs;
+    }
+  }
+
+  protected static class ArrayContainer extends Container {
+
+    protected char[] values;
+    protected int cardinality = 0;
+
+    public ArrayContainer() {
+      this(4);
+    }
+
+    public ArrayContainer(int capacity) {
+      this.values = new char[Math.max(1, capacity)];
+    }
+
+    @Override
+    public Container add(char value) {
+      // Fast path for ascending values
+      int index = cardinality > 0 && values[cardinality - 1] < value ? -cardinality - 1
+        : Arrays.binarySearch(values, 0, cardinality, value);
+      if (index >= 0) {
+        return this;
+      }
+      if (cardinality == MAX_ARRAY_CARDINALITY) {
+        return toBitmap().add(value);
+      }
+      index = -index - 1;
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(values.length * 2, MAX_ARRAY_CARDINALITY));
+      }
+      System.arraycopy(values, index, values, index + 1, cardinality - index);
+      values[index] = value;
+      cardinality++;
+      return this;
+    }
+
+    /**
+     * Appends a value larger than all contained values.
+     */
+    protected void append(char value) {
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, values.length * 2);
+      }
+      values[cardinality++] = value;
+    }
+
+    @Override
+    public boolean contains(char value) {
+      return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+    }
+
+    @Override
+    public int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    public Container and(Container other) {
+      ArrayContainer intersection = new ArrayContainer(cardinality);
+      if (other instanceof ArrayContainer) {
+        ArrayContainer otherArray = (ArrayContainer) other;
+        int i = 0;
+        int j = 0;
+        while (i < cardinality && j < otherArray.cardinality) {
+          if (values[i] < otherArray.values[j]) {
+            i++;
+          } else if (values[i] > otherArray.values[j]) {
+            j++;
+          } else {
+            intersection.append(values[i]);
+            i++;
+            j++;
+          }
+        }
+      } else {
+        for (int i = 0; i < cardinality; i++) {
+          if (other.contains(values[i])) {
+            intersection.append(values[i]);
+          }
+        }
+      }
+      return intersection;
+    }
+
+    @Override
+    public int andCardinality(Container other) {
+      return and(other).cardinality();
+    }
+
+    @Override
+    public Container or(Container other) {
+      if (!(other instanceof ArrayContainer)
+        || cardinality + other.cardinality() > MAX_ARRAY_CARDINALITY) {
+        return super.or(other);
+      }
+      ArrayContainer otherArray = (ArrayContainer) other;
+      ArrayContainer union = new ArrayContainer(cardinality + otherArray.cardinality);
+      int i = 0;
+      int j = 0;
+      while (i < cardinality || j < otherArray.cardinality) {
+        if (j == otherArray.cardinality
+          || (i < cardinality && values[i] < otherArray.values[j])) {
+          union.append(values[i++]);
+        } else if (i == cardinality || values[i] > otherArray.values[j]) {
+          union.append(otherArray.values[j++]);
+        } else {
+          union.append(values[i]);
+          i++;
+          j++;
+        }
+      }
+      return union;
+    }
+
+    @Override
+    public BitmapContainer toBitmap() {
+      BitmapContainer bitmap = new BitmapContainer();
+      for (int i = 0; i < cardinality; i++) {
+        bitmap.add(values[i]);
+      }
+      return bitmap;
+    }
+
+    @Override
+    public Container runOptimize() {
+      int numberOfRuns = 0;
+      for (int i = 0; i < cardinality; i++) {
+        if (i == 0 || values[i] != values[i - 1] + 1) {
+          numberOfRuns++;
+        }
+      }
+      return toRunsIfSmaller(numberOfRuns, getMemoryUsage());
+    }
+
+    @Override
+    public Container copy() {
+      ArrayContainer copy = new ArrayContainer(0);
+      copy.values = Arrays.copyOf(values, values.length);
+      copy.cardinality = cardinality;
+      return copy;
+    }
+
+    @Override
+    public void forEach(int high, IntConsumer consumer) {
+      for (int i = 0; i < cardinality; i++) {
+        consumer.accept(high | values[i]);
+      }
+    }
+
+    @Override
+    public long getMemoryUsage() {
+      return 24 + 16 + 2L * values.length;
+    }
+  }
+
+  protected static class BitmapContainer extends Container {
+
+    protected long[] words = new long[BITMAP_WORDS];
+    protected int cardinality = 0;
+
+    @Override
+    public Container add(char value) {
+      long mask = 1L << value;
+      int wordIndex = value >>> 6;
+      if ((words[wordIndex] & mask) == 0) {
+        words[wordIndex] |= mask;
+        cardinality++;
+      }
+      return this;
+    }
+
+    /**
+     * Sets all values from start to end (inclusive).
+     */
+    protected void addRange(int start, int end) {
+      int startWord = start >>> 6;
+      int endWord = end >>> 6;
+      for (int wordIndex = startWord; wordIndex <= endWord; wordIndex++) {
+        long mask = -1L;
+        if (wordIndex == startWord) {
+          mask &= -1L << start;
+        }
+        if (wordIndex == endWord) {
+          mask &= -1L >>> (Long.SIZE - 1 - (end & 63));
+        }
+        cardinality += Long.bitCount(mask & ~words[wordIndex]);
+        words[wordIndex] |= mask;
+      }
+    }
+
+    @Override
+    public boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    public int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    public Container and(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.and(this);
+      }
+      long[] otherWords = toWords(other);
+      BitmapContainer intersection = new BitmapContainer();
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        intersection.words[i] = words[i] & otherWords[i];
+        intersection.cardinality += Long.bitCount(intersection.words[i]);
+      }
+      return intersection.shrink();
+    }
+
+    @Override
+    public int andCardinality(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.andCardinality(this);
+      }
+      long[] otherWords = toWords(other);
+      int cardinality = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        cardinality += Long.bitCount(words[i] & otherWords[i]);
+      }
+      return cardinality;
+    }
+
+    protected static long[] toWords(Container container) {
+      if (container instanceof BitmapContainer) {
+        return ((BitmapContainer) container).words;
+      }
+      return container.toBitmap().words;
+    }
+
+    protected void orInPlace(Container other) {
+      if (other instanceof ArrayContainer) {
+        ArrayContainer otherArray = (ArrayContainer) other;
+        for (int i = 0; i < otherArray.cardinality; i++) {
+          add(otherArray.values[i]);
+        }
+        return;
+      }
+      long[] otherWords = toWords(other);
+      cardinality = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        words[i] |= otherWords[i];
+        cardinality += Long.bitCount(words[i]);
+      }
+    }
+
+    /**
+     * @return an array container if the cardinality allows, this container otherwise
+     */
+    protected Container shrink() {
+      if (cardinality > MAX_ARRAY_CARDINALITY) {
+        return this;
+      }
+      ArrayContainer array = new ArrayContainer(cardinality);
+      forEach(0, value -> array.append((char) value));
+      return array;
+    }
+
+    @Override
+    public BitmapContainer toBitmap() {
+      return (BitmapContainer) copy();
+    }
+
+    @Override
+    public Container runOptimize() {
+      int numberOfRuns = 0;
+      long previousWord = 0;
+      for (long word : words) {
+        // Bits that are set while their predecessor is not start a run
+        numberOfRuns += Long.bitCount(word & ~((word << 1) | (previousWord >>> 63)));
+        previousWord = word;
+      }
+      return toRunsIfSmaller(numberOfRuns, getMemoryUsage());
+    }
+
+    @Override
+    public Container copy() {
+      BitmapContainer copy = new BitmapContainer();
+      System.arraycopy(words, 0, copy.words, 0, BITMAP_WORDS);
+      copy.cardinality = cardinality;
+      return copy;
+    }
+
+    @Override
+    public void forEach(int high, IntConsumer consumer) {
+      for (int wordIndex = 0; wordIndex < BITMAP_WORDS; wordIndex++) {
+        long word = words[wordIndex];
+        while (word != 0) {
+          consumer.accept(high | (wordIndex << 6) | Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    public long getMemoryUsage() {
+      return 24 + 16 + 8L * BITMAP_WORDS;
+    }
+  }
+
+  protected static class RunContainer extends Container {
+
+    // Run i covers the values starts[i] to starts[i] + lengths[i] (inclusive)
+    protected char[] starts;
+    protected char[] lengths;
+    protected int numberOfRuns = 0;
+
+    public RunContainer(int capacity) {
+      this.starts = new char[Math.max(1, capacity)];
+      this.lengths = new char[Math.max(1, capacity)];
+    }
+
+    protected static long getMemoryUsage(int numberOfRuns) {
+      return 24 + 2 * (16 + 2L * numberOfRuns);
+    }
+
+    /**
+     * Appends a value larger than all contained values.
+     */
+    protected void append(int value) {
+      if (numberOfRuns > 0 && starts[numberOfRuns - 1] + lengths[numberOfRuns - 1] + 1 == value) {
+        lengths[numberOfRuns - 1]++;
+        return;
+      }
+      if (numberOfRuns == starts.length) {
+        starts = Arrays.copyOf(starts, numberOfRuns * 2);
+        lengths = Arrays.copyOf(lengths, numberOfRuns * 2);
+      }
+      starts[numberOfRuns] = (char) value;
+      lengths[numberOfRuns] = 0;
+      numberOfRuns++;
+    }
+
+    @Override
+    public Container add(char value) {
+      if (contains(value)) {
+        return this;
+      }
+      Container container = cardinality() < MAX_ARRAY_CARDINALITY ? toArray() : toBitmap();
+      return container.add(value);
+    }
+
+    protected ArrayContainer toArray() {
+      ArrayContainer array = new ArrayContainer(cardinality());
+      forEach(0, value -> array.append((char) value));
+      return array;
+    }
+
+    @Override
+    public boolean contains(char value) {
+      int index = Arrays.binarySearch(starts, 0, numberOfRuns, value);
+      if (index >= 0) {
+        return true;
+      }
+      // The run starting before the value
+      index = -index - 2;
+      return index >= 0 && value <= starts[index] + lengths[index];
+    }
+
+    @Override
+    public int cardinality() {
+      int cardinality = numberOfRuns;
+      for (int i = 0; i < numberOfRuns; i++) {
+        cardinality += lengths[i];
+      }
+      return cardinality;
+    }
+
+    @Override
+    public Container and(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.and(this);
+      }
+      return toBitmap().and(other);
+    }
+
+    @Override
+    public int andCardinality(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.andCardinality(this);
+      }
+      return toBitmap().andCardinality(other);
+    }
+
+    @Override
+    public BitmapContainer toBitmap() {
+      BitmapContainer bitmap = new BitmapContainer();
+      for (int i = 0; i < numberOfRuns; i++) {
+        bitmap.addRange(starts[i], starts[i] + lengths[i]);
+      }
+      return bitmap;
+    }
+
+    @Override
+    public Container runOptimize() {
+      return this;
+    }
+
+    @Override
+    public Container copy() {
+      RunContainer copy = new RunContainer(0);
+      copy.starts = Arrays.copyOf(starts, starts.length);
+      copy.lengths = Arrays.copyOf(lengths, lengths.length);
+      copy.numberOfRuns = numberOfRuns;
+      return copy;
+    }
+
+    @Override
+    public void forEach(int high, IntConsumer consumer) {
+      for (int i = 0; i < numberOfRuns; i++) {
+        int end = starts[i] + lengths[i];
+        for (int value = starts[i]; value <= end; value++) {
+          consumer.accept(high | value);
+        }
+      }
+    }
+
+    @Override
+    public long getMemoryUsage() {
+      return getMemoryUsage(starts.length);
+    }
+  }
+}
@@ -15,9 +15,16 @@
  */
 package de.metanome.algorithm_helper.data_structures;
 
+import de.metanome.algorithm_integration.algorithm_execution.FileCreationException;
+import de.metanome.algorithm_integration.algorithm_execution.FileGenerator;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -41,7 +48,7 @@ public class SubSetGraph {
   public SubSetGraph add(ColumnCombinationBitset columnCombination) {
     SubSetGraph subGraph = this;
 
-    for (int setColumnIndex : columnCombination.getSetBits()) {
+    for (int setColumnIndex : columnCombination.toArray()) {
       subGraph = subGraph.lazySubGraphGeneration(setColumnIndex);
     }
     subGraph.subSetEnds = true;
@@ -63,6 +70,38 @@ public class SubSetGraph {
     return this;
   }
 
+  /**
+   * Removes a column combination from the graph. Branches that no longer lead to a column
+   * combination are removed as well. Returns the graph after removing.
+   *
+   * @param columnCombination a column combination to remove
+   * @return the graph
+   */
+  public SubSetGraph remove(ColumnCombinationBitset columnCombination) {
+    remove(columnCombination.toArray(), 0);
+    return this;
+  }
+
+  /**
+   * @return true iff the column combination was found
+   */
+  protected boolean remove(int[] setColumnIndices, int depth) {
+    if (depth == setColumnIndices.length) {
+      boolean found = subSetEnds;
+      subSetEnds = false;
+      return found;
+    }
+    SubSetGraph subGraph = subGraphs.get(setColumnIndices[depth]);
+    if (subGraph == null || !subGraph.remove(setColumnIndices, depth + 1)) {
+      return false;
+    }
+    // Empty subgraphs are interpreted as ends of subsets
+    if (subGraph.isEmpty() && !subGraph.subSetEnds) {
+      subGraphs.remove(setColumnIndices[depth]);
+    }
+    return true;
+  }
+
   /**
    * Looks for the subgraph or builds and adds a new one.
    *
@@ -92,6 +131,7 @@ public class SubSetGraph {
     if (this.isEmpty()) {
       return subsets;
     }
+    int[] columnIndices = columnCombinationToQuery.toArray();
     // Create task queue and initial task.
     Queue<SubSetFindTask> openTasks = new LinkedList<>();
     openTasks.add(new SubSetFindTask(this, 0, new ColumnCombinationBitset()));
@@ -109,8 +149,8 @@ public class SubSetGraph {
       }
 
       // Iterate over the remaining column indices
-      for (int i = currentTask.numberOfCheckedColumns; i < columnCombinationToQuery.size(); i++) {
-        int currentColumnIndex = columnCombinationToQuery.getSetBits().get(i);
+      for (int i = currentTask.numberOfCheckedColumns; i < columnIndices.length; i++) {
+        int currentColumnIndex = columnIndices[i];
         // Get the subgraph behind the current index
         SubSetGraph subGraph =
           currentTask.subGraph.subGraphs.get(currentColumnIndex);
@@ -141,6 +181,7 @@ public class SubSetGraph {
     if (this.isEmpty()) {
       return false;
     }
+    int[] columnIndices = superset.toArray();
     Queue<SubSetFindTask> openTasks = new LinkedList<>();
     openTasks.add(new SubSetFindTask(this, 0, new ColumnCombinationBitset()));
 
@@ -156,8 +197,8 @@ public class SubSetGraph {
       }
 
       // Iterate over the remaining column indices
-      for (int i = currentTask.numberOfCheckedColumns; i < superset.size(); i++) {
-        int currentColumnIndex = superset.getSetBits().get(i);
+      for (int i = currentTask.numberOfCheckedColumns; i < columnIndices.length; i++) {
+        int currentColumnIndex = columnIndices[i];
         // Get the subgraph behind the current index
         SubSetGraph subGraph =
           currentTask.subGraph.subGraphs.get(currentColumnIndex);
@@ -177,50 +218,159 @@ public class SubSetGraph {
   }
 
   /**
-   * The method returns all minimal subsets contained in the graph using a breadth-first search
-   * pattern. Non minimal subsets are not traversed.
+   * Answers {@link #containsSubset(ColumnCombinationBitset)} for all candidates at once. The
+   * candidates are put into a trie of their own, which is traversed simultaneously with the graph,
+   * so common prefixes of the candidates are only matched once. As soon as a subset is found for a
+   * candidate trie node, all candidates below that node are answered.
    *
-   * @return a list containing all minimal subsets
+   * @param candidates the potential supersets
+   * @return a bitmap with bit i set iff the graph contains a subset of candidate i
    */
-  public Set<ColumnCombinationBitset> getMinimalSubsets() {
+  public BitSet containsSubsets(List<ColumnCombinationBitset> candidates) {
+    BitSet result = new BitSet(candidates.size());
     if (this.isEmpty()) {
-      return new TreeSet<>();
+      return result;
     }
 
-    SubSetGraph graph = new SubSetGraph();
-    TreeSet<ColumnCombinationBitset> result = new TreeSet<>();
-    TreeSet<SubSetFindTask> openTasks = new TreeSet<>();
-    openTasks.add(new SubSetFindTask(this, 0, new ColumnCombinationBitset()));
+    CandidateTrie candidateTrie = new CandidateTrie();
+    for (int candidateIndex = 0; candidateIndex < candidates.size(); candidateIndex++) {
+      candidateTrie.add(candidates.get(candidateIndex), candidateIndex);
+    }
 
-    while (!openTasks.isEmpty()) {
-      SubSetFindTask currentTask = openTasks.pollFirst();
-      if (currentTask.subGraph.subSetEnds) {
-        if (!graph.containsSubset(currentTask.path)) {
-          graph.add(currentTask.path);
-          result.add(currentTask.path);
-        }
-      } else {
-        // Iterate over the remaining column indices
-        for (int bitNumber : currentTask.subGraph.subGraphs.keySet()) {
-          // Get the subgraph behind the current index
-          SubSetGraph subGraph =
-            currentTask.subGraph.subGraphs.get(bitNumber);
-          // column index is not set on any set --> check next column index
-          if (subGraph != null) {
-            // Add the current column index to the path
-            ColumnCombinationBitset path =
-              new ColumnCombinationBitset(currentTask.path)
-                .addColumn(bitNumber);
-
-            openTasks
-              .add(new SubSetFindTask(subGraph, bitNumber + 1, path));
-          }
+    // Pairs of graph node and candidate node whose paths are a subset and a superset
+    List<SubSetGraph> openGraphNodes = new ArrayList<>();
+    List<CandidateTrie> openCandidateNodes = new ArrayList<>();
+    openGraphNodes.add(this);
+    openCandidateNodes.add(candidateTrie);
+
+    while (!openGraphNodes.isEmpty()) {
+      SubSetGraph graphNode = openGraphNodes.remove(openGraphNodes.size() - 1);
+      CandidateTrie candidateNode = openCandidateNodes.remove(openCandidateNodes.size() - 1);
+      if (candidateNode.answered) {
+        continue;
+      }
+      if (graphNode.subSetEnds || graphNode.isEmpty()) {
+        candidateNode.answer(result);
+        continue;
+      }
+
+      for (Int2ObjectMap.Entry<CandidateTrie> child : candidateNode.children.int2ObjectEntrySet()) {
+        // The candidate column is not part of the subset
+        openGraphNodes.add(graphNode);
+        openCandidateNodes.add(child.getValue());
+        // The candidate column is part of the subset
+        SubSetGraph graphChild = graphNode.subGraphs.get(child.getIntKey());
+        if (graphChild != null) {
+          openGraphNodes.add(graphChild);
+          openCandidateNodes.add(child.getValue());
         }
       }
     }
+
     return result;
   }
 
+  /**
+   * The method returns all minimal subsets contained in the graph. Paths below a contained column
+   * combination are not traversed, the remaining column combinations are minimized with the {@link
+   * ColumnCombinationMinimizer}.
+   *
+   * @return a set containing all minimal subsets
+   */
+  public Set<ColumnCombinationBitset> getMinimalSubsets() {
+    if (this.isEmpty()) {
+      return new TreeSet<>();
+    }
+
+    List<ColumnCombinationBitset> candidates = new ArrayList<>();
+    collectMinimalPaths(new ColumnCombinationBitset(), candidates);
+    return new TreeSet<>(ColumnCombinationMinimizer.minimize(candidates));
+  }
+
+  /**
+   * Collects the contained column combinations that are not below another contained column
+   * combination on their path.
+   *
+   * @param path       the path to this graph
+   * @param candidates the list receiving the column combinations
+   */
+  protected void collectMinimalPaths(ColumnCombinationBitset path,
+                                     List<ColumnCombinationBitset> candidates) {
+    if (subSetEnds) {
+      candidates.add(path);
+      return;
+    }
+    for (Int2ObjectMap.Entry<SubSetGraph> entry : subGraphs.int2ObjectEntrySet()) {
+      entry.getValue().collectMinimalPaths(
+        new ColumnCombinationBitset(path).addColumn(entry.getIntKey()), candidates);
+    }
+  }
+
+  /**
+   * Writes all column combinations of the graph to a new temporary file of the {@link
+   * FileGenerator}, see {@link #dump(File)}.
+   *
+   * @param fileGenerator the generator providing the temporary file
+   * @return the file containing the graph
+   * @throws FileCreationException if the file cannot be created or written
+   */
+  public File dump(FileGenerator fileGenerator) throws FileCreationException {
+    File file = fileGenerator.getTemporaryFile();
+    try {
+      dump(file);
+    } catch (IOException e) {
+      throw new FileCreationException("Could not write the graph file.", e);
+    }
+    return file;
+  }
+
+  /**
+   * Writes all column combinations of the graph in depth-first order with the {@link
+   * ColumnCombinationCodec}. The graph can be restored with {@link #load(File)}.
+   *
+   * @param file the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void dump(File file) throws IOException {
+    try (ColumnCombinationCodec.Writer writer =
+           new ColumnCombinationCodec.Writer(new FileOutputStream(file))) {
+      dump(new IntArrayList(), writer);
+    }
+  }
+
+  protected void dump(IntArrayList path, ColumnCombinationCodec.Writer writer)
+    throws IOException {
+    if (subSetEnds) {
+      writer.write(path.elements(), path.size());
+    }
+    int[] columnIndices = subGraphs.keySet().toIntArray();
+    Arrays.sort(columnIndices);
+    for (int columnIndex : columnIndices) {
+      path.add(columnIndex);
+      subGraphs.get(columnIndex).dump(path, writer);
+      path.popInt();
+    }
+  }
+
+  /**
+   * Reads a graph written by {@link #dump(File)}.
+   *
+   * @param file the file to read
+   * @return the graph containing all column combinations of the file
+   * @throws IOException if the file cannot be read
+   */
+  public static SubSetGraph load(File file) throws IOException {
+    SubSetGraph graph = new SubSetGraph();
+    try (ColumnCombinationCodec.Reader reader =
+           new ColumnCombinationCodec.Reader(new FileInputStream(file))) {
+      ColumnCombinationBitset columnCombination;
+      while ((columnCombination = reader.read()) != null) {
+        graph.add(columnCombination);
+      }
+    }
+    return graph;
+  }
+
   /**
    * @return whether the graph is empty
    */
@@ -271,3 +421,48 @@ class SubSetFindTask implements Comparable<SubSetFindTask> {
     return this.path.compareTo(o.path);
   }
 }
+
+/**
+ * Trie of the candidates of a batched query, see {@link SubSetGraph#containsSubsets(List)}.
+ */
+class CandidateTrie {
+
+  public Int2ObjectMap<CandidateTrie> children = new Int2ObjectOpenHashMap<>();
+  // Indices of the candidates ending at this node
+  public IntArrayList candidateIndices = new IntArrayList();
+  public boolean answered = false;
+
+  public void add(ColumnCombinationBitset candidate, int candidateIndex) {
+    CandidateTrie node = this;
+    for (int columnIndex : candidate.toArray()) {
+      CandidateTrie child = node.children.get(columnIndex);
+      if (child == null) {
+        child = new CandidateTrie();
+        node.children.put(columnIndex, child);
+      }
+      node = child;
+    }
+    node.candidateIndices.add(candidateIndex);
+  }
+
+  /**
+   * Sets the bits of all candidates in this subtrie.
+   *
+   * @param result the bitmap to set the bits in
+   */
+  public void answer(BitSet result) {
+    List<CandidateTrie> openNodes = new ArrayList<>();
+    openNodes.add(this);
+    while (!openNodes.isEmpty()) {
+      CandidateTrie node = openNodes.remove(openNodes.size() - 1);
+      if (node.answered) {
+        continue;
+      }
+      node.answered = true;
+      for (int candidateIndex : node.candidateIndices) {
+        result.set(candidateIndex);
+      }
+      openNodes.addAll(node.children.values());
+    }
+  }
+}
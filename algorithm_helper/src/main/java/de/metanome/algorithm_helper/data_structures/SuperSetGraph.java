@@ -16,7 +16,11 @@
 package de.metanome.algorithm_helper.data_structures;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * A graph that allows for efficient lookup of all supersets in a graph structure for a given {@link
@@ -95,6 +99,35 @@ public class SuperSetGraph {
     return graph.containsSubset(subset.invert(numberOfColumns));
   }
 
+  /**
+   * Answers {@link #containsSuperset(ColumnCombinationBitset)} for all candidates at once, see
+   * {@link SubSetGraph#containsSubsets(List)}.
+   *
+   * @param candidates the potential subsets
+   * @return a bitmap with bit i set iff the graph contains a superset of candidate i
+   */
+  public BitSet containsSupersets(List<ColumnCombinationBitset> candidates) {
+    List<ColumnCombinationBitset> invertedCandidates = new ArrayList<>(candidates.size());
+    for (ColumnCombinationBitset candidate : candidates) {
+      invertedCandidates.add(candidate.invert(numberOfColumns));
+    }
+    return graph.containsSubsets(invertedCandidates);
+  }
+
+  /**
+   * Returns all maximal supersets contained in the graph, i.e. the inverted minimal subsets of the
+   * underlying {@link SubSetGraph}.
+   *
+   * @return a set containing all maximal supersets
+   */
+  public Set<ColumnCombinationBitset> getMaximalSupersets() {
+    Set<ColumnCombinationBitset> result = new TreeSet<>();
+    for (ColumnCombinationBitset invertedColumns : graph.getMinimalSubsets()) {
+      result.add(invertedColumns.invert(numberOfColumns));
+    }
+    return result;
+  }
+
   /**
    * @return whether the graph is empty
    */
@@ -15,6 +15,7 @@
  */
 package de.metanome.algorithm_helper.data_structures;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
@@ -33,6 +34,7 @@ import org.hamcrest.collection.IsIterableContainingInAnyOrder;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 import de.metanome.algorithm_integration.ColumnCombination;
 import de.metanome.algorithm_integration.ColumnIdentifier;
@@ -54,7 +56,7 @@ public class ColumnCombinationBitsetTest {
 
     // Execute functionality
     // Check result
-    assertTrue(columnCombination.bitset != null);
+    assertTrue(columnCombination.toBitSet() != null);
   }
 
   /**
@@ -78,7 +80,7 @@ public class ColumnCombinationBitsetTest {
     assertEquals(expectedFirstColumnCombination, actualCopy);
     expectedFirstColumnCombination.removeColumn(3);
     // Column 3 should still be set on copy.
-    assertTrue(actualCopy.bitset.get(3));
+    assertTrue(actualCopy.containsColumn(3));
   }
 
   /**
@@ -97,7 +99,7 @@ public class ColumnCombinationBitsetTest {
     expected.set(3);
     
     // Check result
-    assertEquals(expected, columnCombination.bitset);
+    assertEquals(expected, columnCombination.toBitSet());
     assertEquals(2, columnCombination.size());
   }
 
@@ -120,7 +122,7 @@ public class ColumnCombinationBitsetTest {
     columnCombination.setColumns(expected);
 
     // Check result
-    assertEquals(expected, columnCombination.bitset);
+    assertEquals(expected, columnCombination.toBitSet());
   }
 
   /**
@@ -159,17 +161,17 @@ public class ColumnCombinationBitsetTest {
     // Setup
     int[] subSetColumns = {0, 3};
     ColumnCombinationBitset subSet = new ColumnCombinationBitset(subSetColumns);
-    BitSet expectedSubSetBitSet = (BitSet) subSet.bitset.clone();
+    BitSet expectedSubSetBitSet = subSet.toBitSet();
     int[] superSetColumns = {0, 2, 3};
     ColumnCombinationBitset superSet = new ColumnCombinationBitset(superSetColumns);
-    BitSet expectedSuperSetBitSet = (BitSet) superSet.bitset.clone();
+    BitSet expectedSuperSetBitSet = superSet.toBitSet();
 
     // Execute functionality
     superSet.containsSubset(subSet);
 
     // Check result
-    assertEquals(expectedSuperSetBitSet, superSet.bitset);
-    assertEquals(expectedSubSetBitSet, subSet.bitset);
+    assertEquals(expectedSuperSetBitSet, superSet.toBitSet());
+    assertEquals(expectedSubSetBitSet, subSet.toBitSet());
   }
 
   /**
@@ -627,6 +629,35 @@ public class ColumnCombinationBitsetTest {
       IsIterableContainingInAnyOrder.containsInAnyOrder(fixture.getExpectedBits1()));
   }
 
+  /**
+   * Test method for {@link ColumnCombinationBitset#toArray()}, {@link
+   * ColumnCombinationBitset#forEachSetBit(java.util.function.IntConsumer)} and {@link
+   * ColumnCombinationBitset#setBitIterator()} <p/> All should return the set bits in ascending
+   * order, the array should be cached until the column combination is modified.
+   */
+  @Test
+  public void testSetBitIteration() {
+    // Setup
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(70, 3, 0, 63, 64);
+    // Expected values
+    int[] expectedSetBits = {0, 3, 63, 64, 70};
+
+    // Execute functionality
+    int[] actualSetBits = columnCombination.toArray();
+    IntArrayList iteratedSetBits = new IntArrayList();
+    columnCombination.forEachSetBit(iteratedSetBits::add);
+    IntArrayList iteratorSetBits = new IntArrayList(columnCombination.setBitIterator());
+
+    // Check result
+    assertArrayEquals(expectedSetBits, actualSetBits);
+    assertSame(actualSetBits, columnCombination.toArray());
+    assertArrayEquals(expectedSetBits, iteratedSetBits.toIntArray());
+    assertArrayEquals(expectedSetBits, iteratorSetBits.toIntArray());
+    assertArrayEquals(new int[]{0, 3, 63, 70}, columnCombination.removeColumn(64).toArray());
+    assertArrayEquals(new int[0], new ColumnCombinationBitset().toArray());
+    assertFalse(new ColumnCombinationBitset().setBitIterator().hasNext());
+  }
+
   /**
    * Test method for {@link ColumnCombinationBitset#getClearedBits(int)} <p/> Returns all the
    * cleared bits within the maximum of all the number of columns.
@@ -659,8 +690,8 @@ public class ColumnCombinationBitsetTest {
     columnCombination.addColumn(2);
     // Check result
     assertEquals(fixture.getExpectedSize1() + 1, columnCombination.size());
-    assertTrue(columnCombination.bitset.get(256));
-    assertTrue(columnCombination.bitset.get(2));
+    assertTrue(columnCombination.containsColumn(256));
+    assertTrue(columnCombination.containsColumn(2));
   }
 
   /**
@@ -677,7 +708,7 @@ public class ColumnCombinationBitsetTest {
 
     // Check result
     assertEquals(1, columnCombination.size());
-    assertTrue(columnCombination.bitset.get(64));
+    assertTrue(columnCombination.containsColumn(64));
   }
 
   /**
@@ -698,8 +729,8 @@ public class ColumnCombinationBitsetTest {
       .removeColumn(362);
     // Check result
     assertEquals(expectedSize - 1, columnCombination.size());
-    assertFalse(columnCombination.bitset.get(2));
-    assertFalse(columnCombination.bitset.get(362));
+    assertFalse(columnCombination.containsColumn(2));
+    assertFalse(columnCombination.containsColumn(362));
     // Should return this after remove
     assertSame(columnCombination, afterRemove);
   }
@@ -1012,4 +1043,42 @@ public class ColumnCombinationBitsetTest {
 
     testerSet3.performCompareToTestEqual(set5);
   }
+
+  /**
+   * Test method for {@link ColumnCombinationBitset#union(ColumnCombinationBitset)}, {@link
+   * ColumnCombinationBitset#minus(ColumnCombinationBitset)} and {@link
+   * ColumnCombinationBitset#removeColumn(int)} <p/> Column combinations with columns beyond the
+   * first long word should equal single word column combinations once these columns are removed.
+   */
+  @Test
+  public void testWideColumnCombinations() {
+    // Setup
+    ColumnCombinationBitset narrow = new ColumnCombinationBitset(1, 63);
+    ColumnCombinationBitset wide = new ColumnCombinationBitset(64, 130);
+    // Expected values
+    ColumnCombinationBitset expectedUnion = new ColumnCombinationBitset(1, 63, 64, 130);
+
+    // Execute functionality
+    ColumnCombinationBitset actualUnion = narrow.union(wide);
+    ColumnCombinationBitset actualDifference = actualUnion.minus(wide);
+    ColumnCombinationBitset removed = new ColumnCombinationBitset(actualUnion)
+      .removeColumn(64).removeColumn(130);
+
+    // Check result
+    assertEquals(expectedUnion, actualUnion);
+    assertEquals(4, actualUnion.size());
+    assertTrue(actualUnion.containsSubset(narrow));
+    assertTrue(actualUnion.containsSubset(wide));
+    assertFalse(narrow.containsSubset(wide));
+    assertEquals(narrow, actualDifference);
+    assertEquals(narrow.hashCode(), actualDifference.hashCode());
+    assertEquals(narrow, removed);
+    assertEquals(narrow.hashCode(), removed.hashCode());
+    assertEquals(wide, actualUnion.intersect(wide));
+    assertEquals(ImmutableList.of(1, 63, 64, 130), actualUnion.getSetBits());
+    ColumnCombinationBitset inverted = new ColumnCombinationBitset(1, 63, 64).invert(66);
+    assertEquals(63, inverted.size());
+    assertTrue(inverted.containsColumn(0, 2, 62, 65));
+    assertFalse(inverted.containsColumn(64));
+  }
 }
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.ColumnCombinationCodec}
+ */
+public class ColumnCombinationCodecTest {
+
+  /**
+   * Test method for {@link ColumnCombinationCodec#encode(java.util.Collection)} and {@link
+   * ColumnCombinationCodec#decode(byte[])} <p/> Column combinations should be restored in the same
+   * order and use one byte per close column.
+   */
+  @Test
+  public void testEncodeDecode() throws IOException {
+    // Setup
+    List<ColumnCombinationBitset> columnCombinations = Arrays.asList(
+      new ColumnCombinationBitset(0, 1, 2),
+      new ColumnCombinationBitset(),
+      new ColumnCombinationBitset(5, 130, 1000),
+      new ColumnCombinationBitset(0, 1, 2));
+
+    // Execute functionality
+    byte[] bytes = ColumnCombinationCodec.encode(columnCombinations);
+    List<ColumnCombinationBitset> actualColumnCombinations = ColumnCombinationCodec.decode(bytes);
+
+    // Check result
+    assertEquals(columnCombinations, actualColumnCombinations);
+    // 4 + 1 + (1 + 1 + 1 + 2) + 4 bytes
+    assertEquals(14, bytes.length);
+  }
+
+  /**
+   * Test method for {@link ColumnCombinationCodec.Writer} and {@link ColumnCombinationCodec.Reader}
+   * <p/> Streams larger than the buffer should be restored completely.
+   */
+  @Test
+  public void testStreaming() throws IOException {
+    // Setup
+    Random random = new Random(13);
+    List<ColumnCombinationBitset> columnCombinations = new ArrayList<>();
+    for (int i = 0; i < 50000; i++) {
+      ColumnCombinationBitset columnCombination = new ColumnCombinationBitset();
+      for (int j = 0; j < 5; j++) {
+        columnCombination.addColumn(random.nextInt(100));
+      }
+      columnCombinations.add(columnCombination);
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // Execute functionality
+    ColumnCombinationCodec.Writer writer = new ColumnCombinationCodec.Writer(output);
+    writer.writeAll(columnCombinations);
+    writer.close();
+    ColumnCombinationCodec.Reader reader =
+      new ColumnCombinationCodec.Reader(new ByteArrayInputStream(output.toByteArray()));
+    List<ColumnCombinationBitset> actualColumnCombinations = reader.readAll();
+
+    // Check result
+    assertEquals(columnCombinations.size(), writer.getNumberOfColumnCombinations());
+    assertEquals(columnCombinations, actualColumnCombinations);
+    assertNull(reader.read());
+    reader.close();
+  }
+
+  /**
+   * Test method for {@link ColumnCombinationCodec#decode(byte[])} <p/> A stream ending within a
+   * column combination should not be decoded.
+   */
+  @Test(expected = EOFException.class)
+  public void testDecodeTruncated() throws IOException {
+    // Setup
+    byte[] bytes = ColumnCombinationCodec.encode(
+      Arrays.asList(new ColumnCombinationBitset(1, 2, 3)));
+
+    // Execute functionality
+    ColumnCombinationCodec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.ColumnCombinationMinimizer}
+ */
+public class ColumnCombinationMinimizerTest {
+
+  protected List<ColumnCombinationBitset> getColumnCombinations() {
+    return Arrays.asList(
+      new ColumnCombinationBitset(0, 1),
+      new ColumnCombinationBitset(0, 1, 2),
+      new ColumnCombinationBitset(2),
+      new ColumnCombinationBitset(2, 3),
+      new ColumnCombinationBitset(1, 3),
+      new ColumnCombinationBitset(1, 3),
+      new ColumnCombinationBitset(70, 1));
+  }
+
+  /**
+   * Test method for {@link ColumnCombinationMinimizer#minimize(java.util.Collection)}
+   */
+  @Test
+  public void testMinimize() {
+    // Setup
+    // Expected values
+    ColumnCombinationBitset[] expectedMinimal = {
+      new ColumnCombinationBitset(0, 1),
+      new ColumnCombinationBitset(2),
+      new ColumnCombinationBitset(1, 3),
+      new ColumnCombinationBitset(70, 1)
+    };
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualMinimal =
+      ColumnCombinationMinimizer.minimize(getColumnCombinations());
+
+    // Check result
+    assertThat(actualMinimal, IsIterableContainingInAnyOrder.containsInAnyOrder(expectedMinimal));
+    assertEquals(new ColumnCombinationBitset(2), actualMinimal.get(0));
+  }
+
+  /**
+   * Test method for {@link ColumnCombinationMinimizer#maximize(java.util.Collection)}
+   */
+  @Test
+  public void testMaximize() {
+    // Setup
+    // Expected values
+    ColumnCombinationBitset[] expectedMaximal = {
+      new ColumnCombinationBitset(0, 1, 2),
+      new ColumnCombinationBitset(2, 3),
+      new ColumnCombinationBitset(1, 3),
+      new ColumnCombinationBitset(70, 1)
+    };
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualMaximal =
+      ColumnCombinationMinimizer.maximize(getColumnCombinations());
+
+    // Check result
+    assertThat(actualMaximal, IsIterableContainingInAnyOrder.containsInAnyOrder(expectedMaximal));
+    assertEquals(new ColumnCombinationBitset(0, 1, 2), actualMaximal.get(0));
+  }
+
+  /**
+   * Test method for {@link ColumnCombinationMinimizer#minimize(java.util.Collection)} and {@link
+   * ColumnCombinationMinimizer#maximize(java.util.Collection)} <p/> Random collections large enough
+   * to be checked in parallel should be minimized and maximized like a pairwise comparison does.
+   */
+  @Test
+  public void testRandomColumnCombinations() {
+    // Setup
+    Random random = new Random(42);
+    List<ColumnCombinationBitset> columnCombinations = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      ColumnCombinationBitset columnCombination = new ColumnCombinationBitset();
+      int size = 3 + random.nextInt(4);
+      for (int j = 0; j < size; j++) {
+        columnCombination.addColumn(random.nextInt(14));
+      }
+      columnCombinations.add(columnCombination);
+    }
+    // Expected values
+    Set<ColumnCombinationBitset> expectedMinimal = new HashSet<>();
+    Set<ColumnCombinationBitset> expectedMaximal = new HashSet<>();
+    for (ColumnCombinationBitset columnCombination : columnCombinations) {
+      boolean minimal = true;
+      boolean maximal = true;
+      for (ColumnCombinationBitset other : columnCombinations) {
+        if (!other.equals(columnCombination)) {
+          minimal &= !columnCombination.containsSubset(other);
+          maximal &= !other.containsSubset(columnCombination);
+        }
+      }
+      if (minimal) {
+        expectedMinimal.add(columnCombination);
+      }
+      if (maximal) {
+        expectedMaximal.add(columnCombination);
+      }
+    }
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualMinimal =
+      ColumnCombinationMinimizer.minimize(columnCombinations);
+    List<ColumnCombinationBitset> actualMaximal =
+      ColumnCombinationMinimizer.maximize(columnCombinations);
+
+    // Check result
+    assertEquals(expectedMinimal, new HashSet<>(actualMinimal));
+    assertEquals(expectedMinimal.size(), actualMinimal.size());
+    assertEquals(expectedMaximal, new HashSet<>(actualMaximal));
+    assertEquals(expectedMaximal.size(), actualMaximal.size());
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.ColumnarDataset}
+ */
+public class ColumnarDatasetTest {
+
+  protected PLIBuilderFixture fixture;
+  protected ColumnarDataset dataset;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PLIBuilderFixture();
+    dataset = new ColumnarDataset(fixture.getInputGenerator().generateNewCopy(), 2);
+  }
+
+  /**
+   * Test method for {@link ColumnarDataset#getPLIList(boolean)} <p/> The {@link
+   * PositionListIndex}es should equal the ones of the {@link PLIBuilder}.
+   */
+  @Test
+  public void testGetPLIList() {
+    for (boolean nullEqualsNull : new boolean[]{true, false}) {
+      // Setup
+      // Expected values
+      List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(nullEqualsNull);
+      PositionListIndex[] expectedPLIArray =
+        expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+      // Execute functionality
+      List<CompactPositionListIndex> actualPLIList = dataset.getPLIList(nullEqualsNull);
+
+      // Check result
+      assertThat(actualPLIList,
+        IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+    }
+  }
+
+  /**
+   * Test method for {@link ColumnarDataset#getDistinctSortedColumns()}
+   */
+  @Test
+  public void testGetDistinctSortedColumns() {
+    // Setup
+    // Expected values
+    // Execute functionality
+    // Check result
+    assertEquals(fixture.getExpectedDistinctSortedColumns(), dataset.getDistinctSortedColumns());
+    assertEquals(fixture.getExpectedNumberOfTuples(), dataset.getNumberOfRows());
+    assertEquals(4, dataset.getNumberOfColumns());
+  }
+
+  /**
+   * Test method for {@link ColumnarDataset#getHistogram(int)} and {@link
+   * ColumnarDataset#getNullCount(int)}
+   */
+  @Test
+  public void testStatistics() {
+    // Setup
+    // Execute functionality
+    Map<String, Long> histogram = dataset.getHistogram(3);
+
+    // Check result
+    assertEquals(Long.valueOf(2), histogram.get(null));
+    assertEquals(Long.valueOf(1), histogram.get("4"));
+    assertEquals(4, histogram.size());
+    assertEquals(2, dataset.getNullCount(3));
+    assertEquals(0, dataset.getNullCount(0));
+    assertEquals(2, dataset.getDistinctValuesCount(2));
+    assertArrayEquals(new int[]{3, 2}, dataset.getValueCounts(2));
+    assertEquals("3", dataset.getValue(3, 2));
+    assertNull(dataset.getValue(2, 3));
+  }
+
+  /**
+   * Test method for {@link ColumnarDataset#getBitmapIndex(int)}
+   */
+  @Test
+  public void testGetBitmapIndex() {
+    // Setup
+    // Execute functionality
+    RoaringBitmap[] bitmapIndex = dataset.getBitmapIndex(2);
+
+    // Check result
+    assertEquals(2, bitmapIndex.length);
+    assertArrayEquals(new int[]{0, 1, 4}, bitmapIndex[0].toArray());
+    assertArrayEquals(new int[]{2, 3}, bitmapIndex[1].toArray());
+  }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.CompactPositionListIndex}
+ */
+public class CompactPositionListIndexTest {
+
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#CompactPositionListIndex(PositionListIndex)}
+   * <p/> The compact copy should contain the same clusters as the original {@link
+   * PositionListIndex}.
+   */
+  @Test
+  public void testConstructor() {
+    // Setup
+    PositionListIndex pli = fixture.getFirstPLI();
+
+    // Execute functionality
+    CompactPositionListIndex compactPLI = new CompactPositionListIndex(pli);
+
+    // Check result
+    assertEquals(pli, compactPLI);
+    assertEquals(compactPLI, pli);
+    assertEquals(pli.getClusters(), compactPLI.getClusters());
+    assertFalse(compactPLI.hasLongRows());
+    assertTrue(new CompactPositionListIndex().isEmpty());
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#intersect(PositionListIndex)} <p/> Compact
+   * {@link PositionListIndex}es should be intersected correctly with compact and regular {@link
+   * PositionListIndex}es.
+   */
+  @Test
+  public void testIntersect() {
+    // Setup
+    CompactPositionListIndex firstPLI = new CompactPositionListIndex(fixture.getFirstPLI());
+    CompactPositionListIndex secondPLI = new CompactPositionListIndex(fixture.getSecondPLI());
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    PositionListIndex compactIntersection = firstPLI.intersect(secondPLI);
+    PositionListIndex mixedIntersection = firstPLI.intersect(fixture.getSecondPLI());
+    PositionListIndex regularIntersection = fixture.getFirstPLI().intersect(secondPLI);
+
+    // Check result
+    assertTrue(compactIntersection instanceof CompactPositionListIndex);
+    assertEquals(expectedPLI, compactIntersection);
+    assertEquals(expectedPLI, mixedIntersection);
+    assertEquals(expectedPLI, regularIntersection);
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#getRawKeyError()}
+   */
+  @Test
+  public void testGetRawKeyError() {
+    // Setup
+    CompactPositionListIndex firstPLI = new CompactPositionListIndex(fixture.getFirstPLI());
+    CompactPositionListIndex secondPLI = new CompactPositionListIndex(fixture.getSecondPLI());
+
+    // Execute functionality
+    // Check result
+    assertEquals(fixture.getExpectedFirstPLIRawKeyError(), firstPLI.getRawKeyError());
+    assertEquals(fixture.getExpectedSecondPLIRawKeyError(), secondPLI.getRawKeyError());
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(),
+      firstPLI.intersect(secondPLI).getRawKeyError());
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#asHashMap()}
+   */
+  @Test
+  public void testAsHashMap() {
+    // Setup
+    CompactPositionListIndex pli = new CompactPositionListIndex(fixture.getFirstPLI());
+
+    // Execute functionality
+    // Check result
+    assertEquals(fixture.getFirstPLIAsHashMap(), pli.asHashMap());
+    assertEquals(fixture.getFirstPLISize(), pli.size());
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#CompactPositionListIndex(java.util.List)} <p/>
+   * Row indices that do not fit into an int should be stored as longs.
+   */
+  @Test
+  public void testLongRows() {
+    // Setup
+    long bigRow = Integer.MAX_VALUE + 5L;
+    List<LongArrayList> clusters = new ArrayList<>();
+    clusters.add(new LongArrayList(new long[]{1, 2}));
+    clusters.add(new LongArrayList(new long[]{3, bigRow}));
+    List<LongArrayList> otherClusters = new ArrayList<>();
+    otherClusters.add(new LongArrayList(new long[]{1, 3, bigRow}));
+
+    // Execute functionality
+    CompactPositionListIndex pli = new CompactPositionListIndex(clusters);
+    PositionListIndex intersection = pli.intersect(new PositionListIndex(otherClusters));
+
+    // Check result
+    assertTrue(pli.hasLongRows());
+    assertEquals(new PositionListIndex(clusters), pli);
+    assertEquals(bigRow, pli.getClusters().get(1).getLong(1));
+    assertEquals(1, intersection.size());
+    assertEquals(new LongArrayList(new long[]{3, bigRow}), intersection.getClusters().get(0));
+  }
+
+  /**
+   * Test method for {@link CompactPositionListIndex#clone()}
+   */
+  @Test
+  public void testClone() {
+    // Setup
+    CompactPositionListIndex pli = new CompactPositionListIndex(fixture.getFirstPLI());
+
+    // Execute functionality
+    CompactPositionListIndex copy = pli.clone();
+
+    // Check result
+    assertEquals(pli, copy);
+    assertNotSame(pli, copy);
+    assertNotSame(pli.rows, copy.rows);
+  }
+}
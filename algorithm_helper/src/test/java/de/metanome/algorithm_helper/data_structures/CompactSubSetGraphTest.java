@@ -0,0 +1,145 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.CompactSubSetGraph}
+ */
+public class CompactSubSetGraphTest {
+
+  /**
+   * Test method for {@link CompactSubSetGraph#getExistingSubsets(ColumnCombinationBitset)} and
+   * {@link CompactSubSetGraph#containsSubset(ColumnCombinationBitset)}
+   */
+  @Test
+  public void testGetExistingSubsets() {
+    // Setup
+    SubSetGraphFixture fixture = new SubSetGraphFixture();
+    CompactSubSetGraph graph =
+      new CompactSubSetGraph().addAll(fixture.getExpectedIncludedColumnCombinations());
+    ColumnCombinationBitset columnCombinationToQuery = fixture.getColumnCombinationForSubsetQuery();
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualSubsets =
+      graph.getExistingSubsets(columnCombinationToQuery);
+
+    // Check result
+    assertThat(actualSubsets,
+      IsIterableContainingInAnyOrder.containsInAnyOrder(fixture.getExpectedSubsetsFromQuery()));
+    assertTrue(graph.containsSubset(columnCombinationToQuery));
+    assertFalse(graph.containsSubset(new ColumnCombinationBitset(1, 2, 4, 8)));
+    assertEquals(fixture.getExpectedIncludedColumnCombinations().size(), graph.size());
+  }
+
+  /**
+   * Test method for {@link CompactSubSetGraph#getExistingSupersets(ColumnCombinationBitset)} and
+   * {@link CompactSubSetGraph#containsSuperset(ColumnCombinationBitset)}
+   */
+  @Test
+  public void testGetExistingSupersets() {
+    // Setup
+    SuperSetGraphFixture fixture = new SuperSetGraphFixture();
+    CompactSubSetGraph graph =
+      new CompactSubSetGraph().addAll(fixture.getExpectedIncludedColumnCombinations());
+    ColumnCombinationBitset columnCombinationToQuery =
+      fixture.getColumnCombinationForSupersetQuery();
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualSupersets =
+      graph.getExistingSupersets(columnCombinationToQuery);
+
+    // Check result
+    assertThat(actualSupersets,
+      IsIterableContainingInAnyOrder.containsInAnyOrder(fixture.getExpectedSupersetsFromQuery()));
+    assertTrue(graph.containsSuperset(columnCombinationToQuery));
+    assertFalse(graph.containsSuperset(new ColumnCombinationBitset(5, 7)));
+  }
+
+  /**
+   * Test method for {@link CompactSubSetGraph#getMinimalSubsets()}
+   */
+  @Test
+  public void testGetMinimalSubsets() {
+    // Setup
+    SubSetGraphFixture fixture = new SubSetGraphFixture();
+    CompactSubSetGraph graph =
+      new CompactSubSetGraph().addAll(fixture.getExpectedIncludedColumnCombinations());
+
+    // Execute functionality
+    Set<ColumnCombinationBitset> actualMinimalSubsets = graph.getMinimalSubsets();
+
+    // Check result
+    assertThat(actualMinimalSubsets,
+      IsIterableContainingInAnyOrder.containsInAnyOrder(fixture.getExpectedMinimalSubsets()));
+  }
+
+  /**
+   * Test method for {@link CompactSubSetGraph#getExistingSubsets(ColumnCombinationBitset)} and
+   * {@link CompactSubSetGraph#getExistingSupersets(ColumnCombinationBitset)} <p/> The results
+   * should equal the ones of {@link SubSetGraph} and {@link SuperSetGraph} on random column
+   * combinations.
+   */
+  @Test
+  public void testQueriesEqualPointerGraphs() {
+    // Setup
+    int numberOfColumns = 12;
+    Random random = new Random(42);
+    List<ColumnCombinationBitset> columnCombinations = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      columnCombinations.add(randomColumnCombination(random, numberOfColumns));
+    }
+    CompactSubSetGraph graph = new CompactSubSetGraph().addAll(columnCombinations);
+    SubSetGraph subSetGraph = new SubSetGraph().addAll(columnCombinations);
+    SuperSetGraph superSetGraph = new SuperSetGraph(numberOfColumns).addAll(columnCombinations);
+
+    for (int i = 0; i < 50; i++) {
+      ColumnCombinationBitset query = randomColumnCombination(random, numberOfColumns);
+      // Expected values
+      ColumnCombinationBitset[] expectedSubsets = subSetGraph.getExistingSubsets(query)
+        .toArray(new ColumnCombinationBitset[0]);
+      ColumnCombinationBitset[] expectedSupersets = superSetGraph.getExistingSupersets(query)
+        .toArray(new ColumnCombinationBitset[0]);
+
+      // Execute functionality
+      // Check result
+      assertThat(graph.getExistingSubsets(query),
+        IsIterableContainingInAnyOrder.containsInAnyOrder(expectedSubsets));
+      assertThat(graph.getExistingSupersets(query),
+        IsIterableContainingInAnyOrder.containsInAnyOrder(expectedSupersets));
+    }
+    assertEquals(subSetGraph.getMinimalSubsets(), graph.getMinimalSubsets());
+  }
+
+  protected ColumnCombinationBitset randomColumnCombination(Random random, int numberOfColumns) {
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset();
+    for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+      if (random.nextInt(3) == 0) {
+        columnCombination.addColumn(columnIndex);
+      }
+    }
+    return columnCombination;
+  }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.ConcurrentSubSetGraph}
+ */
+public class ConcurrentSubSetGraphTest {
+
+  /**
+   * Test method for {@link ConcurrentSubSetGraph#getExistingSubsets(ColumnCombinationBitset)} and
+   * {@link ConcurrentSubSetGraph#getExistingSupersets(ColumnCombinationBitset)}
+   */
+  @Test
+  public void testGetExistingSubsetsSupersets() {
+    // Setup
+    SubSetGraphFixture subSetFixture = new SubSetGraphFixture();
+    SuperSetGraphFixture superSetFixture = new SuperSetGraphFixture();
+    ConcurrentSubSetGraph subSetGraph =
+      new ConcurrentSubSetGraph().addAll(subSetFixture.getExpectedIncludedColumnCombinations());
+    ConcurrentSubSetGraph superSetGraph =
+      new ConcurrentSubSetGraph().addAll(superSetFixture.getExpectedIncludedColumnCombinations());
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualSubsets =
+      subSetGraph.getExistingSubsets(subSetFixture.getColumnCombinationForSubsetQuery());
+    List<ColumnCombinationBitset> actualSupersets =
+      superSetGraph.getExistingSupersets(superSetFixture.getColumnCombinationForSupersetQuery());
+
+    // Check result
+    assertThat(actualSubsets, IsIterableContainingInAnyOrder
+      .containsInAnyOrder(subSetFixture.getExpectedSubsetsFromQuery()));
+    assertThat(actualSupersets, IsIterableContainingInAnyOrder
+      .containsInAnyOrder(superSetFixture.getExpectedSupersetsFromQuery()));
+    assertTrue(subSetGraph.containsSubset(subSetFixture.getColumnCombinationForSubsetQuery()));
+    assertFalse(subSetGraph.containsSubset(new ColumnCombinationBitset(1, 2, 4, 8)));
+    assertTrue(superSetGraph.containsSuperset(new ColumnCombinationBitset(5, 8)));
+    assertFalse(superSetGraph.containsSuperset(new ColumnCombinationBitset(5, 7)));
+  }
+
+  /**
+   * Test method for {@link ConcurrentSubSetGraph#add(ColumnCombinationBitset)} <p/> Column
+   * combinations added by concurrent threads should all be found, while other threads query the
+   * graph.
+   */
+  @Test
+  public void testConcurrentAdd() throws Exception {
+    // Setup
+    int numberOfThreads = 4;
+    int numberOfColumns = 10;
+    Random random = new Random(7);
+    List<ColumnCombinationBitset> columnCombinations = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      ColumnCombinationBitset columnCombination = new ColumnCombinationBitset();
+      for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+        if (random.nextBoolean()) {
+          columnCombination.addColumn(columnIndex);
+        }
+      }
+      columnCombinations.add(columnCombination);
+    }
+    ConcurrentSubSetGraph graph = new ConcurrentSubSetGraph();
+    // Expected values
+    SubSetGraph expectedGraph = new SubSetGraph().addAll(columnCombinations);
+    ColumnCombinationBitset query = new ColumnCombinationBitset().setAllBits(numberOfColumns);
+
+    // Execute functionality
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads * 2);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int thread = 0; thread < numberOfThreads; thread++) {
+      final int firstIndex = thread;
+      futures.add(executor.submit(() -> {
+        for (int i = firstIndex; i < columnCombinations.size(); i += numberOfThreads) {
+          graph.add(columnCombinations.get(i));
+        }
+      }));
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 100; i++) {
+          graph.getExistingSubsets(query);
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    // Check result
+    List<ColumnCombinationBitset> actualSubsets = graph.getExistingSubsets(query);
+    List<ColumnCombinationBitset> expectedSubsets = expectedGraph.getExistingSubsets(query);
+    assertThat(actualSubsets, IsIterableContainingInAnyOrder.containsInAnyOrder(
+      expectedSubsets.toArray(new ColumnCombinationBitset[expectedSubsets.size()])));
+    assertEquals(expectedSubsets.size(), graph.size());
+  }
+}
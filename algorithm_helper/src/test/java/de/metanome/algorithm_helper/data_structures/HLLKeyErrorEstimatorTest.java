@@ -0,0 +1,97 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.HLLKeyErrorEstimator}
+ */
+public class HLLKeyErrorEstimatorTest {
+
+  protected PLIBuilderFixture fixture;
+  protected ColumnarDataset dataset;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PLIBuilderFixture();
+    dataset = new ColumnarDataset(fixture.getInputGenerator().generateNewCopy(), 2);
+  }
+
+  /**
+   * Test method for {@link HLLKeyErrorEstimator#estimateRawKeyError(ColumnCombinationBitset)}
+   * <p/> On small inputs the estimates should equal the exact key errors of the intersected {@link
+   * PositionListIndex}es.
+   */
+  @Test
+  public void testEstimateRawKeyError() {
+    // Setup
+    HLLKeyErrorEstimator estimator = new HLLKeyErrorEstimator(dataset);
+    PLICache plis = new PLICache(dataset.getPLIList(true));
+    ColumnCombinationBitset[] columnCombinations = {
+      new ColumnCombinationBitset(0), new ColumnCombinationBitset(1),
+      new ColumnCombinationBitset(1, 2), new ColumnCombinationBitset(2, 3),
+      new ColumnCombinationBitset(1, 2, 3)};
+
+    for (ColumnCombinationBitset columnCombination : columnCombinations) {
+      // Expected values
+      long expectedKeyError = plis.getRawKeyError(columnCombination);
+
+      // Execute functionality
+      long actualKeyError = estimator.estimateRawKeyError(columnCombination);
+
+      // Check result
+      assertEquals(expectedKeyError, actualKeyError);
+    }
+    assertEquals(0, estimator.estimateRawKeyError(new ColumnCombinationBitset()));
+    assertEquals(2, estimator.estimateDistinctCount(new ColumnCombinationBitset(1, 2)));
+  }
+
+  /**
+   * Test method for {@link HLLKeyErrorEstimator#sketch(int[][], int)}
+   * <p/> Merging the sketches of many chunks in parallel should yield exactly the registers of a
+   * sequential sketch over all rows.
+   */
+  @Test
+  public void testParallelSketchEqualsSequentialSketch() {
+    // Setup
+    HLLKeyErrorEstimator estimator = new HLLKeyErrorEstimator(dataset);
+    estimator.chunkSize = 64;
+    int numberOfRows = 100000;
+    Random random = new Random(42);
+    int[][] columns = new int[2][numberOfRows];
+    for (int row = 0; row < numberOfRows; row++) {
+      columns[0][row] = random.nextInt(50000);
+      columns[1][row] = random.nextInt(10);
+    }
+    // Expected values
+    HyperLogLog expectedSketch = estimator.sketch(columns, 0, numberOfRows);
+
+    for (int run = 0; run < 10; run++) {
+      // Execute functionality
+      HyperLogLog actualSketch = estimator.sketch(columns, numberOfRows);
+
+      // Check result
+      assertArrayEquals(expectedSketch.registers, actualSketch.registers);
+      assertEquals(expectedSketch.estimate(), actualSketch.estimate());
+    }
+  }
+}
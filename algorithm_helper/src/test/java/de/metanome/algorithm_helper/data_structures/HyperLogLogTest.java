@@ -0,0 +1,86 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.HyperLogLog}
+ */
+public class HyperLogLogTest {
+
+  /**
+   * Test method for {@link HyperLogLog#estimate()} <p/> The estimate should be within three
+   * standard errors of the distinct count, duplicates should not change it.
+   */
+  @Test
+  public void testEstimate() {
+    // Setup
+    int precision = HyperLogLog.precisionFor(0.01);
+    HyperLogLog sketch = new HyperLogLog(precision);
+    int distinctCount = 100000;
+    // Expected values
+    double maximalError = 3 * 1.04 / Math.sqrt(1 << precision) * distinctCount;
+
+    // Execute functionality
+    for (int repetition = 0; repetition < 2; repetition++) {
+      for (long value = 0; value < distinctCount; value++) {
+        sketch.add(HyperLogLog.hash(value));
+      }
+    }
+
+    // Check result
+    assertEquals(14, precision);
+    assertEquals(distinctCount, sketch.estimate(), maximalError);
+    assertEquals(0, new HyperLogLog(precision).estimate());
+  }
+
+  /**
+   * Test method for {@link HyperLogLog#merge(HyperLogLog)} <p/> The merged sketch should equal the
+   * sketch of all values.
+   */
+  @Test
+  public void testMerge() {
+    // Setup
+    HyperLogLog left = new HyperLogLog(10);
+    HyperLogLog right = new HyperLogLog(10);
+    // Expected values
+    HyperLogLog expectedSketch = new HyperLogLog(10);
+    for (long value = 0; value < 5000; value++) {
+      expectedSketch.add(HyperLogLog.hash(value));
+      (value % 2 == 0 ? left : right).add(HyperLogLog.hash(value));
+    }
+
+    // Execute functionality
+    left.merge(right);
+
+    // Check result
+    assertArrayEquals(expectedSketch.registers, left.registers);
+    assertEquals(expectedSketch.estimate(), left.estimate());
+  }
+
+  /**
+   * Test method for {@link HyperLogLog#merge(HyperLogLog)} <p/> Sketches with different precisions
+   * cannot be merged.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeDifferentPrecision() {
+    // Execute functionality
+    new HyperLogLog(10).merge(new HyperLogLog(11));
+  }
+}
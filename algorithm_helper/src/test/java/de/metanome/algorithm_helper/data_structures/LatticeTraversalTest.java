@@ -0,0 +1,149 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.AlgorithmExecutionException;
+
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.LatticeTraversal}
+ */
+public class LatticeTraversalTest {
+
+  /**
+   * Valid iff the candidate contains the columns 0 and 1, or the column 2.
+   */
+  protected static boolean isValid(ColumnCombinationBitset candidate) {
+    return candidate.containsColumn(2)
+      || (candidate.containsColumn(0) && candidate.containsColumn(1));
+  }
+
+  /**
+   * Test method for {@link LatticeTraversal#traverse()} <p/> Only the minimal valid column
+   * combinations should be returned and every candidate should be validated at most once.
+   */
+  @Test
+  public void testTraverse() throws AlgorithmExecutionException {
+    // Setup
+    Set<ColumnCombinationBitset> validated = ConcurrentHashMap.newKeySet();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    LatticeTraversal traversal = new LatticeTraversal(5, candidate -> {
+      assertTrue(validated.add(candidate));
+      return isValid(candidate);
+    }, pool);
+    // Expected values
+    ColumnCombinationBitset[] expectedMinimalValid = {
+      new ColumnCombinationBitset(2),
+      new ColumnCombinationBitset(0, 1)
+    };
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualMinimalValid = traversal.traverse();
+    pool.shutdown();
+
+    // Check result
+    assertThat(actualMinimalValid,
+      IsIterableContainingInAnyOrder.containsInAnyOrder(expectedMinimalValid));
+    // The candidates of level 3 are {0, 3, 4} and {1, 3, 4}
+    assertFalse(validated.contains(new ColumnCombinationBitset(0, 1, 3)));
+    assertTrue(validated.contains(new ColumnCombinationBitset(0, 3, 4)));
+
+    List<LatticeTraversal.LevelStatistics> statistics = traversal.getLevelStatistics();
+    assertEquals(3, statistics.size());
+    assertEquals(5, statistics.get(0).getCandidates());
+    assertEquals(1, statistics.get(0).getValidCandidates());
+    // 6 pairs of the 4 invalid columns, of which only {0, 1} is valid
+    assertEquals(6, statistics.get(1).getCandidates());
+    assertEquals(1, statistics.get(1).getValidCandidates());
+    // {0, 3, 4} and {1, 3, 4} are joined from {0, 3}, {0, 4} and {1, 3}, {1, 4}; {3, 4} cannot be
+    // joined with a successor
+    assertEquals(2, statistics.get(2).getCandidates());
+    assertEquals(0, statistics.get(2).getPrunedCandidates());
+    assertEquals(0, statistics.get(2).getValidCandidates());
+    assertEquals(5 + 6 + 2, validated.size());
+  }
+
+  /**
+   * Test method for {@link LatticeTraversal#traverse()} <p/> Candidates with a known valid subset
+   * or a known invalid superset should not be validated.
+   */
+  @Test
+  public void testTraverseWithKnownColumnCombinations() throws AlgorithmExecutionException {
+    // Setup
+    Set<ColumnCombinationBitset> validated = ConcurrentHashMap.newKeySet();
+    LatticeTraversal traversal = new LatticeTraversal(4, candidate -> {
+      validated.add(candidate);
+      return isValid(candidate);
+    })
+      .addKnownValid(new ColumnCombinationBitset(2))
+      .addKnownInvalid(new ColumnCombinationBitset(0, 3));
+    // Expected values
+    ColumnCombinationBitset[] expectedMinimalValid = {new ColumnCombinationBitset(0, 1)};
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualMinimalValid = traversal.traverse();
+
+    // Check result
+    assertThat(actualMinimalValid,
+      IsIterableContainingInAnyOrder.containsInAnyOrder(expectedMinimalValid));
+    assertFalse(validated.contains(new ColumnCombinationBitset(2)));
+    assertFalse(validated.contains(new ColumnCombinationBitset(0)));
+    assertFalse(validated.contains(new ColumnCombinationBitset(0, 3)));
+    assertTrue(validated.contains(new ColumnCombinationBitset(1, 3)));
+    assertEquals(3, traversal.getLevelStatistics().get(0).getPrunedCandidates());
+  }
+
+  /**
+   * Test method for {@link LatticeTraversal#setMaximumLevel(int)}
+   */
+  @Test
+  public void testSetMaximumLevel() throws AlgorithmExecutionException {
+    // Setup
+    LatticeTraversal traversal = new LatticeTraversal(5, LatticeTraversalTest::isValid)
+      .setMaximumLevel(1);
+
+    // Execute functionality
+    List<ColumnCombinationBitset> actualMinimalValid = traversal.traverse();
+
+    // Check result
+    assertEquals(1, actualMinimalValid.size());
+    assertEquals(1, traversal.getLevelStatistics().size());
+  }
+
+  /**
+   * Test method for {@link LatticeTraversal#traverse()} <p/> A failing validation should be
+   * reported as {@link AlgorithmExecutionException}.
+   */
+  @Test(expected = AlgorithmExecutionException.class)
+  public void testTraverseFailingValidation() throws AlgorithmExecutionException {
+    // Setup
+    LatticeTraversal traversal = new LatticeTraversal(3, candidate -> {
+      throw new IllegalStateException();
+    });
+
+    // Execute functionality
+    traversal.traverse();
+  }
+}
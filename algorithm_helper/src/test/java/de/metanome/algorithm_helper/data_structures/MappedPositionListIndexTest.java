@@ -0,0 +1,206 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.algorithm_execution.FileCreationException;
+import de.metanome.algorithm_integration.algorithm_execution.FileGenerator;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.MappedPositionListIndex} and
+ * {@link de.metanome.algorithm_helper.data_structures.MappedPLIStore}
+ */
+public class MappedPositionListIndexTest {
+
+  protected PositionListIndexFixture fixture;
+  protected TemporaryFileGenerator fileGenerator;
+  protected MappedPLIStore store;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+    fileGenerator = new TemporaryFileGenerator();
+    store = new MappedPLIStore(fileGenerator);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    fileGenerator.close();
+  }
+
+  /**
+   * Test method for {@link MappedPLIStore#store(PositionListIndex)} <p/> The mapped copy should
+   * contain the same clusters as the original {@link PositionListIndex}.
+   */
+  @Test
+  public void testStore() throws FileCreationException {
+    // Setup
+    PositionListIndex pli = fixture.getFirstPLI();
+
+    // Execute functionality
+    MappedPositionListIndex mappedPLI = store.store(pli);
+
+    // Check result
+    assertEquals(pli, mappedPLI);
+    assertEquals(pli.getClusters(), mappedPLI.getClusters());
+    assertEquals(fixture.getFirstPLISize(), mappedPLI.size());
+    assertEquals(fixture.getExpectedFirstPLIRawKeyError(), mappedPLI.getRawKeyError());
+    assertEquals(fixture.getFirstPLIAsHashMap(), mappedPLI.asHashMap());
+    assertTrue(mappedPLI.getFile().length() > 0);
+    assertEquals(mappedPLI.getFile().length(), store.getStoredBytes());
+    assertTrue(store.store(new PositionListIndex()).isEmpty());
+  }
+
+  /**
+   * Test method for {@link MappedPositionListIndex#intersect(PositionListIndex)} <p/> Mapped
+   * {@link PositionListIndex}es should be intersected correctly with mapped and heap based {@link
+   * PositionListIndex}es.
+   */
+  @Test
+  public void testIntersect() throws FileCreationException {
+    // Setup
+    MappedPositionListIndex firstPLI = store.store(fixture.getFirstPLI());
+    MappedPositionListIndex secondPLI = store.store(fixture.getSecondPLI());
+    // Expected values
+    PositionListIndex expectedPLI = fixture.getExpectedIntersectedPLI();
+
+    // Execute functionality
+    PositionListIndex mappedIntersection = firstPLI.intersect(secondPLI);
+    PositionListIndex mixedIntersection = firstPLI.intersect(fixture.getSecondPLI());
+    PositionListIndex heapIntersection = fixture.getFirstPLI().intersect(secondPLI);
+
+    // Check result
+    assertTrue(mappedIntersection instanceof CompactPositionListIndex);
+    assertEquals(expectedPLI, mappedIntersection);
+    assertEquals(expectedPLI, mixedIntersection);
+    assertEquals(expectedPLI, heapIntersection);
+  }
+
+  /**
+   * Test method for {@link MappedPLIStore#store(PositionListIndex)} <p/> Row indices that do not
+   * fit into an int should be stored as longs.
+   */
+  @Test
+  public void testStoreLongRows() throws FileCreationException {
+    // Setup
+    long bigRow = Integer.MAX_VALUE + 5L;
+    List<LongArrayList> clusters = new ArrayList<>();
+    clusters.add(new LongArrayList(new long[]{1, 2}));
+    clusters.add(new LongArrayList(new long[]{3, bigRow}));
+    PositionListIndex pli = new PositionListIndex(clusters);
+
+    // Execute functionality
+    MappedPositionListIndex mappedPLI = store.store(pli);
+
+    // Check result
+    assertEquals(clusters, mappedPLI.getClusters());
+    assertEquals(pli, mappedPLI.clone());
+  }
+
+  /**
+   * Test method for {@link PLICache#setSpillStore(MappedPLIStore)} <p/> Evicted {@link
+   * PositionListIndex}es should be moved to the store and remain available.
+   */
+  @Test
+  public void testCacheSpill() throws FileCreationException {
+    // Setup
+    List<PositionListIndex> columnPLIs = new ArrayList<>();
+    columnPLIs.add(fixture.getFirstPLI());
+    columnPLIs.add(fixture.getSecondPLI());
+    PLICache cache = new PLICache(columnPLIs, 1);
+    cache.setSpillStore(store);
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(0, 1);
+
+    // Execute functionality
+    cache.spillColumnPLIs();
+    PositionListIndex actualPLI = cache.get(columnCombination);
+
+    // Check result
+    assertEquals(fixture.getExpectedIntersectedPLI(), actualPLI);
+    assertTrue(cache.isSpilled(columnCombination));
+    assertTrue(cache.get(columnCombination) instanceof MappedPositionListIndex);
+    assertTrue(cache.get(new ColumnCombinationBitset(1)) instanceof MappedPositionListIndex);
+    assertEquals(0, cache.getUsedBytes());
+  }
+
+  /**
+   * Test method for {@link PLICache#spill(ColumnCombinationBitset, PositionListIndex)} <p/> If a
+   * {@link PositionListIndex} cannot be stored, spilling should be disabled and the failure should
+   * be available.
+   */
+  @Test
+  public void testCacheSpillFailure() {
+    // Setup
+    List<PositionListIndex> columnPLIs = new ArrayList<>();
+    columnPLIs.add(fixture.getFirstPLI());
+    columnPLIs.add(fixture.getSecondPLI());
+    PLICache cache = new PLICache(columnPLIs, 1);
+    final FileCreationException expectedFailure = new FileCreationException("No space left.");
+    cache.setSpillStore(new MappedPLIStore(new TemporaryFileGenerator() {
+      @Override
+      public File getTemporaryFile() throws FileCreationException {
+        throw expectedFailure;
+      }
+    }));
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(0, 1);
+
+    // Execute functionality
+    PositionListIndex actualPLI = cache.get(columnCombination);
+
+    // Check result
+    assertEquals(fixture.getExpectedIntersectedPLI(), actualPLI);
+    assertFalse(cache.isSpilled(columnCombination));
+    assertSame(expectedFailure, cache.getSpillFailure());
+    assertNull(cache.spillStore);
+  }
+
+  /**
+   * Creates temporary files in the default temporary directory and deletes them on close.
+   */
+  protected static class TemporaryFileGenerator implements FileGenerator {
+
+    protected List<File> createdFiles = new ArrayList<>();
+
+    @Override
+    public File getTemporaryFile() throws FileCreationException {
+      try {
+        File file = File.createTempFile("pli", null);
+        file.deleteOnExit();
+        createdFiles.add(file);
+        return file;
+      } catch (IOException e) {
+        throw new FileCreationException("Could not create temporary file.", e);
+      }
+    }
+
+    @Override
+    public void close() {
+      for (File file : createdFiles) {
+        file.delete();
+      }
+    }
+  }
+}
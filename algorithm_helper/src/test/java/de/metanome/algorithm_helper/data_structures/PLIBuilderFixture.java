@@ -77,6 +77,32 @@ public class PLIBuilderFixture {
   }
 
 
+  /**
+   * @param fromRow the first row (inclusive)
+   * @param toRow   the last row (exclusive)
+   * @return an input iterating over the given rows of the table
+   */
+  public RelationalInput getRelationalInput(final int fromRow, final int toRow)
+    throws InputIterationException {
+    RelationalInput input = mock(RelationalInput.class);
+    final int[] position = {fromRow};
+
+    when(input.hasNext()).thenAnswer(new Answer<Boolean>() {
+      public Boolean answer(InvocationOnMock invocation) throws Throwable {
+        return position[0] < toRow;
+      }
+    });
+
+    when(input.next()).thenAnswer(new Answer<ArrayList<String>>() {
+      public ArrayList<String> answer(InvocationOnMock invocation) throws Throwable {
+        position[0] += 1;
+        return table.get(position[0] - 1);
+      }
+    });
+
+    return input;
+  }
+
   public long getExpectedNumberOfTuples() {
     return table.size();
   }
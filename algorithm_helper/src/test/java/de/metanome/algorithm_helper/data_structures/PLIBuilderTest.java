@@ -16,13 +16,18 @@
 package de.metanome.algorithm_helper.data_structures;
 
 import de.metanome.algorithm_integration.AlgorithmConfigurationException;
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
+import de.metanome.algorithm_integration.input.BatchRelationalInputAdapter;
 import de.metanome.algorithm_integration.input.InputGenerationException;
 import de.metanome.algorithm_integration.input.InputIterationException;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import org.hamcrest.collection.IsIterableContainingInAnyOrder;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.TreeSet;
 
@@ -88,6 +93,26 @@ public class PLIBuilderTest {
     assertThat(actualPLIList, IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
   }
 
+  /**
+   * Test method for {@link PLIBuilder#getCompactPLIList()} <p/> Tests that {@link
+   * de.metanome.algorithm_helper.data_structures.CompactPositionListIndex}es are build correctly.
+   */
+  @Test
+  public void testCalculateCompactPLI() throws InputIterationException {
+    // Setup
+    // Expected values
+    List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(true);
+    PositionListIndex[]
+      expectedPLIArray =
+      expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+    // Execute functionality
+    List<CompactPositionListIndex> actualPLIList = builder.getCompactPLIList();
+
+    // Check result
+    assertThat(actualPLIList, IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+  }
+
   /**
    * Test method for {@link PLIBuilder#getDistinctSortedColumns()} <p/> Creates the distinct sorted
    * columns from the raw plis.
@@ -129,4 +154,136 @@ public class PLIBuilderTest {
     assertEquals(expectedNumberOfColumns, builder.getNumberOfTuples());
 
   }
+
+  /**
+   * Test method for {@link PLIBuilder#appendRows(de.metanome.algorithm_integration.input.RelationalInput)}
+   * <p/> The plis updated with the appended rows should equal the plis of the whole table.
+   */
+  @Test
+  public void testAppendRows() throws InputIterationException {
+    for (boolean nullEqualsNull : new boolean[]{true, false}) {
+      // Setup
+      this.builder = new PLIBuilder(fixture.getRelationalInput(0, 3), nullEqualsNull, true);
+      List<PositionListIndex> initialPLIList = builder.getPLIList();
+      // Expected values
+      List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(nullEqualsNull);
+      PositionListIndex[] expectedPLIArray =
+        expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+      // Execute functionality
+      List<PositionListIndex> actualPLIList =
+        builder.appendRows(fixture.getRelationalInput(3, 5));
+
+      // Check result
+      assertSame(initialPLIList, actualPLIList);
+      assertThat(actualPLIList,
+        IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+      assertEquals(fixture.getExpectedNumberOfTuples(), builder.getNumberOfTuples());
+    }
+  }
+
+  /**
+   * Test method for {@link PLIBuilder#appendRows(de.metanome.algorithm_integration.input.RelationalInput)}
+   * <p/> Missing values of short rows should be appended as null, rows with too many values should
+   * be rejected without changing the plis.
+   */
+  @Test
+  public void testAppendRowsOfDifferentWidth() throws InputIterationException {
+    // Setup
+    this.builder = new PLIBuilder(fixture.getRelationalInput(0, 5), true, true);
+    List<PositionListIndex> plis = builder.getPLIList();
+    fixture.table.add(new ArrayList<>(Arrays.asList("1", "2")));
+    fixture.table.add(new ArrayList<>(Arrays.asList("1", "1", "5", "2", "6")));
+    // Expected values
+    PositionListIndex expectedFirstPLI =
+      new PositionListIndex(Arrays.asList(new LongArrayList(new long[]{0, 5})));
+    PositionListIndex expectedFourthPLI =
+      new PositionListIndex(Arrays.asList(new LongArrayList(new long[]{0, 2, 5})));
+
+    // Execute functionality
+    builder.appendRows(fixture.getRelationalInput(5, 6));
+
+    // Check result
+    assertEquals(expectedFirstPLI, plis.get(0));
+    assertEquals(expectedFourthPLI, plis.get(3));
+    assertEquals(6, builder.getNumberOfTuples());
+
+    // Execute functionality
+    try {
+      builder.appendRows(fixture.getRelationalInput(6, 7));
+      fail("InputIterationException was expected.");
+    } catch (InputIterationException e) {
+      // Intentionally left blank
+    }
+
+    // Check result
+    assertEquals(expectedFourthPLI, plis.get(3));
+    assertEquals(6, builder.getNumberOfTuples());
+  }
+
+  /**
+   * Test method for {@link PLIBuilder#appendRows(de.metanome.algorithm_integration.input.RelationalInput)}
+   * <p/> Rows can only be appended if the dictionaries were retained.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testAppendRowsWithoutDictionaries() throws InputIterationException {
+    // Setup
+    builder.getPLIList();
+
+    // Execute functionality
+    builder.appendRows(fixture.getRelationalInput(3, 5));
+  }
+
+  /**
+   * Test method for {@link PLIBuilder#getPLIList()} <p/> Inputs read in batches should yield the
+   * same {@link PositionListIndex}es and sorted columns as row based inputs.
+   */
+  @Test
+  public void testCalculatePLIBatches() throws Exception {
+    for (boolean nullEqualsNull : new boolean[]{true, false}) {
+      // Setup
+      BatchRelationalInput batchInput =
+        new BatchRelationalInputAdapter(fixture.getInputGenerator().generateNewCopy()) {
+          @Override
+          public int numberOfColumns() {
+            return 4;
+          }
+        };
+      PLIBuilder batchBuilder = new PLIBuilder(batchInput, nullEqualsNull);
+      // Expected values
+      List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(nullEqualsNull);
+      PositionListIndex[] expectedPLIArray =
+        expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+      // Execute functionality
+      List<PositionListIndex> actualPLIList = batchBuilder.getPLIList();
+
+      // Check result
+      assertThat(actualPLIList,
+        IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+      assertEquals(fixture.getExpectedNumberOfTuples(), batchBuilder.getNumberOfTuples());
+    }
+  }
+
+  /**
+   * Test method for {@link PLIBuilder#getDistinctSortedColumns()} <p/> Inputs read in batches
+   * should yield the same sorted columns as row based inputs.
+   */
+  @Test
+  public void testGetDistinctSortedColumnsBatches() throws Exception {
+    // Setup
+    BatchRelationalInput batchInput =
+      new BatchRelationalInputAdapter(fixture.getInputGenerator().generateNewCopy()) {
+        @Override
+        public int numberOfColumns() {
+          return 4;
+        }
+      };
+    PLIBuilder batchBuilder = new PLIBuilder(batchInput);
+
+    // Execute functionality
+    // Check result
+    assertEquals(fixture.getExpectedDistinctSortedColumns(),
+      batchBuilder.getDistinctSortedColumns());
+  }
 }
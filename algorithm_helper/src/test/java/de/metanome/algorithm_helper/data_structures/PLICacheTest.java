@@ -0,0 +1,165 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.PLICache}
+ */
+public class PLICacheTest {
+
+  protected PositionListIndexFixture fixture;
+  protected List<PositionListIndex> columnPLIs;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+    columnPLIs = new ArrayList<>();
+    columnPLIs.add(fixture.getFirstPLI());
+    columnPLIs.add(fixture.getSecondPLI());
+    columnPLIs.add(fixture.getFirstPLI());
+  }
+
+  /**
+   * Test method for {@link PLICache#get(ColumnCombinationBitset)} <p/> Missing column combinations
+   * should be calculated and cached, single columns should be returned directly.
+   */
+  @Test
+  public void testGet() {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs);
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(0, 1);
+
+    // Execute functionality
+    PositionListIndex actualPLI = cache.get(columnCombination);
+
+    // Check result
+    assertEquals(fixture.getExpectedIntersectedPLI(), actualPLI);
+    assertTrue(cache.containsKey(columnCombination));
+    assertSame(actualPLI, cache.get(columnCombination));
+    assertSame(columnPLIs.get(1), cache.get(new ColumnCombinationBitset(1)));
+    assertEquals(columnPLIs.size() + 1, cache.size());
+  }
+
+  /**
+   * Test method for {@link PLICache#get(ColumnCombinationBitset)} <p/> The largest cached subset
+   * should be used as starting point of the intersection.
+   */
+  @Test
+  public void testGetReusesSubsets() {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs);
+    PositionListIndex subsetPLI = fixture.getExpectedIntersectedPLI();
+    cache.put(new ColumnCombinationBitset(0, 1), subsetPLI);
+    // Expected values
+    PositionListIndex expectedPLI = subsetPLI.intersect(columnPLIs.get(2));
+
+    // Execute functionality
+    PositionListIndex actualPLI = cache.get(new ColumnCombinationBitset(0, 1, 2));
+
+    // Check result
+    assertEquals(expectedPLI, actualPLI);
+    assertEquals(fixture.getExpectedIntersectedPLIRawKeyError(),
+      cache.getRawKeyError(new ColumnCombinationBitset(0, 1, 2)));
+    assertEquals(0, cache.getRawKeyError(new ColumnCombinationBitset()));
+  }
+
+  /**
+   * Test method for {@link PLICache#put(ColumnCombinationBitset, PositionListIndex)} <p/> The
+   * cache should evict entries when the byte budget is exceeded and keep the single columns.
+   */
+  @Test
+  public void testEviction() {
+    // Setup
+    PositionListIndex pli = fixture.getExpectedIntersectedPLI();
+    long budget = pli.getMemoryUsage() * 2;
+    PLICache cache = new PLICache(columnPLIs, budget);
+    ColumnCombinationBitset first = new ColumnCombinationBitset(0, 1);
+    ColumnCombinationBitset second = new ColumnCombinationBitset(0, 2);
+    ColumnCombinationBitset third = new ColumnCombinationBitset(1, 2);
+
+    // Execute functionality
+    cache.put(first, pli);
+    cache.put(second, pli);
+    // Touch the first entry so that the second is the least recently used one
+    cache.get(first);
+    cache.put(third, pli);
+
+    // Check result
+    assertTrue(cache.getUsedBytes() <= budget);
+    assertTrue(cache.containsKey(first));
+    assertFalse(cache.containsKey(second));
+    assertTrue(cache.containsKey(third));
+    assertTrue(cache.containsKey(new ColumnCombinationBitset(2)));
+    assertEquals(columnPLIs.get(0).intersect(columnPLIs.get(2)), cache.get(second));
+  }
+
+  /**
+   * Test method for {@link PLICache#largestSubset(ColumnCombinationBitset)} <p/> The largest
+   * cached subset should be found; evicted entries should no longer be found.
+   */
+  @Test
+  public void testLargestSubset() {
+    // Setup
+    PositionListIndex pli = fixture.getExpectedIntersectedPLI();
+    PLICache cache = new PLICache(columnPLIs, pli.getMemoryUsage() * 2);
+    ColumnCombinationBitset first = new ColumnCombinationBitset(0, 1);
+    ColumnCombinationBitset second = new ColumnCombinationBitset(0, 1, 2);
+    ColumnCombinationBitset third = new ColumnCombinationBitset(1, 2);
+    cache.put(first, pli);
+    cache.put(second, pli);
+
+    // Execute functionality
+    ColumnCombinationBitset actualLargestSubset =
+      cache.largestSubset(new ColumnCombinationBitset(0, 1, 2, 3));
+
+    // Check result
+    assertEquals(second, actualLargestSubset);
+    assertNull(cache.largestSubset(new ColumnCombinationBitset(0, 2)));
+
+    // Evicts the least recently used first entry
+    cache.put(third, pli);
+    assertFalse(cache.containsKey(first));
+    assertEquals(third, cache.largestSubset(new ColumnCombinationBitset(1, 2, 3)));
+    assertNull(cache.largestSubset(new ColumnCombinationBitset(0, 1, 3)));
+  }
+
+  /**
+   * Test method for {@link PLICache#put(ColumnCombinationBitset, PositionListIndex)} <p/> {@link
+   * PositionListIndex}es larger than the budget should not be cached.
+   */
+  @Test
+  public void testPutTooLarge() {
+    // Setup
+    PLICache cache = new PLICache(columnPLIs, 1);
+    ColumnCombinationBitset columnCombination = new ColumnCombinationBitset(0, 1);
+
+    // Execute functionality
+    PositionListIndex actualPLI = cache.get(columnCombination);
+
+    // Check result
+    assertEquals(fixture.getExpectedIntersectedPLI(), actualPLI);
+    assertFalse(cache.containsKey(columnCombination));
+    assertEquals(0, cache.getUsedBytes());
+  }
+}
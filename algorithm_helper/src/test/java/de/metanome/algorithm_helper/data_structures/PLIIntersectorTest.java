@@ -0,0 +1,263 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.PLIIntersector}
+ */
+public class PLIIntersectorTest {
+
+  protected PositionListIndexFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PositionListIndexFixture();
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersect(PositionListIndex, PositionListIndex)} <p/>
+   * One intersector should produce correct results over many calls with differently sized
+   * {@link PositionListIndex}es.
+   */
+  @Test
+  public void testIntersectReusesBuffers() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+    Random random = new Random(42);
+
+    for (int run = 0; run < 20; run++) {
+      int numberOfRows = 1 + random.nextInt(500);
+      int[] firstColumn = randomColumn(random, numberOfRows, 1 + random.nextInt(20));
+      int[] secondColumn = randomColumn(random, numberOfRows, 1 + random.nextInt(20));
+      // Expected values
+      PositionListIndex expectedPLI = buildPLI(firstColumn, secondColumn);
+
+      // Execute functionality
+      PositionListIndex first = buildPLI(firstColumn);
+      PositionListIndex second = buildPLI(secondColumn);
+      PositionListIndex actualPLI = intersector.intersect(first, second);
+      PositionListIndex actualCompactPLI = intersector.intersectCompact(second, first);
+
+      // Check result
+      assertEquals(expectedPLI, actualPLI);
+      assertEquals(expectedPLI, actualCompactPLI);
+      assertEquals(expectedPLI.getRawKeyError(), actualCompactPLI.getRawKeyError());
+    }
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersect(PositionListIndex, PositionListIndex)} <p/>
+   * The probing table should be empty after each intersection.
+   */
+  @Test
+  public void testProbingTableIsCleared() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+
+    // Execute functionality
+    intersector.intersect(fixture.getFirstPLI(), fixture.getSecondPLI());
+
+    // Check result
+    for (int entry : intersector.probingTable) {
+      assertEquals(0, entry);
+    }
+    assertTrue(intersector.touchedClusters.isEmpty());
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersect(PositionListIndex, PositionListIndex)} <p/>
+   * Probing tables larger than {@link PLIIntersector#RETAINED_BUFFER_SIZE} should not be kept after
+   * the intersection, smaller ones should be reused.
+   */
+  @Test
+  public void testLargeProbingTableIsReleased() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+    long largeRow = PLIIntersector.RETAINED_BUFFER_SIZE + 10;
+    List<LongArrayList> largeClusters = new ArrayList<>();
+    largeClusters.add(new LongArrayList(new long[]{1, 2, largeRow}));
+
+    // Execute functionality
+    intersector.intersect(fixture.getFirstPLI(), fixture.getSecondPLI());
+    int[] smallProbingTable = intersector.probingTable;
+    PositionListIndex actualPLI =
+      intersector.intersect(new PositionListIndex(largeClusters), fixture.getFirstPLI());
+
+    // Check result
+    assertTrue(smallProbingTable.length > 0);
+    assertEquals(0, intersector.probingTable.length);
+    assertEquals(fixture.getFirstPLI().intersect(new PositionListIndex(largeClusters)), actualPLI);
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersect(PositionListIndex, PositionListIndex)} <p/> A
+   * failing intersection should not leave rows in the probing table, so later intersections on the
+   * same intersector stay correct.
+   */
+  @Test
+  public void testFailedIntersectionReleasesBuffers() {
+    // Setup
+    PLIIntersector intersector = new PLIIntersector();
+
+    // Execute functionality
+    try {
+      intersector.intersect(fixture.getFirstPLI(), fixture.getSecondPLI(),
+        new PLIIntersector.ClusterCollector() {
+          @Override
+          public void addCluster(long[] rows, int offset, int length) {
+            throw new IllegalStateException();
+          }
+        });
+      fail("IllegalStateException was expected.");
+    } catch (IllegalStateException e) {
+      // Intentionally left blank
+    }
+
+    // Check result
+    assertEquals(0, intersector.probingTable.length);
+    assertTrue(intersector.touchedClusters.isEmpty());
+    assertEquals(fixture.getExpectedIntersectedPLI(),
+      intersector.intersect(fixture.getFirstPLI(), fixture.getSecondPLI()));
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersect(PositionListIndex, PositionListIndex)} <p/>
+   * Row indices too large for a probing table should be intersected correctly.
+   */
+  @Test
+  public void testIntersectLargeRowIndices() {
+    // Setup
+    long offset = PLIIntersector.MAX_PROBING_TABLE_SIZE;
+    List<LongArrayList> firstClusters = new ArrayList<>();
+    firstClusters.add(new LongArrayList(new long[]{offset + 1, offset + 2, offset + 3}));
+    List<LongArrayList> secondClusters = new ArrayList<>();
+    secondClusters.add(new LongArrayList(new long[]{offset + 1, offset + 3, 4}));
+    // Expected values
+    List<LongArrayList> expectedClusters = new ArrayList<>();
+    expectedClusters.add(new LongArrayList(new long[]{offset + 1, offset + 3}));
+
+    // Execute functionality
+    PositionListIndex actualPLI = new PLIIntersector()
+      .intersect(new PositionListIndex(firstClusters), new PositionListIndex(secondClusters));
+
+    // Check result
+    assertEquals(new PositionListIndex(expectedClusters), actualPLI);
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersectParallel(PositionListIndex, PositionListIndex,
+   * java.util.concurrent.ForkJoinPool)} <p/> The parallel intersection should return exactly the
+   * clusters of the sequential intersection in the same order.
+   */
+  @Test
+  public void testIntersectParallel() {
+    // Setup
+    Random random = new Random(7);
+    int numberOfRows = (int) PLIIntersector.PARALLEL_THRESHOLD * 2;
+    PositionListIndex first = buildPLI(randomColumn(random, numberOfRows, 1000));
+    PositionListIndex second = buildPLI(randomColumn(random, numberOfRows, 50));
+    CompactPositionListIndex compactFirst = new CompactPositionListIndex(first);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    // Expected values
+    PositionListIndex expectedPLI = first.intersect(second);
+    PositionListIndex expectedCompactPLI = compactFirst.intersect(second);
+
+    // Execute functionality
+    PositionListIndex actualPLI = first.intersect(second, pool);
+    PositionListIndex actualCompactPLI = compactFirst.intersect(second, pool);
+    PositionListIndex actualSmallPLI =
+      fixture.getFirstPLI().intersect(fixture.getSecondPLI(), pool);
+    pool.shutdown();
+
+    // Check result
+    assertEquals(expectedPLI.getClusters(), actualPLI.getClusters());
+    assertTrue(actualCompactPLI instanceof CompactPositionListIndex);
+    assertEquals(expectedCompactPLI.getClusters(), actualCompactPLI.getClusters());
+    assertEquals(fixture.getExpectedIntersectedPLI(), actualSmallPLI);
+  }
+
+  /**
+   * Test method for {@link PLIIntersector#intersectBitmaps(List, List)} <p/> The intersection of
+   * the cluster bitmaps of low cardinality columns should equal the probing table intersection.
+   */
+  @Test
+  public void testIntersectBitmaps() {
+    // Setup
+    Random random = new Random(11);
+    int numberOfRows = 200000;
+    PositionListIndex first = buildPLI(randomColumn(random, numberOfRows, 3));
+    PositionListIndex second = buildPLI(randomColumn(random, numberOfRows, 5));
+    PLIIntersector intersector = new PLIIntersector();
+    // Expected values
+    PositionListIndex expectedPLI = first.intersect(second);
+
+    // Execute functionality
+    PositionListIndex actualPLI =
+      intersector.intersectBitmaps(first.getClusterBitmaps(), second.getClusterBitmaps());
+    PositionListIndex actualSmallPLI = intersector.intersectBitmaps(
+      fixture.getFirstPLI().getClusterBitmaps(), fixture.getSecondPLI().getClusterBitmaps());
+
+    // Check result
+    assertEquals(expectedPLI, actualPLI);
+    assertEquals(expectedPLI.getRawKeyError(), actualPLI.getRawKeyError());
+    assertEquals(fixture.getExpectedIntersectedPLI(), actualSmallPLI);
+  }
+
+  protected int[] randomColumn(Random random, int numberOfRows, int numberOfValues) {
+    int[] column = new int[numberOfRows];
+    for (int row = 0; row < numberOfRows; row++) {
+      column[row] = random.nextInt(numberOfValues);
+    }
+    return column;
+  }
+
+  protected PositionListIndex buildPLI(int[]... columns) {
+    Map<List<Integer>, LongArrayList> valueClusters = new HashMap<>();
+    for (int row = 0; row < columns[0].length; row++) {
+      List<Integer> value = new ArrayList<>();
+      for (int[] column : columns) {
+        value.add(column[row]);
+      }
+      LongArrayList cluster = valueClusters.get(value);
+      if (cluster == null) {
+        cluster = new LongArrayList();
+        valueClusters.put(value, cluster);
+      }
+      cluster.add(row);
+    }
+
+    List<LongArrayList> clusters = new ArrayList<>();
+    for (LongArrayList cluster : valueClusters.values()) {
+      if (cluster.size() > 1) {
+        clusters.add(cluster);
+      }
+    }
+    return new PositionListIndex(clusters);
+  }
+}
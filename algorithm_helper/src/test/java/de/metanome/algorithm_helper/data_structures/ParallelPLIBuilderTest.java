@@ -0,0 +1,147 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import de.metanome.algorithm_integration.input.InputIterationException;
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.ParallelPLIBuilder}
+ */
+public class ParallelPLIBuilderTest {
+
+  protected PLIBuilderFixture fixture;
+
+  @Before
+  public void setUp() throws Exception {
+    fixture = new PLIBuilderFixture();
+  }
+
+  /**
+   * Test method for {@link ParallelPLIBuilder#getPLIList()} <p/> The {@link PositionListIndex}es
+   * should equal the ones of the {@link PLIBuilder} for every number of threads and batch size.
+   */
+  @Test
+  public void testGetPLIList() throws Exception {
+    for (boolean nullEqualsNull : new boolean[]{true, false}) {
+      for (int numberOfThreads = 1; numberOfThreads <= 5; numberOfThreads++) {
+        // Setup
+        ParallelPLIBuilder builder = new ParallelPLIBuilder(
+          fixture.getInputGenerator().generateNewCopy(), nullEqualsNull, numberOfThreads);
+        builder.setBatchSize(numberOfThreads);
+        // Expected values
+        List<PositionListIndex> expectedPLIList = fixture.getExpectedPLIList(nullEqualsNull);
+        PositionListIndex[] expectedPLIArray =
+          expectedPLIList.toArray(new PositionListIndex[expectedPLIList.size()]);
+
+        // Execute functionality
+        List<CompactPositionListIndex> actualPLIList = builder.getPLIList();
+
+        // Check result
+        assertThat(actualPLIList,
+          IsIterableContainingInAnyOrder.containsInAnyOrder(expectedPLIArray));
+        assertEquals(fixture.getExpectedNumberOfTuples(), builder.getNumberOfTuples());
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link ParallelPLIBuilder#getEncodedColumns()} <p/> Values should be encoded
+   * with dense ids in the order of their first occurrence.
+   */
+  @Test
+  public void testGetEncodedColumns() throws Exception {
+    // Setup
+    ParallelPLIBuilder builder =
+      new ParallelPLIBuilder(fixture.getInputGenerator().generateNewCopy(), false, 2);
+
+    // Execute functionality
+    int[][] encodedColumns = builder.getEncodedColumns();
+    List<List<String>> dictionaries = builder.getDictionaries();
+
+    // Check result
+    assertArrayEquals(new int[]{0, 1, 2, 3, 4}, encodedColumns[0]);
+    assertArrayEquals(new int[]{0, 0, 0, 0, 0}, encodedColumns[1]);
+    assertArrayEquals(new int[]{0, 0, 1, 1, 0}, encodedColumns[2]);
+    assertArrayEquals(new int[]{ParallelPLIBuilder.NULL_ID, 0, ParallelPLIBuilder.NULL_ID, 1, 2},
+      encodedColumns[3]);
+    assertEquals(Arrays.asList("5", "3"), dictionaries.get(2));
+    assertEquals(fixture.getExpectedDistinctSortedColumns(), builder.getDistinctSortedColumns());
+  }
+
+  /**
+   * Test method for {@link ParallelPLIBuilder#getEncodedColumns()} <p/> Missing cells of rows
+   * shorter than the first row should be encoded as null values.
+   */
+  @Test
+  public void testGetEncodedColumnsShortRow() throws Exception {
+    // Setup
+    fixture.table.get(1).remove(3);
+    ParallelPLIBuilder builder =
+      new ParallelPLIBuilder(fixture.getInputGenerator().generateNewCopy(), false, 2);
+
+    // Execute functionality
+    int[][] encodedColumns = builder.getEncodedColumns();
+    ParallelPLIBuilder nullEqualsNullBuilder =
+      new ParallelPLIBuilder(fixture.getInputGenerator().generateNewCopy(), true, 2);
+
+    // Check result
+    assertArrayEquals(new int[]{0, 0, 1, 1, 0}, encodedColumns[2]);
+    assertArrayEquals(new int[]{ParallelPLIBuilder.NULL_ID, ParallelPLIBuilder.NULL_ID,
+      ParallelPLIBuilder.NULL_ID, 0, 1}, encodedColumns[3]);
+    assertArrayEquals(new int[]{0, 0, 0, 1, 2}, nullEqualsNullBuilder.getEncodedColumns()[3]);
+    assertEquals(5, nullEqualsNullBuilder.getNumberOfTuples());
+  }
+
+  /**
+   * Test method for {@link ParallelPLIBuilder#getEncodedColumns()} <p/> An {@link Error} on a
+   * worker should not block the reading thread once the worker's queue is full, but fail the
+   * encoding.
+   */
+  @Test(timeout = 10000)
+  public void testGetEncodedColumnsWorkerError() throws Exception {
+    // Setup
+    fixture.table.add(2, new ArrayList<String>(Arrays.asList("6", "1", "5", "6")) {
+      @Override
+      public String get(int index) {
+        throw new OutOfMemoryError();
+      }
+    });
+    for (int row = 0; row < 100; row++) {
+      fixture.table.add(new ArrayList<>(Arrays.asList("7", "1", "5", "7")));
+    }
+    ParallelPLIBuilder builder =
+      new ParallelPLIBuilder(fixture.getInputGenerator().generateNewCopy(), true, 2);
+    builder.batchSize = 1;
+
+    // Execute functionality
+    try {
+      builder.getEncodedColumns();
+      fail("InputIterationException was expected.");
+    } catch (InputIterationException e) {
+      // Check result
+      assertTrue(e.getCause() instanceof OutOfMemoryError);
+    }
+  }
+}
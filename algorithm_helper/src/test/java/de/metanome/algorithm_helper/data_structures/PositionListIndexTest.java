@@ -113,6 +113,63 @@ public class PositionListIndexTest {
     assertNotEquals(firstPLI, supersetOfFirstPLI);
   }
 
+  /**
+   * Test method for {@link PositionListIndex#getCanonicalForm()} and {@link
+   * PositionListIndex#getFingerprint()} <p/> Permutations of the clusters and rows should have the
+   * same canonical form and fingerprint.
+   */
+  @Test
+  public void testGetCanonicalForm() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex permutatedfirstPLI = fixture.getPermutatedFirstPLI();
+    PositionListIndex secondPLI = fixture.getSecondPLI();
+
+    // Execute functionality
+    CompactPositionListIndex canonicalForm = permutatedfirstPLI.getCanonicalForm();
+
+    // Check result
+    assertTrue(canonicalForm.isCanonical());
+    assertFalse(permutatedfirstPLI.isCanonical());
+    assertSame(canonicalForm, canonicalForm.getCanonicalForm());
+    assertTrue(canonicalForm.hasSameClusters(firstPLI.getCanonicalForm()));
+    assertEquals(firstPLI.getFingerprint(), permutatedfirstPLI.getFingerprint());
+    assertEquals(firstPLI.getFingerprint(), canonicalForm.getFingerprint());
+    assertNotEquals(firstPLI.getFingerprint(), secondPLI.getFingerprint());
+    assertEquals(firstPLI, canonicalForm);
+  }
+
+  /**
+   * Test method for {@link PositionListIndex#canonical()}
+   * <p/>
+   * The canonical form should be computed once and be dropped when the {@link PositionListIndex}
+   * is modified.
+   */
+  @Test
+  public void testCanonicalIsCached() {
+    // Setup
+    PositionListIndex firstPLI = fixture.getFirstPLI();
+    PositionListIndex permutatedfirstPLI = fixture.getPermutatedFirstPLI();
+
+    // Execute functionality
+    PositionListIndex canonicalForm = permutatedfirstPLI.canonical();
+
+    // Check result
+    assertSame(firstPLI, firstPLI.canonical());
+    PositionListIndex clone = firstPLI.clone();
+    assertSame(clone, clone.canonicalForm);
+    assertSame(canonicalForm, permutatedfirstPLI.canonical());
+    assertSame(canonicalForm, permutatedfirstPLI.getCanonicalForm());
+    assertEquals(firstPLI, permutatedfirstPLI);
+
+    // Execute functionality
+    permutatedfirstPLI.addCluster(new LongArrayList(new long[]{100, 101}));
+
+    // Check result
+    assertNotSame(canonicalForm, permutatedfirstPLI.canonical());
+    assertNotEquals(firstPLI, permutatedfirstPLI);
+  }
+
   /**
    * Test method for {@link PositionListIndex#asHashMap()}
    * <p/>
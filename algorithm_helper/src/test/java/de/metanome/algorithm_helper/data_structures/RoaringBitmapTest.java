@@ -0,0 +1,177 @@
+/**
+ * Copyright 2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_helper.data_structures;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link de.metanome.algorithm_helper.data_structures.RoaringBitmap}
+ */
+public class RoaringBitmapTest {
+
+  /**
+   * Builds a bitmap with a sparse, a dense and a consecutive partition.
+   */
+  protected BitSet randomValues(Random random) {
+    BitSet values = new BitSet();
+    for (int i = 0; i < 100; i++) {
+      values.set(random.nextInt(1 << 16));
+    }
+    for (int i = 0; i < 30000; i++) {
+      values.set((1 << 16) + random.nextInt(1 << 16));
+    }
+    int start = (2 << 16) + random.nextInt(1000);
+    values.set(start, start + 20000);
+    values.set((5 << 16) + random.nextInt(1 << 16));
+    return values;
+  }
+
+  protected RoaringBitmap toBitmap(BitSet values) {
+    RoaringBitmap bitmap = new RoaringBitmap();
+    // Add in descending order to cover insertions
+    for (int value = values.length(); (value = values.previousSetBit(value - 1)) >= 0; ) {
+      bitmap.add(value);
+    }
+    return bitmap;
+  }
+
+  /**
+   * Test method for {@link RoaringBitmap#add(int)}, {@link RoaringBitmap#contains(int)} and {@link
+   * RoaringBitmap#toArray()}
+   */
+  @Test
+  public void testAddAndContains() {
+    // Setup
+    Random random = new Random(3);
+    BitSet values = randomValues(random);
+    // Expected values
+    int[] expectedValues = values.stream().toArray();
+
+    // Execute functionality
+    RoaringBitmap bitmap = toBitmap(values);
+
+    // Check result
+    assertArrayEquals(expectedValues, bitmap.toArray());
+    assertEquals(values.cardinality(), bitmap.getCardinality());
+    for (int i = 0; i < 1000; i++) {
+      int value = random.nextInt(6 << 16);
+      assertEquals(values.get(value), bitmap.contains(value));
+    }
+    assertFalse(bitmap.isEmpty());
+    assertTrue(new RoaringBitmap().isEmpty());
+  }
+
+  /**
+   * Test method for {@link RoaringBitmap#and(RoaringBitmap)}, {@link
+   * RoaringBitmap#andCardinality(RoaringBitmap)} and {@link RoaringBitmap#or(RoaringBitmap)} <p/>
+   * The results should not depend on the kind of containers.
+   */
+  @Test
+  public void testAndOr() {
+    // Setup
+    Random random = new Random(5);
+    BitSet firstValues = randomValues(random);
+    BitSet secondValues = randomValues(random);
+    RoaringBitmap first = toBitmap(firstValues);
+    RoaringBitmap second = toBitmap(secondValues);
+    RoaringBitmap optimizedSecond = toBitmap(secondValues).runOptimize();
+    // Expected values
+    BitSet expectedIntersection = (BitSet) firstValues.clone();
+    expectedIntersection.and(secondValues);
+    BitSet expectedUnion = (BitSet) firstValues.clone();
+    expectedUnion.or(secondValues);
+
+    // Execute functionality
+    // Check result
+    for (RoaringBitmap other : new RoaringBitmap[]{second, optimizedSecond}) {
+      assertArrayEquals(expectedIntersection.stream().toArray(), first.and(other).toArray());
+      assertArrayEquals(expectedIntersection.stream().toArray(), other.and(first).toArray());
+      assertEquals(expectedIntersection.cardinality(), first.andCardinality(other));
+      assertEquals(expectedIntersection.cardinality(), other.andCardinality(first));
+      assertArrayEquals(expectedUnion.stream().toArray(), first.or(other).toArray());
+      assertArrayEquals(expectedUnion.stream().toArray(), other.or(first).toArray());
+    }
+    // The operands should not be modified
+    assertEquals(second, optimizedSecond);
+    assertArrayEquals(secondValues.stream().toArray(), second.toArray());
+  }
+
+  /**
+   * Test method for {@link RoaringBitmap#runOptimize()} <p/> Consecutive values should be stored
+   * in less memory without changing the content.
+   */
+  @Test
+  public void testRunOptimize() {
+    // Setup
+    RoaringBitmap bitmap = new RoaringBitmap();
+    for (int value = 10; value < 50000; value++) {
+      bitmap.add(value);
+    }
+    bitmap.add(60000);
+    RoaringBitmap expectedBitmap = new RoaringBitmap();
+    for (int value : bitmap.toArray()) {
+      expectedBitmap.add(value);
+    }
+    long unoptimizedMemoryUsage = bitmap.getMemoryUsage();
+
+    // Execute functionality
+    bitmap.runOptimize();
+
+    // Check result
+    assertTrue(bitmap.getMemoryUsage() < unoptimizedMemoryUsage);
+    assertEquals(expectedBitmap, bitmap);
+    assertTrue(bitmap.contains(49999));
+    assertFalse(bitmap.contains(50000));
+    // Adding to a run container should keep all values
+    bitmap.add(50000).add(5);
+    assertEquals(49993, bitmap.getCardinality());
+    assertTrue(bitmap.contains(50000));
+  }
+
+  /**
+   * Test method for {@link RoaringBitmap#fromRows(LongArrayList)} and {@link
+   * RoaringBitmap#toRows()}
+   */
+  @Test
+  public void testFromRows() {
+    // Setup
+    LongArrayList rows = new LongArrayList(new long[]{7, 2, 70000, 2});
+    // Expected values
+    LongArrayList expectedRows = new LongArrayList(new long[]{2, 7, 70000});
+
+    // Execute functionality
+    RoaringBitmap bitmap = RoaringBitmap.fromRows(rows);
+
+    // Check result
+    assertEquals(expectedRows, bitmap.toRows());
+  }
+
+  /**
+   * Test method for {@link RoaringBitmap#fromRows(LongArrayList)} <p/> Rows beyond the int range
+   * cannot be stored.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testFromRowsOutOfRange() {
+    // Execute functionality
+    RoaringBitmap.fromRows(new LongArrayList(new long[]{1L << 40}));
+  }
+}
@@ -15,10 +15,15 @@
  */
 package de.metanome.algorithm_helper.data_structures;
 
+import de.metanome.algorithm_integration.algorithm_execution.FileCreationException;
 import de.metanome.test_helper.EqualsAndHashCodeTester;
 import org.hamcrest.collection.IsIterableContainingInAnyOrder;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -83,6 +88,39 @@ public class SubSetGraphTest {
     assertSame(graph, graphAfterAddAll);
   }
 
+  /**
+   * Test method for {@link SubSetGraph#remove(ColumnCombinationBitset)} <p/> After removing a
+   * column combination the graph should equal a graph built without it. Branches leading to no
+   * column combination should be removed, so they are not reported as subsets.
+   */
+  @Test
+  public void testRemove() {
+    // Setup
+    SubSetGraph graph = new SubSetGraph()
+      .add(new ColumnCombinationBitset(1, 2))
+      .add(new ColumnCombinationBitset(1, 2, 3))
+      .add(new ColumnCombinationBitset(4));
+    // Expected values
+    SubSetGraph expectedGraph = new SubSetGraph()
+      .add(new ColumnCombinationBitset(1, 2))
+      .add(new ColumnCombinationBitset(4));
+
+    // Execute functionality
+    SubSetGraph graphAfterRemove = graph.remove(new ColumnCombinationBitset(1, 2, 3));
+    graph.remove(new ColumnCombinationBitset(1, 3));
+
+    // Check result
+    assertEquals(expectedGraph, graph);
+    assertSame(graph, graphAfterRemove);
+
+    graph.remove(new ColumnCombinationBitset(1, 2));
+    assertEquals(new SubSetGraph().add(new ColumnCombinationBitset(4)), graph);
+    List<ColumnCombinationBitset> subsets =
+      graph.getExistingSubsets(new ColumnCombinationBitset(1, 2, 3, 4));
+    assertEquals(1, subsets.size());
+    assertEquals(new ColumnCombinationBitset(4), subsets.get(0));
+  }
+
   /**
    * Test method for {@link SubSetGraph#getExistingSubsets(ColumnCombinationBitset)}
    */
@@ -213,4 +251,60 @@ public class SubSetGraphTest {
       IsIterableContainingInAnyOrder
         .containsInAnyOrder(fixture.getExpectedMinimalSubsets()));
   }
+
+  /**
+   * Test method for {@link SubSetGraph#containsSubsets(List)} <p/> The batched query should answer every
+   * candidate like {@link SubSetGraph#containsSubset(ColumnCombinationBitset)}.
+   */
+  @Test
+  public void testContainsSubsets() {
+    // Setup
+    SubSetGraphFixture fixture = new SubSetGraphFixture();
+    SubSetGraph graph = fixture.getGraph();
+    List<ColumnCombinationBitset> candidates = new ArrayList<>();
+    candidates.add(fixture.getColumnCombinationForSubsetQuery());
+    for (int i = 0; i < 256; i++) {
+      ColumnCombinationBitset candidate = new ColumnCombinationBitset();
+      for (int columnIndex = 0; columnIndex < 8; columnIndex++) {
+        if ((i & (1 << columnIndex)) != 0) {
+          candidate.addColumn(columnIndex + 1);
+        }
+      }
+      candidates.add(candidate);
+    }
+    // Expected values
+    BitSet expectedResult = new BitSet();
+    for (int i = 0; i < candidates.size(); i++) {
+      expectedResult.set(i, graph.containsSubset(candidates.get(i)));
+    }
+
+    // Execute functionality
+    BitSet actualResult = graph.containsSubsets(candidates);
+
+    // Check result
+    assertEquals(expectedResult, actualResult);
+    assertTrue(actualResult.get(0));
+  }
+
+  /**
+   * Test method for {@link SubSetGraph#dump(de.metanome.algorithm_integration.algorithm_execution.FileGenerator)}
+   * and {@link SubSetGraph#load(File)} <p/> The loaded graph should equal the dumped graph.
+   */
+  @Test
+  public void testDumpAndLoad() throws FileCreationException, IOException {
+    // Setup
+    SubSetGraph graph = new SubSetGraphFixture().getGraph();
+    graph.add(new ColumnCombinationBitset(3, 70, 200));
+    MappedPositionListIndexTest.TemporaryFileGenerator fileGenerator =
+      new MappedPositionListIndexTest.TemporaryFileGenerator();
+
+    // Execute functionality
+    File file = graph.dump(fileGenerator);
+    SubSetGraph actualGraph = SubSetGraph.load(file);
+    fileGenerator.close();
+
+    // Check result
+    assertEquals(graph, actualGraph);
+    assertTrue(actualGraph.containsSubset(new ColumnCombinationBitset(3, 70, 100, 200)));
+  }
 }
@@ -20,6 +20,8 @@ import org.hamcrest.collection.IsIterableContainingInAnyOrder;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 
@@ -202,4 +204,63 @@ public class SuperSetGraphTest {
     EqualsAndHashCodeTester<SuperSetGraph> tester = new EqualsAndHashCodeTester<>();
     tester.performBasicEqualsAndHashCodeChecks(actualGraph, equalsGraph, notEqualsGraph);
   }
+
+  /**
+   * Test method for {@link SuperSetGraph#containsSupersets(List)} <p/> The batched query should answer every
+   * candidate like {@link SuperSetGraph#containsSuperset(ColumnCombinationBitset)}.
+   */
+  @Test
+  public void testContainsSupersets() {
+    // Setup
+    SuperSetGraphFixture fixture = new SuperSetGraphFixture();
+    SuperSetGraph graph = fixture.getGraph();
+    List<ColumnCombinationBitset> candidates = new ArrayList<>();
+    candidates.add(fixture.getColumnCombinationForSupersetQuery());
+    for (int i = 0; i < 256; i++) {
+      ColumnCombinationBitset candidate = new ColumnCombinationBitset();
+      for (int columnIndex = 0; columnIndex < 8; columnIndex++) {
+        if ((i & (1 << columnIndex)) != 0) {
+          candidate.addColumn(columnIndex + 1);
+        }
+      }
+      candidates.add(candidate);
+    }
+    // Expected values
+    BitSet expectedResult = new BitSet();
+    for (int i = 0; i < candidates.size(); i++) {
+      expectedResult.set(i, graph.containsSuperset(candidates.get(i)));
+    }
+
+    // Execute functionality
+    BitSet actualResult = graph.containsSupersets(candidates);
+
+    // Check result
+    assertEquals(expectedResult, actualResult);
+    assertTrue(actualResult.get(0));
+  }
+
+  /**
+   * Test method for {@link SuperSetGraph#getMaximalSupersets()}
+   */
+  @Test
+  public void testGetMaximalSupersets() {
+    // Setup
+    SuperSetGraph graph = new SuperSetGraph(fixture.getNumberOfColumns());
+    graph.add(new ColumnCombinationBitset(1, 2))
+      .add(new ColumnCombinationBitset(1, 2, 3))
+      .add(new ColumnCombinationBitset(3))
+      .add(new ColumnCombinationBitset(4, 5))
+      .add(new ColumnCombinationBitset(2, 4));
+    // Expected values
+    ColumnCombinationBitset[] expectedMaximalSupersets = {
+      new ColumnCombinationBitset(1, 2, 3),
+      new ColumnCombinationBitset(4, 5),
+      new ColumnCombinationBitset(2, 4)
+    };
+
+    // Execute functionality
+    // Check result
+    assertThat(graph.getMaximalSupersets(),
+      IsIterableContainingInAnyOrder.containsInAnyOrder(expectedMaximalSupersets));
+  }
 }
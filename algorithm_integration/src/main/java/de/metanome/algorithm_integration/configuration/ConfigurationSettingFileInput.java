@@ -42,6 +42,9 @@ public class ConfigurationSettingFileInput extends ConfigurationSettingRelationa
   public final static boolean DEFAULT_HEADER = true;
   public final static boolean DEFAULT_SKIPDIFFERINGLINES = false;
   public final static String DEFAULT_NULL_VALUE = "";
+  public final static boolean DEFAULT_PARALLEL_PARSING = false;
+  public final static boolean DEFAULT_PRESERVE_ROW_ORDER = true;
+  public final static boolean DEFAULT_COLUMNAR_CACHE = false;
   private static final long serialVersionUID = -8315546806138520520L;
   // Needed for restful serialization
   public String type = "ConfigurationSettingFileInput";
@@ -56,6 +59,12 @@ public class ConfigurationSettingFileInput extends ConfigurationSettingRelationa
   private boolean header;
   private boolean skipDifferingLines;
   private String nullValue;
+  // Parse chunks of the file on multiple threads
+  private boolean parallelParsing = DEFAULT_PARALLEL_PARSING;
+  // Deliver the rows of a parallel parsed file in file order
+  private boolean preserveRowOrder = DEFAULT_PRESERVE_ROW_ORDER;
+  // Serve copies of the input from a binary columnar cache of the parsed file
+  private boolean columnarCache = DEFAULT_COLUMNAR_CACHE;
 
   /**
    * Exists for serialization.
@@ -213,6 +222,33 @@ public class ConfigurationSettingFileInput extends ConfigurationSettingRelationa
     return this;
   }
 
+  public boolean isParallelParsing() {
+    return parallelParsing;
+  }
+
+  public ConfigurationSettingFileInput setParallelParsing(boolean parallelParsing) {
+    this.parallelParsing = parallelParsing;
+    return this;
+  }
+
+  public boolean isPreserveRowOrder() {
+    return preserveRowOrder;
+  }
+
+  public ConfigurationSettingFileInput setPreserveRowOrder(boolean preserveRowOrder) {
+    this.preserveRowOrder = preserveRowOrder;
+    return this;
+  }
+
+  public boolean isColumnarCache() {
+    return columnarCache;
+  }
+
+  public ConfigurationSettingFileInput setColumnarCache(boolean columnarCache) {
+    this.columnarCache = columnarCache;
+    return this;
+  }
+
   @XmlTransient
   @JsonIgnore
   public char getSeparatorAsChar() {
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_integration.input;
+
+/**
+ * A {@link RelationalInput} that can read many rows at once into column-major buffers. Consumers
+ * reading all rows avoid the allocation of a list per row. Use {@link
+ * BatchRelationalInputAdapter#of(RelationalInput)} to read any {@link RelationalInput} in batches.
+ *
+ * {@link #next()} and {@link #nextBatch(String[][])} read from the same position and may be mixed.
+ */
+public interface BatchRelationalInput extends RelationalInput {
+
+  int DEFAULT_BATCH_SIZE = 1024;
+
+  /**
+   * Reads the next rows into the given buffer. The buffer holds one array per column, i.e. the
+   * value of the i-th read row in column c is stored in batch[c][i]. As many rows are read as the
+   * column arrays can hold unless the input ends before.
+   *
+   * @param batch the column-major buffer with {@link #numberOfColumns()} equally long arrays
+   * @return the number of rows read, 0 if there are no more rows
+   * @throws InputIterationException if the next rows could not be read
+   */
+  int nextBatch(String[][] batch) throws InputIterationException;
+
+}
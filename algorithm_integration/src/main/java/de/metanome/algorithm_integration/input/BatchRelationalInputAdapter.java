@@ -0,0 +1,107 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_integration.input;
+
+import java.util.List;
+
+/**
+ * Reads the rows of any {@link RelationalInput} in batches by copying them row by row.
+ */
+public class BatchRelationalInputAdapter implements BatchRelationalInput {
+
+  protected RelationalInput input;
+
+  public BatchRelationalInputAdapter(RelationalInput input) {
+    this.input = input;
+  }
+
+  /**
+   * @param input the input to read in batches
+   * @return the input itself if it reads batches natively, an adapter otherwise
+   */
+  public static BatchRelationalInput of(RelationalInput input) {
+    if (input instanceof BatchRelationalInput) {
+      return (BatchRelationalInput) input;
+    }
+    return new BatchRelationalInputAdapter(input);
+  }
+
+  /**
+   * Reads the next rows of a {@link RelationalInput} into the given buffer with {@link
+   * RelationalInput#next()}. Implementations of {@link BatchRelationalInput} can use this method
+   * for inputs that cannot fill batches more efficiently.
+   *
+   * @param input the input to read
+   * @param batch the column-major buffer
+   * @return the number of rows read, 0 if there are no more rows
+   * @throws InputIterationException if the next rows could not be read
+   */
+  public static int nextBatch(RelationalInput input, String[][] batch)
+    throws InputIterationException {
+    if (batch.length == 0) {
+      return 0;
+    }
+    int batchSize = batch[0].length;
+    int numberOfRows = 0;
+    while (numberOfRows < batchSize && input.hasNext()) {
+      List<String> row = input.next();
+      if (row.size() != batch.length) {
+        throw new InputIterationException(
+          "Row length " + row.size() + " did not match the batch width " + batch.length);
+      }
+      for (int columnIndex = 0; columnIndex < batch.length; columnIndex++) {
+        batch[columnIndex][numberOfRows] = row.get(columnIndex);
+      }
+      numberOfRows++;
+    }
+    return numberOfRows;
+  }
+
+  @Override
+  public int nextBatch(String[][] batch) throws InputIterationException {
+    return nextBatch(input, batch);
+  }
+
+  @Override
+  public boolean hasNext() throws InputIterationException {
+    return input.hasNext();
+  }
+
+  @Override
+  public List<String> next() throws InputIterationException {
+    return input.next();
+  }
+
+  @Override
+  public int numberOfColumns() {
+    return input.numberOfColumns();
+  }
+
+  @Override
+  public String relationName() {
+    return input.relationName();
+  }
+
+  @Override
+  public List<String> columnNames() {
+    return input.columnNames();
+  }
+
+  @Override
+  public void close() throws Exception {
+    input.close();
+  }
+}
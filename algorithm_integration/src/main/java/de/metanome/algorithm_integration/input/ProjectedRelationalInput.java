@@ -0,0 +1,106 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_integration.input;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A view on a {@link RelationalInput} containing only some of its columns.
+ */
+public class ProjectedRelationalInput implements BatchRelationalInput {
+
+  protected RelationalInput input;
+  protected int[] columnIndices;
+  protected List<String> columnNames;
+
+  /**
+   * @param input         the input to project
+   * @param columnIndices the indices of the columns to keep, in the order of the returned rows
+   */
+  public ProjectedRelationalInput(RelationalInput input, int[] columnIndices) {
+    this.input = input;
+    this.columnIndices = columnIndices.clone();
+    this.columnNames = project(input.columnNames(), this.columnIndices);
+  }
+
+  /**
+   * @param row           the row to project
+   * @param columnIndices the indices of the columns to keep
+   * @return the values of the given columns
+   */
+  public static List<String> project(List<String> row, int[] columnIndices) {
+    if (row == null) {
+      return null;
+    }
+    List<String> projectedRow = new ArrayList<>(columnIndices.length);
+    for (int columnIndex : columnIndices) {
+      projectedRow.add(row.get(columnIndex));
+    }
+    return Collections.unmodifiableList(projectedRow);
+  }
+
+  @Override
+  public boolean hasNext() throws InputIterationException {
+    return input.hasNext();
+  }
+
+  @Override
+  public List<String> next() throws InputIterationException {
+    return project(input.next(), columnIndices);
+  }
+
+  /**
+   * Copies only the projected values of every row into the batch.
+   */
+  @Override
+  public int nextBatch(String[][] batch) throws InputIterationException {
+    if (batch.length == 0) {
+      return 0;
+    }
+    int batchSize = batch[0].length;
+    int numberOfRows = 0;
+    while (numberOfRows < batchSize && input.hasNext()) {
+      List<String> row = input.next();
+      for (int i = 0; i < batch.length; i++) {
+        batch[i][numberOfRows] = row.get(columnIndices[i]);
+      }
+      numberOfRows++;
+    }
+    return numberOfRows;
+  }
+
+  @Override
+  public int numberOfColumns() {
+    return columnIndices.length;
+  }
+
+  @Override
+  public String relationName() {
+    return input.relationName();
+  }
+
+  @Override
+  public List<String> columnNames() {
+    return columnNames;
+  }
+
+  @Override
+  public void close() throws Exception {
+    input.close();
+  }
+}
@@ -32,4 +32,19 @@ public interface RelationalInputGenerator extends AutoCloseable {
    * @throws AlgorithmConfigurationException if the configuration is not correct
    */
   public RelationalInput generateNewCopy() throws InputGenerationException, AlgorithmConfigurationException;
+
+  /**
+   * Generates a new copy of the relational input that only contains the given columns. The default
+   * implementation projects the rows of a full copy; generators should read only the given
+   * columns if they can.
+   *
+   * @param columnIndices the indices of the columns to read, in the order of the returned rows
+   * @return new copy of the projected relational input
+   * @throws InputGenerationException if no new copy could be created
+   * @throws AlgorithmConfigurationException if the configuration is not correct
+   */
+  public default RelationalInput generateNewCopy(int[] columnIndices)
+    throws InputGenerationException, AlgorithmConfigurationException {
+    return new ProjectedRelationalInput(generateNewCopy(), columnIndices);
+  }
 }
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_integration.input;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BatchRelationalInputAdapter}
+ */
+public class BatchRelationalInputAdapterTest {
+
+  /**
+   * A row based input over a fixed list of rows.
+   */
+  protected static class ListInput implements RelationalInput {
+
+    protected Iterator<List<String>> rows;
+
+    public ListInput(List<List<String>> rows) {
+      this.rows = rows.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return rows.hasNext();
+    }
+
+    @Override
+    public List<String> next() {
+      return rows.next();
+    }
+
+    @Override
+    public int numberOfColumns() {
+      return 2;
+    }
+
+    @Override
+    public String relationName() {
+      return "relation";
+    }
+
+    @Override
+    public List<String> columnNames() {
+      return Arrays.asList("column1", "column2");
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Test method for {@link BatchRelationalInputAdapter#nextBatch(String[][])} <p/> The rows should
+   * be written column by column into batches of the buffer size.
+   */
+  @Test
+  public void testNextBatch() throws InputIterationException {
+    // Setup
+    List<List<String>> rows = new ArrayList<>();
+    for (int row = 0; row < 5; row++) {
+      rows.add(Arrays.asList("a" + row, row % 2 == 0 ? null : "b" + row));
+    }
+    BatchRelationalInput input = BatchRelationalInputAdapter.of(new ListInput(rows));
+    String[][] batch = new String[2][2];
+
+    // Execute functionality
+    // Check result
+    assertEquals(2, input.nextBatch(batch));
+    assertArrayEquals(new String[]{"a0", "a1"}, batch[0]);
+    assertArrayEquals(new String[]{null, "b1"}, batch[1]);
+    // Rows and batches can be mixed
+    assertEquals(Arrays.asList("a2", null), input.next());
+    assertEquals(2, input.nextBatch(batch));
+    assertArrayEquals(new String[]{"a3", "a4"}, batch[0]);
+    assertEquals(0, input.nextBatch(batch));
+    assertFalse(input.hasNext());
+  }
+
+  /**
+   * Test method for {@link BatchRelationalInputAdapter#of(RelationalInput)} <p/> Inputs reading
+   * batches natively should not be wrapped.
+   */
+  @Test
+  public void testOf() {
+    // Setup
+    BatchRelationalInput input =
+      new BatchRelationalInputAdapter(new ListInput(new ArrayList<List<String>>()));
+
+    // Execute functionality
+    // Check result
+    assertSame(input, BatchRelationalInputAdapter.of(input));
+    assertEquals(2, input.numberOfColumns());
+  }
+
+  /**
+   * Test method for {@link BatchRelationalInputAdapter#nextBatch(String[][])} <p/> Rows not
+   * matching the batch width should fail.
+   */
+  @Test(expected = InputIterationException.class)
+  public void testNextBatchDifferingRow() throws InputIterationException {
+    // Setup
+    List<List<String>> rows = new ArrayList<>();
+    rows.add(Arrays.asList("a", "b", "c"));
+    BatchRelationalInput input = BatchRelationalInputAdapter.of(new ListInput(rows));
+
+    // Execute functionality
+    input.nextBatch(new String[2][4]);
+  }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2014-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.algorithm_integration.input;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ProjectedRelationalInput}
+ */
+public class ProjectedRelationalInputTest {
+
+  protected List<List<String>> getRows() {
+    List<List<String>> rows = new ArrayList<>();
+    rows.add(Arrays.asList("a1", "b1"));
+    rows.add(Arrays.asList("a2", null));
+    rows.add(Arrays.asList("a3", "b3"));
+    return rows;
+  }
+
+  /**
+   * Test method for {@link RelationalInputGenerator#generateNewCopy(int[])} <p/> The default
+   * implementation should return the given columns of a full copy in the given order.
+   */
+  @Test
+  public void testGenerateNewCopyProjection() throws Exception {
+    // Setup
+    RelationalInputGenerator generator = new RelationalInputGenerator() {
+      @Override
+      public RelationalInput generateNewCopy() {
+        return new BatchRelationalInputAdapterTest.ListInput(getRows());
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+    // Execute functionality
+    RelationalInput input = generator.generateNewCopy(new int[]{1, 0, 1});
+
+    // Check result
+    assertEquals(3, input.numberOfColumns());
+    assertEquals(Arrays.asList("column2", "column1", "column2"), input.columnNames());
+    assertEquals(Arrays.asList("b1", "a1", "b1"), input.next());
+    assertEquals(Arrays.asList(null, "a2", null), input.next());
+  }
+
+  /**
+   * Test method for {@link ProjectedRelationalInput#nextBatch(String[][])} <p/> Only the projected
+   * values should be copied into the batch.
+   */
+  @Test
+  public void testNextBatch() throws InputIterationException {
+    // Setup
+    ProjectedRelationalInput input = new ProjectedRelationalInput(
+      new BatchRelationalInputAdapterTest.ListInput(getRows()), new int[]{1});
+    String[][] batch = new String[1][2];
+
+    // Execute functionality
+    // Check result
+    assertEquals(2, input.nextBatch(batch));
+    assertArrayEquals(new String[]{"b1", null}, batch[0]);
+    assertEquals(1, input.nextBatch(batch));
+    assertEquals("b3", batch[0][0]);
+    assertEquals(0, input.nextBatch(batch));
+    assertNull(ProjectedRelationalInput.project(null, new int[]{0}));
+  }
+}
@@ -15,7 +15,12 @@
  */
 package de.metanome.backend.input.database;
 
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import de.metanome.algorithm_integration.AlgorithmConfigurationException;
 import de.metanome.algorithm_integration.configuration.ConfigurationSettingTableInput;
@@ -38,9 +43,13 @@ public class DefaultTableInputGenerator implements TableInputGenerator {
   protected static final String BASE_STATEMENT = "SELECT * FROM %s";
   protected static final String SORT_STATEMENT = "SELECT * FROM %s ORDER BY %s %s";
   protected static final String FILTER_STATEMENT = "SELECT * FROM %s WHERE %s";
+  protected static final String PROJECTION_STATEMENT = "SELECT %s FROM %s";
+  protected static final String COLUMNS_STATEMENT = "SELECT * FROM %s WHERE 1 = 0";
 
   protected DefaultDatabaseConnectionGenerator defaultDatabaseConnectionGenerator;
   protected String table;
+  // Quoted column names of the table, read once for projections
+  protected List<String> columnIdentifiers;
 
   protected DefaultTableInputGenerator() {
   }
@@ -83,6 +92,82 @@ public class DefaultTableInputGenerator implements TableInputGenerator {
       .generateRelationalInputFromSql(query, table);
   }
 
+  /**
+   * Generates a new {@link de.metanome.algorithm_integration.input.RelationalInput} that selects
+   * only the given columns of the table.
+   *
+   * @param columnIndices the indices of the columns to select, in the order of the returned rows
+   * @return the {@link de.metanome.algorithm_integration.input.RelationalInput}
+   * @throws InputGenerationException if the database statement could not be executed or the table
+   *                                  has no column with one of the indices
+   */
+  @Override
+  public RelationalInput generateNewCopy(int[] columnIndices)
+    throws InputGenerationException, AlgorithmConfigurationException {
+    List<String> columnIdentifiers = getColumnIdentifiers();
+    StringBuilder selectList = new StringBuilder();
+    for (int columnIndex : columnIndices) {
+      if (columnIndex < 0 || columnIndex >= columnIdentifiers.size()) {
+        throw new InputGenerationException("The table has no column " + columnIndex);
+      }
+      if (selectList.length() > 0) {
+        selectList.append(", ");
+      }
+      selectList.append(columnIdentifiers.get(columnIndex));
+    }
+    String query = String.format(PROJECTION_STATEMENT, selectList, table);
+    return defaultDatabaseConnectionGenerator
+      .generateRelationalInputFromSql(query, table);
+  }
+
+  /**
+   * Reads the column names of the table from the metadata of an empty result. The names are
+   * quoted with the identifier quote of the database, so that names with spaces, reserved words or
+   * mixed case select the same columns as "SELECT *".
+   *
+   * @return the quoted column names in table order
+   * @throws InputGenerationException if the database statement could not be executed
+   */
+  protected List<String> getColumnIdentifiers()
+    throws InputGenerationException, AlgorithmConfigurationException {
+    if (columnIdentifiers != null) {
+      return columnIdentifiers;
+    }
+    ResultSet resultSet = defaultDatabaseConnectionGenerator
+      .generateResultSetFromSql(String.format(COLUMNS_STATEMENT, table));
+    try {
+      DatabaseMetaData databaseMetaData = resultSet.getStatement().getConnection().getMetaData();
+      String quote = databaseMetaData.getIdentifierQuoteString();
+      ResultSetMetaData metaData = resultSet.getMetaData();
+      List<String> identifiers = new ArrayList<>(metaData.getColumnCount());
+      for (int column = 1; column <= metaData.getColumnCount(); column++) {
+        identifiers.add(quoteIdentifier(metaData.getColumnName(column), quote));
+      }
+      columnIdentifiers = identifiers;
+    } catch (SQLException e) {
+      throw new InputGenerationException("Could not read the columns of the table", e);
+    } finally {
+      try {
+        resultSet.getStatement().close();
+      } catch (SQLException e) {
+        e.printStackTrace();
+      }
+    }
+    return columnIdentifiers;
+  }
+
+  /**
+   * @param name  the column name
+   * @param quote the identifier quote string of the database, a space if quoting is not supported
+   * @return the quoted name, with quotes inside the name doubled
+   */
+  protected static String quoteIdentifier(String name, String quote) {
+    if (quote == null || quote.trim().isEmpty()) {
+      return name;
+    }
+    return quote + name.replace(quote, quote + quote) + quote;
+  }
+
   @Override
   public ResultSet sortBy(String column, Boolean descending) throws InputGenerationException, AlgorithmConfigurationException {
 	String query = String.format(SORT_STATEMENT, table, column, descending ? "DESC" : "ASC");
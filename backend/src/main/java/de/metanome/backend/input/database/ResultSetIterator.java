@@ -16,8 +16,8 @@
 package de.metanome.backend.input.database;
 
 import com.google.common.collect.ImmutableList;
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
 import de.metanome.algorithm_integration.input.InputIterationException;
-import de.metanome.algorithm_integration.input.RelationalInput;
 
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -26,7 +26,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.ArrayList;
 
-public class ResultSetIterator implements RelationalInput {
+public class ResultSetIterator implements BatchRelationalInput {
 
   /**
    * Surrogate for when the name of the iterated relation could not be retrieved.
@@ -109,6 +109,30 @@ public class ResultSetIterator implements RelationalInput {
     return resultRow;
   }
 
+  /**
+   * Reads the values of the next rows directly from the result set into the batch.
+   */
+  @Override
+  public int nextBatch(String[][] batch) throws InputIterationException {
+    if (batch.length == 0) {
+      return 0;
+    }
+    int batchSize = batch[0].length;
+    int numberOfRows = 0;
+    while (numberOfRows < batchSize && hasNext()) {
+      nextCalled = false;
+      try {
+        for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+          batch[columnIndex][numberOfRows] = resultSet.getString(columnIndex + 1);
+        }
+      } catch (SQLException e) {
+        throw new InputIterationException("Could not retrieve values from result set", e);
+      }
+      numberOfRows++;
+    }
+    return numberOfRows;
+  }
+
   @Override
   public int numberOfColumns() {
     return numberOfColumns;
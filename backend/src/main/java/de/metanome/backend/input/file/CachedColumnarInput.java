@@ -0,0 +1,206 @@
+/**
+ * Copyright 2015-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
+import de.metanome.algorithm_integration.input.InputIterationException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a copy of a file input from a {@link ColumnarFileCache}. Only the selected columns are
+ * mapped; their dictionaries are loaded and the value ids are read from the mapped cache file.
+ */
+public class CachedColumnarInput implements BatchRelationalInput {
+
+  protected String relationName;
+  protected List<String> columnNames;
+  protected int numberOfRows;
+  protected int currentRow = 0;
+
+  // Per selected column: the values by id and the mapped ids of all rows
+  protected String[][] dictionaries;
+  protected ByteBuffer[] ids;
+  protected int[] idWidths;
+
+  /**
+   * @param cacheFile     the cache file
+   * @param columnIndices the indices of the columns to read, null to read all columns
+   * @throws InputIterationException if the cache file cannot be read
+   */
+  public CachedColumnarInput(File cacheFile, int[] columnIndices)
+    throws InputIterationException {
+    long[] columnOffsets;
+    long footerOffset;
+    List<String> allColumnNames = new ArrayList<>();
+    try (DataInputStream in = new DataInputStream(
+      new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      ColumnarFileCache.skipHeaderStart(in);
+      this.relationName = ColumnarFileCache.readString(in);
+      int numberOfColumns = in.readInt();
+      for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+        allColumnNames.add(ColumnarFileCache.readString(in));
+      }
+      this.numberOfRows = in.readInt();
+    } catch (IOException e) {
+      throw new InputIterationException("Could not read the columnar cache header", e);
+    }
+
+    if (columnIndices == null) {
+      columnIndices = new int[allColumnNames.size()];
+      for (int columnIndex = 0; columnIndex < columnIndices.length; columnIndex++) {
+        columnIndices[columnIndex] = columnIndex;
+      }
+    }
+    List<String> selectedColumnNames = new ArrayList<>(columnIndices.length);
+    for (int columnIndex : columnIndices) {
+      if (columnIndex < 0 || columnIndex >= allColumnNames.size()) {
+        throw new InputIterationException("The cached input has no column " + columnIndex);
+      }
+      selectedColumnNames.add(allColumnNames.get(columnIndex));
+    }
+    this.columnNames = Collections.unmodifiableList(selectedColumnNames);
+
+    this.dictionaries = new String[columnIndices.length][];
+    this.ids = new ByteBuffer[columnIndices.length];
+    this.idWidths = new int[columnIndices.length];
+    try (RandomAccessFile file = new RandomAccessFile(cacheFile, "r")) {
+      file.seek(file.length() - Long.BYTES - Integer.BYTES);
+      footerOffset = file.readLong();
+      if (file.readInt() != ColumnarFileCache.MAGIC) {
+        throw new IOException("The columnar cache is truncated");
+      }
+      file.seek(footerOffset);
+      columnOffsets = new long[allColumnNames.size()];
+      for (int columnIndex = 0; columnIndex < columnOffsets.length; columnIndex++) {
+        columnOffsets[columnIndex] = file.readLong();
+      }
+
+      FileChannel channel = file.getChannel();
+      for (int i = 0; i < columnIndices.length; i++) {
+        int columnIndex = columnIndices[i];
+        long columnEnd = columnIndex + 1 < columnOffsets.length
+          ? columnOffsets[columnIndex + 1] : footerOffset;
+        // The mapping stays valid after the channel is closed
+        ByteBuffer column = channel.map(FileChannel.MapMode.READ_ONLY,
+          columnOffsets[columnIndex], columnEnd - columnOffsets[columnIndex]);
+        readColumn(column, i);
+      }
+    } catch (IOException e) {
+      throw new InputIterationException("Could not map the columnar cache", e);
+    }
+  }
+
+  protected void readColumn(ByteBuffer column, int selectedIndex) {
+    String[] dictionary = new String[column.getInt()];
+    for (int id = 0; id < dictionary.length; id++) {
+      int length = column.getInt();
+      if (length >= 0) {
+        byte[] bytes = new byte[length];
+        column.get(bytes);
+        dictionary[id] = new String(bytes, StandardCharsets.UTF_8);
+      }
+    }
+    dictionaries[selectedIndex] = dictionary;
+    idWidths[selectedIndex] = column.get();
+    ids[selectedIndex] = column.slice();
+  }
+
+  protected String getValue(int selectedIndex, int row) {
+    ByteBuffer columnIds = ids[selectedIndex];
+    int id;
+    switch (idWidths[selectedIndex]) {
+      case Byte.BYTES:
+        id = columnIds.get(row) & 0xff;
+        break;
+      case Short.BYTES:
+        id = columnIds.getShort(row * Short.BYTES) & 0xffff;
+        break;
+      default:
+        id = columnIds.getInt(row * Integer.BYTES);
+    }
+    return dictionaries[selectedIndex][id];
+  }
+
+  @Override
+  public boolean hasNext() {
+    return currentRow < numberOfRows;
+  }
+
+  @Override
+  public List<String> next() {
+    if (!hasNext()) {
+      return null;
+    }
+    String[] row = new String[dictionaries.length];
+    for (int selectedIndex = 0; selectedIndex < row.length; selectedIndex++) {
+      row[selectedIndex] = getValue(selectedIndex, currentRow);
+    }
+    currentRow++;
+    return Collections.unmodifiableList(Arrays.asList(row));
+  }
+
+  /**
+   * Decodes the value ids of the next rows column by column.
+   */
+  @Override
+  public int nextBatch(String[][] batch) {
+    if (batch.length == 0) {
+      return 0;
+    }
+    int batchRows = Math.min(batch[0].length, numberOfRows - currentRow);
+    for (int selectedIndex = 0; selectedIndex < batch.length; selectedIndex++) {
+      String[] column = batch[selectedIndex];
+      for (int row = 0; row < batchRows; row++) {
+        column[row] = getValue(selectedIndex, currentRow + row);
+      }
+    }
+    currentRow += batchRows;
+    return batchRows;
+  }
+
+  @Override
+  public int numberOfColumns() {
+    return columnNames.size();
+  }
+
+  @Override
+  public String relationName() {
+    return relationName;
+  }
+
+  @Override
+  public List<String> columnNames() {
+    return columnNames;
+  }
+
+  @Override
+  public void close() {
+    // The mapping is released when the buffers are garbage collected
+  }
+}
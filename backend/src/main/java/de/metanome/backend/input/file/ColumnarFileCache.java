@@ -0,0 +1,367 @@
+/**
+ * Copyright 2015-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.backend.input.file;
+
+import com.google.common.io.CountingOutputStream;
+
+import de.metanome.algorithm_helper.data_structures.ColumnarDataset;
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A binary, dictionary encoded copy of a parsed file input. Copies of the input are read from the
+ * cache with {@link CachedColumnarInput}s instead of parsing the file again; they can read a
+ * subset of the columns.
+ *
+ * The cache file starts with a header identifying the source file, the setting and the relation.
+ * Every column is stored as its dictionary of length prefixed values followed by the value id of
+ * every row, using 1, 2 or 4 bytes per id. A footer holds the offsets of the columns. The cache is
+ * invalid once the size, modification time or the checksum of the first and last bytes of the
+ * source file change. A source file keeps a single cache file: building the cache deletes the
+ * cache files of the source file that were built with another setting or charset.
+ *
+ * Building the cache encodes the whole file into a {@link ColumnarDataset} on the heap first, so
+ * the heap has to hold the value ids of all rows and the distinct values of all columns. Reading
+ * maps every column separately, so a single column must not exceed {@link Integer#MAX_VALUE}
+ * bytes; the file as a whole may.
+ */
+public class ColumnarFileCache {
+
+  public static final File DEFAULT_CACHE_DIRECTORY =
+    new File(System.getProperty("java.io.tmpdir"), "metanome_cache");
+
+  protected static final int MAGIC = 0x4d434331;
+  protected static final int VERSION = 1;
+  // Number of bytes at the start and the end of the source file covered by the checksum
+  protected static final int CHECKSUM_SAMPLE_SIZE = 1 << 16;
+  protected static final String CACHE_FILE_SUFFIX = ".columns";
+
+  protected File inputFile;
+  protected String settingKey;
+  protected File cacheFile;
+
+  /**
+   * @param inputFile the parsed file
+   * @param setting   the setting the file is parsed with
+   */
+  public ColumnarFileCache(File inputFile, ConfigurationSettingFileInput setting) {
+    this(inputFile, setting, DEFAULT_CACHE_DIRECTORY);
+  }
+
+  /**
+   * @param inputFile      the parsed file
+   * @param setting        the setting the file is parsed with
+   * @param cacheDirectory the directory holding the cache file
+   */
+  public ColumnarFileCache(File inputFile, ConfigurationSettingFileInput setting,
+                           File cacheDirectory) {
+    this.inputFile = inputFile;
+    this.settingKey = getSettingKey(inputFile, setting);
+    this.cacheFile = new File(cacheDirectory,
+      getCacheFilePrefix(inputFile) + Integer.toHexString(settingKey.hashCode())
+        + CACHE_FILE_SUFFIX);
+  }
+
+  protected static String getCacheFilePrefix(File inputFile) {
+    return inputFile.getName() + "-";
+  }
+
+  /**
+   * Describes everything that influences the parsed values, including the charset the file is
+   * decoded with. The key starts with the path of the source file.
+   */
+  protected static String getSettingKey(File inputFile, ConfigurationSettingFileInput setting) {
+    return inputFile.getAbsolutePath() + '\0' + Charset.defaultCharset().name() + '\0'
+      + setting.getSeparatorChar() + '\0'
+      + setting.getQuoteChar() + '\0' + setting.getEscapeChar() + '\0'
+      + setting.isStrictQuotes() + '\0' + setting.isIgnoreLeadingWhiteSpace() + '\0'
+      + setting.getSkipLines() + '\0' + setting.hasHeader() + '\0'
+      + setting.isSkipDifferingLines() + '\0' + setting.getNullValue();
+  }
+
+  public File getCacheFile() {
+    return cacheFile;
+  }
+
+  /**
+   * @return true iff the cache file exists and was built from the current source file
+   */
+  public boolean isValid() {
+    if (!cacheFile.isFile()) {
+      return false;
+    }
+    try (DataInputStream in = new DataInputStream(
+      new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      return in.readInt() == MAGIC
+        && in.readInt() == VERSION
+        && in.readLong() == inputFile.length()
+        && in.readLong() == inputFile.lastModified()
+        && in.readLong() == computeChecksum(inputFile)
+        && settingKey.equals(readString(in));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Encodes all rows of the input and writes the cache file. The file is replaced atomically, so
+   * concurrent readers see either the old or the new cache. All rows are encoded on the heap before
+   * the file is written.
+   *
+   * @param input the parsed file input
+   * @throws InputIterationException if the input cannot be read or the cache cannot be written
+   */
+  public void build(RelationalInput input) throws InputIterationException {
+    long sourceSize = inputFile.length();
+    long sourceModified = inputFile.lastModified();
+    ColumnarDataset dataset = new ColumnarDataset(input);
+
+    File tempFile = null;
+    try {
+      File cacheDirectory = cacheFile.getAbsoluteFile().getParentFile();
+      if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+        throw new IOException("Could not create the cache directory " + cacheDirectory);
+      }
+      tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDirectory);
+      write(tempFile, dataset, sourceSize, sourceModified, computeChecksum(inputFile));
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+      deleteStaleCacheFiles(cacheDirectory);
+    } catch (IOException e) {
+      if (tempFile != null) {
+        tempFile.delete();
+      }
+      throw new InputIterationException("Could not write the columnar cache", e);
+    }
+  }
+
+  /**
+   * Deletes the other cache files of the source file, which were built with another setting or
+   * charset and would otherwise be left behind once the cache file name changes.
+   *
+   * @param cacheDirectory the directory holding the cache file
+   */
+  protected void deleteStaleCacheFiles(File cacheDirectory) {
+    final String prefix = getCacheFilePrefix(inputFile);
+    File[] candidates = cacheDirectory.listFiles(
+      file -> file.getName().startsWith(prefix) && file.getName().endsWith(CACHE_FILE_SUFFIX));
+    if (candidates == null) {
+      return;
+    }
+    String sourceKey = inputFile.getAbsolutePath() + '\0';
+    for (File candidate : candidates) {
+      if (candidate.equals(cacheFile)) {
+        continue;
+      }
+      // Files of equally named sources in other directories are kept
+      String candidateKey = readSettingKey(candidate);
+      if (candidateKey != null && candidateKey.startsWith(sourceKey)) {
+        candidate.delete();
+      }
+    }
+  }
+
+  /**
+   * @return the setting key stored in the cache file or null if it cannot be read
+   */
+  protected static String readSettingKey(File file) {
+    try (DataInputStream in = new DataInputStream(
+      new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        return null;
+      }
+      in.readInt();
+      in.readLong();
+      in.readLong();
+      in.readLong();
+      return readString(in);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  protected void write(File file, ColumnarDataset dataset, long sourceSize, long sourceModified,
+                       long sourceChecksum) throws IOException {
+    List<String> columnNames = dataset.getColumnNames();
+    long[] columnOffsets = new long[columnNames.size()];
+
+    // Counts the written bytes as long, unlike DataOutputStream#size()
+    CountingOutputStream counter =
+      new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try (DataOutputStream out = new DataOutputStream(counter)) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(sourceSize);
+      out.writeLong(sourceModified);
+      out.writeLong(sourceChecksum);
+      writeString(out, settingKey);
+      writeString(out, dataset.getRelationName());
+      out.writeInt(columnNames.size());
+      for (String columnName : columnNames) {
+        writeString(out, columnName);
+      }
+      out.writeInt(dataset.getNumberOfRows());
+
+      for (int columnIndex = 0; columnIndex < columnNames.size(); columnIndex++) {
+        columnOffsets[columnIndex] = counter.getCount();
+        // A file without rows has no encoded columns
+        boolean encoded = columnIndex < dataset.getNumberOfColumns();
+        List<String> dictionary =
+          encoded ? dataset.getDictionary(columnIndex) : new ArrayList<String>();
+        int[] ids = encoded ? dataset.getEncodedColumn(columnIndex) : new int[0];
+
+        out.writeInt(dictionary.size());
+        for (String value : dictionary) {
+          writeString(out, value);
+        }
+        int idWidth = getIdWidth(dictionary.size());
+        out.writeByte(idWidth);
+        for (int id : ids) {
+          if (idWidth == Byte.BYTES) {
+            out.writeByte(id);
+          } else if (idWidth == Short.BYTES) {
+            out.writeShort(id);
+          } else {
+            out.writeInt(id);
+          }
+        }
+        // Columns are mapped separately when they are read
+        if (counter.getCount() - columnOffsets[columnIndex] > Integer.MAX_VALUE) {
+          throw new IOException("The column " + columnNames.get(columnIndex)
+            + " exceeds " + Integer.MAX_VALUE + " bytes in the columnar cache");
+        }
+      }
+
+      long footerOffset = counter.getCount();
+      for (long columnOffset : columnOffsets) {
+        out.writeLong(columnOffset);
+      }
+      out.writeLong(footerOffset);
+      out.writeInt(MAGIC);
+    }
+  }
+
+  /**
+   * @param dictionarySize the number of distinct values of a column
+   * @return the number of bytes needed to store a value id
+   */
+  protected static int getIdWidth(int dictionarySize) {
+    if (dictionarySize <= 1 << Byte.SIZE) {
+      return Byte.BYTES;
+    }
+    if (dictionarySize <= 1 << Short.SIZE) {
+      return Short.BYTES;
+    }
+    return Integer.BYTES;
+  }
+
+  /**
+   * Opens a copy of the input reading all columns from the cache.
+   *
+   * @return the cached input
+   * @throws InputIterationException if the cache cannot be read
+   */
+  public CachedColumnarInput newInput() throws InputIterationException {
+    return new CachedColumnarInput(cacheFile, null);
+  }
+
+  /**
+   * Opens a copy of the input reading only the given columns from the cache.
+   *
+   * @param columnIndices the indices of the columns to read, in the order of the returned rows
+   * @return the cached input
+   * @throws InputIterationException if the cache cannot be read
+   */
+  public CachedColumnarInput newInput(int[] columnIndices) throws InputIterationException {
+    return new CachedColumnarInput(cacheFile, columnIndices);
+  }
+
+  /**
+   * Computes a checksum of the first and last {@link #CHECKSUM_SAMPLE_SIZE} bytes of the file.
+   */
+  protected static long computeChecksum(File file) throws IOException {
+    CRC32 checksum = new CRC32();
+    byte[] sample = new byte[CHECKSUM_SAMPLE_SIZE];
+    try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+      long length = in.length();
+      int headLength = (int) Math.min(length, CHECKSUM_SAMPLE_SIZE);
+      in.readFully(sample, 0, headLength);
+      checksum.update(sample, 0, headLength);
+      if (length > CHECKSUM_SAMPLE_SIZE) {
+        int tailLength = (int) Math.min(length - CHECKSUM_SAMPLE_SIZE, CHECKSUM_SAMPLE_SIZE);
+        in.seek(length - tailLength);
+        in.readFully(sample, 0, tailLength);
+        checksum.update(sample, 0, tailLength);
+      }
+    }
+    return checksum.getValue();
+  }
+
+  /**
+   * Writes the UTF-8 bytes of the value prefixed by their number, -1 for null.
+   */
+  protected static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  protected static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Skips the description of the source file, which precedes the relation name.
+   */
+  protected static void skipHeaderStart(DataInputStream in) throws IOException {
+    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+      throw new EOFException("Not a columnar cache file");
+    }
+    in.readLong();
+    in.readLong();
+    in.readLong();
+    readString(in);
+  }
+}
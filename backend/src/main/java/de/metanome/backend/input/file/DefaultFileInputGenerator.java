@@ -18,6 +18,7 @@ package de.metanome.backend.input.file;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 
 import de.metanome.algorithm_integration.AlgorithmConfigurationException;
 import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
@@ -77,9 +78,84 @@ public class DefaultFileInputGenerator implements FileInputGenerator {
     }
     this.setting = setting;
   }
+
+  /**
+   * Parses the file or, if the setting enables the columnar cache, reads the parsed file from its
+   * {@link ColumnarFileCache}. The cache is built by the first call and rebuilt whenever the file
+   * changed. If the cache cannot be built, the file is parsed.
+   */
   @Override
   public RelationalInput generateNewCopy() throws InputGenerationException {
+    ColumnarFileCache cache = setting.isColumnarCache() ? getValidColumnarCache() : null;
+    if (cache == null) {
+      return generateParsingCopy();
+    }
+    try {
+      return cache.newInput();
+    } catch (InputIterationException e) {
+      throw new InputGenerationException("Could not read the columnar cache of the file input", e);
+    }
+  }
+
+  /**
+   * Reads only the given columns from the columnar cache or, without cache, decodes only the
+   * given fields of every line.
+   *
+   * @param columnIndices the indices of the columns to read, in the order of the returned rows
+   * @return new copy of the projected file input
+   * @throws InputGenerationException if the file cannot be read or has no column with one of the
+   *                                  indices
+   */
+  @Override
+  public RelationalInput generateNewCopy(int[] columnIndices) throws InputGenerationException {
+    ColumnarFileCache cache = setting.isColumnarCache() ? getValidColumnarCache() : null;
+    try {
+      if (cache != null) {
+        return cache.newInput(columnIndices);
+      }
+      return generateParsingCopy().setProjection(columnIndices);
+    } catch (InputIterationException e) {
+      throw new InputGenerationException("Could not project the file input", e);
+    }
+  }
+
+  /**
+   * Builds the cache if it is missing or outdated. Building fails for example if the cache directory
+   * is not writable or a column is too large for the cache file; the file is parsed then.
+   *
+   * @return the columnar cache of the file or null if it cannot be built
+   */
+  protected ColumnarFileCache getValidColumnarCache() {
+    // The cache file is derived from the current setting
+    ColumnarFileCache cache = createColumnarCache();
+    if (!cache.isValid()) {
+      try (FileIterator input = generateParsingCopy()) {
+        cache.build(input);
+      } catch (InputGenerationException | InputIterationException | IOException e) {
+        e.printStackTrace();
+        return null;
+      }
+    }
+    return cache;
+  }
+
+  protected ColumnarFileCache createColumnarCache() {
+    return new ColumnarFileCache(inputFile, setting);
+  }
+
+  /**
+   * @return a new input parsing the file
+   * @throws InputGenerationException if the file cannot be found or read
+   */
+  protected FileIterator generateParsingCopy() throws InputGenerationException {
     try {
+      if (MappedFileIterator.isSupported(setting)) {
+        if (setting.isParallelParsing()) {
+          return new ParallelFileIterator(inputFile, setting,
+            Runtime.getRuntime().availableProcessors(), setting.isPreserveRowOrder());
+        }
+        return new MappedFileIterator(inputFile, setting);
+      }
       return new FileIterator(inputFile.getName(), new FileReader(inputFile), setting);
     } catch (FileNotFoundException e) {
       throw new InputGenerationException("File not found!", e);
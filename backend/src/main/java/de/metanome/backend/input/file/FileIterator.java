@@ -17,8 +17,9 @@ package de.metanome.backend.input.file;
 
 import au.com.bytecode.opencsv.CSVReader;
 import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
 import de.metanome.algorithm_integration.input.InputIterationException;
-import de.metanome.algorithm_integration.input.RelationalInput;
+import de.metanome.algorithm_integration.input.ProjectedRelationalInput;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -31,7 +32,7 @@ import java.util.List;
  *
  * @author Jakob Zwiener
  */
-public class FileIterator implements RelationalInput {
+public class FileIterator implements BatchRelationalInput {
 
   public static final boolean DEFAULT_HAS_HEADER = true;
   public static final boolean DEFAULT_SKIP_DIFFERING_LINES = false;
@@ -48,6 +49,9 @@ public class FileIterator implements RelationalInput {
   protected int currentLineNumber = -1;
   protected int numberOfSkippedLines = 0;
 
+  // Indices of the returned columns, null if all columns are returned
+  protected int[] projection;
+
   protected boolean hasHeader;
   protected boolean skipDifferingLines;
   protected String nullValue;
@@ -55,11 +59,7 @@ public class FileIterator implements RelationalInput {
 
   public FileIterator(String relationName, Reader reader, ConfigurationSettingFileInput setting)
     throws InputIterationException {
-    this.relationName = relationName;
-
-    this.hasHeader = setting.hasHeader();
-    this.skipDifferingLines = setting.isSkipDifferingLines();
-    this.nullValue = setting.getNullValue();
+    this(relationName, setting);
 
     this.csvReader =
       new CSVReader(reader,
@@ -70,6 +70,30 @@ public class FileIterator implements RelationalInput {
         setting.isStrictQuotes(),
         setting.isIgnoreLeadingWhiteSpace());
 
+    readHeader();
+  }
+
+  /**
+   * Initializes the settings of a {@link FileIterator} that overrides {@link #readNextLine()}.
+   * Subclasses have to call {@link #readHeader()} once they can read lines.
+   *
+   * @param relationName the name of the relation
+   * @param setting      the file input setting
+   */
+  protected FileIterator(String relationName, ConfigurationSettingFileInput setting) {
+    this.relationName = relationName;
+
+    this.hasHeader = setting.hasHeader();
+    this.skipDifferingLines = setting.isSkipDifferingLines();
+    this.nullValue = setting.getNullValue();
+  }
+
+  /**
+   * Reads the first line, which determines the number of columns, and the header.
+   *
+   * @throws InputIterationException if the first lines cannot be read
+   */
+  protected void readHeader() throws InputIterationException {
     this.nextLine = readNextLine();
     if (this.nextLine != null) {
       this.numberOfColumns = this.nextLine.size();
@@ -93,6 +117,14 @@ public class FileIterator implements RelationalInput {
 
   @Override
   public List<String> next() throws InputIterationException {
+    return projectLine(nextValidLine());
+  }
+
+  /**
+   * @return the next line with all columns of the file, null if there is no next line
+   * @throws InputIterationException if the next line could not be read or has a differing length
+   */
+  protected List<String> nextValidLine() throws InputIterationException {
     List<String> currentLine = this.nextLine;
 
     if (currentLine == null) {
@@ -109,9 +141,56 @@ public class FileIterator implements RelationalInput {
     return currentLine;
   }
 
+  /**
+   * Restricts the returned rows to the given columns. All lines are still validated against the
+   * number of columns of the file.
+   *
+   * @param columnIndices the indices of the columns to return, in the order of the returned rows
+   * @return this iterator
+   * @throws InputIterationException if the file has no column with one of the indices
+   */
+  public FileIterator setProjection(int[] columnIndices) throws InputIterationException {
+    for (int columnIndex : columnIndices) {
+      if (columnIndex < 0 || columnIndex >= this.numberOfColumns) {
+        throw new InputIterationException("The file input has no column " + columnIndex);
+      }
+    }
+    this.projection = columnIndices.clone();
+    return this;
+  }
+
+  /**
+   * @param line a validated line
+   * @return the values of the projected columns
+   */
+  protected List<String> projectLine(List<String> line) {
+    if (projection == null) {
+      return line;
+    }
+    return ProjectedRelationalInput.project(line, projection);
+  }
+
+  @Override
+  public int nextBatch(String[][] batch) throws InputIterationException {
+    if (batch.length == 0) {
+      return 0;
+    }
+    int batchSize = batch[0].length;
+    int numberOfRows = 0;
+    while (numberOfRows < batchSize && hasNext()) {
+      // The lines are validated against the number of columns of the file
+      List<String> line = nextValidLine();
+      for (int i = 0; i < batch.length; i++) {
+        batch[i][numberOfRows] = line.get(projection == null ? i : projection[i]);
+      }
+      numberOfRows++;
+    }
+    return numberOfRows;
+  }
+
   protected void failDifferingLine(List<String> currentLine)
     throws InputIterationException {
-    if (currentLine.size() != this.numberOfColumns()) {
+    if (currentLine.size() != this.numberOfColumns) {
       throw new InputIterationException(
         "Csv line length did not match on line " + currentLineNumber);
     }
@@ -122,7 +201,7 @@ public class FileIterator implements RelationalInput {
       return;
     }
 
-    while (this.nextLine.size() != this.numberOfColumns()) {
+    while (this.nextLine.size() != this.numberOfColumns) {
       this.nextLine = readNextLine();
       this.numberOfSkippedLines++;
       if (!hasNext()) {
@@ -170,7 +249,7 @@ public class FileIterator implements RelationalInput {
 
   @Override
   public int numberOfColumns() {
-    return numberOfColumns;
+    return projection == null ? numberOfColumns : projection.length;
   }
 
   @Override
@@ -180,7 +259,7 @@ public class FileIterator implements RelationalInput {
 
   @Override
   public List<String> columnNames() {
-    return headerLine;
+    return projection == null ? headerLine : ProjectedRelationalInput.project(headerLine, projection);
   }
 
   public int getNumberOfSkippedDifferingLines() {
@@ -0,0 +1,609 @@
+/**
+ * Copyright 2015-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.InputIterationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link FileIterator} that scans a memory mapped file instead of decoding it through a {@link
+ * java.io.Reader}. A state machine finds the field boundaries on the raw bytes; a line only stores
+ * the offsets of its fields, and a field is decoded when it is first read from the line. Files
+ * larger than {@link #WINDOW_SIZE} are mapped window by window.
+ *
+ * The parser yields exactly the lines of opencsv's CSVReader as used by {@link FileIterator},
+ * including its quirks: CSVParser's field state carries over from one line to the next, a quote
+ * within a field is only kept behind the third character of a physical line, an escape character
+ * that escapes nothing is dropped and an unterminated quoted field at the end of the file is
+ * dropped. The bytes are decoded with the default charset like {@link java.io.FileReader} does,
+ * which has to be ASCII compatible, see {@link #isSupported(ConfigurationSettingFileInput)}.
+ */
+public class MappedFileIterator extends FileIterator {
+
+  /**
+   * Maximum number of bytes mapped at once. A line must not be longer.
+   */
+  public static final long WINDOW_SIZE = 1L << 30;
+
+  protected long windowSize;
+  protected RandomAccessFile file;
+  protected FileChannel channel;
+  // End of the read range, the file size unless only a part of the file is read
+  protected long rangeEnd;
+  protected MappedByteBuffer buffer;
+  // File offset of the mapped window
+  protected long windowStart = 0;
+  // Read position in the mapped window
+  protected int position = 0;
+
+  protected byte separator;
+  protected byte quote;
+  protected byte escape;
+  protected boolean strictQuotes;
+  protected boolean ignoreLeadingWhiteSpace;
+  protected Charset charset = Charset.defaultCharset();
+  // CSVParser's field state at the start of the next line; it is not reset between lines
+  protected boolean startsInField = false;
+
+  // Start and end offset of every field of the current line, see MappedLine
+  protected int[] fieldBounds = new int[32];
+
+  /**
+   * @param inputFile the file to read
+   * @param setting   the file input setting
+   * @throws InputIterationException if the file cannot be mapped or the first lines cannot be read
+   */
+  public MappedFileIterator(File inputFile, ConfigurationSettingFileInput setting)
+    throws InputIterationException {
+    this(inputFile, setting, WINDOW_SIZE);
+  }
+
+  /**
+   * @param inputFile  the file to read
+   * @param setting    the file input setting
+   * @param windowSize the maximum number of bytes mapped at once
+   * @throws InputIterationException if the file cannot be mapped or the first lines cannot be read
+   */
+  protected MappedFileIterator(File inputFile, ConfigurationSettingFileInput setting,
+                               long windowSize) throws InputIterationException {
+    this(inputFile, setting, 0, inputFile.length(), windowSize);
+
+    skipLines(setting.getSkipLines());
+    readHeader();
+  }
+
+  /**
+   * Reads the lines of a part of the file. The lines are read with {@link #readNextLine()}; lines
+   * are neither skipped nor is a header read.
+   *
+   * @param inputFile  the file to read
+   * @param setting    the file input setting
+   * @param rangeStart the offset of the first line
+   * @param rangeEnd   the offset behind the last line
+   * @param windowSize the maximum number of bytes mapped at once
+   * @throws InputIterationException if the file cannot be mapped
+   */
+  protected MappedFileIterator(File inputFile, ConfigurationSettingFileInput setting,
+                               long rangeStart, long rangeEnd, long windowSize)
+    throws InputIterationException {
+    super(inputFile.getName(), setting);
+    this.windowSize = windowSize;
+    this.rangeEnd = rangeEnd;
+
+    this.separator = (byte) setting.getSeparatorAsChar();
+    this.quote = (byte) setting.getQuoteCharAsChar();
+    this.escape = (byte) setting.getEscapeCharAsChar();
+    this.strictQuotes = setting.isStrictQuotes();
+    this.ignoreLeadingWhiteSpace = setting.isIgnoreLeadingWhiteSpace();
+
+    try {
+      this.file = new RandomAccessFile(inputFile, "r");
+      this.channel = file.getChannel();
+      mapWindow(rangeStart);
+    } catch (IOException e) {
+      throw new InputIterationException("Could not map the file input", e);
+    }
+  }
+
+  /**
+   * The bytes can only be scanned for the separator, quote and escape characters if they are ASCII
+   * characters and the default charset encodes them as single bytes that never occur within other
+   * characters.
+   *
+   * @param setting the file input setting
+   * @return true iff the file can be read by a {@link MappedFileIterator}
+   */
+  public static boolean isSupported(ConfigurationSettingFileInput setting) {
+    Charset charset = Charset.defaultCharset();
+    boolean asciiCompatible = charset.equals(StandardCharsets.UTF_8)
+      || charset.equals(StandardCharsets.US_ASCII)
+      || charset.equals(StandardCharsets.ISO_8859_1);
+    return asciiCompatible
+      && setting.getSeparatorAsChar() < 0x80
+      && setting.getQuoteCharAsChar() < 0x80
+      && setting.getEscapeCharAsChar() < 0x80;
+  }
+
+  protected void mapWindow(long start) throws IOException {
+    windowStart = start;
+    position = 0;
+    buffer = channel.map(FileChannel.MapMode.READ_ONLY, start,
+      Math.min(windowSize, rangeEnd - start));
+  }
+
+  protected boolean isLastWindow() {
+    return windowStart + buffer.limit() == rangeEnd;
+  }
+
+  /**
+   * Skips physical lines like CSVReader does before reading the first line.
+   */
+  protected void skipLines(int numberOfLines) throws InputIterationException {
+    try {
+      for (int line = 0; line < numberOfLines; line++) {
+        while (true) {
+          if (position == buffer.limit()) {
+            if (isLastWindow()) {
+              return;
+            }
+            mapWindow(windowStart + position);
+          }
+          byte current = buffer.get(position++);
+          if (current == '\n') {
+            break;
+          }
+          if (current == '\r') {
+            if (position == buffer.limit() && !isLastWindow()) {
+              mapWindow(windowStart + position);
+            }
+            if (position < buffer.limit() && buffer.get(position) == '\n') {
+              position++;
+            }
+            break;
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new InputIterationException("Could not skip lines in file input", e);
+    }
+  }
+
+  @Override
+  protected List<String> readNextLine() throws InputIterationException {
+    currentLineNumber++;
+    if (windowStart + position >= rangeEnd) {
+      return null;
+    }
+    try {
+      int numberOfFields = scanLine();
+      if (numberOfFields < 0) {
+        // The line exceeds the window, map the window from the line start and scan again
+        mapWindow(windowStart + position);
+        numberOfFields = scanLine();
+        if (numberOfFields < 0) {
+          throw new InputIterationException(
+            "Csv line " + currentLineNumber + " is longer than " + windowSize + " bytes");
+        }
+      }
+      if (numberOfFields == 0) {
+        // Only an unterminated quoted field was left, which CSVReader drops
+        return null;
+      }
+      return new MappedLine(Arrays.copyOf(fieldBounds, 2 * numberOfFields));
+    } catch (IOException e) {
+      throw new InputIterationException("Could not read next line in file input", e);
+    }
+  }
+
+  /**
+   * Scans the line starting at the current position and stores its field bounds. A field's start
+   * offset is stored as its complement if the field contains quote or escape characters and has
+   * to be unescaped; the end offset of such a first field is stored as its complement if the line
+   * starts within a field, see {@link #startsInField}. The quote and field states follow
+   * CSVParser, see {@link #unescape(String, boolean, int)}.
+   *
+   * @return the number of fields, -1 if the line continues behind the mapped window
+   */
+  protected int scanLine() {
+    int limit = buffer.limit();
+    boolean lastWindow = isLastWindow();
+    int numberOfFields = 0;
+    int fieldStart = position;
+    boolean escaped = false;
+    boolean inQuotes = false;
+    boolean inField = startsInField;
+    int current = position;
+
+    while (true) {
+      if (current == limit) {
+        if (!lastWindow) {
+          return -1;
+        }
+        if (!inQuotes) {
+          numberOfFields = addField(numberOfFields, fieldStart, current, escaped);
+        }
+        startsInField = inField;
+        position = current;
+        return numberOfFields;
+      }
+      byte value = buffer.get(current);
+      // Escape sequences and doubled quotes need the next byte
+      if ((value == escape || value == quote) && current + 1 == limit && !lastWindow) {
+        return -1;
+      }
+      if (value == escape) {
+        escaped = true;
+        current += (inQuotes || inField) && isQuoteOrEscape(current + 1) ? 2 : 1;
+      } else if (value == quote) {
+        escaped = true;
+        if ((inQuotes || inField) && current + 1 < limit && buffer.get(current + 1) == quote) {
+          current += 2;
+        } else {
+          inQuotes = !inQuotes;
+          current++;
+        }
+        inField = !inField;
+      } else if (value == '\n' || value == '\r') {
+        current++;
+        if (!inQuotes) {
+          numberOfFields = addField(numberOfFields, fieldStart, current - 1, escaped);
+          if (value == '\r') {
+            if (current == limit && !lastWindow) {
+              return -1;
+            }
+            if (current < limit && buffer.get(current) == '\n') {
+              current++;
+            }
+          }
+          startsInField = inField;
+          position = current;
+          return numberOfFields;
+        }
+      } else if (inQuotes) {
+        inField = true;
+        current++;
+      } else if (value == separator) {
+        numberOfFields = addField(numberOfFields, fieldStart, current, escaped);
+        escaped = false;
+        inField = false;
+        fieldStart = ++current;
+      } else {
+        // With strict quotes CSVParser drops the character and keeps the field state
+        inField |= !strictQuotes;
+        current++;
+      }
+    }
+  }
+
+  protected boolean isQuoteOrEscape(int offset) {
+    if (offset >= buffer.limit()) {
+      return false;
+    }
+    byte value = buffer.get(offset);
+    return value == quote || value == escape;
+  }
+
+  /**
+   * Follows the quote and field states through the whole range without storing any fields, using
+   * the same rules as {@link #scanLine()}. The range has to start behind a line break byte.
+   *
+   * @param startsInQuotes true iff the range starts within a quoted field
+   * @param startsInField  CSVParser's field state at the start of the range
+   * @return the states at the end of the range and the start of the range's first line
+   * @throws InputIterationException if the range cannot be mapped
+   */
+  protected QuoteScan scanQuotes(boolean startsInQuotes, boolean startsInField)
+    throws InputIterationException {
+    QuoteScan scan = new QuoteScan();
+    boolean inQuotes = startsInQuotes;
+    boolean inField = startsInField;
+    scan.firstLineStart = inQuotes ? -1 : windowStart + position;
+    scan.firstLineStartsInField = inField;
+    try {
+      int current = position;
+      while (windowStart + current < rangeEnd) {
+        int limit = buffer.limit();
+        if (current == limit || (current + 1 == limit && !isLastWindow())) {
+          mapWindow(windowStart + current);
+          current = 0;
+          continue;
+        }
+        byte value = buffer.get(current);
+        if (value == escape) {
+          current += (inQuotes || inField) && isQuoteOrEscape(current + 1) ? 2 : 1;
+        } else if (value == quote) {
+          if ((inQuotes || inField) && current + 1 < limit && buffer.get(current + 1) == quote) {
+            current += 2;
+          } else {
+            inQuotes = !inQuotes;
+            current++;
+          }
+          inField = !inField;
+        } else if (value == '\n' || value == '\r') {
+          current++;
+          if (inQuotes) {
+            continue;
+          }
+          if (value == '\r' && windowStart + current < rangeEnd) {
+            if (current == buffer.limit()) {
+              mapWindow(windowStart + current);
+              current = 0;
+            }
+            if (buffer.get(current) == '\n') {
+              current++;
+            }
+          }
+          if (scan.firstLineStart < 0) {
+            scan.firstLineStart = windowStart + current;
+            scan.firstLineStartsInField = inField;
+          }
+        } else if (inQuotes) {
+          inField = true;
+          current++;
+        } else if (value == separator) {
+          inField = false;
+          current++;
+        } else {
+          inField |= !strictQuotes;
+          current++;
+        }
+      }
+    } catch (IOException e) {
+      throw new InputIterationException("Could not scan the file input", e);
+    }
+    scan.endsInQuotes = inQuotes;
+    scan.endsInField = inField;
+    return scan;
+  }
+
+  /**
+   * The result of {@link #scanQuotes(boolean, boolean)}.
+   */
+  protected static class QuoteScan {
+
+    protected boolean endsInQuotes;
+    protected boolean endsInField;
+    // -1 if no line starts within the range
+    protected long firstLineStart;
+    protected boolean firstLineStartsInField;
+  }
+
+  protected int addField(int numberOfFields, int start, int end, boolean escaped) {
+    if (2 * numberOfFields + 2 > fieldBounds.length) {
+      fieldBounds = Arrays.copyOf(fieldBounds, fieldBounds.length * 2);
+    }
+    fieldBounds[2 * numberOfFields] = escaped ? ~start : start;
+    fieldBounds[2 * numberOfFields + 1] =
+      escaped && numberOfFields == 0 && startsInField ? ~end : end;
+    return numberOfFields + 1;
+  }
+
+  /**
+   * Removes quotes and escape characters from a raw field like CSVParser does. CSVParser reads a
+   * quoted line break as the end of a physical line and continues the field on the next one; its
+   * field state is not reset at the start of a line. Within a quoted field or a field, doubled
+   * quotes and escaped quote or escape characters are unescaped; other escape characters are
+   * dropped. A single quote toggles the quote state; it is kept only behind the third character of
+   * its physical line if neither of its neighbours is a separator.
+   *
+   * @param raw           the decoded raw field
+   * @param startsInField CSVParser's field state at the start of the field
+   * @param lineOffset    the number of characters in front of the field in its physical line,
+   *                      only compared to 3
+   * @return the field value
+   */
+  protected String unescape(String raw, boolean startsInField, int lineOffset) {
+    StringBuilder value = new StringBuilder(raw.length());
+    boolean inQuotes = false;
+    boolean inField = startsInField;
+    char quoteChar = (char) quote;
+    char escapeChar = (char) escape;
+    char separatorChar = (char) separator;
+    int lineIndex = lineOffset;
+    for (int i = 0; i < raw.length(); i++, lineIndex++) {
+      char current = raw.charAt(i);
+      // The field ends at a separator, a line break or the end of the file
+      boolean hasNext = i + 1 < raw.length() && raw.charAt(i + 1) != '\r'
+        && raw.charAt(i + 1) != '\n';
+      char next = hasNext ? raw.charAt(i + 1) : separatorChar;
+      if (current == '\r' || current == '\n') {
+        // Quoted line breaks are read line by line and joined with \n
+        if (current == '\r' && i + 1 < raw.length() && raw.charAt(i + 1) == '\n') {
+          i++;
+        }
+        value.append('\n');
+        lineIndex = -1;
+      } else if (current == escapeChar) {
+        if ((inQuotes || inField) && (next == quoteChar || next == escapeChar)) {
+          value.append(next);
+          i++;
+          lineIndex++;
+        }
+      } else if (current == quoteChar) {
+        if ((inQuotes || inField) && next == quoteChar) {
+          value.append(next);
+          i++;
+          lineIndex++;
+        } else {
+          if (!strictQuotes && lineIndex > 2 && i > 0 && raw.charAt(i - 1) != separatorChar
+            && hasNext && next != separatorChar) {
+            if (ignoreLeadingWhiteSpace && value.length() > 0 && isAllWhiteSpace(value)) {
+              value.setLength(0);
+            } else {
+              value.append(current);
+            }
+          }
+          inQuotes = !inQuotes;
+        }
+        inField = !inField;
+      } else if (!strictQuotes || inQuotes) {
+        value.append(current);
+        inField = true;
+      }
+    }
+    return value.toString();
+  }
+
+  protected static boolean isAllWhiteSpace(CharSequence value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (!Character.isWhitespace(value.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Projects mapped lines without decoding the skipped fields.
+   */
+  @Override
+  protected List<String> projectLine(List<String> line) {
+    if (projection != null && line instanceof MappedLine) {
+      return ((MappedLine) line).project(projection);
+    }
+    return super.projectLine(line);
+  }
+
+  @Override
+  public void close() throws IOException {
+    // The mapping is released when the buffer is garbage collected
+    channel.close();
+    file.close();
+  }
+
+  /**
+   * A line of the file referencing its fields in the mapped window. Fields are decoded on first
+   * access.
+   */
+  protected class MappedLine extends AbstractList<String> {
+
+    protected final ByteBuffer window;
+    protected final int[] bounds;
+    protected String[] values;
+    protected boolean[] decoded;
+
+    public MappedLine(int[] bounds) {
+      this(buffer, bounds);
+    }
+
+    public MappedLine(ByteBuffer window, int[] bounds) {
+      this.window = window;
+      this.bounds = bounds;
+    }
+
+    /**
+     * @param columnIndices the indices of the fields to keep
+     * @return a line referencing only the given fields, which are still not decoded
+     */
+    public MappedLine project(int[] columnIndices) {
+      int[] projectedBounds = new int[2 * columnIndices.length];
+      for (int i = 0; i < columnIndices.length; i++) {
+        projectedBounds[2 * i] = bounds[2 * columnIndices[i]];
+        projectedBounds[2 * i + 1] = bounds[2 * columnIndices[i] + 1];
+      }
+      return new MappedLine(window, projectedBounds);
+    }
+
+    @Override
+    public String get(int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      }
+      if (values == null) {
+        values = new String[size()];
+        decoded = new boolean[size()];
+      }
+      if (!decoded[index]) {
+        values[index] = decode(index);
+        decoded[index] = true;
+      }
+      return values[index];
+    }
+
+    protected String decode(int index) {
+      int start = bounds[2 * index];
+      int end = bounds[2 * index + 1];
+      boolean escaped = start < 0;
+      if (escaped) {
+        start = ~start;
+      }
+      boolean startsInField = end < 0;
+      if (startsInField) {
+        end = ~end;
+      }
+
+      String value;
+      if (!escaped && strictQuotes) {
+        // Only quoted characters are kept
+        value = "";
+      } else {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer field = window.duplicate();
+        field.position(start);
+        field.get(bytes);
+        value = new String(bytes, charset);
+        if (escaped) {
+          value = unescape(value, startsInField, lineOffset(start));
+        }
+      }
+      return value.equals(nullValue) ? null : value;
+    }
+
+    /**
+     * The window starts at a line start or in front of the line break that precedes the field.
+     * More than twelve bytes hold more than three characters in every supported charset, so longer
+     * prefixes do not need to be decoded.
+     *
+     * @param start the start offset of a field
+     * @return the number of characters in front of the field in its physical line, at most 3
+     */
+    protected int lineOffset(int start) {
+      int lineStart = start;
+      while (lineStart > 0 && start - lineStart <= 12) {
+        byte previous = window.get(lineStart - 1);
+        if (previous == '\n' || previous == '\r') {
+          break;
+        }
+        lineStart--;
+      }
+      if (start - lineStart > 12) {
+        return 3;
+      }
+      byte[] bytes = new byte[start - lineStart];
+      ByteBuffer prefix = window.duplicate();
+      prefix.position(lineStart);
+      prefix.get(bytes);
+      return Math.min(new String(bytes, charset).length(), 3);
+    }
+
+    @Override
+    public int size() {
+      return bounds.length / 2;
+    }
+  }
+}
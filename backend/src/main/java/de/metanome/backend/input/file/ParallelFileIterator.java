@@ -0,0 +1,368 @@
+/**
+ * Copyright 2015-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.InputIterationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link FileIterator} that parses one file on multiple threads. The file is split into chunks
+ * of about {@link #DEFAULT_CHUNK_SIZE} bytes that start behind a line break byte. As a line break
+ * may be quoted and CSVParser's field state carries over between lines, the quote and field states
+ * are followed from one chunk to the next, which yields the first line start of every chunk and
+ * the field state there. The chunks are followed lazily, just before the byte range up to the next
+ * line start is submitted; the byte ranges are parsed in parallel by {@link MappedFileIterator}s.
+ *
+ * The rows are delivered in file order or, if the row order does not need to be preserved, range
+ * by range as soon as a range is parsed. Ranges are parsed ahead only up to {@link
+ * #DEFAULT_MAXIMUM_PENDING_BYTES} bytes of the file, as their rows are kept on the heap.
+ */
+public class ParallelFileIterator extends FileIterator {
+
+  public static final long DEFAULT_CHUNK_SIZE = 64L << 20;
+  public static final long DEFAULT_MAXIMUM_PENDING_BYTES = 256L << 20;
+  // The public constructor does not split files into smaller chunks
+  protected static final long MINIMUM_CHUNK_SIZE = 1L << 20;
+
+  protected File inputFile;
+  protected ConfigurationSettingFileInput setting;
+  protected boolean preserveRowOrder;
+  protected long maximumPendingBytes;
+  protected ExecutorService executor;
+
+  // Start offsets of the chunks, the last entry is the file size
+  protected List<Long> chunkStarts;
+  // The next chunk to follow and the quote and field states at its start
+  protected int nextChunk = 0;
+  protected boolean chunkStartsInQuotes = false;
+  protected boolean chunkStartsInField = false;
+  // The next range to submit; its end is -1 until the chunks behind its start are followed
+  protected long nextRangeStart;
+  protected boolean nextRangeStartsInField = false;
+  protected long nextRangeEnd = -1;
+  protected boolean nextRangeEndsInField = false;
+  // Parsing ranges in file order
+  protected Deque<Future<ParsedRange>> pendingRanges = new ArrayDeque<>();
+  // Parsing ranges in completion order
+  protected CompletionService<ParsedRange> completedRanges;
+  protected int numberOfPendingRanges = 0;
+  protected long numberOfPendingBytes = 0;
+  protected Iterator<List<String>> currentRange = Collections.emptyIterator();
+
+  /**
+   * @param inputFile        the file to read
+   * @param setting          the file input setting
+   * @param numberOfThreads  the number of parsing threads
+   * @param preserveRowOrder true iff the rows should be delivered in file order
+   * @throws InputIterationException if the file cannot be split or the first lines cannot be read
+   */
+  public ParallelFileIterator(File inputFile, ConfigurationSettingFileInput setting,
+                              int numberOfThreads, boolean preserveRowOrder)
+    throws InputIterationException {
+    // Two ranges per thread should fit into the pending bytes
+    this(inputFile, setting, numberOfThreads, preserveRowOrder,
+      Math.max(MINIMUM_CHUNK_SIZE, Math.min(DEFAULT_CHUNK_SIZE,
+        DEFAULT_MAXIMUM_PENDING_BYTES / (2 * numberOfThreads))),
+      DEFAULT_MAXIMUM_PENDING_BYTES);
+  }
+
+  /**
+   * @param inputFile        the file to read
+   * @param setting          the file input setting
+   * @param numberOfThreads  the number of parsing threads
+   * @param preserveRowOrder true iff the rows should be delivered in file order
+   * @param chunkSize        the approximate number of bytes of a chunk
+   * @throws InputIterationException if the file cannot be split or the first lines cannot be read
+   */
+  protected ParallelFileIterator(File inputFile, ConfigurationSettingFileInput setting,
+                                 int numberOfThreads, boolean preserveRowOrder, long chunkSize)
+    throws InputIterationException {
+    this(inputFile, setting, numberOfThreads, preserveRowOrder, chunkSize,
+      DEFAULT_MAXIMUM_PENDING_BYTES);
+  }
+
+  /**
+   * @param inputFile           the file to read
+   * @param setting             the file input setting
+   * @param numberOfThreads     the number of parsing threads
+   * @param preserveRowOrder    true iff the rows should be delivered in file order
+   * @param chunkSize           the approximate number of bytes of a chunk
+   * @param maximumPendingBytes the number of bytes of the file that may be parsed ahead; a single
+   *                            range is parsed ahead even if it is larger
+   * @throws InputIterationException if the file cannot be split or the first lines cannot be read
+   */
+  protected ParallelFileIterator(File inputFile, ConfigurationSettingFileInput setting,
+                                 int numberOfThreads, boolean preserveRowOrder, long chunkSize,
+                                 long maximumPendingBytes)
+    throws InputIterationException {
+    super(inputFile.getName(), setting);
+    this.inputFile = inputFile;
+    this.setting = setting;
+    this.preserveRowOrder = preserveRowOrder;
+    this.maximumPendingBytes = maximumPendingBytes;
+    // Daemon threads do not keep the JVM alive if an algorithm does not close its input
+    this.executor = Executors.newFixedThreadPool(numberOfThreads, runnable -> {
+      Thread thread = new Thread(runnable, "parallel-file-iterator");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.completedRanges = new ExecutorCompletionService<>(executor);
+
+    try {
+      this.chunkStarts = splitFile(chunkSize);
+      this.nextRangeStart = chunkStarts.get(0);
+      readHeader();
+    } catch (InputIterationException | RuntimeException | Error e) {
+      executor.shutdownNow();
+      throw e;
+    }
+  }
+
+  /**
+   * Splits the data behind the skipped lines into chunks that start behind a line break byte.
+   *
+   * @param chunkSize the approximate number of bytes of a chunk
+   * @return the chunk starts, the last entry is the file size
+   */
+  protected List<Long> splitFile(long chunkSize) throws InputIterationException {
+    long fileSize = inputFile.length();
+    List<Long> chunkStarts = new ArrayList<>();
+    MappedFileIterator skipper = new MappedFileIterator(inputFile, setting, 0, fileSize,
+      MappedFileIterator.WINDOW_SIZE);
+    try {
+      skipper.skipLines(setting.getSkipLines());
+      chunkStarts.add(skipper.windowStart + skipper.position);
+    } finally {
+      closeQuietly(skipper);
+    }
+
+    try (RandomAccessFile file = new RandomAccessFile(inputFile, "r")) {
+      long chunkStart = chunkStarts.get(0) + chunkSize;
+      while (chunkStart < fileSize) {
+        file.seek(chunkStart - 1);
+        // Move behind the next line break byte; a \r\n pair is not split
+        int value;
+        do {
+          value = file.read();
+        } while (value >= 0 && value != '\n' && value != '\r');
+        if (value == '\r' && file.getFilePointer() < fileSize && file.read() != '\n') {
+          file.seek(file.getFilePointer() - 1);
+        }
+        if (value < 0 || file.getFilePointer() >= fileSize) {
+          break;
+        }
+        chunkStarts.add(file.getFilePointer());
+        chunkStart = file.getFilePointer() + chunkSize;
+      }
+    } catch (IOException e) {
+      throw new InputIterationException("Could not split the file input", e);
+    }
+    chunkStarts.add(fileSize);
+    return chunkStarts;
+  }
+
+  /**
+   * Follows the quote and field states through the chunks behind the start of the next range
+   * until a chunk contains a line start, which ends the range. The first chunk starts behind the
+   * skipped lines outside of quotes and fields.
+   */
+  protected void findNextRangeEnd() throws InputIterationException {
+    int numberOfChunks = chunkStarts.size() - 1;
+    while (nextChunk < numberOfChunks) {
+      MappedFileIterator.QuoteScan chunkScan = scanChunk(chunkStarts.get(nextChunk),
+        chunkStarts.get(nextChunk + 1), chunkStartsInQuotes, chunkStartsInField);
+      nextChunk++;
+      chunkStartsInQuotes = chunkScan.endsInQuotes;
+      chunkStartsInField = chunkScan.endsInField;
+      // A chunk without a line start belongs to the current range
+      if (chunkScan.firstLineStart > nextRangeStart) {
+        nextRangeEnd = chunkScan.firstLineStart;
+        nextRangeEndsInField = chunkScan.firstLineStartsInField;
+        return;
+      }
+    }
+    nextRangeEnd = chunkStarts.get(numberOfChunks);
+  }
+
+  protected MappedFileIterator.QuoteScan scanChunk(long start, long end, boolean startsInQuotes,
+                                                   boolean startsInField)
+    throws InputIterationException {
+    MappedFileIterator scanner =
+      new MappedFileIterator(inputFile, setting, start, end, MappedFileIterator.WINDOW_SIZE);
+    try {
+      return scanner.scanQuotes(startsInQuotes, startsInField);
+    } finally {
+      closeQuietly(scanner);
+    }
+  }
+
+  /**
+   * Parses all lines of a byte range.
+   *
+   * @param start          the offset of the first line
+   * @param end            the offset behind the last line
+   * @param startsInField  CSVParser's field state at the first line
+   * @param decodedColumns the indices of the fields to decode, null to decode all fields
+   */
+  protected ParsedRange parseRange(long start, long end, boolean startsInField,
+                                   int[] decodedColumns)
+    throws InputIterationException {
+    MappedFileIterator parser =
+      new MappedFileIterator(inputFile, setting, start, end, MappedFileIterator.WINDOW_SIZE);
+    parser.startsInField = startsInField;
+    try {
+      List<List<String>> lines = new ArrayList<>();
+      List<String> line;
+      while ((line = parser.readNextLine()) != null) {
+        // Decode the returned fields on the parsing thread
+        if (decodedColumns == null) {
+          lines.add(new ArrayList<>(line));
+        } else {
+          for (int columnIndex : decodedColumns) {
+            if (columnIndex < line.size()) {
+              line.get(columnIndex);
+            }
+          }
+          lines.add(line);
+        }
+      }
+      return new ParsedRange(end - start, lines);
+    } finally {
+      closeQuietly(parser);
+    }
+  }
+
+  /**
+   * Submits the parsing of further ranges as long as they fit into the pending bytes.
+   */
+  protected void submitRanges() throws InputIterationException {
+    long fileSize = chunkStarts.get(chunkStarts.size() - 1);
+    while (nextRangeStart < fileSize) {
+      if (nextRangeEnd < 0) {
+        findNextRangeEnd();
+      }
+      final long start = nextRangeStart;
+      final long end = nextRangeEnd;
+      if (numberOfPendingRanges > 0 && numberOfPendingBytes + end - start > maximumPendingBytes) {
+        return;
+      }
+      final boolean startsInField = nextRangeStartsInField;
+      final int[] decodedColumns = projection;
+      Callable<ParsedRange> task = new Callable<ParsedRange>() {
+        @Override
+        public ParsedRange call() throws InputIterationException {
+          return parseRange(start, end, startsInField, decodedColumns);
+        }
+      };
+      if (preserveRowOrder) {
+        pendingRanges.add(executor.submit(task));
+      } else {
+        completedRanges.submit(task);
+      }
+      numberOfPendingRanges++;
+      numberOfPendingBytes += end - start;
+      nextRangeStart = end;
+      nextRangeStartsInField = nextRangeEndsInField;
+      nextRangeEnd = -1;
+    }
+  }
+
+  @Override
+  protected List<String> readNextLine() throws InputIterationException {
+    currentLineNumber++;
+    while (!currentRange.hasNext()) {
+      submitRanges();
+      if (numberOfPendingRanges == 0) {
+        return null;
+      }
+      Future<ParsedRange> range;
+      if (preserveRowOrder) {
+        range = pendingRanges.poll();
+      } else {
+        try {
+          range = completedRanges.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InputIterationException("Interrupted while parsing the file input", e);
+        }
+      }
+      ParsedRange parsedRange = get(range);
+      numberOfPendingRanges--;
+      numberOfPendingBytes -= parsedRange.numberOfBytes;
+      currentRange = parsedRange.lines.iterator();
+      submitRanges();
+    }
+    return currentRange.next();
+  }
+
+  protected <T> T get(Future<T> future) throws InputIterationException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InputIterationException("Interrupted while parsing the file input", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof InputIterationException) {
+        throw (InputIterationException) e.getCause();
+      }
+      throw new InputIterationException("Could not parse the file input", e.getCause());
+    }
+  }
+
+  protected static void closeQuietly(MappedFileIterator iterator) {
+    try {
+      iterator.close();
+    } catch (IOException e) {
+      // The file has only been read
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    executor.shutdownNow();
+  }
+
+  /**
+   * The lines of a parsed byte range.
+   */
+  protected static class ParsedRange {
+
+    protected final long numberOfBytes;
+    protected final List<List<String>> lines;
+
+    protected ParsedRange(long numberOfBytes, List<List<String>> lines) {
+      this.numberOfBytes = numberOfBytes;
+      this.lines = lines;
+    }
+  }
+}
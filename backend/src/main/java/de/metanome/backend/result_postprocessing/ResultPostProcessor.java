@@ -259,7 +259,8 @@ public class ResultPostProcessor {
       // analyze results
       ResultAnalyzer<FunctionalDependency, FunctionalDependencyResult>
         resultAnalyzer =
-        new FunctionalDependencyResultAnalyzer(inputGenerators, dataIndependent);
+        new FunctionalDependencyResultAnalyzer(inputGenerators, dataIndependent,
+          FunctionalDependencyResultAnalyzer.getConfiguredApproximationError());
       List<FunctionalDependencyResult>
         rankingResults =
         resultAnalyzer.analyzeResults(functionalDependencies);
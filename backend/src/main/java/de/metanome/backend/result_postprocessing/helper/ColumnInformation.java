@@ -15,6 +15,8 @@
  */
 package de.metanome.backend.result_postprocessing.helper;
 
+import de.metanome.algorithm_helper.data_structures.ColumnarDataset;
+import de.metanome.algorithm_integration.input.BatchRelationalInput;
 import de.metanome.algorithm_integration.input.InputIterationException;
 import de.metanome.algorithm_integration.input.RelationalInput;
 
@@ -99,6 +101,23 @@ public class ColumnInformation {
     }
   }
 
+  /**
+   * Creates a new column information for given column name and index and computes the data
+   * dependent statistics from the encoded dataset instead of reading the input again
+   *
+   * @param columnName  name of the column
+   * @param columnIndex index of the column
+   * @param bitSet      bit set representing this column
+   * @param dataset     encoded table data
+   */
+  public ColumnInformation(String columnName, int columnIndex, BitSet bitSet,
+                           ColumnarDataset dataset) {
+    this.columnName = columnName;
+    this.columnIndex = columnIndex;
+    this.bitSet = bitSet;
+    this.computeDataDependentStatistics(dataset);
+  }
+
   /**
    * Computes all column metadata, which need access to the actual data
    *
@@ -118,41 +137,108 @@ public class ColumnInformation {
   }
 
   /**
-   * Creates a histogram for the column values
+   * Computes all column metadata from the encoded dataset
    *
-   * @param relationalInput relational input
-   * @throws de.metanome.algorithm_integration.input.InputIterationException if the input is not iterable
+   * @param dataset encoded table data
    */
-  protected void createHistogramAndDetermineType(RelationalInput relationalInput)
-    throws InputIterationException {
+  protected void computeDataDependentStatistics(ColumnarDataset dataset) {
+    this.createHistogramAndDetermineType(dataset);
+    this.computeDistinctValuesCount();
+    this.computeNullValuesCount();
+    this.computeAverageLength();
+  }
+
+  /**
+   * Creates a histogram for the column values from the value counts of the encoded column. The
+   * type of every distinct value is determined only once.
+   *
+   * @param dataset encoded table data
+   */
+  protected void createHistogramAndDetermineType(ColumnarDataset dataset) {
     this.histogram = new Histogram();
-    this.rowCount = 0L;
+    this.rowCount = dataset.getNumberOfRows();
 
     Map<ColumnType, Integer> columnTypeMap = new EnumMap<>(ColumnType.class);
 
-    // iterate over data and add each cell value to the histogram
-    while (relationalInput.hasNext()) {
-      List<String> row = relationalInput.next();
-      String cellValue = row.get(this.columnIndex);
+    List<String> dictionary = dataset.getDictionary(this.columnIndex);
+    int[] valueCounts = dataset.getValueCounts(this.columnIndex);
+    for (int valueId = 0; valueId < valueCounts.length; valueId++) {
+      String cellValue = dictionary.get(valueId);
+      int count = valueCounts[valueId];
 
-      // determine type of cell and store it in a map
+      // determine type of the value and count it for every occurrence
       if (cellValue != null) {
         ColumnType type = getCellType(cellValue);
         if (columnTypeMap.containsKey(type)) {
-          columnTypeMap.put(type, columnTypeMap.get(type) + 1);
+          columnTypeMap.put(type, columnTypeMap.get(type) + count);
         } else {
-          columnTypeMap.put(type, 1);
+          columnTypeMap.put(type, count);
         }
       }
-      // add value to histogram
-      this.histogram.addValue(cellValue);
+      this.histogram.addValue(cellValue, count);
+    }
+    // determine column type
+    this.columnType = determineColumnType(columnTypeMap);
+  }
+
+  /**
+   * Creates a histogram for the column values
+   *
+   * @param relationalInput relational input
+   * @throws de.metanome.algorithm_integration.input.InputIterationException if the input is not iterable
+   */
+  protected void createHistogramAndDetermineType(RelationalInput relationalInput)
+    throws InputIterationException {
+    this.histogram = new Histogram();
+    this.rowCount = 0L;
 
-      this.rowCount++;
+    Map<ColumnType, Integer> columnTypeMap = new EnumMap<>(ColumnType.class);
+
+    if (relationalInput instanceof BatchRelationalInput) {
+      // read the data in batches and only look at this column's values
+      BatchRelationalInput batchInput = (BatchRelationalInput) relationalInput;
+      String[][] batch =
+        new String[batchInput.numberOfColumns()][BatchRelationalInput.DEFAULT_BATCH_SIZE];
+      int numberOfRows;
+      while ((numberOfRows = batchInput.nextBatch(batch)) > 0) {
+        String[] column = batch[this.columnIndex];
+        for (int row = 0; row < numberOfRows; row++) {
+          this.addCellValue(column[row], columnTypeMap);
+        }
+      }
+    } else {
+      // iterate over data and add each cell value to the histogram
+      while (relationalInput.hasNext()) {
+        List<String> row = relationalInput.next();
+        this.addCellValue(row.get(this.columnIndex), columnTypeMap);
+      }
     }
     // determine column type
     this.columnType = determineColumnType(columnTypeMap);
   }
 
+  /**
+   * Counts the type of the given cell value and adds it to the histogram.
+   *
+   * @param cellValue     the cell value
+   * @param columnTypeMap map holding a count for each possible column type
+   */
+  private void addCellValue(String cellValue, Map<ColumnType, Integer> columnTypeMap) {
+    // determine type of cell and store it in a map
+    if (cellValue != null) {
+      ColumnType type = getCellType(cellValue);
+      if (columnTypeMap.containsKey(type)) {
+        columnTypeMap.put(type, columnTypeMap.get(type) + 1);
+      } else {
+        columnTypeMap.put(type, 1);
+      }
+    }
+    // add value to histogram
+    this.histogram.addValue(cellValue);
+
+    this.rowCount++;
+  }
+
   /**
    * Determine the type of the given cell value.
    *
@@ -58,6 +58,20 @@ public class Histogram {
     }
   }
 
+  /**
+   * Adds the given value count times to the histogram
+   *
+   * @param v     value to add
+   * @param count number of occurrences of the value
+   */
+  public void addValue(String v, long count) {
+    if (this.histogramData.containsKey(v)) {
+      this.histogramData.put(v, this.histogramData.get(v) + count);
+    } else {
+      this.histogramData.put(v, count);
+    }
+  }
+
   /**
    * Creates the histogram from the given column values
    *
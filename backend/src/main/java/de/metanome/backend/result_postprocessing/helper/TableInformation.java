@@ -15,7 +15,10 @@
  */
 package de.metanome.backend.result_postprocessing.helper;
 
-import de.metanome.algorithm_helper.data_structures.PositionListIndex;
+import de.metanome.algorithm_helper.data_structures.ColumnarDataset;
+import de.metanome.algorithm_helper.data_structures.HLLKeyErrorEstimator;
+import de.metanome.algorithm_helper.data_structures.PLICache;
+import de.metanome.algorithm_helper.data_structures.ParallelPLIBuilder;
 import de.metanome.algorithm_integration.AlgorithmConfigurationException;
 import de.metanome.algorithm_integration.input.InputGenerationException;
 import de.metanome.algorithm_integration.input.InputIterationException;
@@ -23,6 +26,7 @@ import de.metanome.algorithm_integration.input.RelationalInput;
 import de.metanome.algorithm_integration.input.RelationalInputGenerator;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Provides metadata and statistics about a table including all columns
@@ -39,8 +43,12 @@ public class TableInformation {
   private RelationalInputGenerator relationalInputGenerator;
   // Unique bit set representing this table
   private BitSet bitSet;
-  // Map of the column indices to the corresponding position list index
-  private Map<BitSet, PositionListIndex> PLIs;
+  // Cache of the position list indices of columns and column combinations
+  private PLICache PLIs;
+  // Dictionary encoded table data, only read if data dependent statistics are calculated
+  private ColumnarDataset dataset;
+  // Estimates key errors instead of the PLIs if the rankings are approximated
+  private HLLKeyErrorEstimator keyErrorEstimator;
 
   /**
    * Computes table metadata on the input data
@@ -70,29 +78,37 @@ public class TableInformation {
     List<String> columnNames = relationalInput.columnNames();
     this.columnInformationMap = new HashMap<>();
 
-    for (int columnIndex = 0; columnIndex < this.columnCount; columnIndex++) {
-      BitSet columnBitSet = new BitSet(this.columnCount);
-      columnBitSet.set(columnIndex);
-
-      // Compute the column information for the current column
-      if (!useDataIndependentStatistics) {
-        // Generate a new data iterator for each column
-        relationalInput = relationalInputGenerator.generateNewCopy();
-        this.columnInformationMap
-          .put(columnNames.get(columnIndex),
-            new ColumnInformation(columnNames.get(columnIndex),
-              columnIndex,
-              columnBitSet,
-              relationalInput,
-              true));
-      } else {
-        this.columnInformationMap.
-          put(columnNames.get(columnIndex),
-            new ColumnInformation(columnNames.get(columnIndex),
-              columnIndex,
-              columnBitSet));
+    ColumnInformation[] columnInformations = new ColumnInformation[this.columnCount];
+    if (!useDataIndependentStatistics) {
+      // Read the data only once for all columns
+      this.dataset = new ColumnarDataset(relationalInput);
+      // Compute the statistics of the encoded columns in parallel
+      IntStream.range(0, this.columnCount).parallel().forEach(columnIndex ->
+        columnInformations[columnIndex] = new ColumnInformation(columnNames.get(columnIndex),
+          columnIndex,
+          getColumnBitSet(columnIndex),
+          this.dataset));
+    } else {
+      for (int columnIndex = 0; columnIndex < this.columnCount; columnIndex++) {
+        columnInformations[columnIndex] = new ColumnInformation(columnNames.get(columnIndex),
+          columnIndex,
+          getColumnBitSet(columnIndex));
       }
     }
+
+    for (int columnIndex = 0; columnIndex < this.columnCount; columnIndex++) {
+      this.columnInformationMap.put(columnNames.get(columnIndex), columnInformations[columnIndex]);
+    }
+  }
+
+  /**
+   * @param columnIndex index of the column
+   * @return bit set representing the column
+   */
+  private BitSet getColumnBitSet(int columnIndex) {
+    BitSet columnBitSet = new BitSet(this.columnCount);
+    columnBitSet.set(columnIndex);
+    return columnBitSet;
   }
 
   /**
@@ -143,11 +159,48 @@ public class TableInformation {
     return bitSet;
   }
 
-  public Map<BitSet, PositionListIndex> getPLIs() {
+  /**
+   * @return the encoded table data or null, if only data independent statistics were calculated
+   */
+  public ColumnarDataset getDataset() {
+    return dataset;
+  }
+
+  public PLICache getPLIs() {
     return PLIs;
   }
 
-  public void setPLIs(Map<BitSet, PositionListIndex> PLIs) {
+  public void setPLIs(PLICache PLIs) {
     this.PLIs = PLIs;
   }
+
+  /**
+   * Creates the position list indices of the table, from the encoded table data if it was read.
+   *
+   * @return a cache containing the position list index of each column
+   * @throws InputGenerationException if the input is not accessible
+   * @throws InputIterationException if the input is not iterable
+   * @throws AlgorithmConfigurationException if input generator could not be build
+   */
+  public PLICache createPLIs()
+    throws InputGenerationException, InputIterationException, AlgorithmConfigurationException {
+    if (this.dataset != null) {
+      return new PLICache(this.dataset.getPLIList(true));
+    }
+
+    ParallelPLIBuilder pliBuilder =
+      new ParallelPLIBuilder(this.relationalInputGenerator.generateNewCopy());
+    return new PLICache(pliBuilder.getPLIList());
+  }
+
+  /**
+   * @return the estimator of approximated rankings or null, if key errors are calculated exactly
+   */
+  public HLLKeyErrorEstimator getKeyErrorEstimator() {
+    return keyErrorEstimator;
+  }
+
+  public void setKeyErrorEstimator(HLLKeyErrorEstimator keyErrorEstimator) {
+    this.keyErrorEstimator = keyErrorEstimator;
+  }
 }
@@ -35,10 +35,61 @@ import java.util.*;
 public class FunctionalDependencyResultAnalyzer
   extends ResultAnalyzer<FunctionalDependency, FunctionalDependencyResult> {
 
+  /**
+   * System property holding the relative error of estimated key errors, see {@link
+   * #getConfiguredApproximationError()}.
+   */
+  public static final String APPROXIMATION_ERROR_PROPERTY = "metanome.fd.keyErrorApproximation";
+
+  // Relative error of the estimated key errors, 0 if key errors are calculated exactly
+  protected double approximationError;
+
   public FunctionalDependencyResultAnalyzer(List<RelationalInputGenerator> inputGenerators,
                                             boolean useDataIndependentStatistics)
     throws InputGenerationException, InputIterationException, AlgorithmConfigurationException {
+    this(inputGenerators, useDataIndependentStatistics, 0.0);
+  }
+
+  /**
+   * @param inputGenerators              the inputs of the results
+   * @param useDataIndependentStatistics true, if data dependent statistics should be calculated,
+   *                                     false otherwise
+   * @param approximationError           the relative error of the key errors estimated for the
+   *                                     rankings, 0 for exact key errors
+   * @throws InputGenerationException if the input is not accessible
+   * @throws InputIterationException if the input is not iterable
+   * @throws AlgorithmConfigurationException if input generator could not be build
+   */
+  public FunctionalDependencyResultAnalyzer(List<RelationalInputGenerator> inputGenerators,
+                                            boolean useDataIndependentStatistics,
+                                            double approximationError)
+    throws InputGenerationException, InputIterationException, AlgorithmConfigurationException {
     super(inputGenerators, useDataIndependentStatistics);
+    this.approximationError = approximationError;
+  }
+
+  /**
+   * Reads the relative error of estimated key errors from the system property {@link
+   * #APPROXIMATION_ERROR_PROPERTY}, e.g. -Dmetanome.fd.keyErrorApproximation=0.01.
+   *
+   * @return the configured relative error, 0 if the property is not set
+   * @throws AlgorithmConfigurationException if the property is not a number in [0, 1)
+   */
+  public static double getConfiguredApproximationError() throws AlgorithmConfigurationException {
+    String property = System.getProperty(APPROXIMATION_ERROR_PROPERTY);
+    if (property == null) {
+      return 0.0;
+    }
+    try {
+      double approximationError = Double.parseDouble(property);
+      if (approximationError >= 0 && approximationError < 1) {
+        return approximationError;
+      }
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    throw new AlgorithmConfigurationException(
+      APPROXIMATION_ERROR_PROPERTY + " must be a number in [0, 1), but is " + property);
   }
 
   @Override
@@ -69,7 +120,7 @@ public class FunctionalDependencyResultAnalyzer
       if (!this.tableInformationMap.isEmpty()) {
         results = extendDependantSide(results);
         FunctionalDependencyRanking ranking =
-          new FunctionalDependencyRanking(results, tableInformationMap);
+          new FunctionalDependencyRanking(results, tableInformationMap, this.approximationError);
         ranking.calculateDataDependentRankings();
       }
 
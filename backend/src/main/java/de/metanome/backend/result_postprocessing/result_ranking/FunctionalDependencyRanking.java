@@ -15,8 +15,10 @@
  */
 package de.metanome.backend.result_postprocessing.result_ranking;
 
-import de.metanome.algorithm_helper.data_structures.PLIBuilder;
-import de.metanome.algorithm_helper.data_structures.PositionListIndex;
+import de.metanome.algorithm_helper.data_structures.ColumnCombinationBitset;
+import de.metanome.algorithm_helper.data_structures.ColumnarDataset;
+import de.metanome.algorithm_helper.data_structures.HLLKeyErrorEstimator;
+import de.metanome.algorithm_helper.data_structures.PLICache;
 import de.metanome.algorithm_integration.AlgorithmConfigurationException;
 import de.metanome.algorithm_integration.ColumnIdentifier;
 import de.metanome.algorithm_integration.input.InputGenerationException;
@@ -33,13 +35,32 @@ import java.util.*;
 public class FunctionalDependencyRanking extends Ranking {
 
   protected List<FunctionalDependencyResult> results;
-  protected Map<BitSet, PositionListIndex> PLIs;
+  protected PLICache PLIs;
+  // Relative error of the estimated key errors, 0 if key errors are calculated exactly
+  protected double approximationError;
+  protected HLLKeyErrorEstimator keyErrorEstimator;
 
   public FunctionalDependencyRanking(List<FunctionalDependencyResult> results,
                                      Map<String, TableInformation> tableInformationMap) {
+    this(results, tableInformationMap, 0.0);
+  }
+
+  /**
+   * Creates a ranking which estimates the key errors needed for the pollution and the information
+   * gain with HyperLogLog sketches instead of intersecting position list indices.
+   *
+   * @param results             the results to rank
+   * @param tableInformationMap the tables of the results
+   * @param approximationError  the relative error of the estimated key errors, 0 for exact key
+   *                            errors
+   */
+  public FunctionalDependencyRanking(List<FunctionalDependencyResult> results,
+                                     Map<String, TableInformation> tableInformationMap,
+                                     double approximationError) {
     super(tableInformationMap);
     this.results = results;
     this.occurrenceMap = new HashMap<>();
+    this.approximationError = approximationError;
 
     createOccurrenceList();
   }
@@ -74,8 +95,15 @@ public class FunctionalDependencyRanking extends Ranking {
     TableInformation tableInformation = this.tableInformationMap.values().iterator().next();
 
     if (this.tableInformationMap.size() == 1) {
-      this.PLIs = createPLIs(tableInformation);
-      tableInformation.setPLIs(PLIs);
+      if (this.approximationError > 0) {
+        this.keyErrorEstimator = createKeyErrorEstimator(tableInformation);
+        tableInformation.setKeyErrorEstimator(this.keyErrorEstimator);
+      } else {
+        if (tableInformation.getPLIs() == null) {
+          tableInformation.setPLIs(createPLIs(tableInformation));
+        }
+        this.PLIs = tableInformation.getPLIs();
+      }
     }
 
     for (FunctionalDependencyResult result : this.results) {
@@ -219,8 +247,9 @@ public class FunctionalDependencyRanking extends Ranking {
   }
 
   /**
-   * Calculates the key error for the given columns using the given PLIs. The key error is equal to
-   * the number of entries, which has to be removed, so that the columns become unique.
+   * Calculates the key error for the given columns using the given PLIs or, in the approximate
+   * mode, the key error estimator. The key error is equal to the number of entries, which has to
+   * be removed, so that the columns become unique.
    *
    * @param columnBitSet the columns as BitSet
    * @return the key error
@@ -230,27 +259,13 @@ public class FunctionalDependencyRanking extends Ranking {
       return 0L;
     }
 
-    // the PLI already exists
-    if (this.PLIs.containsKey(columnBitSet)) {
-      return this.PLIs.get(columnBitSet).getRawKeyError();
-    }
-
-    // get all individual columns as bit set
-    List<BitSet> columns = new ArrayList<>();
-    for (int i = columnBitSet.nextSetBit(0); i != -1; i = columnBitSet.nextSetBit(i + 1)) {
-      BitSet bitSet = new BitSet();
-      bitSet.set(i);
-      columns.add(bitSet);
+    ColumnCombinationBitset columnCombination =
+      new ColumnCombinationBitset(columnBitSet.stream().toArray());
+    if (this.keyErrorEstimator != null) {
+      return this.keyErrorEstimator.estimateRawKeyError(columnCombination);
     }
-
-    // calculate the new PLI
-    PositionListIndex pli = this.PLIs.get(columns.get(0));
-    for (int i = 1; i < columns.size(); i++) {
-      pli = pli.intersect(this.PLIs.get(columns.get(i)));
-    }
-    this.PLIs.put(columnBitSet, pli);
-
-    return pli.getRawKeyError();
+    // the PLI is taken from the cache or calculated from the largest cached subset
+    return this.PLIs.getRawKeyError(columnCombination);
   }
 
   /**
@@ -340,29 +355,32 @@ public class FunctionalDependencyRanking extends Ranking {
    * Creates the position list indices for the given table.
    *
    * @param tableInformation the table
-   * @return a map containing for each column its position list index
+   * @return a cache containing the position list index of each column
    * @throws de.metanome.algorithm_integration.input.InputGenerationException if the input is not accessible
    * @throws de.metanome.algorithm_integration.input.InputIterationException if the input is not iterable
    * @throws de.metanome.algorithm_integration.AlgorithmConfigurationException if input generator could not be build
    */
-  public Map<BitSet, PositionListIndex> createPLIs(TableInformation tableInformation)
+  public PLICache createPLIs(TableInformation tableInformation)
     throws InputGenerationException, InputIterationException, AlgorithmConfigurationException {
-    Map<BitSet, PositionListIndex> pliList = new HashMap<>();
-
-    PLIBuilder pliBuilder =
-      new PLIBuilder(tableInformation.getRelationalInputGenerator().generateNewCopy());
-    List<PositionListIndex> PLIs = pliBuilder.getPLIList();
-
-    int index = 0;
-    for (PositionListIndex PLI : PLIs) {
-      BitSet bitSet = new BitSet();
-      bitSet.set(index);
-      pliList.put(bitSet, PLI);
-      index++;
-    }
-
-    return pliList;
+    return tableInformation.createPLIs();
+  }
 
+  /**
+   * Creates the key error estimator for the given table.
+   *
+   * @param tableInformation the table
+   * @return an estimator on the table's encoded data
+   * @throws de.metanome.algorithm_integration.input.InputGenerationException if the input is not accessible
+   * @throws de.metanome.algorithm_integration.input.InputIterationException if the input is not iterable
+   * @throws de.metanome.algorithm_integration.AlgorithmConfigurationException if input generator could not be build
+   */
+  public HLLKeyErrorEstimator createKeyErrorEstimator(TableInformation tableInformation)
+    throws InputGenerationException, InputIterationException, AlgorithmConfigurationException {
+    ColumnarDataset dataset = tableInformation.getDataset();
+    if (dataset == null) {
+      dataset = new ColumnarDataset(tableInformation.getRelationalInputGenerator().generateNewCopy());
+    }
+    return new HLLKeyErrorEstimator(dataset, this.approximationError);
   }
 
 }
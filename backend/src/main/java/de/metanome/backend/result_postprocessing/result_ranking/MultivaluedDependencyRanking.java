@@ -16,8 +16,9 @@
 
 package de.metanome.backend.result_postprocessing.result_ranking;
 
-import de.metanome.algorithm_helper.data_structures.PLIBuilder;
-import de.metanome.algorithm_helper.data_structures.PositionListIndex;
+import de.metanome.algorithm_helper.data_structures.ColumnCombinationBitset;
+import de.metanome.algorithm_helper.data_structures.PLICache;
+import de.metanome.algorithm_helper.data_structures.ParallelPLIBuilder;
 import de.metanome.algorithm_integration.AlgorithmConfigurationException;
 import de.metanome.algorithm_integration.ColumnIdentifier;
 import de.metanome.algorithm_integration.input.InputGenerationException;
@@ -34,7 +35,7 @@ import java.util.*;
 public class MultivaluedDependencyRanking extends Ranking {
 
   protected List<MultivaluedDependencyResult> results;
-  protected Map<BitSet, PositionListIndex> PLIs;
+  protected PLICache PLIs;
 
   public MultivaluedDependencyRanking(List<MultivaluedDependencyResult> results,
                                      Map<String, TableInformation> tableInformationMap) {
@@ -77,8 +78,10 @@ public class MultivaluedDependencyRanking extends Ranking {
     TableInformation tableInformation = this.tableInformationMap.values().iterator().next();
 
     if (this.tableInformationMap.size() == 1) {
-      this.PLIs = createPLIs(tableInformation);
-      tableInformation.setPLIs(PLIs);
+      if (tableInformation.getPLIs() == null) {
+        tableInformation.setPLIs(createPLIs(tableInformation));
+      }
+      this.PLIs = tableInformation.getPLIs();
     }
 
     for (MultivaluedDependencyResult result : this.results) {
@@ -233,27 +236,8 @@ public class MultivaluedDependencyRanking extends Ranking {
       return 0L;
     }
 
-    // the PLI already exists
-    if (this.PLIs.containsKey(columnBitSet)) {
-      return this.PLIs.get(columnBitSet).getRawKeyError();
-    }
-
-    // get all individual columns as bit set
-    List<BitSet> columns = new ArrayList<>();
-    for (int i = columnBitSet.nextSetBit(0); i != -1; i = columnBitSet.nextSetBit(i + 1)) {
-      BitSet bitSet = new BitSet();
-      bitSet.set(i);
-      columns.add(bitSet);
-    }
-
-    // calculate the new PLI
-    PositionListIndex pli = this.PLIs.get(columns.get(0));
-    for (int i = 1; i < columns.size(); i++) {
-      pli = pli.intersect(this.PLIs.get(columns.get(i)));
-    }
-    this.PLIs.put(columnBitSet, pli);
-
-    return pli.getRawKeyError();
+    // the PLI is taken from the cache or calculated from the largest cached subset
+    return this.PLIs.getRawKeyError(new ColumnCombinationBitset(columnBitSet.stream().toArray()));
   }
 
   /**
@@ -343,29 +327,21 @@ public class MultivaluedDependencyRanking extends Ranking {
    * Creates the position list indices for the given table.
    *
    * @param tableInformation the table
-   * @return a map containing for each column its position list index
+   * @return a cache containing the position list index of each column
    * @throws de.metanome.algorithm_integration.input.InputGenerationException if the input is not accessible
    * @throws de.metanome.algorithm_integration.input.InputIterationException if the input is not iterable
    * @throws de.metanome.algorithm_integration.AlgorithmConfigurationException if input generator could not be build
    */
-  public Map<BitSet, PositionListIndex> createPLIs(TableInformation tableInformation)
+  public PLICache createPLIs(TableInformation tableInformation)
     throws InputGenerationException, InputIterationException, AlgorithmConfigurationException {
-    Map<BitSet, PositionListIndex> pliList = new HashMap<>();
-
-    PLIBuilder pliBuilder =
-      new PLIBuilder(tableInformation.getRelationalInputGenerator().generateNewCopy());
-    List<PositionListIndex> PLIs = pliBuilder.getPLIList();
-
-    int index = 0;
-    for (PositionListIndex PLI : PLIs) {
-      BitSet bitSet = new BitSet();
-      bitSet.set(index);
-      pliList.put(bitSet, PLI);
-      index++;
+    // Derive the PLIs from the already read table data if possible
+    if (tableInformation.getDataset() != null) {
+      return new PLICache(tableInformation.getDataset().getPLIList(true));
     }
 
-    return pliList;
-
+    ParallelPLIBuilder pliBuilder =
+      new ParallelPLIBuilder(tableInformation.getRelationalInputGenerator().generateNewCopy());
+    return new PLICache(pliBuilder.getPLIList());
   }
 
 }
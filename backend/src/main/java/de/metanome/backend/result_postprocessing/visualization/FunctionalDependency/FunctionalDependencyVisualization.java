@@ -15,9 +15,12 @@
  */
 package de.metanome.backend.result_postprocessing.visualization.FunctionalDependency;
 
-import de.metanome.algorithm_helper.data_structures.PositionListIndex;
+import de.metanome.algorithm_helper.data_structures.ColumnCombinationBitset;
+import de.metanome.algorithm_integration.AlgorithmConfigurationException;
 import de.metanome.algorithm_integration.ColumnCombination;
 import de.metanome.algorithm_integration.ColumnIdentifier;
+import de.metanome.algorithm_integration.input.InputGenerationException;
+import de.metanome.algorithm_integration.input.InputIterationException;
 import de.metanome.backend.constants.Constants;
 import de.metanome.backend.result_postprocessing.helper.ColumnInformation;
 import de.metanome.backend.result_postprocessing.helper.TableInformation;
@@ -46,10 +49,19 @@ public class FunctionalDependencyVisualization {
   }
 
   /**
-   * Creates all visualization data for functional dependencies and writes them to a file.
+   * Creates all visualization data for functional dependencies and writes them to a file. The key
+   * errors are taken from the PLIs or the key error estimator of the table; if the ranking provided
+   * neither, the PLIs are created.
    * @throws java.io.FileNotFoundException if file could not be found
+   * @throws de.metanome.algorithm_integration.input.InputGenerationException if the input is not accessible
+   * @throws de.metanome.algorithm_integration.input.InputIterationException if the input is not iterable
+   * @throws de.metanome.algorithm_integration.AlgorithmConfigurationException if input generator could not be build
    */
-  public void createVisualizationData() throws FileNotFoundException {
+  public void createVisualizationData()
+    throws FileNotFoundException, InputGenerationException, InputIterationException,
+    AlgorithmConfigurationException {
+    createMissingPLIs();
+
     // set the path to store the data
     String currentPath = Thread.currentThread().getContextClassLoader().getResource("").getPath();
     String relativeVisualizationPath = "../../src/visualization/FDResultAnalyzer/";
@@ -67,6 +79,22 @@ public class FunctionalDependencyVisualization {
     printFunctionalDependencyVisualizationData(dependantMap);
   }
 
+  /**
+   * Creates the PLIs of the table, if neither the PLIs nor a key error estimator are available to
+   * calculate the key errors.
+   *
+   * @throws de.metanome.algorithm_integration.input.InputGenerationException if the input is not accessible
+   * @throws de.metanome.algorithm_integration.input.InputIterationException if the input is not iterable
+   * @throws de.metanome.algorithm_integration.AlgorithmConfigurationException if input generator could not be build
+   */
+  protected void createMissingPLIs()
+    throws InputGenerationException, InputIterationException, AlgorithmConfigurationException {
+    if (this.tableInformation.getPLIs() == null
+      && this.tableInformation.getKeyErrorEstimator() == null) {
+      this.tableInformation.setPLIs(this.tableInformation.createPLIs());
+    }
+  }
+
   /**
    * Creates a reverted index on the functional dependency dependants.
    *
@@ -222,37 +250,20 @@ public class FunctionalDependencyVisualization {
   }
 
   /**
-   * Calculates the key error for the given columns using the PLIs of the table. The key error is
-   * equal to the number of entries, which has to be removed, so that the columns become unique.
+   * Calculates the key error for the given columns using the PLIs of the table or, without PLIs,
+   * estimates it. The key error is equal to the number of entries, which has to be removed, so
+   * that the columns become unique.
    *
    * @param columnBitSet the columns as bit set
    * @return the key error
    */
   private long calculateKeyError(BitSet columnBitSet) {
-    Map<BitSet, PositionListIndex> PLIs = this.tableInformation.getPLIs();
-
-    // the PLI already exists
-    if (PLIs.containsKey(columnBitSet)) {
-      return PLIs.get(columnBitSet).getRawKeyError();
-    }
-
-    // get all individual columns as bit set
-    List<BitSet> columns = new ArrayList<>();
-    for (int i = columnBitSet.nextSetBit(0); i != -1; i = columnBitSet.nextSetBit(i + 1)) {
-      BitSet bitSet = new BitSet();
-      bitSet.set(i);
-      columns.add(bitSet);
+    ColumnCombinationBitset columnCombination =
+      new ColumnCombinationBitset(columnBitSet.stream().toArray());
+    if (this.tableInformation.getPLIs() == null) {
+      return this.tableInformation.getKeyErrorEstimator().estimateRawKeyError(columnCombination);
     }
-
-    // calculate the new PLI
-    PositionListIndex pli = PLIs.get(columns.get(0));
-    for (int i = 1; i < columns.size(); i++) {
-      pli = pli.intersect(PLIs.get(columns.get(i)));
-    }
-    PLIs.put(columnBitSet, pli);
-    this.tableInformation.setPLIs(PLIs);
-
-    return pli.getRawKeyError();
+    return this.tableInformation.getPLIs().getRawKeyError(columnCombination);
   }
 
   /**
@@ -19,8 +19,18 @@ import de.metanome.algorithm_integration.AlgorithmConfigurationException;
 import de.metanome.algorithm_integration.input.InputGenerationException;
 import org.junit.Test;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Tests for {@link de.metanome.backend.input.database.DefaultTableInputGenerator}
@@ -131,4 +141,140 @@ public class DefaultTableInputGeneratorTest {
       .generateResultSetFromSql(String.format(DefaultTableInputGenerator.SORT_STATEMENT,
         expectedTable, expectedColumn, "DESC"));
   }
+
+  /**
+   * Test method for {@link DefaultTableInputGenerator#generateNewCopy(int[])}
+   * <p/>
+   * The table input generator should select only the given columns by their names, which are read
+   * from the table's metadata.
+   */
+  @Test
+  public void testGenerateNewCopyProjection() throws Exception {
+    // Setup
+    DefaultDatabaseConnectionGenerator
+      defaultDatabaseConnectionGenerator = mock(DefaultDatabaseConnectionGenerator.class);
+    String expectedTable = "some_table";
+    ResultSet emptyResultSet = mock(ResultSet.class);
+    ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+    Statement statement = mock(Statement.class);
+    Connection connection = mock(Connection.class);
+    DatabaseMetaData databaseMetaData = mock(DatabaseMetaData.class);
+    when(defaultDatabaseConnectionGenerator.generateResultSetFromSql(
+      String.format(DefaultTableInputGenerator.COLUMNS_STATEMENT, expectedTable)))
+      .thenReturn(emptyResultSet);
+    when(emptyResultSet.getMetaData()).thenReturn(metaData);
+    when(emptyResultSet.getStatement()).thenReturn(statement);
+    when(statement.getConnection()).thenReturn(connection);
+    when(connection.getMetaData()).thenReturn(databaseMetaData);
+    when(databaseMetaData.getIdentifierQuoteString()).thenReturn("\"");
+    when(metaData.getColumnCount()).thenReturn(3);
+    when(metaData.getColumnName(1)).thenReturn("a");
+    when(metaData.getColumnName(2)).thenReturn("b");
+    when(metaData.getColumnName(3)).thenReturn("c");
+    DefaultTableInputGenerator tableInputGenerator =
+      new DefaultTableInputGenerator(defaultDatabaseConnectionGenerator, expectedTable);
+
+    // Execute functionality
+    tableInputGenerator.generateNewCopy(new int[]{2, 0});
+
+    // Check result
+    verify(defaultDatabaseConnectionGenerator)
+      .generateRelationalInputFromSql(
+        String.format(DefaultTableInputGenerator.PROJECTION_STATEMENT, "\"c\", \"a\"",
+          expectedTable),
+        expectedTable);
+    verify(statement).close();
+  }
+
+  /**
+   * Test method for {@link DefaultTableInputGenerator#generateNewCopy(int[])}
+   * <p/> Mixed case names, names with spaces, reserved words and names containing the quote should
+   * be quoted.
+   */
+  @Test
+  public void testGenerateNewCopyProjectionQuotesNames() throws Exception {
+    // Setup
+    DefaultDatabaseConnectionGenerator
+      defaultDatabaseConnectionGenerator = mock(DefaultDatabaseConnectionGenerator.class);
+    String expectedTable = "some_table";
+    ResultSet emptyResultSet = mock(ResultSet.class);
+    ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+    Statement statement = mock(Statement.class);
+    Connection connection = mock(Connection.class);
+    DatabaseMetaData databaseMetaData = mock(DatabaseMetaData.class);
+    when(defaultDatabaseConnectionGenerator.generateResultSetFromSql(
+      String.format(DefaultTableInputGenerator.COLUMNS_STATEMENT, expectedTable)))
+      .thenReturn(emptyResultSet);
+    when(emptyResultSet.getMetaData()).thenReturn(metaData);
+    when(emptyResultSet.getStatement()).thenReturn(statement);
+    when(statement.getConnection()).thenReturn(connection);
+    when(connection.getMetaData()).thenReturn(databaseMetaData);
+    when(databaseMetaData.getIdentifierQuoteString()).thenReturn("\"");
+    when(metaData.getColumnCount()).thenReturn(4);
+    when(metaData.getColumnName(1)).thenReturn("MyCol");
+    when(metaData.getColumnName(2)).thenReturn("first name");
+    when(metaData.getColumnName(3)).thenReturn("select");
+    when(metaData.getColumnName(4)).thenReturn("say \"hi\"");
+    DefaultTableInputGenerator tableInputGenerator =
+      new DefaultTableInputGenerator(defaultDatabaseConnectionGenerator, expectedTable);
+
+    // Execute functionality
+    tableInputGenerator.generateNewCopy(new int[]{0, 1, 2, 3});
+
+    // Check result
+    verify(defaultDatabaseConnectionGenerator)
+      .generateRelationalInputFromSql(
+        String.format(DefaultTableInputGenerator.PROJECTION_STATEMENT,
+          "\"MyCol\", \"first name\", \"select\", \"say \"\"hi\"\"\"", expectedTable),
+        expectedTable);
+  }
+
+  /**
+   * Test method for {@link DefaultTableInputGenerator#generateNewCopy(int[])}
+   * <p/> The statement reading the column names should be closed even if the metadata cannot be
+   * read.
+   */
+  @Test
+  public void testGenerateNewCopyProjectionClosesStatementOnFailure() throws Exception {
+    // Setup
+    DefaultDatabaseConnectionGenerator
+      defaultDatabaseConnectionGenerator = mock(DefaultDatabaseConnectionGenerator.class);
+    String expectedTable = "some_table";
+    ResultSet emptyResultSet = mock(ResultSet.class);
+    Statement statement = mock(Statement.class);
+    Connection connection = mock(Connection.class);
+    DatabaseMetaData databaseMetaData = mock(DatabaseMetaData.class);
+    when(defaultDatabaseConnectionGenerator.generateResultSetFromSql(
+      String.format(DefaultTableInputGenerator.COLUMNS_STATEMENT, expectedTable)))
+      .thenReturn(emptyResultSet);
+    when(emptyResultSet.getStatement()).thenReturn(statement);
+    when(statement.getConnection()).thenReturn(connection);
+    when(connection.getMetaData()).thenReturn(databaseMetaData);
+    when(databaseMetaData.getIdentifierQuoteString()).thenReturn("\"");
+    when(emptyResultSet.getMetaData()).thenThrow(new SQLException());
+    DefaultTableInputGenerator tableInputGenerator =
+      new DefaultTableInputGenerator(defaultDatabaseConnectionGenerator, expectedTable);
+
+    // Execute functionality
+    try {
+      tableInputGenerator.generateNewCopy(new int[]{0});
+      fail("Exception was not thrown.");
+    } catch (InputGenerationException e) {
+      // Intentionally left blank
+    }
+
+    // Check result
+    verify(statement).close();
+  }
+
+  /**
+   * Test method for {@link DefaultTableInputGenerator#quoteIdentifier(String, String)}
+   * <p/> Databases without identifier quoting report a space, the names should stay unquoted.
+   */
+  @Test
+  public void testQuoteIdentifierUnsupported() {
+    // Check result
+    assertEquals("MyCol", DefaultTableInputGenerator.quoteIdentifier("MyCol", " "));
+    assertEquals("`MyCol`", DefaultTableInputGenerator.quoteIdentifier("MyCol", "`"));
+  }
 }
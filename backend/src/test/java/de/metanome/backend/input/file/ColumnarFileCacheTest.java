@@ -0,0 +1,243 @@
+/**
+ * Copyright 2015-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ColumnarFileCache} and {@link CachedColumnarInput}
+ */
+public class ColumnarFileCacheTest {
+
+  protected static final String FILE_NAME = "columnar_file_cache.csv";
+
+  protected File cacheDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDirectory = Files.createTempDirectory("columnar_file_cache").toFile();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    File[] cacheFiles = cacheDirectory.listFiles();
+    if (cacheFiles != null) {
+      for (File cacheFile : cacheFiles) {
+        cacheFile.delete();
+      }
+    }
+    cacheDirectory.delete();
+  }
+
+  protected ConfigurationSettingFileInput getSetting() {
+    return new ConfigurationSettingFileInput(FILE_NAME);
+  }
+
+  protected String getFileData() {
+    StringBuilder fileData = new StringBuilder("id,parity,name\n");
+    // More than 256 distinct ids need two bytes per id
+    for (int row = 0; row < 300; row++) {
+      fileData.append(row).append(',').append(row % 2 == 0 ? "even" : "")
+        .append(",\"name ").append(row % 7).append("\"\n");
+    }
+    return fileData.toString();
+  }
+
+  protected ColumnarFileCache buildCache(File file, ConfigurationSettingFileInput setting)
+    throws InputIterationException {
+    ColumnarFileCache cache = new ColumnarFileCache(file, setting, cacheDirectory);
+    cache.build(new MappedFileIterator(file, setting));
+    return cache;
+  }
+
+  protected List<List<String>> readAll(RelationalInput input) throws Exception {
+    List<List<String>> rows = new ArrayList<>();
+    while (input.hasNext()) {
+      rows.add(input.next());
+    }
+    input.close();
+    return rows;
+  }
+
+  /**
+   * Test method for {@link CachedColumnarInput#next()} <p/> The cached rows, column names and
+   * null values should equal the parsed ones.
+   */
+  @Test
+  public void testNext() throws Exception {
+    // Setup
+    File file = new FileFixture(getFileData()).getTestData(FILE_NAME);
+    ColumnarFileCache cache = buildCache(file, getSetting());
+    // Expected values
+    RelationalInput expectedInput = new MappedFileIterator(file, getSetting());
+    List<String> expectedColumnNames = expectedInput.columnNames();
+    List<List<String>> expectedRows = readAll(expectedInput);
+
+    // Execute functionality
+    CachedColumnarInput input = cache.newInput();
+
+    // Check result
+    assertEquals(FILE_NAME, input.relationName());
+    assertEquals(expectedColumnNames, input.columnNames());
+    assertEquals(3, input.numberOfColumns());
+    assertEquals(expectedRows, readAll(input));
+    assertEquals(Arrays.asList("1", null, "name 1"), expectedRows.get(1));
+  }
+
+  /**
+   * Test method for {@link CachedColumnarInput#nextBatch(String[][])} <p/> Only the selected
+   * columns should be read, in the given order.
+   */
+  @Test
+  public void testNextBatchSelectedColumns() throws Exception {
+    // Setup
+    File file = new FileFixture(getFileData()).getTestData(FILE_NAME);
+    ColumnarFileCache cache = buildCache(file, getSetting());
+    CachedColumnarInput input = cache.newInput(new int[]{2, 0});
+    String[][] batch = new String[2][128];
+
+    // Execute functionality
+    // Check result
+    assertEquals(Arrays.asList("name", "id"), input.columnNames());
+    assertEquals(128, input.nextBatch(batch));
+    assertEquals(128, input.nextBatch(batch));
+    assertEquals("name 5", batch[0][3]);
+    assertEquals("131", batch[1][3]);
+    assertEquals(Arrays.asList("name 4", "256"), input.next());
+    assertEquals(43, input.nextBatch(batch));
+    assertEquals(0, input.nextBatch(batch));
+    assertFalse(input.hasNext());
+  }
+
+  /**
+   * Test method for {@link ColumnarFileCache#isValid()} <p/> The cache should be invalid before
+   * it is built, for other settings and once the file changed.
+   */
+  @Test
+  public void testIsValid() throws IOException, InputIterationException {
+    // Setup
+    File file = new FileFixture("a,b\n1,2\n").getTestData(FILE_NAME);
+    ColumnarFileCache cache = new ColumnarFileCache(file, getSetting(), cacheDirectory);
+
+    // Execute functionality
+    // Check result
+    assertFalse(cache.isValid());
+    cache.build(new MappedFileIterator(file, getSetting()));
+    assertTrue(cache.isValid());
+    assertFalse(
+      new ColumnarFileCache(file, getSetting().setHeader(false), cacheDirectory).isValid());
+
+    // Same size and modification time, but other content
+    long lastModified = file.lastModified();
+    new FileFixture("a,b\n1,3\n").getTestData(FILE_NAME);
+    file.setLastModified(lastModified);
+    assertFalse(cache.isValid());
+  }
+
+  /**
+   * Test method for {@link ColumnarFileCache#build(RelationalInput)} <p/> Building the cache with
+   * another setting should delete the cache file of the previous setting, but keep the cache files
+   * of other source files.
+   */
+  @Test
+  public void testBuildDeletesStaleCacheFiles() throws Exception {
+    // Setup
+    File file = new FileFixture("a,b\n1,2\n").getTestData(FILE_NAME);
+    ColumnarFileCache previousCache = buildCache(file, getSetting());
+    File otherDirectory = Files.createTempDirectory("columnar_file_cache_source").toFile();
+    File otherFile = new File(otherDirectory, FILE_NAME);
+    Files.copy(file.toPath(), otherFile.toPath());
+    ColumnarFileCache otherCache = buildCache(otherFile, getSetting());
+
+    // Execute functionality
+    ColumnarFileCache cache = buildCache(file, getSetting().setHeader(false));
+
+    // Check result
+    assertFalse(previousCache.getCacheFile().equals(cache.getCacheFile()));
+    assertFalse(previousCache.getCacheFile().exists());
+    assertTrue(cache.isValid());
+    assertTrue(otherCache.isValid());
+    assertTrue(otherFile.delete());
+    assertTrue(otherDirectory.delete());
+  }
+
+  /**
+   * Test method for {@link DefaultFileInputGenerator#generateNewCopy()} <p/> The generator should
+   * serve the input from the cache if the setting enables it.
+   */
+  @Test
+  public void testGenerateNewCopy() throws Exception {
+    // Setup
+    File file = new FileFixture("a,b\n1,2\n3,\n").getTestData(FILE_NAME);
+    ConfigurationSettingFileInput setting = getSetting().setColumnarCache(true);
+    DefaultFileInputGenerator generator = new DefaultFileInputGenerator(file, setting);
+
+    // Execute functionality
+    RelationalInput firstCopy = generator.generateNewCopy();
+    RelationalInput secondCopy = generator.generateNewCopy();
+
+    // Check result
+    assertTrue(firstCopy instanceof CachedColumnarInput);
+    assertEquals(Arrays.asList(Arrays.asList("1", "2"), Arrays.asList("3", null)),
+      readAll(firstCopy));
+    assertEquals(readAll(new MappedFileIterator(file, getSetting())), readAll(secondCopy));
+    assertTrue(new ColumnarFileCache(file, setting).getCacheFile().delete());
+  }
+
+  /**
+   * Test method for {@link DefaultFileInputGenerator#generateNewCopy()} <p/> If the cache cannot be
+   * built, the generator should parse the file instead of failing.
+   */
+  @Test
+  public void testGenerateNewCopyFallsBackToParsing() throws Exception {
+    // Setup
+    File file = new FileFixture("a,b\n1,2\n3,\n").getTestData(FILE_NAME);
+    ConfigurationSettingFileInput setting = getSetting().setColumnarCache(true);
+    // A regular file cannot hold the cache file
+    final File unusableDirectory = new File(cacheDirectory, "not_a_directory");
+    assertTrue(unusableDirectory.createNewFile());
+    DefaultFileInputGenerator generator = new DefaultFileInputGenerator(file, setting) {
+      @Override
+      protected ColumnarFileCache createColumnarCache() {
+        return new ColumnarFileCache(getInputFile(), this.setting, unusableDirectory);
+      }
+    };
+
+    // Execute functionality
+    RelationalInput copy = generator.generateNewCopy();
+    RelationalInput projectedCopy = generator.generateNewCopy(new int[]{1});
+
+    // Check result
+    assertFalse(copy instanceof CachedColumnarInput);
+    assertEquals(Arrays.asList(Arrays.asList("1", "2"), Arrays.asList("3", null)), readAll(copy));
+    assertEquals(Arrays.asList(Arrays.asList("2"), Arrays.<String>asList((String) null)),
+      readAll(projectedCopy));
+  }
+}
@@ -25,8 +25,10 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 /**
  * Tests for {@link DefaultFileInputGenerator}
@@ -135,6 +137,36 @@ public class DefaultFileInputGeneratorTest {
     assertEquals(csvFileFixture.expectedSecondLine(), csv2.next());
   }
 
+  /**
+   * Test method for {@link DefaultFileInputGenerator#generateNewCopy(int[])} <p/> Only the given
+   * columns should be returned in the given order, lines are still validated on all columns.
+   */
+  @Test
+  public void testGenerateNewCopyProjection() throws InputGenerationException,
+    InputIterationException {
+    // Setup
+    // Execute functionality
+    RelationalInput fileInput = generator.generateNewCopy(new int[]{2, 0});
+
+    // Check result
+    assertEquals(2, fileInput.numberOfColumns());
+    assertEquals(Arrays.asList("three", "one"), fileInput.columnNames());
+    assertEquals(Arrays.asList("5", "3"), fileInput.next());
+    assertEquals(Arrays.asList("8", "6"), fileInput.next());
+    // The short third line is skipped
+    assertFalse(fileInput.hasNext());
+  }
+
+  /**
+   * Test method for {@link DefaultFileInputGenerator#generateNewCopy(int[])} <p/> Projecting a
+   * column the file does not have should fail.
+   */
+  @Test(expected = InputGenerationException.class)
+  public void testGenerateNewCopyProjectionMissingColumn() throws InputGenerationException {
+    // Execute functionality
+    generator.generateNewCopy(new int[]{3});
+  }
+
   /**
    * Test method for {@link DefaultFileInputGenerator#getInputFile()}
    */
@@ -322,4 +322,50 @@ public class FileIteratorTest {
     // Cleanup
     fileIterator.close();
   }
+
+  /**
+   * Test method for {@link FileIterator#nextBatch(String[][])} <p/> The lines should be written
+   * column by column into the batch; lines of differing length should be skipped.
+   */
+  @Test
+  public void testNextBatch() throws InputIterationException, IOException {
+    // Setup
+    CsvFileFixture csvFixture = new CsvFileFixture();
+    FileIterator csvFile = csvFixture.getTestData(true);
+    String[][] batch = new String[3][1];
+
+    // Execute functionality
+    // Check result
+    assertEquals(1, csvFile.nextBatch(batch));
+    assertEquals(csvFixture.expectedFirstLine().get(2), batch[2][0]);
+    assertEquals(1, csvFile.nextBatch(batch));
+    assertEquals(csvFixture.expectedSecondLine().get(0), batch[0][0]);
+    assertEquals(0, csvFile.nextBatch(batch));
+
+    // Cleanup
+    csvFile.close();
+  }
+
+  /**
+   * Test method for {@link FileIterator#setProjection(int[])} <p/> Rows, batches and column names
+   * should only contain the projected columns.
+   */
+  @Test
+  public void testSetProjection() throws InputIterationException, IOException {
+    // Setup
+    CsvFileFixture csvFixture = new CsvFileFixture();
+    FileIterator csvFile = csvFixture.getTestData(true).setProjection(new int[]{1});
+    String[][] batch = new String[1][4];
+
+    // Execute functionality
+    // Check result
+    assertEquals(1, csvFile.numberOfColumns());
+    assertEquals(csvFixture.expectedHeader().subList(1, 2), csvFile.columnNames());
+    assertEquals(csvFixture.expectedFirstLine().subList(1, 2), csvFile.next());
+    assertEquals(1, csvFile.nextBatch(batch));
+    assertEquals(csvFixture.expectedSecondLine().get(1), batch[0][0]);
+
+    // Cleanup
+    csvFile.close();
+  }
 }
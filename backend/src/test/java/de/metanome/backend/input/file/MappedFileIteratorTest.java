@@ -0,0 +1,288 @@
+/**
+ * Copyright 2015-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MappedFileIterator}
+ */
+public class MappedFileIteratorTest {
+
+  protected MappedFileIterator getIterator(String fileData, ConfigurationSettingFileInput setting)
+    throws IOException, InputIterationException {
+    File file = new FileFixture(fileData).getTestData("mapped_file_iterator.csv");
+    return new MappedFileIterator(file, setting);
+  }
+
+  protected ConfigurationSettingFileInput getSetting() {
+    return new ConfigurationSettingFileInput("mapped_file_iterator.csv").setHeader(false);
+  }
+
+  /**
+   * Generates a file of random lines made of the characters the parsers treat specially.
+   *
+   * @param random the random generator
+   * @return the file data
+   */
+  protected static String getRandomFileData(Random random) {
+    String characters = "ab ,,\"\"\\\n\r\u00e9";
+    StringBuilder fileData = new StringBuilder();
+    int length = random.nextInt(40);
+    for (int i = 0; i < length; i++) {
+      fileData.append(characters.charAt(random.nextInt(characters.length())));
+    }
+    return fileData.toString();
+  }
+
+  /**
+   * @param iterator an iterator that has read its first line
+   * @return all lines of the file as read by {@link FileIterator#readNextLine()}
+   */
+  protected static List<List<String>> readAllLines(FileIterator iterator)
+    throws InputIterationException {
+    List<List<String>> lines = new ArrayList<>();
+    for (List<String> line = iterator.nextLine; line != null; line = iterator.readNextLine()) {
+      lines.add(new ArrayList<>(line));
+    }
+    return lines;
+  }
+
+  /**
+   * @param file    the file to parse
+   * @param setting the file input setting
+   * @return all lines of the file as read by a {@link FileIterator}
+   */
+  protected static List<List<String>> readWithFileIterator(File file,
+                                                           ConfigurationSettingFileInput setting)
+    throws IOException, InputIterationException {
+    FileIterator iterator = new FileIterator(file.getName(), new FileReader(file), setting);
+    try {
+      return readAllLines(iterator);
+    } finally {
+      iterator.close();
+    }
+  }
+
+  /**
+   * Test method for {@link MappedFileIterator#next()} <p/> Lines should be split at the separator
+   * and line breaks of all kinds; empty values are null.
+   */
+  @Test
+  public void testNext() throws IOException, InputIterationException {
+    // Setup
+    MappedFileIterator iterator = getIterator("a,b,c\r\nd,,f\rg,h,i\n", getSetting());
+
+    // Execute functionality
+    // Check result
+    assertEquals(3, iterator.numberOfColumns());
+    assertEquals(Arrays.asList("a", "b", "c"), iterator.next());
+    assertEquals(Arrays.asList("d", null, "f"), iterator.next());
+    assertEquals(Arrays.asList("g", "h", "i"), iterator.next());
+    assertFalse(iterator.hasNext());
+    assertNull(iterator.next());
+    iterator.close();
+  }
+
+  /**
+   * Test method for {@link MappedFileIterator#next()} <p/> Quoted separators and line breaks,
+   * doubled quotes and escaped characters should be parsed like the CSVReader does.
+   */
+  @Test
+  public void testNextQuoted() throws IOException, InputIterationException {
+    // Setup
+    MappedFileIterator iterator = getIterator(
+      "\"a,1\",\"say \"\"hi\"\"\",\"x\\\"y\"\n"
+        + "\"multi\r\nline\",C:\\path,\"\"\n", getSetting());
+
+    // Execute functionality
+    // Check result
+    assertEquals(Arrays.asList("a,1", "say \"hi\"", "x\"y"), iterator.next());
+    assertEquals(Arrays.asList("multi\nline", "C:path", null), iterator.next());
+    assertFalse(iterator.hasNext());
+  }
+
+  /**
+   * Test method for {@link MappedFileIterator#MappedFileIterator(File,
+   * ConfigurationSettingFileInput)} <p/> Skip lines, header, separator, quote and null value
+   * settings should be honored.
+   */
+  @Test
+  public void testSettings() throws IOException, InputIterationException {
+    // Setup
+    ConfigurationSettingFileInput setting = getSetting()
+      .setSeparatorChar(";")
+      .setQuoteChar("'")
+      .setSkipLines(1)
+      .setHeader(true)
+      .setNullValue("NULL");
+
+    // Execute functionality
+    MappedFileIterator iterator = getIterator(
+      "comment line\nfirst;second\n'x;y';NULL\n", setting);
+
+    // Check result
+    assertEquals(Arrays.asList("first", "second"), iterator.columnNames());
+    assertEquals(Arrays.asList("x;y", null), iterator.next());
+    assertFalse(iterator.hasNext());
+    assertEquals("mapped_file_iterator.csv", iterator.relationName());
+  }
+
+  /**
+   * Test method for {@link MappedFileIterator#next()} <p/> Quotes and escape characters within
+   * unquoted fields should be handled like the CSVReader does, whose field state carries over from
+   * the previous line.
+   */
+  @Test
+  public void testNextQuotesWithinFields() throws IOException, InputIterationException {
+    // Setup
+    ConfigurationSettingFileInput setting = getSetting().setIgnoreLeadingWhiteSpace(false);
+    MappedFileIterator iterator = getIterator(
+      "a,1\n  \"x\",2\na\"b\",3\nab\"c\"d,4\n\\\"x,5\nb,6\n", setting);
+
+    // Execute functionality
+    // Check result
+    assertEquals(Arrays.asList("a", "1"), iterator.next());
+    assertEquals(Arrays.asList("  x", "2"), iterator.next());
+    assertEquals(Arrays.asList("ab", "3"), iterator.next());
+    assertEquals(Arrays.asList("abc\"d", "4"), iterator.next());
+    assertEquals(Arrays.asList("\"x", "5"), iterator.next());
+    assertEquals(Arrays.asList("b", "6"), iterator.next());
+    assertFalse(iterator.hasNext());
+  }
+
+  /**
+   * Test method for {@link MappedFileIterator#readNextLine()} <p/> Random files should be parsed
+   * into exactly the lines the {@link FileIterator} reads with every setting.
+   */
+  @Test
+  public void testReadNextLineMatchesFileIterator() throws IOException, InputIterationException {
+    Random random = new Random(42);
+    for (int run = 0; run < 2000; run++) {
+      // Setup
+      String fileData = getRandomFileData(random);
+      File file = new FileFixture(fileData).getTestData("mapped_file_iterator.csv");
+      ConfigurationSettingFileInput setting = getSetting()
+        .setStrictQuotes(random.nextBoolean())
+        .setIgnoreLeadingWhiteSpace(random.nextBoolean())
+        .setSkipLines(random.nextInt(2));
+      // Expected values
+      List<List<String>> expectedLines = readWithFileIterator(file, setting);
+
+      // Execute functionality
+      MappedFileIterator iterator = new MappedFileIterator(file, setting);
+      List<List<String>> actualLines = readAllLines(iterator);
+      iterator.close();
+
+      // Check result
+      assertEquals(fileData, expectedLines, actualLines);
+    }
+  }
+
+  /**
+   * Test method for {@link MappedFileIterator#next()} <p/> With strict quotes only quoted
+   * characters should be kept.
+   */
+  @Test
+  public void testStrictQuotes() throws IOException, InputIterationException {
+    // Setup
+    MappedFileIterator iterator =
+      getIterator("\"a\"b,c,\"d\"\n", getSetting().setStrictQuotes(true));
+
+    // Execute functionality
+    // Check result
+    assertEquals(Arrays.asList("a", null, "d"), iterator.next());
+  }
+
+  /**
+   * Test method for {@link MappedFileIterator#next()} <p/> Lines of differing length should be
+   * skipped or fail like in the {@link FileIterator}.
+   */
+  @Test
+  public void testDifferingLines() throws IOException, InputIterationException {
+    // Setup
+    String fileData = "a,b\nc\nd,e\n";
+    MappedFileIterator skippingIterator =
+      getIterator(fileData, getSetting().setSkipDifferingLines(true));
+
+    // Execute functionality
+    // Check result
+    assertEquals(Arrays.asList("a", "b"), skippingIterator.next());
+    assertEquals(Arrays.asList("d", "e"), skippingIterator.next());
+    assertEquals(1, skippingIterator.getNumberOfSkippedDifferingLines());
+
+    MappedFileIterator failingIterator = getIterator(fileData, getSetting());
+    failingIterator.next();
+    try {
+      failingIterator.next();
+      fail("Expected an InputIterationException to be thrown.");
+    } catch (InputIterationException e) {
+      // Intentionally left blank
+    }
+  }
+
+  /**
+   * Test method for {@link MappedFileIterator#next()} <p/> Lines crossing the border of the mapped
+   * window should be read from a new window.
+   */
+  @Test
+  public void testWindows() throws IOException, InputIterationException {
+    // Setup
+    StringBuilder fileData = new StringBuilder();
+    for (int line = 0; line < 100; line++) {
+      fileData.append(line).append(",\"value ").append(line).append("\"\r\n");
+    }
+    File file = new FileFixture(fileData.toString()).getTestData("mapped_file_iterator.csv");
+
+    // Execute functionality
+    MappedFileIterator iterator = new MappedFileIterator(file, getSetting(), 16);
+
+    // Check result
+    for (int line = 0; line < 100; line++) {
+      List<String> values = iterator.next();
+      assertEquals(String.valueOf(line), values.get(0));
+      assertEquals("value " + line, values.get(1));
+    }
+    assertFalse(iterator.hasNext());
+  }
+
+  /**
+   * Test method for {@link MappedFileIterator#next()} <p/> Lines longer than the mapped window
+   * cannot be read.
+   */
+  @Test(expected = InputIterationException.class)
+  public void testLineLongerThanWindow() throws IOException, InputIterationException {
+    // Setup
+    File file = new FileFixture("short\nthis line is too long\n")
+      .getTestData("mapped_file_iterator.csv");
+
+    // Execute functionality
+    MappedFileIterator iterator = new MappedFileIterator(file, getSetting(), 8);
+    iterator.next();
+  }
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright 2015-2016 by Metanome Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.metanome.backend.input.file;
+
+import de.metanome.algorithm_integration.configuration.ConfigurationSettingFileInput;
+import de.metanome.algorithm_integration.input.InputIterationException;
+import de.metanome.algorithm_integration.input.RelationalInput;
+import org.hamcrest.collection.IsIterableContainingInAnyOrder;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ParallelFileIterator}
+ */
+public class ParallelFileIteratorTest {
+
+  protected static final String FILE_NAME = "parallel_file_iterator.csv";
+
+  protected File getFile(String fileData) throws IOException {
+    return new FileFixture(fileData).getTestData(FILE_NAME);
+  }
+
+  protected ConfigurationSettingFileInput getSetting() {
+    return new ConfigurationSettingFileInput(FILE_NAME).setHeader(false);
+  }
+
+  protected String getFileData() {
+    StringBuilder fileData = new StringBuilder();
+    for (int line = 0; line < 50; line++) {
+      // Quoted line breaks, separators and quotes span the chunk boundaries
+      fileData.append(line).append(",\"quoted\n").append(line).append(",\r\n\"\"x\"\"\",")
+        .append(line % 3 == 0 ? "" : "v" + line).append(line % 2 == 0 ? "\n" : "\r\n");
+    }
+    return fileData.toString();
+  }
+
+  protected List<List<String>> readAll(FileIterator iterator) throws InputIterationException {
+    List<List<String>> lines = new ArrayList<>();
+    while (iterator.hasNext()) {
+      lines.add(iterator.next());
+    }
+    return lines;
+  }
+
+  /**
+   * Test method for {@link ParallelFileIterator#next()} <p/> The lines should equal the lines of
+   * the {@link MappedFileIterator} in file order for every chunk size.
+   */
+  @Test
+  public void testNextPreservesRowOrder() throws IOException, InputIterationException {
+    // Setup
+    File file = getFile(getFileData());
+    // Expected values
+    MappedFileIterator expectedIterator = new MappedFileIterator(file, getSetting());
+    List<List<String>> expectedLines = readAll(expectedIterator);
+    expectedIterator.close();
+
+    for (long chunkSize = 1; chunkSize <= 64; chunkSize *= 2) {
+      ParallelFileIterator iterator =
+        new ParallelFileIterator(file, getSetting(), 3, true, chunkSize);
+
+      // Execute functionality
+      List<List<String>> actualLines = readAll(iterator);
+      iterator.close();
+
+      // Check result
+      assertEquals(50, actualLines.size());
+      assertEquals(expectedLines, actualLines);
+      assertEquals(Arrays.asList("7", "quoted\n7,\n\"x\"", "v7"), actualLines.get(7));
+    }
+  }
+
+  /**
+   * Test method for {@link ParallelFileIterator#next()} <p/> Without preserving the row order all
+   * lines should be read exactly once.
+   */
+  @Test
+  public void testNextUnordered() throws IOException, InputIterationException {
+    // Setup
+    File file = getFile(getFileData());
+    // Expected values
+    MappedFileIterator expectedIterator = new MappedFileIterator(file, getSetting());
+    List<List<String>> expectedLines = readAll(expectedIterator);
+    expectedIterator.close();
+    ParallelFileIterator iterator = new ParallelFileIterator(file, getSetting(), 4, false, 16);
+
+    // Execute functionality
+    List<List<String>> actualLines = readAll(iterator);
+    iterator.close();
+
+    // Check result
+    assertEquals(expectedLines.size(), actualLines.size());
+    assertThat(actualLines, IsIterableContainingInAnyOrder.containsInAnyOrder(
+      expectedLines.toArray()));
+  }
+
+  /**
+   * Test method for {@link ParallelFileIterator#readNextLine()} <p/> Random files split into tiny
+   * chunks should be parsed into exactly the lines the {@link FileIterator} reads.
+   */
+  @Test
+  public void testReadNextLineMatchesFileIterator() throws IOException, InputIterationException {
+    Random random = new Random(7);
+    for (int run = 0; run < 500; run++) {
+      // Setup
+      String fileData = MappedFileIteratorTest.getRandomFileData(random);
+      File file = getFile(fileData);
+      ConfigurationSettingFileInput setting = getSetting()
+        .setStrictQuotes(random.nextBoolean())
+        .setIgnoreLeadingWhiteSpace(random.nextBoolean());
+      // Expected values
+      List<List<String>> expectedLines =
+        MappedFileIteratorTest.readWithFileIterator(file, setting);
+
+      // Execute functionality
+      ParallelFileIterator iterator = new ParallelFileIterator(file, setting, 2, true, 3);
+      List<List<String>> actualLines = MappedFileIteratorTest.readAllLines(iterator);
+      iterator.close();
+
+      // Check result
+      assertEquals(fileData, expectedLines, actualLines);
+    }
+  }
+
+  /**
+   * Test method for {@link ParallelFileIterator#submitRanges()} <p/> More ranges should only be
+   * parsed ahead as long as they fit into the pending bytes.
+   */
+  @Test
+  public void testSubmitRangesRespectsPendingBytes() throws IOException, InputIterationException {
+    // Setup
+    File file = getFile(getFileData());
+    // Expected values
+    MappedFileIterator expectedIterator = new MappedFileIterator(file, getSetting());
+    List<List<String>> expectedLines = readAll(expectedIterator);
+    expectedIterator.close();
+    final long maximumPendingBytes = 100;
+
+    for (boolean preserveRowOrder : new boolean[]{true, false}) {
+      final List<Long> pendingBytes = new ArrayList<>();
+      ParallelFileIterator iterator =
+        new ParallelFileIterator(file, getSetting(), 2, preserveRowOrder, 8, maximumPendingBytes) {
+          @Override
+          protected void submitRanges() throws InputIterationException {
+            super.submitRanges();
+            if (numberOfPendingRanges > 1) {
+              pendingBytes.add(numberOfPendingBytes);
+            }
+          }
+        };
+
+      // Execute functionality
+      List<List<String>> actualLines = readAll(iterator);
+      iterator.close();
+
+      // Check result
+      assertThat(actualLines, IsIterableContainingInAnyOrder.containsInAnyOrder(
+        expectedLines.toArray()));
+      assertFalse(pendingBytes.isEmpty());
+      for (long bytes : pendingBytes) {
+        assertTrue(bytes <= maximumPendingBytes);
+      }
+      assertEquals(0, iterator.numberOfPendingBytes);
+    }
+  }
+
+  /**
+   * Test method for {@link ParallelFileIterator#ParallelFileIterator(File,
+   * ConfigurationSettingFileInput, int, boolean, long)} <p/> The parsing threads should be shut
+   * down if the header cannot be read.
+   */
+  @Test
+  public void testConstructorShutsDownExecutorOnFailure() throws IOException {
+    // Setup
+    File file = getFile(getFileData());
+    final List<ExecutorService> executors = new ArrayList<>();
+
+    // Execute functionality
+    try {
+      new ParallelFileIterator(file, getSetting(), 2, true, 8) {
+        @Override
+        protected void readHeader() throws InputIterationException {
+          executors.add(executor);
+          throw new InputIterationException("Could not read the header");
+        }
+      };
+      fail("Exception was not thrown.");
+    } catch (InputIterationException e) {
+      // Intentionally left blank
+    }
+
+    // Check result
+    assertEquals(1, executors.size());
+    assertTrue(executors.get(0).isShutdown());
+  }
+
+  /**
+   * Test method for {@link ParallelFileIterator#columnNames()} <p/> Skipped lines should not be
+   * split into chunks and the header should be read from the first line behind them.
+   */
+  @Test
+  public void testHeaderAndSkipLines() throws IOException, InputIterationException {
+    // Setup
+    File file = getFile("skipped \"line\n\"a\",b\nc,d\ne,f\ng,h\n");
+    ConfigurationSettingFileInput setting = getSetting().setHeader(true).setSkipLines(1);
+    ParallelFileIterator iterator = new ParallelFileIterator(file, setting, 2, true, 2);
+
+    // Execute functionality
+    // Check result
+    assertEquals(Arrays.asList("a", "b"), iterator.columnNames());
+    assertEquals(Arrays.asList("c", "d"), iterator.next());
+    assertEquals(Arrays.asList("e", "f"), iterator.next());
+    assertEquals(Arrays.asList("g", "h"), iterator.next());
+    assertFalse(iterator.hasNext());
+    iterator.close();
+  }
+
+  /**
+   * Test method for {@link DefaultFileInputGenerator#generateNewCopy()} <p/> The generator should
+   * parse in parallel if the setting requests it.
+   */
+  @Test
+  public void testGenerateNewCopy() throws Exception {
+    // Setup
+    DefaultFileInputGenerator generator = new DefaultFileInputGenerator(getFile("a,b\n"),
+      getSetting().setParallelParsing(true).setPreserveRowOrder(false));
+
+    // Execute functionality
+    RelationalInput input = generator.generateNewCopy();
+
+    // Check result
+    assertTrue(input instanceof ParallelFileIterator);
+    input.close();
+  }
+}
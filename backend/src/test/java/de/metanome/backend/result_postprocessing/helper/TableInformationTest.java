@@ -84,4 +84,35 @@ public class TableInformationTest {
     assertEquals(expectedBitSet, tableInformation.getBitSet());
   }
 
+  /**
+   * Test method for {@link TableInformation#TableInformation(RelationalInputGenerator, boolean,
+   * BitSet)} <p/> The statistics computed for all columns in parallel from one scan should equal
+   * the statistics of a separate scan per column.
+   */
+  @Test
+  public void testDataDependentStatisticsEqualColumnScans() throws Exception {
+    // Setup
+    TableInformation tableInformation =
+      new TableInformation(relationalInputGenerator, false, new BitSet());
+
+    for (int columnIndex = 0; columnIndex < tableInformation.getColumnCount(); columnIndex++) {
+      // Expected values
+      ColumnInformation expectedColumn = new ColumnInformation("column", columnIndex,
+        new BitSet(), fileFixture.getTestData(), true);
+
+      // Execute functionality
+      ColumnInformation actualColumn = tableInformation.getColumn(columnIndex);
+
+      // Check result
+      assertEquals(columnIndex, actualColumn.getColumnIndex());
+      assertEquals(expectedColumn.getColumnType(), actualColumn.getColumnType());
+      assertEquals(expectedColumn.getDistinctValuesCount(), actualColumn.getDistinctValuesCount());
+      assertEquals(expectedColumn.getNullValuesCount(), actualColumn.getNullValuesCount());
+      assertEquals(expectedColumn.getRowCount(), actualColumn.getRowCount());
+      assertEquals(expectedColumn.getAverageValueLength(), actualColumn.getAverageValueLength(),
+        0.0001);
+      assertEquals(expectedColumn.getHistogram().getHistogramData(),
+        actualColumn.getHistogram().getHistogramData());
+    }
+  }
 }
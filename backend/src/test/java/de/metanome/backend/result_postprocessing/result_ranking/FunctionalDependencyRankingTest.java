@@ -15,7 +15,8 @@
  */
 package de.metanome.backend.result_postprocessing.result_ranking;
 
-import de.metanome.algorithm_helper.data_structures.PositionListIndex;
+import de.metanome.algorithm_helper.data_structures.ColumnCombinationBitset;
+import de.metanome.algorithm_helper.data_structures.PLICache;
 import de.metanome.algorithm_integration.ColumnCombination;
 import de.metanome.algorithm_integration.ColumnIdentifier;
 import de.metanome.algorithm_integration.input.InputGenerationException;
@@ -259,15 +260,13 @@ public class FunctionalDependencyRankingTest {
     TableInformation tableInformation = tableInformationMap.values().iterator().next();
 
     // Execute functionality
-    Map<BitSet, PositionListIndex> plis = ranking.createPLIs(tableInformation);
+    PLICache plis = ranking.createPLIs(tableInformation);
 
     // Check
-    BitSet bitSet = new BitSet();
-    bitSet.set(0);
-    assertTrue(plis.containsKey(bitSet));
-    bitSet.clear();
-    bitSet.set(tableInformation.getColumnCount() - 1);
-    assertTrue(plis.containsKey(bitSet));
+    assertEquals(tableInformation.getColumnCount(), plis.size());
+    assertTrue(plis.containsKey(new ColumnCombinationBitset(0)));
+    assertTrue(
+      plis.containsKey(new ColumnCombinationBitset(tableInformation.getColumnCount() - 1)));
   }
 
   @Test
@@ -279,7 +278,7 @@ public class FunctionalDependencyRankingTest {
     FunctionalDependencyResult result = functionalDependencyResults.get(1);
 
     TableInformation tableInformation = tableInformationMap.values().iterator().next();
-    Map<BitSet, PositionListIndex> plis = ranking.createPLIs(tableInformation);
+    PLICache plis = ranking.createPLIs(tableInformation);
     ranking.PLIs = plis;
 
     // Execute Functionality
@@ -298,7 +297,7 @@ public class FunctionalDependencyRankingTest {
       tableInformationMap);
 
     TableInformation tableInformation = tableInformationMap.values().iterator().next();
-    Map<BitSet, PositionListIndex> plis = ranking.createPLIs(tableInformation);
+    PLICache plis = ranking.createPLIs(tableInformation);
     ranking.PLIs = plis;
 
     // Execute Functionality
@@ -308,7 +307,7 @@ public class FunctionalDependencyRankingTest {
 
     // Check
     assertEquals(0.0, keyError, 0.00);
-    assertEquals(tableInformation.getColumnCount(), ranking.PLIs.keySet().size());
+    assertEquals(tableInformation.getColumnCount(), ranking.PLIs.size());
 
     // Execute Functionality
     columns = new BitSet(5);
@@ -318,7 +317,7 @@ public class FunctionalDependencyRankingTest {
 
     // Check
     assertEquals(0.0, keyError, 0.0001);
-    assertEquals(tableInformation.getColumnCount() + 1, ranking.PLIs.keySet().size());
+    assertEquals(tableInformation.getColumnCount() + 1, ranking.PLIs.size());
 
     // Execute Functionality
     columns = new BitSet(5);
@@ -328,7 +327,38 @@ public class FunctionalDependencyRankingTest {
 
     // Check
     assertEquals(1.0, keyError, 0.0001);
-    assertEquals(tableInformation.getColumnCount() + 2, ranking.PLIs.keySet().size());
+    assertEquals(tableInformation.getColumnCount() + 2, ranking.PLIs.size());
+
+    // Execute Functionality
+    columns = new BitSet(5);
+    columns.set(2);
+    columns.set(4);
+    keyError = ranking.calculateKeyError(columns);
+
+    // Check
+    assertEquals(3.0, keyError, 0.0001);
+    assertEquals(tableInformation.getColumnCount() + 3, ranking.PLIs.size());
+  }
+
+  @Test
+  public void testCalculateKeyErrorApproximate() throws Exception {
+    // Set up
+    setUpPollution();
+    FunctionalDependencyRanking ranking = new FunctionalDependencyRanking(functionalDependencyResults,
+      tableInformationMap, 0.01);
+
+    TableInformation tableInformation = tableInformationMap.values().iterator().next();
+    ranking.keyErrorEstimator = ranking.createKeyErrorEstimator(tableInformation);
+
+    // Execute Functionality
+    BitSet columns = new BitSet(5);
+    columns.set(1);
+    columns.set(3);
+    float keyError = ranking.calculateKeyError(columns);
+
+    // Check
+    assertEquals(1.0, keyError, 0.0001);
+    assertNull(ranking.PLIs);
 
     // Execute Functionality
     columns = new BitSet(5);
@@ -338,7 +368,6 @@ public class FunctionalDependencyRankingTest {
 
     // Check
     assertEquals(3.0, keyError, 0.0001);
-    assertEquals(tableInformation.getColumnCount() + 3, ranking.PLIs.keySet().size());
   }
 
   @Test
@@ -350,7 +379,7 @@ public class FunctionalDependencyRankingTest {
     FunctionalDependencyResult result = functionalDependencyResults.get(0);
 
     TableInformation tableInformation = tableInformationMap.values().iterator().next();
-    Map<BitSet, PositionListIndex> plis = ranking.createPLIs(tableInformation);
+    PLICache plis = ranking.createPLIs(tableInformation);
     ranking.PLIs = plis;
 
     // Execute Functionality
@@ -370,7 +399,7 @@ public class FunctionalDependencyRankingTest {
     FunctionalDependencyResult result = functionalDependencyResults.get(0);
 
     TableInformation tableInformation = tableInformationMap.values().iterator().next();
-    Map<BitSet, PositionListIndex> plis = ranking.createPLIs(tableInformation);
+    PLICache plis = ranking.createPLIs(tableInformation);
     ranking.PLIs = plis;
 
     // Execute Functionality
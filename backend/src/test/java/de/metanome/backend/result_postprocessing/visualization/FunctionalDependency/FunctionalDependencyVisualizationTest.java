@@ -15,7 +15,8 @@
  */
 package de.metanome.backend.result_postprocessing.visualization.FunctionalDependency;
 
-import de.metanome.algorithm_helper.data_structures.PositionListIndex;
+import de.metanome.algorithm_helper.data_structures.ColumnCombinationBitset;
+import de.metanome.algorithm_helper.data_structures.PLICache;
 import de.metanome.algorithm_integration.AlgorithmConfigurationException;
 import de.metanome.algorithm_integration.ColumnCombination;
 import de.metanome.algorithm_integration.ColumnIdentifier;
@@ -177,7 +178,7 @@ public class FunctionalDependencyVisualizationTest {
                                                                           tableInformationMap);
 
     TableInformation tableInformation = tableInformationMap.values().iterator().next();
-    Map<BitSet, PositionListIndex> plis = ranking.createPLIs(tableInformation);
+    PLICache plis = ranking.createPLIs(tableInformation);
     tableInformation.setPLIs(plis);
 
     FunctionalDependencyVisualization visualization = new FunctionalDependencyVisualization(
@@ -208,5 +209,56 @@ public class FunctionalDependencyVisualizationTest {
     assertEquals(0L, (long) secondDeterminant.get("keyError"), 0.0001);
   }
 
+  @Test
+  public void testPrintWithKeyErrorEstimator()
+    throws InputGenerationException, InputIterationException, AlgorithmConfigurationException {
+    // Set up
+    FunctionalDependencyRanking ranking = new FunctionalDependencyRanking(functionalDependencyResults,
+                                                                          tableInformationMap, 0.01);
+
+    TableInformation tableInformation = tableInformationMap.values().iterator().next();
+    tableInformation.setKeyErrorEstimator(ranking.createKeyErrorEstimator(tableInformation));
+
+    FunctionalDependencyVisualization visualization = new FunctionalDependencyVisualization(
+        functionalDependencyResults, tableInformation);
+
+    Map<ColumnIdentifier, Set<ColumnCombination>> dependantMap =
+        visualization.createDependantMap();
+    ColumnIdentifier dependant = new ColumnIdentifier(tableName, "C");
+
+    // Execute functionality
+    BitSet path = new BitSet();
+    Set<ColumnCombination> determinants = dependantMap.get(dependant);
+    BitSet dependantBitSet = new BitSet();
+    dependantBitSet.set(tableInformation.getColumnInformationMap().get("C").getColumnIndex());
+    JSONObject dependantJSON = visualization.printRecursive(dependantBitSet, determinants, path, -1, 0,
+                                                            determinants.size(), "");
+
+    // Check
+    JSONObject firstDeterminant = (JSONObject) ((JSONArray) dependantJSON.get("children")).get(0);
+    assertEquals("A", firstDeterminant.get("name"));
+    assertEquals(1L, (long) firstDeterminant.get("keyError"), 0.0001);
+    JSONObject secondDeterminant = (JSONObject) ((JSONArray) firstDeterminant.get("children")).get(0);
+    assertEquals("B", secondDeterminant.get("name"));
+    assertEquals(0L, (long) secondDeterminant.get("keyError"), 0.0001);
+  }
+
+  @Test
+  public void testCreateMissingPLIs()
+    throws InputGenerationException, InputIterationException, AlgorithmConfigurationException {
+    // Set up
+    TableInformation tableInformation = tableInformationMap.values().iterator().next();
+    FunctionalDependencyVisualization visualization = new FunctionalDependencyVisualization(
+        functionalDependencyResults, tableInformation);
+
+    // Execute functionality
+    visualization.createMissingPLIs();
+
+    // Check
+    assertNotNull(tableInformation.getPLIs());
+    assertEquals(1L, tableInformation.getPLIs()
+      .getRawKeyError(new ColumnCombinationBitset(
+        tableInformation.getColumnInformationMap().get("A").getColumnIndex())));
+  }
 
 }